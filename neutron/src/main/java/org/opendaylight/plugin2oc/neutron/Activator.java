@@ -8,6 +8,8 @@
  */
 package org.opendaylight.plugin2oc.neutron;
 
+import java.util.Collections;
+
 import net.juniper.contrail.api.ApiConnector;
 import net.juniper.contrail.api.ApiConnectorFactory;
 
@@ -29,6 +31,13 @@ import org.slf4j.LoggerFactory;
  */
 public class Activator extends ComponentActivatorAbstractBase {
     static ApiConnector apiConnector = null;
+    static ReconciliationService reconciliationService = null;
+    static OperationJournal operationJournal = null;
+    static ApiEndpointPool apiEndpointPool = null;
+    static NameIndex nameIndex = null;
+    static CacheSnapshot cacheSnapshot = null;
+    static ChangeFeedSubscriber changeFeedSubscriber = null;
+    static StartupPreloader startupPreloader = null;
     static final Logger LOGGER = LoggerFactory.getLogger(Activator.class);
 
     /**
@@ -39,16 +48,30 @@ public class Activator extends ComponentActivatorAbstractBase {
     public void init() {
         LOGGER.info("plugin2oc Plugin service Registered");
         apiConnector = getApiConnection();
+        cacheSnapshot = CacheSnapshot.start(apiConnector);
+        nameIndex = NameIndex.start(apiConnector);
+        startupPreloader = StartupPreloader.start(apiConnector, nameIndex);
+        changeFeedSubscriber = ChangeFeedSubscriber.start(apiConnector, nameIndex);
+        operationJournal = OperationJournal.start();
+        reconciliationService = ReconciliationService.start(operationJournal);
     }
 
     /**
      * Function called to get APIConnector object. porperties must be defined in
      * opendaylight configuration folder inside config.ini at
      * opendaylight/distribution
-     * /opendaylight/src/main/resources/configuration/config.ini
+     * /opendaylight/src/main/resources/configuration/config.ini. Several config
+     * API nodes can be listed as host:port in plugin2oc.apiserver.endpoints
+     * instead.
      *
      */
     public ApiConnector getApiConnection() {
+        apiEndpointPool = ApiEndpointPool.start(System.getProperty(ApiEndpointPool.ENDPOINTS_PROPERTY));
+        if (apiEndpointPool != null) {
+            apiConnector = ContrailReplica.observe(TenantScheduler.schedule(CircuitBreaker.protect(apiEndpointPool.proxy())));
+            ProjectedReads.configurePool(apiEndpointPool);
+            return apiConnector;
+        }
         String ipAddress = System.getProperty("plugin2oc.apiserver.ipaddress");
         String port = System.getProperty("plugin2oc.apiserver.port");
         int portNumber = 0;
@@ -57,7 +80,8 @@ public class Activator extends ComponentActivatorAbstractBase {
         } catch (Exception ex) {
             LOGGER.error("Missing entry in Config file of Opendaylight", ex);
         }
-        apiConnector = ApiConnectorFactory.build(ipAddress, portNumber);
+        apiConnector = ContrailReplica.observe(TenantScheduler.schedule(CircuitBreaker.protect(ApiConnectorFactory.build(ipAddress, portNumber))));
+        ProjectedReads.configure(ipAddress != null && portNumber > 0 ? Collections.singletonList(ipAddress + ":" + portNumber) : null);
         return apiConnector;
     }
 
@@ -68,6 +92,37 @@ public class Activator extends ComponentActivatorAbstractBase {
      */
     @Override
     public void destroy() {
+        if (reconciliationService != null) {
+            reconciliationService.stop();
+            reconciliationService = null;
+        }
+        if (operationJournal != null) {
+            operationJournal.close();
+            operationJournal = null;
+        }
+        if (startupPreloader != null) {
+            startupPreloader.stop();
+            startupPreloader = null;
+        }
+        if (changeFeedSubscriber != null) {
+            changeFeedSubscriber.stop();
+            changeFeedSubscriber = null;
+        }
+        if (nameIndex != null) {
+            nameIndex.stop();
+            nameIndex = null;
+        }
+        if (cacheSnapshot != null) {
+            cacheSnapshot.stop();
+            cacheSnapshot = null;
+        }
+        if (apiEndpointPool != null) {
+            apiEndpointPool.stop();
+            apiEndpointPool = null;
+        }
+        TenantScheduler.unregister();
+        AdaptiveLimit.unregister();
+        DagExecutor.shutdown();
     }
 
     /**
@@ -83,7 +138,7 @@ public class Activator extends ComponentActivatorAbstractBase {
         Object[] res = { NetworkHandler.class, SubnetHandler.class, PortHandler.class, RouterHandler.class,
                 FloatingIpHandler.class, SecurityGroupHandler.class, SecurityGroupRulesHandler.class,
                 LoadBalancerHandler.class, LoadBalancerHealthMonitorHandler.class, LoadBalancerListenerHandler.class,
-                LoadBalancerPoolHandler.class, LoadBalancerPoolMemberHandler.class, };
+                LoadBalancerPoolHandler.class, LoadBalancerPoolMemberHandler.class, BulkOperationHandler.class, };
         return res;
     }
 
@@ -104,6 +159,12 @@ public class Activator extends ComponentActivatorAbstractBase {
      */
     @Override
     public void configureInstance(Component c, Object imp, String containerName) {
+        // the callbacks run under the tenant of their request
+        try {
+            c.setImplementation(TenantTagger.tag(((Class<?>) imp).newInstance()));
+        } catch (Exception e) {
+            LOGGER.error("Exception : " + e);
+        }
         if (imp.equals(NetworkHandler.class)) {
             c.setInterface(INeutronNetworkAware.class.getName(), null);
         }
@@ -140,6 +201,9 @@ public class Activator extends ComponentActivatorAbstractBase {
         if (imp.equals(LoadBalancerPoolMemberHandler.class)) {
             c.setInterface(INeutronSecurityRuleAware.class.getName(), null);
         }
+        if (imp.equals(BulkOperationHandler.class)) {
+            c.setInterface(NeutronBulkService.class.getName(), null);
+        }
         // Create service dependencies.
         c.add(createServiceDependency().setService(BindingAwareBroker.class).setCallbacks("setBindingAwareBroker", "unsetBindingAwareBroker")
                 .setRequired(true));
@@ -0,0 +1,230 @@
+/*
+ * Copyright (C) 2014 Juniper Networks, Inc.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ *
+ */
+package org.opendaylight.plugin2oc.neutron;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Limit on the number of Contrail API calls running at the same time, sized
+ * like a TCP congestion window. While the calls are as fast as the fastest
+ * recent call, give or take the tolerance, and the limit is used, it grows by
+ * one every limit calls. A call slower than that or failing with an
+ * IOException shows that the API server is queuing, and the limit is then
+ * multiplied by the backoff, at most once per round trip. The lowest latency
+ * is learnt again every {@link #MIN_LATENCY_SAMPLES} calls so that the limit
+ * follows a lasting change of the API server. The listings, taking time in
+ * proportion to the number of objects, are left out of the latencies and
+ * only lower the limit when they fail.
+ */
+final class AdaptiveLimit implements AdaptiveLimitMXBean {
+    static final Logger LOGGER = LoggerFactory.getLogger(AdaptiveLimit.class);
+    static final String INITIAL_PROPERTY = "plugin2oc.limit.initial";
+    static final String MIN_PROPERTY = "plugin2oc.limit.min";
+    static final String TOLERANCE_PROPERTY = "plugin2oc.limit.tolerance";
+    static final String BACKOFF_PROPERTY = "plugin2oc.limit.backoff";
+    static final String OBJECT_NAME = "org.opendaylight.plugin2oc:type=ConcurrencyLimit";
+    static final int MIN_LATENCY_SAMPLES = 500;
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final double tolerance;
+    private final double backoff;
+    private final AtomicLong limit;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicLong rejections = new AtomicLong();
+    private final AtomicLong minLatency = new AtomicLong(Long.MAX_VALUE);
+    private final AtomicInteger samples = new AtomicInteger();
+    private final AtomicLong lastDecrease = new AtomicLong(System.nanoTime());
+
+    /**
+     * @param initial
+     *            The limit to start with.
+     * @param tolerance
+     *            The ratio to the lowest latency above which a call is slow.
+     * @param backoff
+     *            The ratio applied to the limit on a slow call.
+     */
+    AdaptiveLimit(int initial, int min, int max, double tolerance, double backoff) {
+        if (min < 1 || max < min || tolerance < 1 || backoff <= 0 || backoff >= 1) {
+            throw new IllegalArgumentException("Invalid concurrency limit settings");
+        }
+        this.minLimit = min;
+        this.maxLimit = max;
+        this.tolerance = tolerance;
+        this.backoff = backoff;
+        this.limit = new AtomicLong(Double.doubleToLongBits(Math.max(min, Math.min(max, initial))));
+    }
+
+    /**
+     * @param max
+     *            The highest limit.
+     *
+     * @return A limit configured by the plugin2oc.limit.* system properties.
+     */
+    static AdaptiveLimit fromProperties(int max) {
+        max = Math.max(1, max);
+        int min = Math.min(max, Math.max(1, Integer.getInteger(MIN_PROPERTY, 4)));
+        return new AdaptiveLimit(Integer.getInteger(INITIAL_PROPERTY, 20), min, max, Double.parseDouble(System.getProperty(
+                TOLERANCE_PROPERTY, "2.0")), Double.parseDouble(System.getProperty(BACKOFF_PROPERTY, "0.9")));
+    }
+
+    /**
+     * Invoked before a call.
+     *
+     * @return false if the call must be refused.
+     */
+    boolean tryAcquire() {
+        while (true) {
+            int running = inFlight.get();
+            if (running >= limit()) {
+                rejections.incrementAndGet();
+                return false;
+            }
+            if (inFlight.compareAndSet(running, running + 1)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Invoked once a call acquired is done.
+     *
+     * @param latencyNanos
+     *            The time the call took.
+     * @param dropped
+     *            true if the call failed with an IOException.
+     */
+    void release(long latencyNanos, boolean dropped) {
+        int running = inFlight.getAndDecrement();
+        long fastest = observe(latencyNanos);
+        if (dropped || latencyNanos > tolerance * fastest) {
+            decrease(latencyNanos);
+        } else if (running * 2 >= Double.longBitsToDouble(limit.get())) {
+            resize(true);
+        }
+    }
+
+    /**
+     * Invoked once a listing acquired is done, its latency being left out.
+     *
+     * @param latencyNanos
+     *            The time the call took.
+     * @param dropped
+     *            true if the call failed with an IOException.
+     */
+    void releaseListing(long latencyNanos, boolean dropped) {
+        inFlight.decrementAndGet();
+        if (dropped) {
+            decrease(latencyNanos);
+        }
+    }
+
+    private void decrease(long latencyNanos) {
+        long now = System.nanoTime();
+        long last = lastDecrease.get();
+        // the calls of one round trip all see the same congestion
+        if (now - last > latencyNanos && lastDecrease.compareAndSet(last, now)) {
+            resize(false);
+            LOGGER.debug("Contrail API concurrency limit lowered to " + limit());
+        }
+    }
+
+    private long observe(long latencyNanos) {
+        if (samples.incrementAndGet() % MIN_LATENCY_SAMPLES == 0) {
+            minLatency.set(latencyNanos);
+            return latencyNanos;
+        }
+        while (true) {
+            long fastest = minLatency.get();
+            if (latencyNanos >= fastest) {
+                return fastest;
+            }
+            if (minLatency.compareAndSet(fastest, latencyNanos)) {
+                return latencyNanos;
+            }
+        }
+    }
+
+    private void resize(boolean increase) {
+        while (true) {
+            long current = limit.get();
+            double value = Double.longBitsToDouble(current);
+            value = increase ? Math.min(maxLimit, value + 1 / value) : Math.max(minLimit, value * backoff);
+            if (limit.compareAndSet(current, Double.doubleToLongBits(value))) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Invoked to publish the metrics of the limit through JMX.
+     */
+    void register() {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName(OBJECT_NAME);
+            if (server.isRegistered(name)) {
+                server.unregisterMBean(name);
+            }
+            server.registerMBean(this, name);
+        } catch (Exception e) {
+            LOGGER.error("Exception : " + e);
+        }
+    }
+
+    /**
+     * Invoked from {@link Activator#destroy()} to withdraw the metrics of the
+     * limit.
+     */
+    static void unregister() {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName(OBJECT_NAME);
+            if (server.isRegistered(name)) {
+                server.unregisterMBean(name);
+            }
+        } catch (Exception e) {
+            LOGGER.error("Exception : " + e);
+        }
+    }
+
+    int limit() {
+        return (int) Double.longBitsToDouble(limit.get());
+    }
+
+    @Override
+    public int getLimit() {
+        return limit();
+    }
+
+    @Override
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    @Override
+    public long getRejections() {
+        return rejections.get();
+    }
+
+    @Override
+    public long getMinLatencyMillis() {
+        long fastest = minLatency.get();
+        return fastest == Long.MAX_VALUE ? 0 : TimeUnit.NANOSECONDS.toMillis(fastest);
+    }
+}
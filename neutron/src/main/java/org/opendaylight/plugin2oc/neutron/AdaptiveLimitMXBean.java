@@ -0,0 +1,37 @@
+/*
+ * Copyright (C) 2014 Juniper Networks, Inc.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ *
+ */
+package org.opendaylight.plugin2oc.neutron;
+
+/**
+ * Metrics of the {@link AdaptiveLimit} on the Contrail API calls, registered
+ * as org.opendaylight.plugin2oc:type=ConcurrencyLimit.
+ */
+public interface AdaptiveLimitMXBean {
+
+    /**
+     * @return The number of calls currently allowed at the same time.
+     */
+    int getLimit();
+
+    /**
+     * @return The number of calls running.
+     */
+    int getInFlight();
+
+    /**
+     * @return The number of calls refused because the limit was reached.
+     */
+    long getRejections();
+
+    /**
+     * @return The lowest latency observed recently, the latency of an idle
+     *         API server.
+     */
+    long getMinLatencyMillis();
+}
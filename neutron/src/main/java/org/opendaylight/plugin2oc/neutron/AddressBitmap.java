@@ -0,0 +1,147 @@
+/*
+ * Copyright (C) 2014 Juniper Networks, Inc.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ *
+ */
+package org.opendaylight.plugin2oc.neutron;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free bitmap of the addresses of a contiguous IPv4 range. One bit is
+ * kept per address, so a /16 costs 8 KB. Claims and releases are single
+ * compare-and-set operations on the word holding the address.
+ */
+final class AddressBitmap {
+    private static final long FULL = -1L;
+
+    private final long firstAddress;
+    private final int size;
+    private final AtomicLongArray words;
+    private final AtomicInteger free;
+    private final AtomicInteger hint = new AtomicInteger();
+
+    /**
+     * @param firstAddress
+     *            Numeric value of the first address of the range.
+     * @param size
+     *            Number of addresses in the range.
+     */
+    AddressBitmap(long firstAddress, int size) {
+        if (size <= 0) {
+            throw new IllegalArgumentException("Address range can not be empty");
+        }
+        this.firstAddress = firstAddress;
+        this.size = size;
+        this.words = new AtomicLongArray((size + 63) >>> 6);
+        this.free = new AtomicInteger(size);
+        int tail = size & 63;
+        if (tail != 0) {
+            // bits past the end of the range are permanently claimed
+            words.set(words.length() - 1, FULL << tail);
+        }
+    }
+
+    long firstAddress() {
+        return firstAddress;
+    }
+
+    long lastAddress() {
+        return firstAddress + size - 1;
+    }
+
+    int size() {
+        return size;
+    }
+
+    int freeCount() {
+        return free.get();
+    }
+
+    boolean covers(long address) {
+        return address >= firstAddress && address < firstAddress + size;
+    }
+
+    boolean isClaimed(long address) {
+        int offset = offset(address);
+        return (words.get(offset >>> 6) & (1L << offset)) != 0;
+    }
+
+    /**
+     * Invoked to claim a specific address.
+     *
+     * @return true if the address was free and is now claimed.
+     */
+    boolean claim(long address) {
+        int offset = offset(address);
+        int index = offset >>> 6;
+        long bit = 1L << offset;
+        while (true) {
+            long word = words.get(index);
+            if ((word & bit) != 0) {
+                return false;
+            }
+            if (words.compareAndSet(index, word, word | bit)) {
+                free.decrementAndGet();
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Invoked to return a claimed address to the free set.
+     *
+     * @return true if the address was claimed.
+     */
+    boolean release(long address) {
+        int offset = offset(address);
+        int index = offset >>> 6;
+        long bit = 1L << offset;
+        while (true) {
+            long word = words.get(index);
+            if ((word & bit) == 0) {
+                return false;
+            }
+            if (words.compareAndSet(index, word, word & ~bit)) {
+                free.incrementAndGet();
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Invoked to claim any free address. The scan starts at the word where
+     * the previous claim succeeded, so consecutive claims stay close to O(1).
+     *
+     * @return The claimed address, or -1 if the range is exhausted.
+     */
+    long claimNext() {
+        int length = words.length();
+        int start = hint.get();
+        for (int n = 0; n < length && free.get() > 0; n++) {
+            int index = (start + n) % length;
+            long word = words.get(index);
+            while (word != FULL) {
+                long bit = Long.lowestOneBit(~word);
+                if (words.compareAndSet(index, word, word | bit)) {
+                    free.decrementAndGet();
+                    hint.set(index);
+                    return firstAddress + ((long) index << 6) + Long.numberOfTrailingZeros(bit);
+                }
+                word = words.get(index);
+            }
+        }
+        return -1;
+    }
+
+    private int offset(long address) {
+        if (!covers(address)) {
+            throw new IllegalArgumentException("Address " + Utils.longToIpv4(address) + " is outside of the range");
+        }
+        return (int) (address - firstAddress);
+    }
+}
@@ -0,0 +1,131 @@
+/*
+ * Copyright (C) 2014 Juniper Networks, Inc.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ *
+ */
+package org.opendaylight.plugin2oc.neutron;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Sorted set of disjoint IPv4 address ranges, each backed by an
+ * {@link AddressBitmap}. Ranges are located by binary search and free
+ * addresses are taken from the range the previous allocation succeeded in,
+ * so allocations stay close to O(1) until that range is exhausted.
+ */
+final class AddressRangeSet {
+    private final AddressBitmap[] ranges;
+    private final AtomicInteger cursor = new AtomicInteger();
+
+    /**
+     * @param ranges
+     *            The ranges of the set, they must not overlap.
+     */
+    AddressRangeSet(List<AddressBitmap> ranges) {
+        List<AddressBitmap> sorted = new ArrayList<AddressBitmap>(ranges);
+        Collections.sort(sorted, new Comparator<AddressBitmap>() {
+            @Override
+            public int compare(AddressBitmap first, AddressBitmap second) {
+                return Long.compare(first.firstAddress(), second.firstAddress());
+            }
+        });
+        for (int i = 1; i < sorted.size(); i++) {
+            if (sorted.get(i).firstAddress() <= sorted.get(i - 1).lastAddress()) {
+                throw new IllegalArgumentException("Address range starting at " + Utils.longToIpv4(sorted.get(i).firstAddress())
+                        + " overlaps another range");
+            }
+        }
+        this.ranges = sorted.toArray(new AddressBitmap[sorted.size()]);
+    }
+
+    int rangeCount() {
+        return ranges.length;
+    }
+
+    /**
+     * @return The range containing the address, or null.
+     */
+    AddressBitmap rangeOf(long address) {
+        int low = 0;
+        int high = ranges.length - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            AddressBitmap range = ranges[middle];
+            if (address < range.firstAddress()) {
+                high = middle - 1;
+            } else if (address > range.lastAddress()) {
+                low = middle + 1;
+            } else {
+                return range;
+            }
+        }
+        return null;
+    }
+
+    boolean covers(long address) {
+        return rangeOf(address) != null;
+    }
+
+    /**
+     * @return true if the address is in the set and already claimed.
+     */
+    boolean isClaimed(long address) {
+        AddressBitmap range = rangeOf(address);
+        return range != null && range.isClaimed(address);
+    }
+
+    /**
+     * Invoked to claim a specific address.
+     *
+     * @return true if the address is in the set and was free.
+     */
+    boolean claim(long address) {
+        AddressBitmap range = rangeOf(address);
+        return range != null && range.claim(address);
+    }
+
+    /**
+     * Invoked to return an address to the set.
+     *
+     * @return true if the address is in the set and was claimed.
+     */
+    boolean release(long address) {
+        AddressBitmap range = rangeOf(address);
+        return range != null && range.release(address);
+    }
+
+    /**
+     * Invoked to claim any free address.
+     *
+     * @return The claimed address, or -1 if every range is exhausted.
+     */
+    long claimNext() {
+        int start = cursor.get();
+        for (int n = 0; n < ranges.length; n++) {
+            int index = (start + n) % ranges.length;
+            long address = ranges[index].claimNext();
+            if (address >= 0) {
+                if (index != start) {
+                    cursor.set(index);
+                }
+                return address;
+            }
+        }
+        return -1;
+    }
+
+    int freeCount() {
+        int free = 0;
+        for (AddressBitmap range : ranges) {
+            free += range.freeCount();
+        }
+        return free;
+    }
+}
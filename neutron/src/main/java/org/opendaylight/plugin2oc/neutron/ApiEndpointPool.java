@@ -0,0 +1,289 @@
+/*
+ * Copyright (C) 2014 Juniper Networks, Inc.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ *
+ */
+package org.opendaylight.plugin2oc.neutron;
+
+import java.io.IOException;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.net.ConnectException;
+import java.net.NoRouteToHostException;
+import java.net.UnknownHostException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import net.juniper.contrail.api.ApiConnector;
+import net.juniper.contrail.api.ApiConnectorFactory;
+import net.juniper.contrail.api.ApiObjectBase;
+import net.juniper.contrail.api.types.Project;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Connector spreading the Contrail API calls over several config API nodes.
+ * Reads go to the healthy node with the fewest calls in flight, writes go to
+ * the node the resource UUID hashes to so that the writes of a resource are
+ * ordered by a single node, and a node failing a call is taken out of
+ * rotation. A read is then moved to the next node, a write only when the
+ * node could not be connected to, since a write the node may have received
+ * must not be applied twice. Nodes out of rotation get no calls, they are
+ * probed periodically and put back once they answer again.
+ */
+final class ApiEndpointPool implements InvocationHandler {
+    static final Logger LOGGER = LoggerFactory.getLogger(ApiEndpointPool.class);
+    static final String ENDPOINTS_PROPERTY = "plugin2oc.apiserver.endpoints";
+    static final String HEALTH_INTERVAL_PROPERTY = "plugin2oc.apiserver.healthInterval";
+    static final String PROBE_FQN = "default-domain:default-project";
+
+    /**
+     * A config API node of the pool.
+     */
+    static final class Endpoint {
+        final String address;
+        final ApiConnector connector;
+        final AtomicInteger outstanding = new AtomicInteger();
+        volatile boolean healthy = true;
+
+        Endpoint(String address, ApiConnector connector) {
+            this.address = address;
+            this.connector = connector;
+        }
+
+        @Override
+        public String toString() {
+            return address;
+        }
+    }
+
+    private final List<Endpoint> endpoints;
+    private ScheduledExecutorService healthChecker;
+
+    ApiEndpointPool(List<Endpoint> endpoints) {
+        this.endpoints = endpoints;
+    }
+
+    /**
+     * Invoked to parse the plugin2oc.apiserver.endpoints property, a comma
+     * separated list of host:port.
+     *
+     * @return The endpoints, empty if the property is not set or invalid.
+     */
+    static List<Endpoint> endpoints(String property) {
+        List<Endpoint> endpoints = new ArrayList<Endpoint>();
+        if (property == null) {
+            return endpoints;
+        }
+        for (String address : property.split(",")) {
+            address = address.trim();
+            if (address.isEmpty()) {
+                continue;
+            }
+            int colon = address.lastIndexOf(':');
+            try {
+                ApiConnector connector = ApiConnectorFactory.build(address.substring(0, colon), Integer.parseInt(address.substring(colon + 1)));
+                if (connector != null) {
+                    endpoints.add(new Endpoint(address, connector));
+                }
+            } catch (RuntimeException e) {
+                LOGGER.error("Invalid Contrail API endpoint " + address + " : " + e);
+            }
+        }
+        return endpoints;
+    }
+
+    /**
+     * Invoked from {@link Activator#getApiConnection()} when several
+     * endpoints are configured.
+     *
+     * @return The pool, null if fewer than two endpoints are usable.
+     */
+    static ApiEndpointPool start(String property) {
+        List<Endpoint> endpoints = endpoints(property);
+        if (endpoints.size() < 2) {
+            return null;
+        }
+        final ApiEndpointPool pool = new ApiEndpointPool(endpoints);
+        long interval = Long.getLong(HEALTH_INTERVAL_PROPERTY, 10000L);
+        if (interval > 0) {
+            pool.healthChecker = Executors.newSingleThreadScheduledExecutor(ReconciliationService.daemonThreads("plugin2oc-apiserver-health"));
+            pool.healthChecker.scheduleWithFixedDelay(new Runnable() {
+                @Override
+                public void run() {
+                    pool.checkHealth();
+                }
+            }, interval, interval, TimeUnit.MILLISECONDS);
+        }
+        LOGGER.info("Contrail API calls spread over " + endpoints);
+        return pool;
+    }
+
+    ApiConnector proxy() {
+        return (ApiConnector) Proxy.newProxyInstance(ApiConnector.class.getClassLoader(), new Class<?>[] { ApiConnector.class }, this);
+    }
+
+    void stop() {
+        if (healthChecker != null) {
+            healthChecker.shutdownNow();
+        }
+    }
+
+    /**
+     * Invoked periodically to probe every endpoint and update its health.
+     */
+    void checkHealth() {
+        for (Endpoint endpoint : endpoints) {
+            boolean healthy;
+            try {
+                endpoint.connector.findByFQN(Project.class, PROBE_FQN);
+                healthy = true;
+            } catch (IOException e) {
+                healthy = false;
+            } catch (RuntimeException e) {
+                healthy = false;
+            }
+            if (healthy != endpoint.healthy) {
+                endpoint.healthy = healthy;
+                if (healthy) {
+                    LOGGER.info("Contrail API endpoint " + endpoint + " back in rotation");
+                } else {
+                    LOGGER.warn("Contrail API endpoint " + endpoint + " failed its health check, taken out of rotation");
+                }
+            }
+        }
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+        if (method.getDeclaringClass() == Object.class) {
+            if (("equals").equals(method.getName())) {
+                return proxy == args[0];
+            }
+            if (("hashCode").equals(method.getName())) {
+                return System.identityHashCode(proxy);
+            }
+            return "ApiEndpointPool" + endpoints;
+        }
+        String key = writeKey(method, args);
+        IOException failure = null;
+        for (Endpoint endpoint : key != null ? byAffinity(key) : byLoad()) {
+            if (!endpoint.healthy) {
+                continue;
+            }
+            endpoint.outstanding.incrementAndGet();
+            try {
+                return method.invoke(endpoint.connector, args);
+            } catch (InvocationTargetException e) {
+                if (!(e.getCause() instanceof IOException)) {
+                    throw e.getCause();
+                }
+                failure = (IOException) e.getCause();
+                if (endpoint.healthy) {
+                    endpoint.healthy = false;
+                    LOGGER.warn("Contrail API endpoint " + endpoint + " failed " + method.getName() + ", taken out of rotation : " + failure);
+                }
+                if (key != null && !notConnected(failure)) {
+                    throw failure;
+                }
+            } finally {
+                endpoint.outstanding.decrementAndGet();
+            }
+        }
+        throw failure != null ? failure : new IOException("No Contrail API endpoint available");
+    }
+
+    /**
+     * @return true if the call failed before reaching the node, so that it
+     *         can be sent to another node.
+     */
+    static boolean notConnected(IOException e) {
+        return e instanceof ConnectException || e instanceof NoRouteToHostException || e instanceof UnknownHostException;
+    }
+
+    /**
+     * @return The resource a write applies to, null for a read.
+     */
+    static String writeKey(Method method, Object[] args) {
+        String name = method.getName();
+        if (!("create").equals(name) && !("update").equals(name) && !("delete").equals(name)) {
+            return null;
+        }
+        Object last = args[args.length - 1];
+        if (last instanceof String) {
+            return (String) last;
+        }
+        ApiObjectBase object = (ApiObjectBase) last;
+        if (object.getUuid() != null) {
+            return object.getUuid();
+        }
+        return object.getQualifiedName() != null ? object.getQualifiedName().toString() : String.valueOf(object.getName());
+    }
+
+    /**
+     * @return The endpoints ordered for a read, healthy ones first by the
+     *         number of calls in flight.
+     */
+    List<Endpoint> byLoad() {
+        List<Endpoint> ordered = new ArrayList<Endpoint>(endpoints);
+        // rotate first so that ties do not always land on the same node
+        Collections.rotate(ordered, ThreadLocalRandom.current().nextInt(ordered.size()));
+        Collections.sort(ordered, new Comparator<Endpoint>() {
+            @Override
+            public int compare(Endpoint first, Endpoint second) {
+                if (first.healthy != second.healthy) {
+                    return first.healthy ? -1 : 1;
+                }
+                return Integer.compare(first.outstanding.get(), second.outstanding.get());
+            }
+        });
+        return ordered;
+    }
+
+    /**
+     * @return The endpoints ordered for a write of a resource, by rendezvous
+     *         hashing of the resource so that only the resources of a failed
+     *         node move, healthy ones first.
+     */
+    List<Endpoint> byAffinity(final String key) {
+        final long[] weights = new long[endpoints.size()];
+        List<Integer> indexes = new ArrayList<Integer>();
+        for (int i = 0; i < weights.length; i++) {
+            weights[i] = MerkleTree.hash(key, endpoints.get(i).address);
+            indexes.add(i);
+        }
+        Collections.sort(indexes, new Comparator<Integer>() {
+            @Override
+            public int compare(Integer first, Integer second) {
+                Endpoint a = endpoints.get(first);
+                Endpoint b = endpoints.get(second);
+                if (a.healthy != b.healthy) {
+                    return a.healthy ? -1 : 1;
+                }
+                return Long.compare(weights[second], weights[first]);
+            }
+        });
+        List<Endpoint> ordered = new ArrayList<Endpoint>(indexes.size());
+        for (Integer index : indexes) {
+            ordered.add(endpoints.get(index));
+        }
+        return ordered;
+    }
+
+    List<Endpoint> endpoints() {
+        return Collections.unmodifiableList(endpoints);
+    }
+}
@@ -0,0 +1,620 @@
+/*
+ * Copyright (C) 2014 Juniper Networks, Inc.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ *
+ */
+package org.opendaylight.plugin2oc.neutron;
+
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+
+import net.juniper.contrail.api.ApiConnector;
+import net.juniper.contrail.api.types.LogicalRouter;
+import net.juniper.contrail.api.types.SecurityGroup;
+import net.juniper.contrail.api.types.VirtualMachineInterface;
+import net.juniper.contrail.api.types.VirtualNetwork;
+
+import org.opendaylight.controller.networkconfig.neutron.INeutronNetworkAware;
+import org.opendaylight.controller.networkconfig.neutron.INeutronNetworkCRUD;
+import org.opendaylight.controller.networkconfig.neutron.INeutronPortAware;
+import org.opendaylight.controller.networkconfig.neutron.INeutronPortCRUD;
+import org.opendaylight.controller.networkconfig.neutron.INeutronRouterAware;
+import org.opendaylight.controller.networkconfig.neutron.INeutronRouterCRUD;
+import org.opendaylight.controller.networkconfig.neutron.INeutronSecurityGroupAware;
+import org.opendaylight.controller.networkconfig.neutron.INeutronSecurityGroupCRUD;
+import org.opendaylight.controller.networkconfig.neutron.INeutronSecurityRuleAware;
+import org.opendaylight.controller.networkconfig.neutron.INeutronSecurityRuleCRUD;
+import org.opendaylight.controller.networkconfig.neutron.INeutronSubnetAware;
+import org.opendaylight.controller.networkconfig.neutron.INeutronSubnetCRUD;
+import org.opendaylight.controller.networkconfig.neutron.NeutronCRUDInterfaces;
+import org.opendaylight.controller.networkconfig.neutron.NeutronNetwork;
+import org.opendaylight.controller.networkconfig.neutron.NeutronPort;
+import org.opendaylight.controller.networkconfig.neutron.NeutronRouter;
+import org.opendaylight.controller.networkconfig.neutron.NeutronSecurityGroup;
+import org.opendaylight.controller.networkconfig.neutron.NeutronSecurityRule;
+import org.opendaylight.controller.networkconfig.neutron.NeutronSubnet;
+import org.opendaylight.controller.networkconfig.neutron.Neutron_IPs;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Handle the batches of Neutron objects given by the orchestrators.
+ *
+ * The whole batch is checked first: an object with no UUID or of a type not
+ * supported is rejected with 400, a second object with the same UUID with
+ * 409, and an object referring to an object coming later in the batch with
+ * 400. The objects not depending on other objects of the batch are then
+ * validated by their handler against the cached Contrail state, and the
+ * others once the objects they depend on are created. Each object is created
+ * as soon as the objects it depends on are, and its creation is verified by
+ * reading it back from the API server since the handlers do not report
+ * errors.
+ *
+ * As the Neutron northbound does for a single object, a valid object is
+ * added to the Neutron CRUD service of its type before its handler creates
+ * it, so that the handlers of the later objects of the batch find it there,
+ * e.g. the subnet of a fixed IP, and it is removed again if its creation is
+ * not verified.
+ */
+public class BulkOperationHandler implements NeutronBulkService {
+    static final Logger LOGGER = LoggerFactory.getLogger(BulkOperationHandler.class);
+    static final String PARALLELISM_PROPERTY = "plugin2oc.bulk.parallelism";
+    static final String TIMEOUT_PROPERTY = "plugin2oc.bulk.timeout";
+    static ApiConnector apiConnector;
+
+    /**
+     * An object of a batch and the handler creating it.
+     */
+    abstract static class Operation {
+        /**
+         * @return The Neutron UUID of the object.
+         */
+        abstract String uuid();
+
+        /**
+         * @return The Neutron UUIDs of the objects the object refers to.
+         */
+        abstract List<String> dependencies();
+
+        /**
+         * @return A HTTP status code to the creation request.
+         */
+        abstract int validate();
+
+        /**
+         * Invoked once the object is validated to add it to the Neutron CRUD
+         * service of its type.
+         */
+        void store() {
+        }
+
+        /**
+         * Invoked when the creation of a stored object is not verified.
+         */
+        void unstore() {
+        }
+
+        abstract void create();
+
+        /**
+         * @return true if the object has been created.
+         */
+        abstract boolean verify() throws IOException;
+    }
+
+    /**
+     * Invoked to create a batch of Neutron objects.
+     *
+     * @param batch
+     *            The objects to create.
+     *
+     * @return The result of each object, in the order of the batch.
+     */
+    @Override
+    public List<NeutronBulkResult> execute(List<Object> batch) {
+        apiConnector = Activator.apiConnector;
+        if (batch == null || batch.isEmpty()) {
+            return Collections.emptyList();
+        }
+        List<Operation> operations = new ArrayList<Operation>(batch.size());
+        for (Object object : batch) {
+            operations.add(operation(object));
+        }
+        if (!StartupPreloader.isReady() || CircuitBreaker.isOpen()) {
+            List<NeutronBulkResult> results = new ArrayList<NeutronBulkResult>(batch.size());
+            for (int i = 0; i < operations.size(); i++) {
+                Operation operation = operations.get(i);
+                results.add(new NeutronBulkResult(i, operation == null ? null : operation.uuid(), HttpURLConnection.HTTP_UNAVAILABLE));
+            }
+            return results;
+        }
+        return run(operations);
+    }
+
+    /**
+     * Invoked to check, validate and create the objects of a batch.
+     *
+     * @param operations
+     *            The operation of each object of the batch, null for the
+     *            objects of a type not supported.
+     *
+     * @return The result of each object, in the order of the batch.
+     */
+    static List<NeutronBulkResult> run(List<Operation> operations) {
+        int size = operations.size();
+        int[] statuses = new int[size];
+        Map<String, Integer> positions = new HashMap<String, Integer>();
+        for (int i = 0; i < size; i++) {
+            Operation operation = operations.get(i);
+            if (operation == null || operation.uuid() == null || operation.uuid().isEmpty()) {
+                statuses[i] = HttpURLConnection.HTTP_BAD_REQUEST;
+            } else if (positions.containsKey(key(operation.uuid()))) {
+                statuses[i] = HttpURLConnection.HTTP_CONFLICT;
+            } else {
+                positions.put(key(operation.uuid()), i);
+            }
+        }
+        DagExecutor dag = new DagExecutor();
+        boolean scheduled = false;
+        for (int i = 0; i < size; i++) {
+            if (statuses[i] != 0) {
+                continue;
+            }
+            Operation operation = operations.get(i);
+            List<String> dependsOn = new ArrayList<String>();
+            for (String dependency : operation.dependencies()) {
+                Integer position = dependency == null ? null : positions.get(key(dependency));
+                if (position == null || position == i) {
+                    continue;
+                }
+                if (position > i) {
+                    LOGGER.error("Batch item " + i + " refers to the later item " + position);
+                    statuses[i] = HttpURLConnection.HTTP_BAD_REQUEST;
+                    break;
+                }
+                if (statuses[position] != 0) {
+                    statuses[i] = DagExecutor.FAILED_DEPENDENCY;
+                    break;
+                }
+                dependsOn.add(String.valueOf(position));
+            }
+            if (statuses[i] != 0) {
+                continue;
+            }
+            // the objects depended on are not there yet to validate against
+            if (dependsOn.isEmpty()) {
+                int status = operation.validate();
+                if (status != HttpURLConnection.HTTP_OK) {
+                    statuses[i] = status;
+                    continue;
+                }
+            }
+            dag.add(String.valueOf(i), task(operation, !dependsOn.isEmpty()), dependsOn);
+            scheduled = true;
+        }
+        if (scheduled) {
+            int parallelism = Math.max(1, Math.min(Integer.getInteger(PARALLELISM_PROPERTY, 8), size));
+            ExecutorService executor = DagExecutor.executor("plugin2oc-bulk", parallelism);
+            try {
+                for (Map.Entry<String, Integer> done : dag.run(executor, Long.getLong(TIMEOUT_PROPERTY, 300000L)).entrySet()) {
+                    statuses[Integer.parseInt(done.getKey())] = done.getValue();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                // the creations still running are interrupted and unstore their objects
+                executor.shutdownNow();
+            } finally {
+                executor.shutdown();
+            }
+        }
+        List<NeutronBulkResult> results = new ArrayList<NeutronBulkResult>(size);
+        for (int i = 0; i < size; i++) {
+            Operation operation = operations.get(i);
+            int status = statuses[i] != 0 ? statuses[i] : HttpURLConnection.HTTP_UNAVAILABLE;
+            results.add(new NeutronBulkResult(i, operation == null ? null : operation.uuid(), status));
+        }
+        return results;
+    }
+
+    private static Callable<Integer> task(final Operation operation, final boolean validate) {
+        return new Callable<Integer>() {
+            @Override
+            public Integer call() throws IOException {
+                if (validate) {
+                    int status = operation.validate();
+                    if (status != HttpURLConnection.HTTP_OK) {
+                        return status;
+                    }
+                }
+                operation.store();
+                boolean verified = false;
+                try {
+                    operation.create();
+                    verified = operation.verify();
+                } finally {
+                    if (!verified) {
+                        operation.unstore();
+                    }
+                }
+                if (!verified) {
+                    LOGGER.error("Creation of " + operation.uuid() + " not verified");
+                    return HttpURLConnection.HTTP_INTERNAL_ERROR;
+                }
+                return HttpURLConnection.HTTP_CREATED;
+            }
+        };
+    }
+
+    /**
+     * @return The key of a Neutron UUID, the same with and without dashes.
+     */
+    static String key(String uuid) {
+        return uuid.replace("-", "").toLowerCase();
+    }
+
+    /**
+     * @return The Contrail UUID of a Neutron UUID.
+     */
+    static String contrailUuid(String uuid) {
+        if (!(uuid.contains("-"))) {
+            uuid = Utils.uuidFormater(uuid);
+        }
+        return UUID.fromString(uuid).toString();
+    }
+
+    INeutronNetworkCRUD networkCRUD() {
+        return NeutronCRUDInterfaces.getINeutronNetworkCRUD(this);
+    }
+
+    INeutronSubnetCRUD subnetCRUD() {
+        return NeutronCRUDInterfaces.getINeutronSubnetCRUD(this);
+    }
+
+    INeutronPortCRUD portCRUD() {
+        return NeutronCRUDInterfaces.getINeutronPortCRUD(this);
+    }
+
+    INeutronRouterCRUD routerCRUD() {
+        return NeutronCRUDInterfaces.getINeutronRouterCRUD(this);
+    }
+
+    INeutronSecurityGroupCRUD securityGroupCRUD() {
+        return NeutronCRUDInterfaces.getINeutronSecurityGroupCRUD(this);
+    }
+
+    INeutronSecurityRuleCRUD securityRuleCRUD() {
+        return NeutronCRUDInterfaces.getINeutronSecurityRuleCRUD(this);
+    }
+
+    /**
+     * @return The operation creating an object, null if its type is not
+     *         supported.
+     */
+    Operation operation(Object object) {
+        if (object instanceof NeutronNetwork) {
+            final NeutronNetwork network = (NeutronNetwork) object;
+            final INeutronNetworkAware handler = (INeutronNetworkAware) TenantTagger.tag(new NetworkHandler());
+            return new Operation() {
+                @Override
+                String uuid() {
+                    return network.getNetworkUUID();
+                }
+
+                @Override
+                List<String> dependencies() {
+                    return Collections.emptyList();
+                }
+
+                @Override
+                int validate() {
+                    return handler.canCreateNetwork(network);
+                }
+
+                @Override
+                void store() {
+                    INeutronNetworkCRUD crud = networkCRUD();
+                    if (crud != null) {
+                        crud.addNetwork(network);
+                    }
+                }
+
+                @Override
+                void unstore() {
+                    INeutronNetworkCRUD crud = networkCRUD();
+                    if (crud != null) {
+                        crud.removeNetwork(uuid());
+                    }
+                }
+
+                @Override
+                void create() {
+                    handler.neutronNetworkCreated(network);
+                }
+
+                @Override
+                boolean verify() throws IOException {
+                    return ContrailReplica.findById(apiConnector, VirtualNetwork.class, contrailUuid(uuid()), true) != null;
+                }
+            };
+        }
+        if (object instanceof NeutronSubnet) {
+            final NeutronSubnet subnet = (NeutronSubnet) object;
+            final INeutronSubnetAware handler = (INeutronSubnetAware) TenantTagger.tag(new SubnetHandler());
+            return new Operation() {
+                @Override
+                String uuid() {
+                    return subnet.getSubnetUUID();
+                }
+
+                @Override
+                List<String> dependencies() {
+                    return Collections.singletonList(subnet.getNetworkUUID());
+                }
+
+                @Override
+                int validate() {
+                    return handler.canCreateSubnet(subnet);
+                }
+
+                @Override
+                void store() {
+                    INeutronSubnetCRUD crud = subnetCRUD();
+                    if (crud != null) {
+                        crud.addSubnet(subnet);
+                    }
+                }
+
+                @Override
+                void unstore() {
+                    INeutronSubnetCRUD crud = subnetCRUD();
+                    if (crud != null) {
+                        crud.removeSubnet(uuid());
+                    }
+                }
+
+                @Override
+                void create() {
+                    handler.neutronSubnetCreated(subnet);
+                }
+
+                @Override
+                boolean verify() throws IOException {
+                    ObjectSummary network = ProjectedReads.summary(apiConnector, VirtualNetwork.class,
+                            contrailUuid(subnet.getNetworkUUID()), true, ObjectSummary.NETWORK_IPAM_REFS);
+                    return network != null && network.hasSubnet(subnet.getCidr());
+                }
+            };
+        }
+        if (object instanceof NeutronPort) {
+            final NeutronPort port = (NeutronPort) object;
+            // the subnets of the fixed IPs are looked up where the batch
+            // stores them
+            final INeutronPortAware handler = (INeutronPortAware) TenantTagger.tag(new PortHandler() {
+                @Override
+                INeutronSubnetCRUD subnetCRUD() {
+                    return BulkOperationHandler.this.subnetCRUD();
+                }
+            });
+            return new Operation() {
+                @Override
+                String uuid() {
+                    return port.getPortUUID();
+                }
+
+                @Override
+                List<String> dependencies() {
+                    List<String> dependencies = new ArrayList<String>();
+                    dependencies.add(port.getNetworkUUID());
+                    if (port.getFixedIPs() != null) {
+                        for (Neutron_IPs fixedIp : port.getFixedIPs()) {
+                            dependencies.add(fixedIp.getSubnetUUID());
+                        }
+                    }
+                    if (port.getSecurityGroups() != null) {
+                        for (NeutronSecurityGroup securityGroup : port.getSecurityGroups()) {
+                            dependencies.add(securityGroup.getSecurityGroupUUID());
+                        }
+                    }
+                    return dependencies;
+                }
+
+                @Override
+                int validate() {
+                    return handler.canCreatePort(port);
+                }
+
+                @Override
+                void store() {
+                    INeutronPortCRUD crud = portCRUD();
+                    if (crud != null) {
+                        crud.addPort(port);
+                    }
+                }
+
+                @Override
+                void unstore() {
+                    INeutronPortCRUD crud = portCRUD();
+                    if (crud != null) {
+                        crud.removePort(uuid());
+                    }
+                }
+
+                @Override
+                void create() {
+                    handler.neutronPortCreated(port);
+                }
+
+                @Override
+                boolean verify() throws IOException {
+                    return ContrailReplica.findById(apiConnector, VirtualMachineInterface.class, contrailUuid(uuid()), true) != null;
+                }
+            };
+        }
+        if (object instanceof NeutronRouter) {
+            final NeutronRouter router = (NeutronRouter) object;
+            final INeutronRouterAware handler = (INeutronRouterAware) TenantTagger.tag(new RouterHandler());
+            return new Operation() {
+                @Override
+                String uuid() {
+                    return router.getRouterUUID();
+                }
+
+                @Override
+                List<String> dependencies() {
+                    if (router.getExternalGatewayInfo() == null) {
+                        return Collections.emptyList();
+                    }
+                    return Collections.singletonList(router.getExternalGatewayInfo().getNetworkID());
+                }
+
+                @Override
+                int validate() {
+                    return handler.canCreateRouter(router);
+                }
+
+                @Override
+                void store() {
+                    INeutronRouterCRUD crud = routerCRUD();
+                    if (crud != null) {
+                        crud.addRouter(router);
+                    }
+                }
+
+                @Override
+                void unstore() {
+                    INeutronRouterCRUD crud = routerCRUD();
+                    if (crud != null) {
+                        crud.removeRouter(uuid());
+                    }
+                }
+
+                @Override
+                void create() {
+                    handler.neutronRouterCreated(router);
+                }
+
+                @Override
+                boolean verify() throws IOException {
+                    return ContrailReplica.findById(apiConnector, LogicalRouter.class, contrailUuid(uuid()), true) != null;
+                }
+            };
+        }
+        if (object instanceof NeutronSecurityGroup) {
+            final NeutronSecurityGroup securityGroup = (NeutronSecurityGroup) object;
+            final INeutronSecurityGroupAware handler = (INeutronSecurityGroupAware) TenantTagger.tag(new SecurityGroupHandler());
+            return new Operation() {
+                @Override
+                String uuid() {
+                    return securityGroup.getSecurityGroupUUID();
+                }
+
+                @Override
+                List<String> dependencies() {
+                    return Collections.emptyList();
+                }
+
+                @Override
+                int validate() {
+                    return handler.canCreateNeutronSecurityGroup(securityGroup);
+                }
+
+                @Override
+                void store() {
+                    INeutronSecurityGroupCRUD crud = securityGroupCRUD();
+                    if (crud != null) {
+                        crud.addNeutronSecurityGroup(securityGroup);
+                    }
+                }
+
+                @Override
+                void unstore() {
+                    INeutronSecurityGroupCRUD crud = securityGroupCRUD();
+                    if (crud != null) {
+                        crud.removeNeutronSecurityGroup(uuid());
+                    }
+                }
+
+                @Override
+                void create() {
+                    handler.neutronSecurityGroupCreated(securityGroup);
+                }
+
+                @Override
+                boolean verify() throws IOException {
+                    return ContrailReplica.findById(apiConnector, SecurityGroup.class, contrailUuid(uuid()), true) != null;
+                }
+            };
+        }
+        if (object instanceof NeutronSecurityRule) {
+            final NeutronSecurityRule securityRule = (NeutronSecurityRule) object;
+            final INeutronSecurityRuleAware handler = (INeutronSecurityRuleAware) TenantTagger.tag(new SecurityGroupRulesHandler());
+            return new Operation() {
+                @Override
+                String uuid() {
+                    return securityRule.getSecurityRuleUUID();
+                }
+
+                @Override
+                List<String> dependencies() {
+                    List<String> dependencies = new ArrayList<String>();
+                    dependencies.add(securityRule.getSecurityRuleGroupID());
+                    dependencies.add(securityRule.getSecurityRemoteGroupID());
+                    return dependencies;
+                }
+
+                @Override
+                int validate() {
+                    return handler.canCreateNeutronSecurityRule(securityRule);
+                }
+
+                @Override
+                void store() {
+                    INeutronSecurityRuleCRUD crud = securityRuleCRUD();
+                    if (crud != null) {
+                        crud.addNeutronSecurityRule(securityRule);
+                    }
+                }
+
+                @Override
+                void unstore() {
+                    INeutronSecurityRuleCRUD crud = securityRuleCRUD();
+                    if (crud != null) {
+                        crud.removeNeutronSecurityRule(uuid());
+                    }
+                }
+
+                @Override
+                void create() {
+                    handler.neutronSecurityRuleCreated(securityRule);
+                }
+
+                @Override
+                boolean verify() throws IOException {
+                    ObjectSummary securityGroup = ProjectedReads.summary(apiConnector, SecurityGroup.class,
+                            contrailUuid(securityRule.getSecurityRuleGroupID()), true, ObjectSummary.SECURITY_GROUP_ENTRIES);
+                    if (securityGroup == null) {
+                        return false;
+                    }
+                    for (String ruleUUID : securityGroup.ruleUuids) {
+                        if (ruleUUID.equalsIgnoreCase(uuid())) {
+                            return true;
+                        }
+                    }
+                    return false;
+                }
+            };
+        }
+        return null;
+    }
+}
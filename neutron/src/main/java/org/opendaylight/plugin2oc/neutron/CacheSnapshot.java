@@ -0,0 +1,330 @@
+/*
+ * Copyright (C) 2014 Juniper Networks, Inc.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ *
+ */
+package org.opendaylight.plugin2oc.neutron;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+import net.juniper.contrail.api.ApiConnector;
+import net.juniper.contrail.api.ApiObjectBase;
+import net.juniper.contrail.api.types.VirtualNetwork;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Snapshot of the southbound indexes kept on disk so that they start warm
+ * after a restart. The names of the {@link NameIndex} and the subnets of the
+ * {@link NetworkSubnetIndex} are written periodically to a single file,
+ * replaced atomically, which is memory mapped and loaded at startup. The
+ * restored entries are used right away and checked against the API server in
+ * the background: the name index is reloaded as usual, and every restored
+ * network is fetched again at a bounded rate.
+ *
+ * The file holds a header (magic, version, write time), the names by type,
+ * the subnets by network and a CRC32 of everything before it. Strings are
+ * stored as their UTF-8 length on two bytes followed by the bytes.
+ */
+final class CacheSnapshot {
+    static final Logger LOGGER = LoggerFactory.getLogger(CacheSnapshot.class);
+    static final String DIR_PROPERTY = "plugin2oc.snapshot.dir";
+    static final String INTERVAL_PROPERTY = "plugin2oc.snapshot.interval";
+    static final String MAX_AGE_PROPERTY = "plugin2oc.snapshot.maxAge";
+    static final String VALIDATE_RATE_PROPERTY = "plugin2oc.snapshot.validateRate";
+    static final String FILE_NAME = "southbound-cache.snapshot";
+
+    private static final int MAGIC = 0x50324f43;
+    private static final int VERSION = 1;
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    /**
+     * Content of a snapshot.
+     */
+    static final class Content {
+        final long writtenAt;
+        final Map<String, Map<String, String>> names;
+        final Map<String, Map<String, String>> subnets;
+
+        Content(long writtenAt, Map<String, Map<String, String>> names, Map<String, Map<String, String>> subnets) {
+            this.writtenAt = writtenAt;
+            this.names = names;
+            this.subnets = subnets;
+        }
+    }
+
+    private final File file;
+    private final ApiConnector apiConnector;
+    private ScheduledExecutorService scheduler;
+
+    CacheSnapshot(File file, ApiConnector apiConnector) {
+        this.file = file;
+        this.apiConnector = apiConnector;
+    }
+
+    /**
+     * Invoked from {@link Activator#init()}, before the indexes are loaded,
+     * to restore the last snapshot and start writing new ones. The snapshot
+     * lives in plugin2oc.snapshot.dir, by default in the plugin2oc folder of
+     * the Karaf data directory.
+     *
+     * @return The snapshot, null if there is no directory to keep it in.
+     */
+    static CacheSnapshot start(ApiConnector apiConnector) {
+        String dir = System.getProperty(DIR_PROPERTY);
+        if (dir == null && System.getProperty("karaf.data") != null) {
+            dir = System.getProperty("karaf.data") + File.separator + "plugin2oc";
+        }
+        if (dir == null || apiConnector == null) {
+            return null;
+        }
+        File directory = new File(dir);
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            LOGGER.error("Could not create the snapshot directory " + directory);
+            return null;
+        }
+        final CacheSnapshot snapshot = new CacheSnapshot(new File(directory, FILE_NAME), apiConnector);
+        snapshot.scheduler = Executors.newSingleThreadScheduledExecutor(ReconciliationService.daemonThreads("plugin2oc-snapshot"));
+        final Map<String, Map<String, String>> restored = snapshot.restore();
+        if (!restored.isEmpty()) {
+            snapshot.scheduler.execute(new Runnable() {
+                @Override
+                public void run() {
+                    snapshot.validate(restored);
+                }
+            });
+        }
+        long interval = Long.getLong(INTERVAL_PROPERTY, 60000L);
+        if (interval > 0) {
+            snapshot.scheduler.scheduleWithFixedDelay(new Runnable() {
+                @Override
+                public void run() {
+                    snapshot.save();
+                }
+            }, interval, interval, TimeUnit.MILLISECONDS);
+        }
+        return snapshot;
+    }
+
+    /**
+     * Invoked from {@link Activator#destroy()} to write a last snapshot.
+     */
+    void stop() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+        save();
+    }
+
+    /**
+     * Invoked to seed the indexes from the snapshot on disk.
+     *
+     * @return The subnets restored by network UUID, to be validated.
+     */
+    Map<String, Map<String, String>> restore() {
+        Map<String, Map<String, String>> restored = new HashMap<String, Map<String, String>>();
+        if (!file.isFile()) {
+            return restored;
+        }
+        Content content;
+        try {
+            content = read(file);
+        } catch (IOException e) {
+            LOGGER.warn("Ignoring snapshot " + file + " : " + e);
+            return restored;
+        }
+        long age = System.currentTimeMillis() - content.writtenAt;
+        if (age > Long.getLong(MAX_AGE_PROPERTY, 3600000L)) {
+            LOGGER.info("Ignoring snapshot written " + age + " ms ago");
+            return restored;
+        }
+        int names = 0;
+        for (Class<? extends ApiObjectBase> type : NameIndex.TYPES) {
+            Map<String, String> typeNames = content.names.get(type.getSimpleName());
+            if (typeNames != null) {
+                NameIndex.restore(apiConnector, type, typeNames);
+                names += typeNames.size();
+            }
+        }
+        for (Map.Entry<String, Map<String, String>> network : content.subnets.entrySet()) {
+            NetworkSubnetIndex.restore(apiConnector, network.getKey(), network.getValue());
+        }
+        LOGGER.info("Restored " + names + " names and the subnets of " + content.subnets.size() + " networks from " + file);
+        return content.subnets;
+    }
+
+    /**
+     * Invoked in the background to check the restored networks against the
+     * API server.
+     */
+    void validate(Map<String, Map<String, String>> restored) {
+        TokenBucket rate = new TokenBucket(Math.max(1, Integer.getInteger(VALIDATE_RATE_PROPERTY, 20)), 1);
+        int replaced = 0;
+        for (Map.Entry<String, Map<String, String>> network : restored.entrySet()) {
+            try {
+                rate.acquire(1);
+                VirtualNetwork virtualNetwork = (VirtualNetwork) apiConnector.findById(VirtualNetwork.class, network.getKey());
+                if (virtualNetwork == null) {
+                    NetworkSubnetIndex.invalidate(network.getKey());
+                    replaced++;
+                } else if (!network.getValue().equals(NetworkSubnetIndex.of(virtualNetwork.getNetworkIpam()).subnets())) {
+                    NetworkSubnetIndex.replace(apiConnector, virtualNetwork);
+                    replaced++;
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                // the entry stays until the network is written or invalidated
+                LOGGER.error("Exception : " + e);
+            }
+        }
+        LOGGER.info("Validated the restored subnets of " + restored.size() + " networks, " + replaced + " were stale");
+    }
+
+    /**
+     * Invoked periodically to write the current state of the indexes.
+     */
+    void save() {
+        Map<String, Map<String, String>> names = new HashMap<String, Map<String, String>>();
+        for (Map.Entry<Class<? extends ApiObjectBase>, Map<String, String>> type : NameIndex.snapshot().entrySet()) {
+            names.put(type.getKey().getSimpleName(), type.getValue());
+        }
+        try {
+            write(file, new Content(System.currentTimeMillis(), names, NetworkSubnetIndex.snapshot()));
+        } catch (IOException e) {
+            LOGGER.error("Exception : " + e);
+        }
+    }
+
+    /**
+     * Invoked to write a snapshot, replacing the previous one atomically.
+     */
+    static void write(File file, Content content) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.writeLong(content.writtenAt);
+        writeSections(out, content.names);
+        writeSections(out, content.subnets);
+        out.flush();
+        CRC32 crc = new CRC32();
+        crc.update(bytes.toByteArray());
+        out.writeInt((int) crc.getValue());
+        File temporary = new File(file.getPath() + ".tmp");
+        FileOutputStream stream = new FileOutputStream(temporary);
+        try {
+            bytes.writeTo(stream);
+            stream.getFD().sync();
+        } finally {
+            stream.close();
+        }
+        if (!temporary.renameTo(file)) {
+            throw new IOException("Could not replace " + file);
+        }
+    }
+
+    private static void writeSections(DataOutputStream out, Map<String, Map<String, String>> sections) throws IOException {
+        out.writeInt(sections.size());
+        for (Map.Entry<String, Map<String, String>> section : sections.entrySet()) {
+            writeString(out, section.getKey());
+            out.writeInt(section.getValue().size());
+            for (Map.Entry<String, String> entry : section.getValue().entrySet()) {
+                writeString(out, entry.getKey());
+                writeString(out, entry.getValue());
+            }
+        }
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] encoded = value.getBytes(UTF8);
+        if (encoded.length > 0xffff) {
+            throw new IOException("String too long for a snapshot");
+        }
+        out.writeShort(encoded.length);
+        out.write(encoded);
+    }
+
+    /**
+     * Invoked to read a snapshot through a memory mapping of the file.
+     *
+     * @throws IOException
+     *             if the file can not be read, or is truncated or corrupt.
+     */
+    static Content read(File file) throws IOException {
+        FileInputStream stream = new FileInputStream(file);
+        try {
+            FileChannel channel = stream.getChannel();
+            if (channel.size() < 20 || channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("Invalid snapshot size " + channel.size());
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            int end = buffer.limit() - 4;
+            CRC32 crc = new CRC32();
+            byte[] chunk = new byte[64 * 1024];
+            ByteBuffer body = buffer.duplicate();
+            body.limit(end);
+            while (body.hasRemaining()) {
+                int length = Math.min(chunk.length, body.remaining());
+                body.get(chunk, 0, length);
+                crc.update(chunk, 0, length);
+            }
+            if ((int) crc.getValue() != buffer.getInt(end)) {
+                throw new IOException("Snapshot checksum mismatch");
+            }
+            buffer.limit(end);
+            if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+                throw new IOException("Not a snapshot of this version");
+            }
+            long writtenAt = buffer.getLong();
+            Map<String, Map<String, String>> names = readSections(buffer);
+            Map<String, Map<String, String>> subnets = readSections(buffer);
+            return new Content(writtenAt, names, subnets);
+        } catch (RuntimeException e) {
+            throw new IOException("Corrupt snapshot : " + e);
+        } finally {
+            stream.close();
+        }
+    }
+
+    private static Map<String, Map<String, String>> readSections(ByteBuffer buffer) {
+        int count = buffer.getInt();
+        Map<String, Map<String, String>> sections = new HashMap<String, Map<String, String>>();
+        for (int i = 0; i < count; i++) {
+            String key = readString(buffer);
+            int size = buffer.getInt();
+            Map<String, String> section = new HashMap<String, String>();
+            for (int j = 0; j < size; j++) {
+                section.put(readString(buffer), readString(buffer));
+            }
+            sections.put(key, section);
+        }
+        return sections;
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        byte[] encoded = new byte[buffer.getShort() & 0xffff];
+        buffer.get(encoded);
+        return new String(encoded, UTF8);
+    }
+}
@@ -0,0 +1,51 @@
+/*
+ * Copyright (C) 2014 Juniper Networks, Inc.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ *
+ */
+package org.opendaylight.plugin2oc.neutron;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.LinkedBlockingQueue;
+
+import net.juniper.contrail.api.ApiObjectBase;
+
+/**
+ * {@link ChangeFeed} fed by publishers in the same JVM, standing in for an
+ * event source of Contrail: a notification listener, or a test or a local
+ * stub server reporting the changes it makes.
+ */
+final class ChangeEventQueue implements ChangeFeed {
+    private static final ChangeEventQueue SHARED = new ChangeEventQueue();
+
+    private final LinkedBlockingQueue<Change> changes = new LinkedBlockingQueue<Change>();
+
+    /**
+     * @return The queue shared by the publishers, used as a feed when
+     *         plugin2oc.changefeed.class names this class.
+     */
+    static ChangeEventQueue shared() {
+        return SHARED;
+    }
+
+    /**
+     * Invoked by a publisher to report a change.
+     *
+     * @param object
+     *            The object after the change, null if not known.
+     */
+    void publish(String kind, Class<? extends ApiObjectBase> type, String uuid, ApiObjectBase object) {
+        changes.add(new Change(kind, type, uuid, object));
+    }
+
+    @Override
+    public List<Change> poll() {
+        List<Change> polled = new ArrayList<Change>();
+        changes.drainTo(polled);
+        return polled;
+    }
+}
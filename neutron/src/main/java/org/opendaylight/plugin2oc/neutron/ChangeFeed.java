@@ -0,0 +1,67 @@
+/*
+ * Copyright (C) 2014 Juniper Networks, Inc.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ *
+ */
+package org.opendaylight.plugin2oc.neutron;
+
+import java.io.IOException;
+import java.util.List;
+
+import net.juniper.contrail.api.ApiObjectBase;
+
+/**
+ * Source of the changes made to Contrail objects, including the changes made
+ * by other clients than the plugin. Implementations are polled by the
+ * {@link ChangeFeedSubscriber}, which applies the changes to the local caches.
+ * An implementation is chosen with the plugin2oc.changefeed.class property
+ * and must have a public constructor taking the
+ * {@link net.juniper.contrail.api.ApiConnector}, or a public no-argument one.
+ */
+interface ChangeFeed {
+
+    /**
+     * A change of a Contrail object.
+     */
+    final class Change {
+        static final String CREATED = "created";
+        static final String UPDATED = "updated";
+        static final String DELETED = "deleted";
+
+        final String kind;
+        final Class<? extends ApiObjectBase> type;
+        final String uuid;
+        final ApiObjectBase object;
+
+        /**
+         * @param object
+         *            The object after the change if the feed knows it, null
+         *            otherwise.
+         */
+        Change(String kind, Class<? extends ApiObjectBase> type, String uuid, ApiObjectBase object) {
+            this.kind = kind;
+            this.type = type;
+            this.uuid = uuid;
+            this.object = object;
+        }
+
+        @Override
+        public String toString() {
+            return type.getSimpleName() + " " + uuid + " " + kind;
+        }
+    }
+
+    /**
+     * Invoked periodically to get the changes made since the previous call.
+     *
+     * @return The changes, in the order they were made.
+     *
+     * @throws IOException
+     *             if the changes could not be read, the call is retried at
+     *             the next period.
+     */
+    List<Change> poll() throws IOException;
+}
@@ -0,0 +1,142 @@
+/*
+ * Copyright (C) 2014 Juniper Networks, Inc.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ *
+ */
+package org.opendaylight.plugin2oc.neutron;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import net.juniper.contrail.api.ApiConnector;
+import net.juniper.contrail.api.ApiObjectBase;
+import net.juniper.contrail.api.types.LogicalRouter;
+import net.juniper.contrail.api.types.SecurityGroup;
+import net.juniper.contrail.api.types.VirtualMachineInterface;
+import net.juniper.contrail.api.types.VirtualNetwork;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Polls a {@link ChangeFeed} and applies the changes made by other clients
+ * to the caches in front of the connector: the replica entry of a changed
+ * object is dropped, the name index follows creates and deletes, and the
+ * subnet and floating IP pool caches of a changed network are dropped. This
+ * shortens the time the caches serve objects changed by other clients, it
+ * does not make them coherent: a change is seen up to one poll late, and the
+ * default {@link ListingChangeFeed} only sees creates and deletes. The
+ * subscriber only runs when plugin2oc.changefeed.interval is set, the
+ * default feed then lists the watched types on every poll, the same listing
+ * reloading the {@link NameIndex}.
+ */
+final class ChangeFeedSubscriber implements Runnable {
+    static final Logger LOGGER = LoggerFactory.getLogger(ChangeFeedSubscriber.class);
+    static final String CLASS_PROPERTY = "plugin2oc.changefeed.class";
+    static final String INTERVAL_PROPERTY = "plugin2oc.changefeed.interval";
+    static final List<Class<? extends ApiObjectBase>> TYPES = new ArrayList<Class<? extends ApiObjectBase>>();
+    static {
+        TYPES.add(VirtualNetwork.class);
+        TYPES.add(VirtualMachineInterface.class);
+        TYPES.add(SecurityGroup.class);
+        TYPES.add(LogicalRouter.class);
+    }
+
+    private final ChangeFeed feed;
+    private ScheduledExecutorService scheduler;
+
+    ChangeFeedSubscriber(ChangeFeed feed) {
+        this.feed = feed;
+    }
+
+    /**
+     * Invoked from {@link Activator#init()} to poll the configured feed
+     * every plugin2oc.changefeed.interval milliseconds.
+     *
+     * @param nameIndex
+     *            The name index reloaded by the listings of the default
+     *            feed, null if it is disabled.
+     *
+     * @return The subscriber, null if it is disabled or the feed could not
+     *         be created.
+     */
+    static ChangeFeedSubscriber start(ApiConnector apiConnector, NameIndex nameIndex) {
+        long interval = Long.getLong(INTERVAL_PROPERTY, 0L);
+        if (apiConnector == null || interval <= 0) {
+            return null;
+        }
+        ChangeFeed feed = feed(apiConnector, nameIndex, System.getProperty(CLASS_PROPERTY));
+        if (feed == null) {
+            return null;
+        }
+        ChangeFeedSubscriber subscriber = new ChangeFeedSubscriber(feed);
+        subscriber.scheduler = Executors.newSingleThreadScheduledExecutor(ReconciliationService.daemonThreads("plugin2oc-changefeed"));
+        subscriber.scheduler.scheduleWithFixedDelay(subscriber, 0, interval, TimeUnit.MILLISECONDS);
+        LOGGER.info("Following Contrail changes through " + feed.getClass().getSimpleName());
+        return subscriber;
+    }
+
+    /**
+     * Invoked to create the feed named by plugin2oc.changefeed.class, a
+     * {@link ListingChangeFeed} if none is named.
+     */
+    static ChangeFeed feed(ApiConnector apiConnector, NameIndex nameIndex, String className) {
+        if (className == null || className.isEmpty() || className.equals(ListingChangeFeed.class.getName())) {
+            return new ListingChangeFeed(apiConnector, nameIndex);
+        }
+        if (className.equals(ChangeEventQueue.class.getName())) {
+            return ChangeEventQueue.shared();
+        }
+        try {
+            Class<?> feedClass = Class.forName(className);
+            try {
+                return (ChangeFeed) feedClass.getConstructor(ApiConnector.class).newInstance(apiConnector);
+            } catch (NoSuchMethodException e) {
+                return (ChangeFeed) feedClass.getConstructor().newInstance();
+            }
+        } catch (Exception e) {
+            LOGGER.error("Could not create the change feed " + className + " : " + e);
+            return null;
+        }
+    }
+
+    void stop() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+    }
+
+    @Override
+    public void run() {
+        try {
+            for (ChangeFeed.Change change : feed.poll()) {
+                apply(change);
+            }
+        } catch (Exception e) {
+            LOGGER.error("Exception : " + e);
+        }
+    }
+
+    /**
+     * Invoked to apply a change to the caches.
+     */
+    static void apply(ChangeFeed.Change change) {
+        LOGGER.debug("Contrail change : " + change);
+        ContrailReplica.invalidate(change.uuid);
+        if (VirtualNetwork.class.isAssignableFrom(change.type)) {
+            NetworkSubnetIndex.invalidate(change.uuid);
+            FloatingIpPoolCache.invalidate(change.uuid);
+        }
+        if (ChangeFeed.Change.DELETED.equals(change.kind)) {
+            NameIndex.removed(change.type, change.uuid);
+        } else if (ChangeFeed.Change.CREATED.equals(change.kind) && change.object != null) {
+            NameIndex.added(change.object);
+        }
+    }
+}
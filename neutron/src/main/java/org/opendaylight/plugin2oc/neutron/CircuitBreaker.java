@@ -0,0 +1,330 @@
+/*
+ * Copyright (C) 2014 Juniper Networks, Inc.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ *
+ */
+package org.opendaylight.plugin2oc.neutron;
+
+import java.io.IOException;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.net.HttpURLConnection;
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+import net.juniper.contrail.api.ApiConnector;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Circuit breaker around the shared Contrail {@link ApiConnector}. Calls
+ * failing with an IOException or slower than the latency threshold are
+ * counted over a sliding window, listings being slow by nature and never
+ * counted as slow, and once their rate reaches the threshold
+ * the circuit opens: calls fail immediately with a
+ * {@link CircuitOpenException} and the handlers answer 503, so Neutron
+ * retries later instead of blocking on a degraded API server. After the open period a single probe call is let
+ * through, closing the circuit again if it returns, any exception keeping it
+ * open. The number of calls in
+ * flight is bounded as well by an {@link AdaptiveLimit} following the
+ * latency of the API server, calls beyond it are shed the same way.
+ */
+final class CircuitBreaker implements InvocationHandler {
+    static final Logger LOGGER = LoggerFactory.getLogger(CircuitBreaker.class);
+    static final String WINDOW_PROPERTY = "plugin2oc.breaker.window";
+    static final String FAILURE_RATE_PROPERTY = "plugin2oc.breaker.failureRate";
+    static final String SLOW_CALL_PROPERTY = "plugin2oc.breaker.slowCallMillis";
+    static final String OPEN_PROPERTY = "plugin2oc.breaker.openMillis";
+    static final String MAX_CONCURRENT_PROPERTY = "plugin2oc.breaker.maxConcurrent";
+
+    private static final int CLOSED = 0;
+    private static final int OPEN = 1;
+    private static final int HALF_OPEN = 2;
+
+    private static volatile CircuitBreaker current;
+
+    private final ApiConnector target;
+    private final boolean[] outcomes;
+    private final int failurePercent;
+    private final long slowCallNanos;
+    private final long openNanos;
+    private final AdaptiveLimit limit;
+    private final AtomicInteger state = new AtomicInteger(CLOSED);
+    // a lock rather than a monitor so that a contended call does not pin a virtual thread
+    private final ReentrantLock window = new ReentrantLock();
+    private volatile long openedAt;
+    private int next;
+    private int recorded;
+    private int failures;
+
+    CircuitBreaker(ApiConnector target, int window, int failurePercent, long slowCallMillis, long openMillis, int maxConcurrent) {
+        this(target, window, failurePercent, slowCallMillis, openMillis, new AdaptiveLimit(maxConcurrent, Math.max(1, maxConcurrent),
+                Math.max(1, maxConcurrent), 2, 0.9));
+    }
+
+    CircuitBreaker(ApiConnector target, int window, int failurePercent, long slowCallMillis, long openMillis, AdaptiveLimit limit) {
+        this.target = target;
+        this.outcomes = new boolean[Math.max(1, window)];
+        this.failurePercent = failurePercent;
+        this.slowCallNanos = TimeUnit.MILLISECONDS.toNanos(slowCallMillis);
+        this.openNanos = TimeUnit.MILLISECONDS.toNanos(openMillis);
+        this.limit = limit;
+    }
+
+    /**
+     * Invoked from {@link Activator#getApiConnection()} to put the connector
+     * behind a circuit breaker configured by the plugin2oc.breaker.* system
+     * properties, the calls in flight being limited by the plugin2oc.limit.*
+     * ones up to plugin2oc.breaker.maxConcurrent.
+     *
+     * @return The protected connector.
+     */
+    static ApiConnector protect(ApiConnector connector) {
+        if (connector == null) {
+            return null;
+        }
+        AdaptiveLimit limit = AdaptiveLimit.fromProperties(Integer.getInteger(MAX_CONCURRENT_PROPERTY, 64));
+        limit.register();
+        CircuitBreaker breaker = new CircuitBreaker(connector, Integer.getInteger(WINDOW_PROPERTY, 20), Integer.getInteger(FAILURE_RATE_PROPERTY, 50),
+                Long.getLong(SLOW_CALL_PROPERTY, 5000L), Long.getLong(OPEN_PROPERTY, 30000L), limit);
+        current = breaker;
+        return breaker.proxy();
+    }
+
+    /**
+     * @return true if requests must be refused because the Contrail API server
+     *         is considered unavailable: the circuit is open, half open with
+     *         its probe in flight, or all the calls the limit allows are in
+     *         flight.
+     */
+    static boolean isOpen() {
+        CircuitBreaker breaker = current;
+        return breaker != null && (breaker.rejects() || breaker.saturated());
+    }
+
+    /**
+     * Invoked from the catch blocks of the handlers to answer a failed call.
+     *
+     * @param e
+     *            The exception the call failed with.
+     *
+     * @return 503 if the circuit breaker refused the call, 500 otherwise.
+     */
+    static int statusOf(Exception e) {
+        return e instanceof CircuitOpenException ? HttpURLConnection.HTTP_UNAVAILABLE : HttpURLConnection.HTTP_INTERNAL_ERROR;
+    }
+
+    /**
+     * @return The number of calls the API server currently takes at the same
+     *         time.
+     */
+    static int capacity() {
+        CircuitBreaker breaker = current;
+        return breaker != null ? breaker.limit.limit() : Integer.MAX_VALUE;
+    }
+
+    /**
+     * Invoked to make a call to the API server outside of the connector,
+     * such as a projected read, so that it counts against the limit on the
+     * calls in flight and in the failure rate like a call of the connector.
+     *
+     * @throws IOException
+     *             if the circuit is open, the call is shed or fails with an
+     *             IOException.
+     */
+    static <T> T call(Callable<T> call) throws IOException {
+        CircuitBreaker breaker = current;
+        if (breaker == null) {
+            return unwrap(call);
+        }
+        return breaker.guard(call, false);
+    }
+
+    /**
+     * Invoked like {@link #call(Callable)} to list objects outside of the
+     * connector, the latency of the listing being left out like that of the
+     * listings of the connector.
+     *
+     * @throws IOException
+     *             if the circuit is open, the call is shed or fails with an
+     *             IOException.
+     */
+    static <T> T listing(Callable<T> call) throws IOException {
+        CircuitBreaker breaker = current;
+        if (breaker == null) {
+            return unwrap(call);
+        }
+        return breaker.guard(call, true);
+    }
+
+    private static <T> T unwrap(Callable<T> call) throws IOException {
+        try {
+            return call.call();
+        } catch (IOException e) {
+            throw e;
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IOException(e);
+        }
+    }
+
+    <T> T guard(Callable<T> call, boolean listing) throws IOException {
+        if (state.get() != CLOSED) {
+            throw new CircuitOpenException("Contrail API circuit is open");
+        }
+        if (!limit.tryAcquire()) {
+            throw new CircuitOpenException("Contrail API call shed, too many calls in flight");
+        }
+        long start = System.nanoTime();
+        boolean failed = false;
+        try {
+            return unwrap(call);
+        } catch (IOException e) {
+            failed = true;
+            throw e;
+        } finally {
+            long latency = System.nanoTime() - start;
+            if (listing) {
+                limit.releaseListing(latency, failed);
+            } else {
+                limit.release(latency, failed);
+            }
+            record(failed || (latency > slowCallNanos && !listing), false);
+        }
+    }
+
+    ApiConnector proxy() {
+        return (ApiConnector) Proxy.newProxyInstance(ApiConnector.class.getClassLoader(), new Class<?>[] { ApiConnector.class }, this);
+    }
+
+    boolean rejects() {
+        int observed = state.get();
+        return observed == HALF_OPEN || (observed == OPEN && System.nanoTime() - openedAt < openNanos);
+    }
+
+    boolean saturated() {
+        return limit.getInFlight() >= limit.limit();
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+        if (method.getDeclaringClass() == Object.class) {
+            if (("equals").equals(method.getName())) {
+                return proxy == args[0];
+            }
+            if (("hashCode").equals(method.getName())) {
+                return System.identityHashCode(proxy);
+            }
+            return "CircuitBreaker(" + target + ")";
+        }
+        boolean probe = false;
+        int observed = state.get();
+        if (observed == OPEN) {
+            if (System.nanoTime() - openedAt < openNanos || !state.compareAndSet(OPEN, HALF_OPEN)) {
+                throw new CircuitOpenException("Contrail API circuit is open");
+            }
+            probe = true;
+            LOGGER.info("Contrail API circuit half open, probing with " + method.getName());
+        } else if (observed == HALF_OPEN) {
+            throw new CircuitOpenException("Contrail API circuit is open");
+        }
+        if (!limit.tryAcquire()) {
+            if (probe) {
+                state.set(OPEN);
+            }
+            throw new CircuitOpenException("Contrail API call shed, too many calls in flight");
+        }
+        long start = System.nanoTime();
+        boolean failed = true;
+        try {
+            Object result = method.invoke(target, args);
+            failed = false;
+            return result;
+        } catch (InvocationTargetException e) {
+            failed = probe || e.getCause() instanceof IOException;
+            throw e.getCause();
+        } finally {
+            long latency = System.nanoTime() - start;
+            if (isListing(method)) {
+                limit.releaseListing(latency, failed);
+            } else {
+                limit.release(latency, failed);
+            }
+            record(failed || (latency > slowCallNanos && !isListing(method)), probe);
+        }
+    }
+
+    /**
+     * @return true if the method reads a whole collection, such calls taking
+     *         time in proportion to the number of objects.
+     */
+    static boolean isListing(Method method) {
+        return ("list").equals(method.getName()) || ("getObjects").equals(method.getName());
+    }
+
+    /**
+     * Invoked to record the outcome of a call and open or close the circuit.
+     */
+    private void record(boolean failure, boolean probe) {
+        if (probe) {
+            if (failure) {
+                open();
+            } else {
+                window.lock();
+                try {
+                    next = 0;
+                    recorded = 0;
+                    failures = 0;
+                } finally {
+                    window.unlock();
+                }
+                state.set(CLOSED);
+                LOGGER.info("Contrail API circuit closed");
+            }
+            return;
+        }
+        boolean trip;
+        String failed;
+        window.lock();
+        try {
+            if (recorded == outcomes.length) {
+                if (outcomes[next]) {
+                    failures--;
+                }
+            } else {
+                recorded++;
+            }
+            outcomes[next] = failure;
+            if (failure) {
+                failures++;
+            }
+            next = (next + 1) % outcomes.length;
+            trip = recorded == outcomes.length && failures * 100 >= failurePercent * recorded;
+            failed = trip ? failures + " of the last " + recorded : null;
+        } finally {
+            window.unlock();
+        }
+        if (trip && state.get() == CLOSED) {
+            // set before the state so that no caller sees it open with a stale time
+            openedAt = System.nanoTime();
+        }
+        if (trip && state.compareAndSet(CLOSED, OPEN)) {
+            LOGGER.error("Contrail API circuit opened, " + failed + " calls failed or were slow");
+        }
+    }
+
+    private void open() {
+        openedAt = System.nanoTime();
+        state.set(OPEN);
+        LOGGER.warn("Contrail API probe failed, circuit open again");
+    }
+}
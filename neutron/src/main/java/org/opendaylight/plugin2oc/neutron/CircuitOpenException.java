@@ -0,0 +1,25 @@
+/*
+ * Copyright (C) 2014 Juniper Networks, Inc.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ *
+ */
+package org.opendaylight.plugin2oc.neutron;
+
+import java.io.IOException;
+
+/**
+ * Thrown by the {@link CircuitBreaker} for a call it refuses without sending
+ * it to the API server, because the circuit is open or half open or the call
+ * is shed. The handlers answer 503 for it rather than 500 so that Neutron
+ * retries later.
+ */
+final class CircuitOpenException extends IOException {
+    private static final long serialVersionUID = 1L;
+
+    CircuitOpenException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,52 @@
+/*
+ * Copyright (C) 2014 Juniper Networks, Inc.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ *
+ */
+package org.opendaylight.plugin2oc.neutron;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicReference;
+
+import net.juniper.contrail.api.ApiConnector;
+
+/**
+ * Concurrent map whose entries are only valid for the {@link ApiConnector}
+ * they were resolved through. Binding the cache to a different connector
+ * (for example after {@link Activator#getApiConnection()} has been called
+ * again) drops every entry.
+ */
+final class ConnectorScopedCache<K, V> {
+    private final ConcurrentMap<K, V> entries = new ConcurrentHashMap<K, V>();
+    private final AtomicReference<ApiConnector> owner = new AtomicReference<ApiConnector>();
+
+    /**
+     * Invoked to get the entries resolved through the specified connector.
+     *
+     * @param apiConnector
+     *            The connector currently used by the handlers.
+     *
+     * @return The live entry map for that connector.
+     */
+    ConcurrentMap<K, V> bind(ApiConnector apiConnector) {
+        ApiConnector current = owner.get();
+        if (current != apiConnector && owner.compareAndSet(current, apiConnector)) {
+            entries.clear();
+        }
+        return entries;
+    }
+
+    /**
+     * Invoked to get the entries without checking the connector, used for
+     * invalidation.
+     *
+     * @return The live entry map.
+     */
+    ConcurrentMap<K, V> entries() {
+        return entries;
+    }
+}
@@ -0,0 +1,249 @@
+/*
+ * Copyright (C) 2014 Juniper Networks, Inc.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ *
+ */
+package org.opendaylight.plugin2oc.neutron;
+
+import java.io.IOException;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import net.juniper.contrail.api.ApiConnector;
+import net.juniper.contrail.api.ApiObjectBase;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Local, eventually consistent replica of the Contrail objects read by the
+ * canXxx validation methods. Objects are kept for a limited time once read,
+ * and objects found missing for a shorter time, and every create, update or
+ * delete going through the connector drops the replica of the written object
+ * so that the plugin always sees its own writes, successful writes being
+ * applied to the {@link NameIndex} as well. Checks which must not act
+ * on stale state, such as the back reference checks made before a delete,
+ * pass strict and always read from the API server.
+ */
+final class ContrailReplica implements InvocationHandler {
+    static final Logger LOGGER = LoggerFactory.getLogger(ContrailReplica.class);
+    static final String TTL_PROPERTY = "plugin2oc.replica.ttl";
+    static final String NEGATIVE_TTL_PROPERTY = "plugin2oc.replica.negativeTtl";
+    static final String CAPACITY_PROPERTY = "plugin2oc.replica.capacity";
+    static final String AWAIT_PROPERTY = "plugin2oc.replica.await";
+
+    private static final ConnectorScopedCache<String, Entry> OBJECTS = new ConnectorScopedCache<String, Entry>();
+    private static final AtomicLong WRITES = new AtomicLong();
+
+    /**
+     * Replica of an object, or of its absence when object is null.
+     */
+    private static final class Entry {
+        final ApiObjectBase object;
+        final Class<? extends ApiObjectBase> type;
+        final long expires;
+
+        Entry(Class<? extends ApiObjectBase> type, ApiObjectBase object, long expires) {
+            this.type = type;
+            this.object = object;
+            this.expires = expires;
+        }
+    }
+
+    private final ApiConnector target;
+
+    private ContrailReplica(ApiConnector target) {
+        this.target = target;
+    }
+
+    /**
+     * Invoked from {@link Activator#getApiConnection()} so that the writes
+     * of the handlers invalidate the replica.
+     *
+     * @return The connector to hand to the handlers.
+     */
+    static ApiConnector observe(ApiConnector connector) {
+        if (connector == null) {
+            return null;
+        }
+        return (ApiConnector) Proxy.newProxyInstance(ApiConnector.class.getClassLoader(), new Class<?>[] { ApiConnector.class },
+                new ContrailReplica(connector));
+    }
+
+    /**
+     * Invoked by the canXxx methods to read an object for validation.
+     *
+     * @param apiConnector
+     *            The connector currently used by the handlers.
+     * @param type
+     *            The type of the object.
+     * @param uuid
+     *            The UUID of the object.
+     * @param strict
+     *            true to bypass the replica and read from the API server.
+     *
+     * @return The object, null if it does not exist.
+     */
+    static <T extends ApiObjectBase> T findById(ApiConnector apiConnector, Class<T> type, String uuid, boolean strict) throws IOException {
+        long ttl = Long.getLong(TTL_PROPERTY, 30000L);
+        if (uuid == null || ttl <= 0) {
+            return type.cast(apiConnector.findById(type, uuid));
+        }
+        ConcurrentMap<String, Entry> objects = OBJECTS.bind(apiConnector);
+        long now = System.nanoTime();
+        if (!strict) {
+            Entry entry = objects.get(uuid);
+            if (entry != null && entry.type == type && entry.expires - now > 0) {
+                return type.cast(entry.object);
+            }
+        }
+        long version = WRITES.get();
+        ApiObjectBase object = apiConnector.findById(type, uuid);
+        long lifetime = object != null ? ttl : Long.getLong(NEGATIVE_TTL_PROPERTY, 1000L);
+        if (lifetime > 0) {
+            Entry entry = new Entry(type, object, now + TimeUnit.MILLISECONDS.toNanos(lifetime));
+            if (objects.size() >= Integer.getInteger(CAPACITY_PROPERTY, 100000)) {
+                evict(objects, now);
+            }
+            objects.put(uuid, entry);
+            // a write completed while the object was read, the entry may be stale
+            if (WRITES.get() != version) {
+                objects.remove(uuid, entry);
+            }
+        }
+        return type.cast(object);
+    }
+
+    /**
+     * Invoked by the canCreate methods to read an object which may not have
+     * reached the API server yet, such as the project of a tenant created
+     * just before. The object is read again from the API server with a
+     * growing backoff for at most plugin2oc.replica.await milliseconds. The
+     * waits park the thread rather than sleep a fixed time, so that a
+     * present object is returned at once and a virtual thread releases its
+     * carrier while it waits.
+     *
+     * @return The object, null if it still does not exist or the thread was
+     *         interrupted.
+     */
+    static <T extends ApiObjectBase> T awaitById(ApiConnector apiConnector, Class<T> type, String uuid) throws IOException {
+        T object = findById(apiConnector, type, uuid, false);
+        if (object != null) {
+            return object;
+        }
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(Long.getLong(AWAIT_PROPERTY, 3000L));
+        long backoff = TimeUnit.MILLISECONDS.toNanos(50);
+        while (true) {
+            object = findById(apiConnector, type, uuid, true);
+            long remaining = deadline - System.nanoTime();
+            if (object != null || remaining <= 0) {
+                return object;
+            }
+            LockSupport.parkNanos(Math.min(backoff, remaining));
+            if (Thread.currentThread().isInterrupted()) {
+                LOGGER.error("Interrupted waiting for " + type.getSimpleName() + " " + uuid);
+                return null;
+            }
+            backoff = Math.min(backoff * 2, TimeUnit.SECONDS.toNanos(1));
+        }
+    }
+
+    /**
+     * Invoked by the {@link StartupPreloader} with an object it has read, so
+     * that the object is held past the end of the preload.
+     *
+     * @param preloadEnd
+     *            The time the preload ends at, in nanoseconds, the object is
+     *            held for one replica lifetime after it.
+     */
+    static void preload(ApiConnector apiConnector, Class<? extends ApiObjectBase> type, ApiObjectBase object, long preloadEnd) {
+        long ttl = Long.getLong(TTL_PROPERTY, 30000L);
+        if (object.getUuid() == null || ttl <= 0) {
+            return;
+        }
+        ConcurrentMap<String, Entry> objects = OBJECTS.bind(apiConnector);
+        if (objects.size() >= Integer.getInteger(CAPACITY_PROPERTY, 100000)) {
+            evict(objects, System.nanoTime());
+        }
+        objects.put(object.getUuid(), new Entry(type, object, preloadEnd + TimeUnit.MILLISECONDS.toNanos(ttl)));
+    }
+
+    /**
+     * Invoked to look at the replica of an object without reading it.
+     *
+     * @return The object, null if it is not held or has expired.
+     */
+    static ApiObjectBase cached(ApiConnector apiConnector, Class<? extends ApiObjectBase> type, String uuid) {
+        if (uuid == null) {
+            return null;
+        }
+        Entry entry = OBJECTS.bind(apiConnector).get(uuid);
+        if (entry != null && entry.type == type && entry.expires - System.nanoTime() > 0) {
+            return entry.object;
+        }
+        return null;
+    }
+
+    /**
+     * Invoked when an object has been written, or is known to have changed.
+     *
+     * @param uuid
+     *            The UUID of the object.
+     */
+    static void invalidate(String uuid) {
+        WRITES.incrementAndGet();
+        if (uuid != null) {
+            OBJECTS.entries().remove(uuid);
+        }
+    }
+
+    private static void evict(ConcurrentMap<String, Entry> objects, long now) {
+        for (Iterator<Map.Entry<String, Entry>> i = objects.entrySet().iterator(); i.hasNext();) {
+            if (i.next().getValue().expires - now <= 0) {
+                i.remove();
+            }
+        }
+        if (objects.size() >= Integer.getInteger(CAPACITY_PROPERTY, 100000)) {
+            LOGGER.warn("Contrail replica full, dropping " + objects.size() + " objects");
+            objects.clear();
+        }
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+        if (method.getDeclaringClass() == Object.class) {
+            if (("equals").equals(method.getName())) {
+                return proxy == args[0];
+            }
+            if (("hashCode").equals(method.getName())) {
+                return System.identityHashCode(proxy);
+            }
+            return "ContrailReplica(" + target + ")";
+        }
+        String written = ApiEndpointPool.writeKey(method, args);
+        try {
+            Object result = method.invoke(target, args);
+            if (written != null && !Boolean.FALSE.equals(result)) {
+                NameIndex.written(method, args);
+            }
+            return result;
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        } finally {
+            if (written != null) {
+                invalidate(written);
+            }
+        }
+    }
+}
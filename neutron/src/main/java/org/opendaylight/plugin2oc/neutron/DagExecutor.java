@@ -0,0 +1,288 @@
+/*
+ * Copyright (C) 2014 Juniper Networks, Inc.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ *
+ */
+package org.opendaylight.plugin2oc.neutron;
+
+import java.net.HttpURLConnection;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Runs tasks depending on each other in parallel, each task starting as soon
+ * as the tasks it depends on have succeeded. A task gives an HTTP status
+ * code, a code of 300 or more being a failure, and the tasks depending on a
+ * failed task, directly or not, are not run and end with
+ * {@link #FAILED_DEPENDENCY}. Tasks are added after the tasks they depend
+ * on, so the graph cannot have a cycle. The tasks run for the tenant the
+ * adding thread was handling.
+ */
+final class DagExecutor {
+    static final Logger LOGGER = LoggerFactory.getLogger(DagExecutor.class);
+    static final int FAILED_DEPENDENCY = 424;
+    static final String PARALLELISM_PROPERTY = "plugin2oc.dag.parallelism";
+    static final String TIMEOUT_PROPERTY = "plugin2oc.dag.timeout";
+    static final String VIRTUAL_PROPERTY = "plugin2oc.dispatch.virtual";
+    static final String WRITER_POOLS_PROPERTY = "plugin2oc.dag.writerPools";
+
+    /**
+     * The threads used by the handlers to write the objects of a request.
+     * The tenants are spread by hash over plugin2oc.dag.writerPools pools,
+     * each created on first use and its threads ending once idle for a
+     * minute, so that the writes of a tenant waiting for their turn in the
+     * {@link TenantScheduler} do not hold the threads the writes of most
+     * other tenants need, however many tenants there are.
+     */
+    private static final class Writers {
+        static final AtomicReferenceArray<ExecutorService> POOLS = new AtomicReferenceArray<ExecutorService>(Math.max(1,
+                Integer.getInteger(WRITER_POOLS_PROPERTY, 16)));
+
+        static ExecutorService of(String tenant) {
+            String key = tenant != null ? tenant : TenantScheduler.SYSTEM_TENANT;
+            int index = (key.hashCode() & Integer.MAX_VALUE) % POOLS.length();
+            ExecutorService pool = POOLS.get(index);
+            if (pool == null) {
+                ExecutorService created = writers("plugin2oc-write-" + index, Integer.getInteger(PARALLELISM_PROPERTY, 8));
+                if (POOLS.compareAndSet(index, null, created)) {
+                    pool = created;
+                } else {
+                    created.shutdown();
+                    pool = POOLS.get(index);
+                }
+            }
+            return pool;
+        }
+
+        private static ExecutorService writers(String name, int parallelism) {
+            if (Boolean.getBoolean(VIRTUAL_PROPERTY)) {
+                return executor(name, parallelism);
+            }
+            ThreadPoolExecutor pool = new ThreadPoolExecutor(parallelism, parallelism, 60, TimeUnit.SECONDS,
+                    new LinkedBlockingQueue<Runnable>(), ReconciliationService.daemonThreads(name));
+            pool.allowCoreThreadTimeOut(true);
+            return pool;
+        }
+    }
+
+    /**
+     * Invoked from {@link Activator#destroy()} to stop the threads writing
+     * the objects of the requests.
+     */
+    static void shutdown() {
+        for (int i = 0; i < Writers.POOLS.length(); i++) {
+            ExecutorService pool = Writers.POOLS.getAndSet(i, null);
+            if (pool != null) {
+                pool.shutdownNow();
+            }
+        }
+    }
+
+    /**
+     * @return The number of writer pools started.
+     */
+    static int writerPools() {
+        int started = 0;
+        for (int i = 0; i < Writers.POOLS.length(); i++) {
+            started += Writers.POOLS.get(i) != null ? 1 : 0;
+        }
+        return started;
+    }
+
+    /**
+     * Invoked to create the threads running the tasks of the graphs. When
+     * plugin2oc.dispatch.virtual is set and the JDK has virtual threads,
+     * every task gets its own virtual thread, the Contrail API calls in
+     * flight being bounded by the {@link TenantScheduler} and the
+     * {@link CircuitBreaker} rather than by the threads, otherwise
+     * parallelism daemon threads run them.
+     *
+     * @return The executor, to shut down once no longer used.
+     */
+    static ExecutorService executor(String name, int parallelism) {
+        if (Boolean.getBoolean(VIRTUAL_PROPERTY)) {
+            try {
+                // looked up by reflection as long as the plugin is built for Java 7
+                Class<?> builderType = Class.forName("java.lang.Thread$Builder");
+                Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+                builder = builderType.getMethod("name", String.class, long.class).invoke(builder, name + "-", 1L);
+                ThreadFactory threads = (ThreadFactory) builderType.getMethod("factory").invoke(builder);
+                return (ExecutorService) Executors.class.getMethod("newThreadPerTaskExecutor", ThreadFactory.class).invoke(null, threads);
+            } catch (Exception e) {
+                LOGGER.warn("Virtual threads not available, " + name + " runs on platform threads : " + e);
+            }
+        }
+        return Executors.newFixedThreadPool(parallelism, ReconciliationService.daemonThreads(name));
+    }
+
+    private static final class Node {
+        final String id;
+        final Callable<Integer> task;
+        final String tenant = TenantScheduler.tenant();
+        final List<Node> dependents = new ArrayList<Node>();
+        final AtomicInteger pending = new AtomicInteger();
+        final AtomicBoolean settled = new AtomicBoolean();
+        volatile int status;
+        volatile Future<?> future;
+
+        Node(String id, Callable<Integer> task) {
+            this.id = id;
+            this.task = task;
+        }
+    }
+
+    private final Map<String, Node> nodes = new LinkedHashMap<String, Node>();
+    private ExecutorService executor;
+    private CountDownLatch remaining;
+
+    /**
+     * Invoked to add a task.
+     *
+     * @param dependsOn
+     *            The ids of the tasks which must succeed before this one
+     *            runs, all added already.
+     *
+     * @throws IllegalArgumentException
+     *             if the id is used already or a task depended on is not
+     *             known.
+     */
+    void add(String id, Callable<Integer> task, Collection<String> dependsOn) {
+        if (nodes.containsKey(id)) {
+            throw new IllegalArgumentException("Task " + id + " added twice");
+        }
+        Node node = new Node(id, task);
+        for (String dependency : dependsOn) {
+            Node required = nodes.get(dependency);
+            if (required == null) {
+                throw new IllegalArgumentException("Task " + id + " depends on unknown task " + dependency);
+            }
+            if (!required.dependents.contains(node)) {
+                required.dependents.add(node);
+                node.pending.incrementAndGet();
+            }
+        }
+        nodes.put(id, node);
+    }
+
+    /**
+     * Invoked once all the tasks are added to run them on the threads of the
+     * tenant the current thread is handling. The tasks must not run another
+     * DagExecutor on these threads.
+     *
+     * @return The status of each task, in the order they were added.
+     */
+    Map<String, Integer> run() throws InterruptedException {
+        return run(Writers.of(TenantScheduler.tenant()), Long.getLong(TIMEOUT_PROPERTY, 60000L));
+    }
+
+    /**
+     * Invoked once all the tasks are added to run them.
+     *
+     * @param timeout
+     *            The time in milliseconds to wait for the tasks, the tasks
+     *            running or ready by then end with a gateway timeout and are
+     *            cancelled, interrupting the running ones, and the tasks
+     *            waiting for them end with {@link #FAILED_DEPENDENCY}. The
+     *            tasks are cancelled the same way if the thread is
+     *            interrupted.
+     *
+     * @return The status of each task, in the order they were added.
+     */
+    Map<String, Integer> run(ExecutorService executorService, long timeout) throws InterruptedException {
+        executor = executorService;
+        remaining = new CountDownLatch(nodes.size());
+        for (Node node : nodes.values()) {
+            if (node.pending.get() == 0) {
+                submit(node);
+            }
+        }
+        boolean done = false;
+        try {
+            done = remaining.await(timeout, TimeUnit.MILLISECONDS);
+        } finally {
+            if (!done) {
+                for (Node node : nodes.values()) {
+                    Future<?> future = node.future;
+                    if (settle(node, HttpURLConnection.HTTP_GATEWAY_TIMEOUT) && future != null) {
+                        future.cancel(true);
+                    }
+                }
+            }
+        }
+        Map<String, Integer> statuses = new LinkedHashMap<String, Integer>();
+        for (Node node : nodes.values()) {
+            statuses.put(node.id, node.status);
+        }
+        return statuses;
+    }
+
+    private void submit(final Node node) {
+        if (node.settled.get()) {
+            return;
+        }
+        try {
+            node.future = executor.submit(new Runnable() {
+                @Override
+                public void run() {
+                    if (node.settled.get()) {
+                        return;
+                    }
+                    int status;
+                    String tenant = TenantScheduler.enter(node.tenant);
+                    try {
+                        status = node.task.call();
+                    } catch (Exception e) {
+                        LOGGER.error("Exception : " + e);
+                        status = CircuitBreaker.statusOf(e);
+                    } finally {
+                        TenantScheduler.exit(tenant);
+                    }
+                    settle(node, status);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            settle(node, HttpURLConnection.HTTP_UNAVAILABLE);
+        }
+    }
+
+    /**
+     * @return true if the task was not settled yet.
+     */
+    private boolean settle(Node node, int status) {
+        if (!node.settled.compareAndSet(false, true)) {
+            return false;
+        }
+        node.status = status;
+        remaining.countDown();
+        for (Node dependent : node.dependents) {
+            if (status >= HttpURLConnection.HTTP_MULT_CHOICE) {
+                settle(dependent, FAILED_DEPENDENCY);
+            } else if (dependent.pending.decrementAndGet() == 0) {
+                submit(dependent);
+            }
+        }
+        return true;
+    }
+}
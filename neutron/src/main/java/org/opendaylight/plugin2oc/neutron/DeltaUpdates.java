@@ -0,0 +1,186 @@
+/*
+ * Copyright (C) 2014 Juniper Networks, Inc.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ *
+ */
+package org.opendaylight.plugin2oc.neutron;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+
+import net.juniper.contrail.api.ApiConnector;
+import net.juniper.contrail.api.ApiObjectBase;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonObject;
+
+/**
+ * Writes the part of an object a handler changed instead of the whole object.
+ * An update through the connector sends every property and ref of the
+ * object, e.g. all the IPAM subnets of a network when one subnet is added,
+ * and two handlers updating the same shared network overwrite each other.
+ * The config API server updates only the properties present in the body of
+ * a PUT, and adds, changes or removes a single ref with a ref-update, so
+ * these are sent to it directly.
+ *
+ * The caller changes the object as for a full update beforehand. When no
+ * config API server is configured or the delta is not accepted, the object
+ * is updated in full through the connector. Like the projected reads, the
+ * deltas count against the {@link CircuitBreaker} and skip the nodes of the
+ * {@link ApiEndpointPool} out of rotation.
+ */
+final class DeltaUpdates {
+    static final Logger LOGGER = LoggerFactory.getLogger(DeltaUpdates.class);
+    static final String ENABLED_PROPERTY = "plugin2oc.delta.enabled";
+    private static final Gson GSON = new Gson();
+
+    private DeltaUpdates() {
+    }
+
+    /**
+     * Invoked to write the specified properties of an object.
+     *
+     * @param object
+     *            The object, with the properties already set.
+     * @param properties
+     *            The new values, by property name in the API (e.g.
+     *            router_external).
+     *
+     * @return true if the object has been updated.
+     */
+    static boolean updateProperties(ApiConnector apiConnector, ApiObjectBase object, Map<String, Object> properties)
+            throws IOException {
+        JsonObject fields = new JsonObject();
+        fields.addProperty("uuid", object.getUuid());
+        for (Map.Entry<String, Object> property : properties.entrySet()) {
+            fields.add(property.getKey(), GSON.toJsonTree(property.getValue()));
+        }
+        JsonObject body = new JsonObject();
+        body.add(ProjectedReads.typeName(object.getClass()), fields);
+        String path = "/" + ProjectedReads.typeName(object.getClass()) + "/" + object.getUuid();
+        return send(apiConnector, object, "PUT", path, body);
+    }
+
+    /**
+     * Invoked to add a ref to an object, or to change the attribute of the
+     * ref when the object already has it.
+     *
+     * @param object
+     *            The object, with the ref already added.
+     * @param attr
+     *            The attribute of the ref, null if the ref has none.
+     *
+     * @return true if the object has been updated.
+     */
+    static boolean addRef(ApiConnector apiConnector, ApiObjectBase object, ApiObjectBase ref, Object attr) throws IOException {
+        if (ref == null) {
+            return IdempotentExecutor.update(apiConnector, object);
+        }
+        return send(apiConnector, object, "POST", "/ref-update", refUpdate(object, ref, "ADD", attr));
+    }
+
+    /**
+     * Invoked to remove a ref from an object.
+     *
+     * @param object
+     *            The object, with the ref already removed.
+     *
+     * @return true if the object has been updated.
+     */
+    static boolean removeRef(ApiConnector apiConnector, ApiObjectBase object, ApiObjectBase ref) throws IOException {
+        if (ref == null) {
+            return IdempotentExecutor.update(apiConnector, object);
+        }
+        return send(apiConnector, object, "POST", "/ref-update", refUpdate(object, ref, "DELETE", null));
+    }
+
+    /**
+     * @return The body of a ref-update of an object.
+     */
+    static JsonObject refUpdate(ApiObjectBase object, ApiObjectBase ref, String operation, Object attr) {
+        JsonObject body = new JsonObject();
+        body.addProperty("type", ProjectedReads.typeName(object.getClass()));
+        body.addProperty("uuid", object.getUuid());
+        body.addProperty("ref-type", ProjectedReads.typeName(ref.getClass()));
+        if (ref.getUuid() != null) {
+            body.addProperty("ref-uuid", ref.getUuid());
+        }
+        List<String> fqName = ref.getQualifiedName();
+        if (fqName != null) {
+            body.add("ref-fq-name", GSON.toJsonTree(fqName));
+        }
+        body.addProperty("operation", operation);
+        body.add("attr", attr != null ? GSON.toJsonTree(attr) : null);
+        return body;
+    }
+
+    private static boolean send(ApiConnector apiConnector, ApiObjectBase object, final String method, final String path, JsonObject body)
+            throws IOException {
+        if (Boolean.parseBoolean(System.getProperty(ENABLED_PROPERTY, "true")) && object.getUuid() != null) {
+            final byte[] bytes = GSON.toJson(body).getBytes("UTF-8");
+            for (final String server : ProjectedReads.servers()) {
+                int status;
+                try {
+                    status = CircuitBreaker.call(new Callable<Integer>() {
+                        @Override
+                        public Integer call() throws IOException {
+                            return send(server, method, path, bytes);
+                        }
+                    });
+                } catch (IOException e) {
+                    LOGGER.debug(method + " " + path + " to " + server + " failed : " + e);
+                    continue;
+                }
+                if (status == HttpURLConnection.HTTP_OK) {
+                    ContrailReplica.invalidate(object.getUuid());
+                    return true;
+                }
+                LOGGER.debug(method + " " + path + " not accepted, HTTP " + status);
+                break;
+            }
+        }
+        return IdempotentExecutor.update(apiConnector, object);
+    }
+
+    private static int send(String server, String method, String path, byte[] body) throws IOException {
+        int timeout = Integer.getInteger(ProjectedReads.TIMEOUT_PROPERTY, 5000);
+        HttpURLConnection connection = (HttpURLConnection) new URL("http://" + server + path).openConnection();
+        connection.setConnectTimeout(timeout);
+        connection.setReadTimeout(timeout);
+        connection.setRequestMethod(method);
+        connection.setRequestProperty("Content-Type", "application/json");
+        connection.setDoOutput(true);
+        connection.setFixedLengthStreamingMode(body.length);
+        OutputStream out = connection.getOutputStream();
+        try {
+            out.write(body);
+        } finally {
+            out.close();
+        }
+        int status = connection.getResponseCode();
+        InputStream in = status < HttpURLConnection.HTTP_BAD_REQUEST ? connection.getInputStream() : connection.getErrorStream();
+        if (in != null) {
+            try {
+                byte[] buffer = new byte[1024];
+                while (in.read(buffer) != -1) {
+                    continue;
+                }
+            } finally {
+                in.close();
+            }
+        }
+        return status;
+    }
+}
@@ -0,0 +1,249 @@
+/*
+ * Copyright (C) 2014 Juniper Networks, Inc.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ *
+ */
+package org.opendaylight.plugin2oc.neutron;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentMap;
+
+import net.juniper.contrail.api.ApiConnector;
+import net.juniper.contrail.api.ApiObjectBase;
+import net.juniper.contrail.api.ApiPropertyBase;
+import net.juniper.contrail.api.ObjectReference;
+import net.juniper.contrail.api.types.FloatingIp;
+import net.juniper.contrail.api.types.FloatingIpPool;
+import net.juniper.contrail.api.types.VirtualNetwork;
+import net.juniper.contrail.api.types.VnSubnetsType;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Optional local allocator of the addresses of a floating IP pool. The
+ * allocator keeps an {@link AddressRangeSet} of the IPv4 subnets of the
+ * external network, seeded from the existing {@link FloatingIp} objects of the
+ * pool, so requested addresses are validated and free ones handed out
+ * without a round trip to the API server. Floating IPs created or deleted
+ * by other clients are not seen until the allocator disagrees with the API
+ * server, it is then seeded again through {@link #refresh}. It is enabled
+ * with the plugin2oc.fip.localallocator system property.
+ */
+final class FloatingIpAllocator {
+    static final Logger LOGGER = LoggerFactory.getLogger(FloatingIpAllocator.class);
+    static final String ENABLED_PROPERTY = "plugin2oc.fip.localallocator";
+    /**
+     * Shortest prefix tracked locally, a /12 needs a 128 KB bitmap.
+     */
+    static final int MIN_PREFIX_LEN = 12;
+    private static final ConnectorScopedCache<String, FloatingIpAllocator> ALLOCATORS = new ConnectorScopedCache<String, FloatingIpAllocator>();
+
+    private final String networkUUID;
+    private final AddressRangeSet addresses;
+    private final boolean complete;
+
+    private FloatingIpAllocator(String networkUUID, AddressRangeSet addresses, boolean complete) {
+        this.networkUUID = networkUUID;
+        this.addresses = addresses;
+        this.complete = complete;
+    }
+
+    static boolean isEnabled() {
+        return Boolean.getBoolean(ENABLED_PROPERTY);
+    }
+
+    /**
+     * Invoked to get the allocator of a floating IP pool, building and
+     * seeding it on first use.
+     *
+     * @param apiConnector
+     *            An instance of the connector used to seed the allocator.
+     * @param floatingIpPool
+     *            An instance of the floating IP pool.
+     *
+     * @return The allocator, or null if the external network no longer
+     *         exists.
+     */
+    static FloatingIpAllocator forPool(ApiConnector apiConnector, FloatingIpPool floatingIpPool) throws IOException {
+        ConcurrentMap<String, FloatingIpAllocator> allocators = ALLOCATORS.bind(apiConnector);
+        FloatingIpAllocator allocator = allocators.get(floatingIpPool.getUuid());
+        if (allocator != null) {
+            return allocator;
+        }
+        allocator = build(apiConnector, floatingIpPool);
+        if (allocator == null) {
+            return null;
+        }
+        FloatingIpAllocator existing = allocators.putIfAbsent(floatingIpPool.getUuid(), allocator);
+        return existing != null ? existing : allocator;
+    }
+
+    /**
+     * Invoked when the allocator of a pool conflicts with the API server, an
+     * address it holds as free being taken or the other way round, to seed it
+     * again from the floating IPs of the pool.
+     *
+     * @return The new allocator, or null if the external network no longer
+     *         exists.
+     */
+    static FloatingIpAllocator refresh(ApiConnector apiConnector, FloatingIpPool floatingIpPool) throws IOException {
+        ALLOCATORS.bind(apiConnector).remove(floatingIpPool.getUuid());
+        return forPool(apiConnector, floatingIpPool);
+    }
+
+    /**
+     * Invoked after a floating IP has been deleted to return its address to
+     * the allocator of its pool, if one exists.
+     *
+     * @param poolUUID
+     *            UUID of the floating IP pool.
+     * @param address
+     *            The released floating IP address.
+     */
+    static void released(String poolUUID, String address) {
+        if (poolUUID == null || address == null) {
+            return;
+        }
+        FloatingIpAllocator allocator = ALLOCATORS.entries().get(poolUUID);
+        if (allocator != null) {
+            allocator.release(address);
+        }
+    }
+
+    /**
+     * Invoked when the subnets or the floating IP pool of a network change,
+     * so the allocator is rebuilt from the new address ranges.
+     *
+     * @param networkUUID
+     *            Formatted UUID of the network.
+     */
+    static void invalidateNetwork(String networkUUID) {
+        if (networkUUID == null) {
+            return;
+        }
+        for (FloatingIpAllocator allocator : ALLOCATORS.entries().values()) {
+            if (networkUUID.equals(allocator.networkUUID)) {
+                ALLOCATORS.entries().values().remove(allocator);
+            }
+        }
+    }
+
+    private static FloatingIpAllocator build(ApiConnector apiConnector, FloatingIpPool floatingIpPool) throws IOException {
+        String networkUUID = floatingIpPool.getParentUuid();
+        VirtualNetwork virtualNetwork = (VirtualNetwork) apiConnector.findById(VirtualNetwork.class, networkUUID);
+        if (virtualNetwork == null) {
+            return null;
+        }
+        List<AddressBitmap> ranges = new ArrayList<AddressBitmap>();
+        boolean complete = true;
+        if (virtualNetwork.getNetworkIpam() != null) {
+            for (ObjectReference<VnSubnetsType> ref : virtualNetwork.getNetworkIpam()) {
+                VnSubnetsType vnSubnetsType = ref.getAttr();
+                if (vnSubnetsType == null || vnSubnetsType.getIpamSubnets() == null) {
+                    continue;
+                }
+                for (VnSubnetsType.IpamSubnetType ipamSubnet : vnSubnetsType.getIpamSubnets()) {
+                    AddressBitmap range = newRange(ipamSubnet);
+                    if (range == null) {
+                        complete = false;
+                    } else {
+                        ranges.add(range);
+                    }
+                }
+            }
+        }
+        FloatingIpAllocator allocator = new FloatingIpAllocator(networkUUID, new AddressRangeSet(ranges), complete);
+        // reload the pool so that floating IPs created since it was cached are
+        // seeded as well
+        FloatingIpPool currentPool = (FloatingIpPool) apiConnector.findById(FloatingIpPool.class, floatingIpPool.getUuid());
+        List<ObjectReference<ApiPropertyBase>> floatingIpRefs = currentPool != null ? currentPool.getFloatingIps() : null;
+        int seeded = 0;
+        if (floatingIpRefs != null && !floatingIpRefs.isEmpty()) {
+            List<? extends ApiObjectBase> floatingIps = apiConnector.getObjects(FloatingIp.class, floatingIpRefs);
+            if (floatingIps != null) {
+                for (ApiObjectBase floatingIp : floatingIps) {
+                    if (allocator.claim(((FloatingIp) floatingIp).getAddress())) {
+                        seeded++;
+                    }
+                }
+            }
+        }
+        LOGGER.info("Floating ip allocator of pool " + floatingIpPool.getUuid() + " tracks " + ranges.size() + " range(s), " + seeded
+                + " address(es) in use");
+        return allocator;
+    }
+
+    private static AddressBitmap newRange(VnSubnetsType.IpamSubnetType ipamSubnet) {
+        if (ipamSubnet.getSubnet() == null || ipamSubnet.getSubnet().getIpPrefixLen() == null) {
+            return null;
+        }
+        long prefix = Utils.ipv4ToLong(ipamSubnet.getSubnet().getIpPrefix());
+        int prefixLen = ipamSubnet.getSubnet().getIpPrefixLen();
+        if (prefix < 0 || prefixLen < MIN_PREFIX_LEN || prefixLen > 30) {
+            // IPv6 or oversized subnets are left to the API server
+            return null;
+        }
+        int size = 1 << (32 - prefixLen);
+        long network = prefix & ~((long) size - 1) & 0xffffffffL;
+        // network and broadcast addresses are never handed out
+        AddressBitmap range = new AddressBitmap(network + 1, size - 2);
+        long gateway = Utils.ipv4ToLong(ipamSubnet.getDefaultGateway());
+        if (gateway >= 0 && range.covers(gateway)) {
+            range.claim(gateway);
+        }
+        return range;
+    }
+
+    /**
+     * @return true if the address is tracked and already in use.
+     */
+    boolean isClaimed(String address) {
+        return addresses.isClaimed(Utils.ipv4ToLong(address));
+    }
+
+    /**
+     * @return true if every subnet of the pool is tracked and none of them
+     *         contains the address.
+     */
+    boolean isOutside(String address) {
+        return complete && !addresses.covers(Utils.ipv4ToLong(address));
+    }
+
+    boolean hasFree() {
+        return addresses.freeCount() > 0;
+    }
+
+    /**
+     * Invoked to claim a requested address.
+     *
+     * @return false if the address is tracked and already in use.
+     */
+    boolean claim(String address) {
+        long value = Utils.ipv4ToLong(address);
+        if (!addresses.covers(value)) {
+            return !complete;
+        }
+        return addresses.claim(value);
+    }
+
+    /**
+     * Invoked to claim any free address of the pool.
+     *
+     * @return The claimed address, or null if the tracked ranges are
+     *         exhausted.
+     */
+    String allocate() {
+        long address = addresses.claimNext();
+        return address >= 0 ? Utils.longToIpv4(address) : null;
+    }
+
+    void release(String address) {
+        addresses.release(Utils.ipv4ToLong(address));
+    }
+}
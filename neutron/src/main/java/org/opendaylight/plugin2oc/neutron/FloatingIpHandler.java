@@ -17,7 +17,6 @@ import net.juniper.contrail.api.types.FloatingIp;
 import net.juniper.contrail.api.types.FloatingIpPool;
 import net.juniper.contrail.api.types.Project;
 import net.juniper.contrail.api.types.VirtualMachineInterface;
-import net.juniper.contrail.api.types.VirtualNetwork;
 
 import org.opendaylight.controller.networkconfig.neutron.INeutronFloatingIPAware;
 import org.opendaylight.controller.networkconfig.neutron.NeutronFloatingIP;
@@ -58,10 +57,13 @@ public class FloatingIpHandler implements INeutronFloatingIPAware {
             LOGGER.error("Floating Ip tenant Id can not be null");
             return HttpURLConnection.HTTP_BAD_REQUEST;
         }
-        if (fip.getFloatingIPAddress() == null) {
+        if (fip.getFloatingIPAddress() == null && !FloatingIpAllocator.isEnabled()) {
             LOGGER.error(" Floating Ip address can not be null");
             return HttpURLConnection.HTTP_BAD_REQUEST;
         }
+        if (!StartupPreloader.isReady() || CircuitBreaker.isOpen()) {
+            return HttpURLConnection.HTTP_UNAVAILABLE;
+        }
         String fipUUID = fip.getFloatingIPUUID();
         String projectUUID = fip.getTenantUUID();
         String floatingNetworkUUID = fip.getFloatingNetworkUUID();
@@ -90,44 +92,53 @@ public class FloatingIpHandler implements INeutronFloatingIPAware {
             return HttpURLConnection.HTTP_BAD_REQUEST;
         }
         try {
-            FloatingIp floatingIpByID = (FloatingIp) apiConnector.findById(FloatingIp.class, fipUUID);
+            FloatingIp floatingIpByID = ContrailReplica.findById(apiConnector, FloatingIp.class, fipUUID, false);
             if (floatingIpByID != null) {
                 LOGGER.error("Floating IP already exists...");
                 return HttpURLConnection.HTTP_NOT_FOUND;
             }
-            Project project = (Project) apiConnector.findById(Project.class, projectUUID);
+            Project project = ContrailReplica.awaitById(apiConnector, Project.class, projectUUID);
             if (project == null) {
-                try {
-                    Thread.currentThread();
-                    Thread.sleep(3000);
-                } catch (InterruptedException e) {
-                    LOGGER.error("InterruptedException :    ", e);
-                    return HttpURLConnection.HTTP_BAD_REQUEST;
-                }
-                project = (Project) apiConnector.findById(Project.class, projectUUID);
-                if (project == null) {
-                    LOGGER.error("Could not find projectUUID...");
-                    return HttpURLConnection.HTTP_NOT_FOUND;
-                }
-            }
-            VirtualNetwork virtualNetwork = (VirtualNetwork) apiConnector.findById(VirtualNetwork.class, floatingNetworkUUID);
-            if (virtualNetwork == null) {
-                LOGGER.error("Could not find Virtual network...");
+                LOGGER.error("Could not find projectUUID...");
                 return HttpURLConnection.HTTP_NOT_FOUND;
             }
-            String floatingPoolId = virtualNetwork.getFloatingIpPools().get(0).getUuid();
-            FloatingIpPool floatingIpPool = (FloatingIpPool) apiConnector.findById(FloatingIpPool.class, floatingPoolId);
+            FloatingIpPool floatingIpPool = FloatingIpPoolCache.resolve(apiConnector, floatingNetworkUUID);
             if (floatingIpPool == null) {
-                LOGGER.error("Could not find Floating ip pool...");
-
+                LOGGER.error("Could not find Virtual network / Floating ip pool...");
                 return HttpURLConnection.HTTP_NOT_FOUND;
             }
+            if (FloatingIpAllocator.isEnabled()) {
+                FloatingIpAllocator allocator = FloatingIpAllocator.forPool(apiConnector, floatingIpPool);
+                String floatingIpAddress = fip.getFloatingIPAddress();
+                if (floatingIpAddress == null) {
+                    if (allocator != null && !allocator.hasFree()) {
+                        // floating IPs of other clients may have been deleted since
+                        allocator = FloatingIpAllocator.refresh(apiConnector, floatingIpPool);
+                    }
+                    if (allocator == null || !allocator.hasFree()) {
+                        LOGGER.error("No free address left in floating ip pool : " + floatingIpPool.getUuid());
+                        return HttpURLConnection.HTTP_CONFLICT;
+                    }
+                } else if (allocator != null) {
+                    if (allocator.isOutside(floatingIpAddress)) {
+                        LOGGER.error("Floating Ip address " + floatingIpAddress + " is outside of the floating ip pool...");
+                        return HttpURLConnection.HTTP_BAD_REQUEST;
+                    }
+                    if (allocator.isClaimed(floatingIpAddress)) {
+                        allocator = FloatingIpAllocator.refresh(apiConnector, floatingIpPool);
+                    }
+                    if (allocator != null && allocator.isClaimed(floatingIpAddress)) {
+                        LOGGER.error("Floating Ip address " + floatingIpAddress + " is already in use...");
+                        return HttpURLConnection.HTTP_CONFLICT;
+                    }
+                }
+            }
         } catch (IOException ie) {
             LOGGER.error("IOException :   " + ie);
-            return HttpURLConnection.HTTP_INTERNAL_ERROR;
+            return CircuitBreaker.statusOf(ie);
         } catch (Exception e) {
             LOGGER.error("Exception :   " + e);
-            return HttpURLConnection.HTTP_INTERNAL_ERROR;
+            return CircuitBreaker.statusOf(e);
         }
         return HttpURLConnection.HTTP_OK;
     }
@@ -167,11 +178,37 @@ public class FloatingIpHandler implements INeutronFloatingIPAware {
         } catch (Exception ex) {
             LOGGER.error("UUID input incorrect", ex);
         }
+        FloatingIpAllocator allocator = null;
         try {
             Project project = (Project) apiConnector.findById(Project.class, projectUUID);
-            VirtualNetwork virtualNetwork = (VirtualNetwork) apiConnector.findById(VirtualNetwork.class, floatingNetworkUUID);
-            String floatingPoolId = virtualNetwork.getFloatingIpPools().get(0).getUuid();
-            FloatingIpPool floatingIpPool = (FloatingIpPool) apiConnector.findById(FloatingIpPool.class, floatingPoolId);
+            FloatingIpPool floatingIpPool = FloatingIpPoolCache.resolve(apiConnector, floatingNetworkUUID);
+            if (floatingIpPool == null) {
+                LOGGER.error("Could not find Floating ip pool for network : " + floatingNetworkUUID);
+                return;
+            }
+            if (FloatingIpAllocator.isEnabled()) {
+                allocator = FloatingIpAllocator.forPool(apiConnector, floatingIpPool);
+            }
+            if (allocator != null) {
+                if (floatingIpaddress == null) {
+                    floatingIpaddress = allocator.allocate();
+                    if (floatingIpaddress == null) {
+                        allocator = FloatingIpAllocator.refresh(apiConnector, floatingIpPool);
+                        floatingIpaddress = allocator != null ? allocator.allocate() : null;
+                    }
+                    if (floatingIpaddress == null) {
+                        LOGGER.error("No free address left in floating ip pool : " + floatingIpPool.getUuid());
+                        return;
+                    }
+                    neutronFloatingIp.setFloatingIPAddress(floatingIpaddress);
+                } else if (!allocator.claim(floatingIpaddress)) {
+                    allocator = FloatingIpAllocator.refresh(apiConnector, floatingIpPool);
+                    if (allocator != null && !allocator.claim(floatingIpaddress)) {
+                        LOGGER.error("Floating Ip address " + floatingIpaddress + " is already in use...");
+                        return;
+                    }
+                }
+            }
             FloatingIp floatingIp = new FloatingIp();
             floatingIp.setUuid(fipUUID);
             floatingIp.setName(fipUUID);
@@ -188,10 +225,18 @@ public class FloatingIpHandler implements INeutronFloatingIPAware {
             boolean floatingIpCreaterd = apiConnector.create(floatingIp);
             if (!floatingIpCreaterd) {
                 LOGGER.warn("Floating Ip creation failed..");
+                if (allocator != null) {
+                    // the address may have been taken by another client
+                    FloatingIpAllocator.refresh(apiConnector, floatingIpPool);
+                }
+                return;
             }
             LOGGER.info("Floating Ip : " + floatingIp.getName() + "  having UUID : " + floatingIp.getUuid() + "  sucessfully created...");
         } catch (IOException ioEx) {
             LOGGER.error("Exception : " + ioEx);
+            if (allocator != null && floatingIpaddress != null) {
+                allocator.release(floatingIpaddress);
+            }
         }
     }
 
@@ -205,6 +250,7 @@ public class FloatingIpHandler implements INeutronFloatingIPAware {
      */
     @Override
     public void neutronFloatingIPCreated(NeutronFloatingIP neutronFloatingIp) {
+        long intent = OperationJournal.begin(OperationJournal.CREATE, OperationJournal.FLOATING_IP, neutronFloatingIp.getFloatingIPUUID());
         try {
             createfloatingIp(neutronFloatingIp);
         } catch (Exception ex) {
@@ -225,6 +271,7 @@ public class FloatingIpHandler implements INeutronFloatingIPAware {
         } catch (Exception ex) {
             LOGGER.error("Exception :    " + ex);
         }
+        OperationJournal.done(intent);
     }
 
     /**
@@ -244,6 +291,9 @@ public class FloatingIpHandler implements INeutronFloatingIPAware {
             LOGGER.error("Neutron Floating Ip can't be null..");
             return HttpURLConnection.HTTP_BAD_REQUEST;
         }
+        if (!StartupPreloader.isReady() || CircuitBreaker.isOpen()) {
+            return HttpURLConnection.HTTP_UNAVAILABLE;
+        }
         FloatingIp floatingIp = null;
         String fipUUID = originalFloatingIp.getFloatingIPUUID();
 
@@ -257,14 +307,14 @@ public class FloatingIpHandler implements INeutronFloatingIPAware {
             return HttpURLConnection.HTTP_BAD_REQUEST;
         }
         try {
-            floatingIp = (FloatingIp) apiConnector.findById(FloatingIp.class, fipUUID);
+            floatingIp = ContrailReplica.findById(apiConnector, FloatingIp.class, fipUUID, false);
             if (floatingIp == null) {
                 LOGGER.error("No floating IP exists for the specified UUID...");
                 return HttpURLConnection.HTTP_NOT_FOUND;
             }
         } catch (IOException ex) {
             LOGGER.error("Exception : " + ex);
-            return HttpURLConnection.HTTP_INTERNAL_ERROR;
+            return CircuitBreaker.statusOf(ex);
         }
         return HttpURLConnection.HTTP_OK;
     }
@@ -320,6 +370,7 @@ public class FloatingIpHandler implements INeutronFloatingIPAware {
      */
     @Override
     public void neutronFloatingIPUpdated(NeutronFloatingIP updatedFloatingIp) {
+        long intent = OperationJournal.begin(OperationJournal.UPDATE, OperationJournal.FLOATING_IP, updatedFloatingIp.getFloatingIPUUID());
         try {
             updateFloatingIP(updatedFloatingIp);
             String fipUUID = updatedFloatingIp.getFloatingIPUUID();
@@ -349,6 +400,7 @@ public class FloatingIpHandler implements INeutronFloatingIPAware {
         } catch (Exception e) {
             LOGGER.error("Exception :" + e);
         }
+        OperationJournal.done(intent);
     }
 
     /**
@@ -363,13 +415,16 @@ public class FloatingIpHandler implements INeutronFloatingIPAware {
     @Override
     public int canDeleteFloatingIP(NeutronFloatingIP neutronFloatingIp) {
         apiConnector = Activator.apiConnector;
+        if (!StartupPreloader.isReady() || CircuitBreaker.isOpen()) {
+            return HttpURLConnection.HTTP_UNAVAILABLE;
+        }
         String fipUUID = neutronFloatingIp.getFloatingIPUUID();
         try {
             if (!(fipUUID.contains("-"))) {
                 fipUUID = Utils.uuidFormater(fipUUID);
             }
             fipUUID = UUID.fromString(fipUUID).toString();
-            FloatingIp floatingIp = (FloatingIp) apiConnector.findById(FloatingIp.class, fipUUID);
+            FloatingIp floatingIp = ContrailReplica.findById(apiConnector, FloatingIp.class, fipUUID, false);
             if (floatingIp == null) {
                 LOGGER.info("No Floating Ip exists with UUID :  " + fipUUID);
                 return HttpURLConnection.HTTP_NOT_FOUND;
@@ -377,10 +432,10 @@ public class FloatingIpHandler implements INeutronFloatingIPAware {
             return HttpURLConnection.HTTP_OK;
         } catch (IOException ioEx) {
             LOGGER.error("Exception : " + ioEx);
-            return HttpURLConnection.HTTP_INTERNAL_ERROR;
+            return CircuitBreaker.statusOf(ioEx);
         } catch (Exception ex) {
             LOGGER.error("Exception : " + ex);
-            return HttpURLConnection.HTTP_INTERNAL_ERROR;
+            return CircuitBreaker.statusOf(ex);
         }
     }
 
@@ -392,6 +447,7 @@ public class FloatingIpHandler implements INeutronFloatingIPAware {
      */
     @Override
     public void neutronFloatingIPDeleted(NeutronFloatingIP neutronFloatingIp) {
+        long intent = OperationJournal.begin(OperationJournal.DELETE, OperationJournal.FLOATING_IP, neutronFloatingIp.getFloatingIPUUID());
         String fipUUID = neutronFloatingIp.getFloatingIPUUID();
         FloatingIp floatingIp = null;
         try {
@@ -400,9 +456,17 @@ public class FloatingIpHandler implements INeutronFloatingIPAware {
             }
             fipUUID = UUID.fromString(fipUUID).toString();
             floatingIp = (FloatingIp) apiConnector.findById(FloatingIp.class, fipUUID);
+            if (floatingIp == null) {
+                LOGGER.warn("No Floating Ip exists with UUID :  " + fipUUID);
+                OperationJournal.done(intent);
+                return;
+            }
+            String floatingIpPoolUUID = floatingIp.getParentUuid();
+            String floatingIpAddress = floatingIp.getAddress();
             apiConnector.delete(floatingIp);
             floatingIp = (FloatingIp) apiConnector.findById(FloatingIp.class, fipUUID);
             if (floatingIp == null) {
+                FloatingIpAllocator.released(floatingIpPoolUUID, floatingIpAddress);
                 LOGGER.info("Floating ip deletion verified....");
             } else {
                 LOGGER.info("Floating ip deletion failed....");
@@ -412,6 +476,7 @@ public class FloatingIpHandler implements INeutronFloatingIPAware {
         } catch (Exception ex) {
             LOGGER.error("Exception :   " + ex);
         }
+        OperationJournal.done(intent);
     }
 
 }
\ No newline at end of file
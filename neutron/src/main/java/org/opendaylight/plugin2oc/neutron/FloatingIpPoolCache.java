@@ -0,0 +1,93 @@
+/*
+ * Copyright (C) 2014 Juniper Networks, Inc.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ *
+ */
+package org.opendaylight.plugin2oc.neutron;
+
+import java.io.IOException;
+import java.util.List;
+
+import net.juniper.contrail.api.ApiConnector;
+import net.juniper.contrail.api.ApiPropertyBase;
+import net.juniper.contrail.api.ObjectReference;
+import net.juniper.contrail.api.types.FloatingIpPool;
+import net.juniper.contrail.api.types.VirtualNetwork;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Cache of the floating IP pool backing each external network. The mapping
+ * only changes when {@link NetworkHandler} creates or removes the pool, so
+ * floating IP allocation resolves it once instead of fetching the network
+ * and the pool on every request.
+ */
+final class FloatingIpPoolCache {
+    static final Logger LOGGER = LoggerFactory.getLogger(FloatingIpPoolCache.class);
+    private static final ConnectorScopedCache<String, FloatingIpPool> POOLS = new ConnectorScopedCache<String, FloatingIpPool>();
+
+    private FloatingIpPoolCache() {
+    }
+
+    /**
+     * Invoked to get the floating IP pool of an external network.
+     *
+     * @param apiConnector
+     *            An instance of the connector used to resolve a cache miss.
+     * @param networkUUID
+     *            Formatted UUID of the external network.
+     *
+     * @return The {@link FloatingIpPool}, or null if the network or its pool
+     *         does not exist.
+     */
+    static FloatingIpPool resolve(ApiConnector apiConnector, String networkUUID) throws IOException {
+        FloatingIpPool floatingIpPool = POOLS.bind(apiConnector).get(networkUUID);
+        if (floatingIpPool != null) {
+            return floatingIpPool;
+        }
+        VirtualNetwork virtualNetwork = (VirtualNetwork) apiConnector.findById(VirtualNetwork.class, networkUUID);
+        if (virtualNetwork == null) {
+            LOGGER.debug("No virtual network exists with UUID : " + networkUUID);
+            return null;
+        }
+        List<ObjectReference<ApiPropertyBase>> floatingIpPools = virtualNetwork.getFloatingIpPools();
+        if (floatingIpPools == null || floatingIpPools.isEmpty()) {
+            LOGGER.debug("No floating ip pool exists for network : " + networkUUID);
+            return null;
+        }
+        String floatingPoolId = floatingIpPools.get(0).getUuid();
+        floatingIpPool = (FloatingIpPool) apiConnector.findById(FloatingIpPool.class, floatingPoolId);
+        if (floatingIpPool != null) {
+            POOLS.bind(apiConnector).put(networkUUID, floatingIpPool);
+        }
+        return floatingIpPool;
+    }
+
+    /**
+     * Invoked by the {@link StartupPreloader} with a pool it has fetched.
+     *
+     * @param floatingIpPool
+     *            The pool, whose parent is the external network.
+     */
+    static void preload(ApiConnector apiConnector, FloatingIpPool floatingIpPool) {
+        if (floatingIpPool.getParentUuid() != null) {
+            POOLS.bind(apiConnector).putIfAbsent(floatingIpPool.getParentUuid(), floatingIpPool);
+        }
+    }
+
+    /**
+     * Invoked when the floating IP pool of a network is created or removed.
+     *
+     * @param networkUUID
+     *            Formatted UUID of the network.
+     */
+    static void invalidate(String networkUUID) {
+        if (networkUUID != null) {
+            POOLS.entries().remove(networkUUID);
+        }
+    }
+}
@@ -0,0 +1,217 @@
+/*
+ * Copyright (C) 2014 Juniper Networks, Inc.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ *
+ */
+package org.opendaylight.plugin2oc.neutron;
+
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import net.juniper.contrail.api.ApiConnector;
+import net.juniper.contrail.api.ApiObjectBase;
+import net.juniper.contrail.api.ApiPropertyBase;
+import net.juniper.contrail.api.ObjectReference;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Executes Contrail creates and updates so that they can be retried safely.
+ * A failed create is followed by a lookup of the object by UUID, and an
+ * object that already exists with the same type, name and parent, and with
+ * every property and reference the caller set, typically created by an
+ * earlier attempt whose response was lost, counts as created.
+ * Failures are retried with exponential backoff and jitter until the attempts
+ * or the deadline of the call are exhausted.
+ */
+final class IdempotentExecutor {
+    static final Logger LOGGER = LoggerFactory.getLogger(IdempotentExecutor.class);
+    static final String ATTEMPTS_PROPERTY = "plugin2oc.retry.attempts";
+    static final String DEADLINE_PROPERTY = "plugin2oc.retry.deadline";
+    static final String BACKOFF_PROPERTY = "plugin2oc.retry.backoff";
+    private static final long MAX_BACKOFF_MILLIS = 2000;
+
+    private IdempotentExecutor() {
+    }
+
+    /**
+     * Invoked to create an object in Contrail.
+     *
+     * @param apiConnector
+     *            The connector currently used by the handlers.
+     * @param object
+     *            The object to create, with its UUID set.
+     *
+     * @return true if the object has been created or already existed with an
+     *         equivalent content.
+     *
+     * @throws IOException
+     *             if the last attempt failed to reach the API server.
+     */
+    static boolean create(ApiConnector apiConnector, ApiObjectBase object) throws IOException {
+        return execute(apiConnector, object, true);
+    }
+
+    /**
+     * Invoked to update an object in Contrail. Updates replace the state of
+     * the object, so repeating one is harmless.
+     */
+    static boolean update(ApiConnector apiConnector, ApiObjectBase object) throws IOException {
+        return execute(apiConnector, object, false);
+    }
+
+    private static boolean execute(ApiConnector apiConnector, ApiObjectBase object, boolean create) throws IOException {
+        int attempts = Math.max(1, Integer.getInteger(ATTEMPTS_PROPERTY, 3));
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(Long.getLong(DEADLINE_PROPERTY, 15000L));
+        long backoff = Math.max(1L, Long.getLong(BACKOFF_PROPERTY, 100L));
+        IOException failure = null;
+        for (int attempt = 1;; attempt++) {
+            try {
+                if (create ? apiConnector.create(object) : apiConnector.update(object)) {
+                    return true;
+                }
+                failure = null;
+            } catch (IOException e) {
+                failure = e;
+            }
+            if (create && object.getUuid() != null) {
+                try {
+                    ApiObjectBase existing = apiConnector.findById(object.getClass(), object.getUuid());
+                    if (existing != null) {
+                        if (equivalent(existing, object)) {
+                            LOGGER.info(object.getClass().getSimpleName() + " " + object.getUuid() + " already exists, create treated as done");
+                            return true;
+                        }
+                        LOGGER.error(object.getClass().getSimpleName() + " " + object.getUuid() + " already exists with a different content");
+                        return false;
+                    }
+                } catch (IOException e) {
+                    failure = e;
+                }
+            }
+            // full jitter keeps the retries of concurrent callers apart
+            long sleep = ThreadLocalRandom.current().nextLong(backoff) + 1;
+            if (attempt >= attempts || System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(sleep) - deadline > 0) {
+                break;
+            }
+            LOGGER.warn((create ? "Create" : "Update") + " of " + object.getClass().getSimpleName() + " " + object.getUuid() + " failed, retrying in "
+                    + sleep + " ms" + (failure != null ? " : " + failure : ""));
+            try {
+                TimeUnit.MILLISECONDS.sleep(sleep);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+            backoff = Math.min(backoff * 2, MAX_BACKOFF_MILLIS);
+        }
+        if (failure != null) {
+            throw failure;
+        }
+        return false;
+    }
+
+    /**
+     * @return true if the existing object is the one the create intended.
+     */
+    static boolean equivalent(ApiObjectBase existing, ApiObjectBase intended) {
+        if (!intended.getClass().isInstance(existing)) {
+            return false;
+        }
+        if (intended.getName() != null && existing.getName() != null && !intended.getName().equals(existing.getName())) {
+            return false;
+        }
+        List<String> intendedName = intended.getQualifiedName();
+        List<String> existingName = existing.getQualifiedName();
+        if (intendedName != null && existingName != null && !intendedName.equals(existingName)) {
+            return false;
+        }
+        if (intended.getParentUuid() != null && existing.getParentUuid() != null && !intended.getParentUuid().equals(existing.getParentUuid())) {
+            return false;
+        }
+        return sameProperties(existing, intended);
+    }
+
+    /**
+     * @return true if every property and reference set on the intended
+     *         object, as read through its getters, has the same value on the
+     *         existing one. Back references are set by the API server and are
+     *         left out.
+     */
+    private static boolean sameProperties(Object existing, Object intended) {
+        for (Method getter : intended.getClass().getMethods()) {
+            Class<?> declaring = getter.getDeclaringClass();
+            if (declaring == Object.class || declaring == ApiObjectBase.class || declaring == ApiPropertyBase.class
+                    || getter.getParameterTypes().length != 0 || Modifier.isStatic(getter.getModifiers())
+                    || !(getter.getName().startsWith("get") || getter.getName().startsWith("is")) || getter.getName().endsWith("BackRefs")) {
+                continue;
+            }
+            try {
+                Object value = getter.invoke(intended);
+                if (value == null || value instanceof List && ((List<?>) value).isEmpty()) {
+                    continue;
+                }
+                if (!same(getter.invoke(existing), value)) {
+                    return false;
+                }
+            } catch (IllegalAccessException e) {
+                continue;
+            } catch (InvocationTargetException e) {
+                continue;
+            }
+        }
+        return true;
+    }
+
+    private static boolean same(Object existing, Object intended) {
+        if (existing == null) {
+            return false;
+        }
+        if (intended instanceof List) {
+            if (!(existing instanceof List)) {
+                return false;
+            }
+            // the order of the references is not significant
+            for (Object element : (List<?>) intended) {
+                boolean found = false;
+                for (Object candidate : (List<?>) existing) {
+                    if (element == null ? candidate == null : same(candidate, element)) {
+                        found = true;
+                        break;
+                    }
+                }
+                if (!found) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        if (intended instanceof ObjectReference) {
+            if (!(existing instanceof ObjectReference)) {
+                return false;
+            }
+            ObjectReference<?> intendedRef = (ObjectReference<?>) intended;
+            ObjectReference<?> existingRef = (ObjectReference<?>) existing;
+            if (intendedRef.getUuid() != null && !("").equals(intendedRef.getUuid()) && existingRef.getUuid() != null) {
+                if (!intendedRef.getUuid().equals(existingRef.getUuid())) {
+                    return false;
+                }
+            } else if (intendedRef.getReferredName() != null && !intendedRef.getReferredName().equals(existingRef.getReferredName())) {
+                return false;
+            }
+            return intendedRef.getAttr() == null || same(existingRef.getAttr(), intendedRef.getAttr());
+        }
+        if (intended instanceof ApiPropertyBase) {
+            return intended.getClass().isInstance(existing) && sameProperties(existing, intended);
+        }
+        return intended.equals(existing);
+    }
+}
@@ -0,0 +1,76 @@
+/*
+ * Copyright (C) 2014 Juniper Networks, Inc.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ *
+ */
+package org.opendaylight.plugin2oc.neutron;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import net.juniper.contrail.api.ApiConnector;
+import net.juniper.contrail.api.ApiObjectBase;
+
+/**
+ * Default {@link ChangeFeed}, comparing the listings of the watched types
+ * between two polls. A listing only returns the UUID and the name of the
+ * objects, so this feed reports the objects created and deleted by other
+ * clients, and the updates they make are only picked up when the cached
+ * entries expire. The types held by the {@link NameIndex} are listed through
+ * it, so that the index is reloaded from the same listing.
+ */
+final class ListingChangeFeed implements ChangeFeed {
+    private final ApiConnector apiConnector;
+    private final NameIndex nameIndex;
+    private final Map<Class<? extends ApiObjectBase>, Set<String>> listed = new HashMap<Class<? extends ApiObjectBase>, Set<String>>();
+
+    public ListingChangeFeed(ApiConnector apiConnector) {
+        this(apiConnector, null);
+    }
+
+    ListingChangeFeed(ApiConnector apiConnector, NameIndex nameIndex) {
+        this.apiConnector = apiConnector;
+        this.nameIndex = nameIndex;
+    }
+
+    @Override
+    public List<Change> poll() throws IOException {
+        List<Change> changes = new ArrayList<Change>();
+        for (Class<? extends ApiObjectBase> type : ChangeFeedSubscriber.TYPES) {
+            List<? extends ApiObjectBase> objects;
+            if (nameIndex != null && NameIndex.TYPES.contains(type)) {
+                objects = nameIndex.load(type);
+            } else {
+                objects = apiConnector.list(type, null);
+            }
+            if (objects == null) {
+                continue;
+            }
+            Set<String> current = new HashSet<String>();
+            Set<String> previous = listed.get(type);
+            for (ApiObjectBase object : objects) {
+                current.add(object.getUuid());
+                if (previous != null && !previous.contains(object.getUuid())) {
+                    changes.add(new Change(Change.CREATED, type, object.getUuid(), object));
+                }
+            }
+            if (previous != null) {
+                for (String uuid : previous) {
+                    if (!current.contains(uuid)) {
+                        changes.add(new Change(Change.DELETED, type, uuid, null));
+                    }
+                }
+            }
+            listed.put(type, current);
+        }
+        return changes;
+    }
+}
@@ -51,6 +51,9 @@ public class LoadBalancerHandler implements INeutronLoadBalancerAware {
             LOGGER.error("LoadBalancer TenanID/SubnetID can not be null");
             return HttpURLConnection.HTTP_BAD_REQUEST;
         }
+        if (!StartupPreloader.isReady() || CircuitBreaker.isOpen()) {
+            return HttpURLConnection.HTTP_UNAVAILABLE;
+        }
         try {
             String loadBalancerID = loadBalancer.getLoadBalancerID();
             String loadBalancerVipSubnetID = loadBalancer.getLoadBalancerVipSubnetID();
@@ -79,20 +82,10 @@ public class LoadBalancerHandler implements INeutronLoadBalancerAware {
                 LOGGER.error("UUID input incorrect", ex);
                 return HttpURLConnection.HTTP_BAD_REQUEST;
             }
-            Project project = (Project) apiConnector.findById(Project.class, projectUUID);
+            Project project = ContrailReplica.awaitById(apiConnector, Project.class, projectUUID);
             if (project == null) {
-                try {
-                    Thread.currentThread();
-                    Thread.sleep(3000);
-                } catch (InterruptedException e) {
-                    LOGGER.error("InterruptedException :    ", e);
-                    return HttpURLConnection.HTTP_BAD_REQUEST;
-                }
-                project = (Project) apiConnector.findById(Project.class, projectUUID);
-                if (project == null) {
-                    LOGGER.error("Could not find projectUUID...");
-                    return HttpURLConnection.HTTP_NOT_FOUND;
-                }
+                LOGGER.error("Could not find projectUUID...");
+                return HttpURLConnection.HTTP_NOT_FOUND;
             }
             /* TODO: support for LoadBalancer is not provided in OpenContrail */
             // LoadBalancer loadBalancer = (LoadBalancer)
@@ -116,7 +109,7 @@ public class LoadBalancerHandler implements INeutronLoadBalancerAware {
                 return HttpURLConnection.HTTP_FORBIDDEN;
             }
             String networkUUID = subnet.getNetworkUUID();
-            VirtualNetwork virtualnetwork = (VirtualNetwork) apiConnector.findById(VirtualNetwork.class, networkUUID);
+            VirtualNetwork virtualnetwork = ContrailReplica.findById(apiConnector, VirtualNetwork.class, networkUUID, false);
             if (virtualnetwork == null) {
                 LOGGER.error("No network exists for the specified subnet...");
                 return HttpURLConnection.HTTP_FORBIDDEN;
@@ -129,18 +122,18 @@ public class LoadBalancerHandler implements INeutronLoadBalancerAware {
                     }
                 } catch (Exception e) {
                     LOGGER.error("Exception:  " + e);
-                    return HttpURLConnection.HTTP_INTERNAL_ERROR;
+                    return CircuitBreaker.statusOf(e);
                 }
             }
             return HttpURLConnection.HTTP_OK;
         } catch (IOException ie) {
             LOGGER.error("IOException :   " + ie);
             System.out.println("exception 1");
-            return HttpURLConnection.HTTP_INTERNAL_ERROR;
+            return CircuitBreaker.statusOf(ie);
         } catch (Exception e) {
             LOGGER.error("Exception :   " + e);
             System.out.println("exception 2");
-            return HttpURLConnection.HTTP_INTERNAL_ERROR;
+            return CircuitBreaker.statusOf(e);
         }
 
     }
@@ -45,6 +45,9 @@ public class LoadBalancerHealthMonitorHandler implements INeutronLoadBalancerHea
             LOGGER.error("LoadBalancerHealthMonitor tenant Id can not be null");
             return HttpURLConnection.HTTP_BAD_REQUEST;
         }
+        if (!StartupPreloader.isReady() || CircuitBreaker.isOpen()) {
+            return HttpURLConnection.HTTP_UNAVAILABLE;
+        }
         try {
             String loadBalancerHealthMonitorUUID = loadBalancerHealthMonitor.getLoadBalancerHealthMonitorID();
             String projectUUID = loadBalancerHealthMonitor.getLoadBalancerHealthMonitorTenantID();
@@ -67,23 +70,13 @@ public class LoadBalancerHealthMonitorHandler implements INeutronLoadBalancerHea
                 LOGGER.error("UUID input incorrect", ex);
                 return HttpURLConnection.HTTP_BAD_REQUEST;
             }
-            Project project = (Project) apiConnector.findById(Project.class, projectUUID);
+            Project project = ContrailReplica.awaitById(apiConnector, Project.class, projectUUID);
             if (project == null) {
-                try {
-                    Thread.currentThread();
-                    Thread.sleep(3000);
-                } catch (InterruptedException e) {
-                    LOGGER.error("InterruptedException :    ", e);
-                    return HttpURLConnection.HTTP_BAD_REQUEST;
-                }
-                project = (Project) apiConnector.findById(Project.class, projectUUID);
-                if (project == null) {
-                    LOGGER.error("Could not find projectUUID...");
-                    return HttpURLConnection.HTTP_NOT_FOUND;
-                }
+                LOGGER.error("Could not find projectUUID...");
+                return HttpURLConnection.HTTP_NOT_FOUND;
             }
-            LoadbalancerHealthmonitor virtualHealthMonitorByID = (LoadbalancerHealthmonitor) apiConnector.findById(
-                    LoadbalancerHealthmonitor.class, loadBalancerHealthMonitorUUID);
+            LoadbalancerHealthmonitor virtualHealthMonitorByID = ContrailReplica.findById(apiConnector,
+                    LoadbalancerHealthmonitor.class, loadBalancerHealthMonitorUUID, false);
             if (virtualHealthMonitorByID != null) {
                 LOGGER.warn("LoadBalancerHealthMonitor already exists with UUID" + virtualHealthMonitorByID);
                 return HttpURLConnection.HTTP_FORBIDDEN;
@@ -91,10 +84,10 @@ public class LoadBalancerHealthMonitorHandler implements INeutronLoadBalancerHea
             return HttpURLConnection.HTTP_OK;
         } catch (IOException ie) {
             LOGGER.error("IOException :   " + ie);
-            return HttpURLConnection.HTTP_INTERNAL_ERROR;
+            return CircuitBreaker.statusOf(ie);
         } catch (Exception e) {
             LOGGER.error("Exception :   " + e);
-            return HttpURLConnection.HTTP_INTERNAL_ERROR;
+            return CircuitBreaker.statusOf(e);
         }
     }
 
@@ -62,6 +62,9 @@ public class LoadBalancerListenerHandler implements INeutronLoadBalancerListener
             LOGGER.error("LoadBalancerListener Protocol can not be other than TCP/HTTP/HTTPS");
             return HttpURLConnection.HTTP_BAD_REQUEST;
         }
+        if (!StartupPreloader.isReady() || CircuitBreaker.isOpen()) {
+            return HttpURLConnection.HTTP_UNAVAILABLE;
+        }
         try {
             String loadBalancerListenerUUID = loadBalancerListener.getLoadBalancerListenerID();
             String loadBalancerDefaultPoolID = loadBalancerListener.getNeutronLoadBalancerListenerDefaultPoolID();
@@ -97,20 +100,10 @@ public class LoadBalancerListenerHandler implements INeutronLoadBalancerListener
                 LOGGER.error("UUID input incorrect", ex);
                 return HttpURLConnection.HTTP_BAD_REQUEST;
             }
-            Project project = (Project) apiConnector.findById(Project.class, projectUUID);
+            Project project = ContrailReplica.awaitById(apiConnector, Project.class, projectUUID);
             if (project == null) {
-                try {
-                    Thread.currentThread();
-                    Thread.sleep(3000);
-                } catch (InterruptedException e) {
-                    LOGGER.error("InterruptedException :    ", e);
-                    return HttpURLConnection.HTTP_BAD_REQUEST;
-                }
-                project = (Project) apiConnector.findById(Project.class, projectUUID);
-                if (project == null) {
-                    LOGGER.error("Could not find projectUUID...");
-                    return HttpURLConnection.HTTP_NOT_FOUND;
-                }
+                LOGGER.error("Could not find projectUUID...");
+                return HttpURLConnection.HTTP_NOT_FOUND;
             }
             // String virtualLoadbalancerListenerByName =
             // apiConnector.findByName(LoadbalancerListener.class, project,
@@ -128,8 +121,8 @@ public class LoadBalancerListenerHandler implements INeutronLoadBalancerListener
             // loadBalancerListenerUUID);
             // return HttpURLConnection.HTTP_FORBIDDEN;
             // }
-            LoadbalancerPool virtualLoadBalancerDefaultPoolID = (LoadbalancerPool) apiConnector.findById(
-                    LoadbalancerPool.class, loadBalancerDefaultPoolID);
+            LoadbalancerPool virtualLoadBalancerDefaultPoolID = ContrailReplica.findById(apiConnector,
+                    LoadbalancerPool.class, loadBalancerDefaultPoolID, false);
             if (virtualLoadBalancerDefaultPoolID == null) {
                 LOGGER.warn("Default LoadbalancerPool does not exists with UUID");
                 return HttpURLConnection.HTTP_FORBIDDEN;
@@ -144,10 +137,10 @@ public class LoadBalancerListenerHandler implements INeutronLoadBalancerListener
             return HttpURLConnection.HTTP_OK;
         } catch (IOException ie) {
             LOGGER.error("IOException :   " + ie);
-            return HttpURLConnection.HTTP_INTERNAL_ERROR;
+            return CircuitBreaker.statusOf(ie);
         } catch (Exception e) {
             LOGGER.error("Exception :   " + e);
-            return HttpURLConnection.HTTP_INTERNAL_ERROR;
+            return CircuitBreaker.statusOf(e);
         }
     }
 
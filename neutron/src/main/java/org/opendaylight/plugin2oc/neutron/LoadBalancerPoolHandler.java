@@ -2,8 +2,11 @@ package org.opendaylight.plugin2oc.neutron;
 
 import java.io.IOException;
 import java.net.HttpURLConnection;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.Callable;
 
 import net.juniper.contrail.api.ApiConnector;
 import net.juniper.contrail.api.types.LoadbalancerMember;
@@ -68,6 +71,9 @@ public class LoadBalancerPoolHandler implements INeutronLoadBalancerPoolAware {
             LOGGER.error("LoadBalancerPool Protocol can not be other than TCP/HTTP/HTTPS");
             return HttpURLConnection.HTTP_BAD_REQUEST;
         }
+        if (!StartupPreloader.isReady() || CircuitBreaker.isOpen()) {
+            return HttpURLConnection.HTTP_UNAVAILABLE;
+        }
         if (loadBalancerPool.getLoadBalancerPoolMembers() != null) {
             List<NeutronLoadBalancerPoolMember> i = loadBalancerPool.getLoadBalancerPoolMembers();
             for (NeutronLoadBalancerPoolMember ref : i) {
@@ -78,15 +84,14 @@ public class LoadBalancerPoolHandler implements INeutronLoadBalancerPoolAware {
                     return HttpURLConnection.HTTP_BAD_REQUEST;
                 }
                 try {
-                    LoadbalancerMember lbpm = (LoadbalancerMember) apiConnector.findById(LoadbalancerMember.class,
-                            poolmemberID);
+                    LoadbalancerMember lbpm = ContrailReplica.findById(apiConnector, LoadbalancerMember.class, poolmemberID, false);
                     if (lbpm != null) {
                         LOGGER.error("Member already exist with UUID: " + poolmemberID);
                         return HttpURLConnection.HTTP_BAD_REQUEST;
                     }
                 } catch (IOException e) {
                     LOGGER.error("IOException :   " + e);
-                    return HttpURLConnection.HTTP_INTERNAL_ERROR;
+                    return CircuitBreaker.statusOf(e);
                 }
             }
         }
@@ -112,29 +117,19 @@ public class LoadBalancerPoolHandler implements INeutronLoadBalancerPoolAware {
                 LOGGER.error("UUID input incorrect", ex);
                 return HttpURLConnection.HTTP_BAD_REQUEST;
             }
-            Project project = (Project) apiConnector.findById(Project.class, projectUUID);
+            Project project = ContrailReplica.awaitById(apiConnector, Project.class, projectUUID);
             if (project == null) {
-                try {
-                    Thread.currentThread();
-                    Thread.sleep(3000);
-                } catch (InterruptedException e) {
-                    LOGGER.error("InterruptedException :    ", e);
-                    return HttpURLConnection.HTTP_BAD_REQUEST;
-                }
-                project = (Project) apiConnector.findById(Project.class, projectUUID);
-                if (project == null) {
-                    LOGGER.error("Could not find projectUUID...");
-                    return HttpURLConnection.HTTP_NOT_FOUND;
-                }
+                LOGGER.error("Could not find projectUUID...");
+                return HttpURLConnection.HTTP_NOT_FOUND;
             }
-            String virtualLoadbalancerPoolByName = apiConnector.findByName(LoadbalancerPool.class, project,
+            String virtualLoadbalancerPoolByName = NameIndex.findByName(apiConnector, LoadbalancerPool.class, project,
                     loadBalancerPool.getLoadBalancerPoolName());
             if (virtualLoadbalancerPoolByName != null) {
                 LOGGER.warn("POOL already exists with name : " + virtualLoadbalancerPoolByName);
                 return HttpURLConnection.HTTP_FORBIDDEN;
             }
-            LoadbalancerPool virtualLoadbalancerPoolById = (LoadbalancerPool) apiConnector.findById(
-                    LoadbalancerPool.class, loadBalancerPoolUUID);
+            LoadbalancerPool virtualLoadbalancerPoolById = ContrailReplica.findById(apiConnector,
+                    LoadbalancerPool.class, loadBalancerPoolUUID, false);
             if (virtualLoadbalancerPoolById != null) {
                 LOGGER.warn("LoadbalancerPool already exists with UUID" + loadBalancerPoolUUID);
                 return HttpURLConnection.HTTP_FORBIDDEN;
@@ -142,10 +137,10 @@ public class LoadBalancerPoolHandler implements INeutronLoadBalancerPoolAware {
             return HttpURLConnection.HTTP_OK;
         } catch (IOException ie) {
             LOGGER.error("IOException :   " + ie);
-            return HttpURLConnection.HTTP_INTERNAL_ERROR;
+            return CircuitBreaker.statusOf(ie);
         } catch (Exception e) {
             LOGGER.error("Exception :   " + e);
-            return HttpURLConnection.HTTP_INTERNAL_ERROR;
+            return CircuitBreaker.statusOf(e);
         }
     }
 
@@ -187,32 +182,59 @@ public class LoadBalancerPoolHandler implements INeutronLoadBalancerPoolAware {
      * @param loadBalancerPool
      *            An instance of new Neutron Pool object.
      */
-    private void createLoadBalancerPool(NeutronLoadBalancerPool loadBalancerPool) throws IOException {
-        LoadbalancerPool virtualLoadBalancerPool = new LoadbalancerPool();
-        virtualLoadBalancerPool = mapLoadBalancerPoolProperties(loadBalancerPool, virtualLoadBalancerPool);
-        boolean loadBalancerPoolCreated;
-        try {
-            loadBalancerPoolCreated = apiConnector.create(virtualLoadBalancerPool);
-            LOGGER.debug("loadBalancerPool:   " + loadBalancerPoolCreated);
-            if (!loadBalancerPoolCreated) {
-                LOGGER.info("loadBalancerPool creation failed..");
+    private void createLoadBalancerPool(final NeutronLoadBalancerPool loadBalancerPool) throws IOException {
+        final LoadbalancerPool virtualLoadBalancerPool = mapLoadBalancerPoolProperties(loadBalancerPool, new LoadbalancerPool());
+        // the members are created in parallel once the pool is
+        DagExecutor dag = new DagExecutor();
+        dag.add("pool", new Callable<Integer>() {
+            @Override
+            public Integer call() {
+                boolean loadBalancerPoolCreated;
+                try {
+                    loadBalancerPoolCreated = apiConnector.create(virtualLoadBalancerPool);
+                    LOGGER.debug("loadBalancerPool:   " + loadBalancerPoolCreated);
+                    if (!loadBalancerPoolCreated) {
+                        LOGGER.info("loadBalancerPool creation failed..");
+                        return HttpURLConnection.HTTP_INTERNAL_ERROR;
+                    }
+                } catch (Exception Ex) {
+                    LOGGER.error("Exception : " + Ex);
+                    return CircuitBreaker.statusOf(Ex);
+                }
+                LOGGER.info("loadBalancerPool:" + loadBalancerPool.getLoadBalancerPoolName() + "having ID"
+                        + loadBalancerPool.getLoadBalancerPoolID() + "succesfully created.");
+                return HttpURLConnection.HTTP_CREATED;
             }
-        } catch (Exception Ex) {
-            LOGGER.error("Exception : " + Ex);
-        }
-        LOGGER.info("loadBalancerPool:" + loadBalancerPool.getLoadBalancerPoolName() + "having ID"
-                + loadBalancerPool.getLoadBalancerPoolID() + "succesfully created.");
+        }, Collections.<String> emptyList());
         if (loadBalancerPool.getLoadBalancerPoolMembers() != null) {
             List<NeutronLoadBalancerPoolMember> i = loadBalancerPool.getLoadBalancerPoolMembers();
-            for (NeutronLoadBalancerPoolMember ref : i) {
-                LoadBalancerPoolMemberHandler lbmh = new LoadBalancerPoolMemberHandler();
-                int value = lbmh.canCreateNeutronLoadBalancerPoolMember(ref);
-                if (value == 200) {
-                    lbmh.neutronLoadBalancerPoolMemberCreated(ref);
-                } else {
-                    LOGGER.error("NeutronLoadBalancerPool Member creation failed");
+            for (int position = 0; position < i.size(); position++) {
+                final NeutronLoadBalancerPoolMember ref = i.get(position);
+                dag.add("member-" + position, new Callable<Integer>() {
+                    @Override
+                    public Integer call() {
+                        LoadBalancerPoolMemberHandler lbmh = new LoadBalancerPoolMemberHandler();
+                        int value = lbmh.canCreateNeutronLoadBalancerPoolMember(ref);
+                        if (value != HttpURLConnection.HTTP_OK) {
+                            LOGGER.error("NeutronLoadBalancerPool Member creation failed");
+                            return value;
+                        }
+                        lbmh.neutronLoadBalancerPoolMemberCreated(ref);
+                        return HttpURLConnection.HTTP_CREATED;
+                    }
+                }, Collections.singletonList("pool"));
+            }
+        }
+        try {
+            for (Map.Entry<String, Integer> step : dag.run().entrySet()) {
+                if (step.getValue() >= HttpURLConnection.HTTP_MULT_CHOICE) {
+                    LOGGER.warn("LoadbalancerPool " + loadBalancerPool.getLoadBalancerPoolID() + " : " + step.getKey()
+                            + " not created, HTTP " + step.getValue());
                 }
             }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            LOGGER.error("InterruptedException :    ", e);
         }
     }
 
@@ -234,6 +256,9 @@ public class LoadBalancerPoolHandler implements INeutronLoadBalancerPoolAware {
             LOGGER.error("NeutronLoadBalancerPool objects cant be empty or null");
             return HttpURLConnection.HTTP_BAD_REQUEST;
         }
+        if (!StartupPreloader.isReady() || CircuitBreaker.isOpen()) {
+            return HttpURLConnection.HTTP_UNAVAILABLE;
+        }
         String loadBalancerPoolUUID = original.getLoadBalancerPoolID();
         try {
             if (!(loadBalancerPoolUUID.contains("-"))) {
@@ -245,14 +270,13 @@ public class LoadBalancerPoolHandler implements INeutronLoadBalancerPoolAware {
             return HttpURLConnection.HTTP_BAD_REQUEST;
         }
         try {
-            virtualLoadBalancerPool = (LoadbalancerPool) apiConnector.findById(LoadbalancerPool.class,
-                    loadBalancerPoolUUID);
+            virtualLoadBalancerPool = ContrailReplica.findById(apiConnector, LoadbalancerPool.class, loadBalancerPoolUUID, false);
             if (virtualLoadBalancerPool == null) {
                 LOGGER.error("No LoadbalancerPool exists for the specified ID...");
                 return HttpURLConnection.HTTP_BAD_REQUEST;
             }
         } catch (IOException e) {
-            return HttpURLConnection.HTTP_INTERNAL_ERROR;
+            return CircuitBreaker.statusOf(e);
         }
 
         return HttpURLConnection.HTTP_OK;
@@ -274,6 +298,9 @@ public class LoadBalancerPoolHandler implements INeutronLoadBalancerPoolAware {
     @Override
     public int canDeleteNeutronLoadBalancerPool(NeutronLoadBalancerPool loadBalancerPool) {
         apiConnector = Activator.apiConnector;
+        if (!StartupPreloader.isReady() || CircuitBreaker.isOpen()) {
+            return HttpURLConnection.HTTP_UNAVAILABLE;
+        }
         LoadbalancerPool virtualLoadBalancerPool = null;
         String loadBalancerPoolUUID = loadBalancerPool.getLoadBalancerPoolID();
         try {
@@ -286,8 +313,7 @@ public class LoadBalancerPoolHandler implements INeutronLoadBalancerPoolAware {
             return HttpURLConnection.HTTP_BAD_REQUEST;
         }
         try {
-            virtualLoadBalancerPool = (LoadbalancerPool) apiConnector.findById(LoadbalancerPool.class,
-                    loadBalancerPoolUUID);
+            virtualLoadBalancerPool = ContrailReplica.findById(apiConnector, LoadbalancerPool.class, loadBalancerPoolUUID, false);
             if (virtualLoadBalancerPool == null) {
                 LOGGER.info("No LoadbalancerPool exists with ID :  " + loadBalancerPoolUUID);
                 return HttpURLConnection.HTTP_BAD_REQUEST;
@@ -295,7 +321,7 @@ public class LoadBalancerPoolHandler implements INeutronLoadBalancerPoolAware {
             return HttpURLConnection.HTTP_OK;
         } catch (Exception e) {
             LOGGER.error("Exception : " + e);
-            return HttpURLConnection.HTTP_INTERNAL_ERROR;
+            return CircuitBreaker.statusOf(e);
         }
     }
 
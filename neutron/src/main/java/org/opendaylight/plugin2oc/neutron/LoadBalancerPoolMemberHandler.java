@@ -52,6 +52,9 @@ public class LoadBalancerPoolMemberHandler implements INeutronLoadBalancerPoolMe
             LOGGER.error("LoadBalancerPool Member TenanID/SubnetID can not be null");
             return HttpURLConnection.HTTP_BAD_REQUEST;
         }
+        if (!StartupPreloader.isReady() || CircuitBreaker.isOpen()) {
+            return HttpURLConnection.HTTP_UNAVAILABLE;
+        }
         try {
             String loadBalancerPoolID = loadBalancerPoolMember.getPoolID();
             String loadBalancerPoolMemberUUID = loadBalancerPoolMember.getPoolMemberID();
@@ -79,31 +82,20 @@ public class LoadBalancerPoolMemberHandler implements INeutronLoadBalancerPoolMe
                 LOGGER.error("UUID input incorrect", ex);
                 return HttpURLConnection.HTTP_BAD_REQUEST;
             }
-            Project project = (Project) apiConnector.findById(Project.class, projectUUID);
+            Project project = ContrailReplica.awaitById(apiConnector, Project.class, projectUUID);
             if (project == null) {
-                try {
-                    Thread.currentThread();
-                    Thread.sleep(3000);
-                } catch (InterruptedException e) {
-                    LOGGER.error("InterruptedException :    ", e);
-                    return HttpURLConnection.HTTP_BAD_REQUEST;
-                }
-                project = (Project) apiConnector.findById(Project.class, projectUUID);
-                if (project == null) {
-                    LOGGER.error("Could not find projectUUID...");
-                    return HttpURLConnection.HTTP_NOT_FOUND;
-                }
+                LOGGER.error("Could not find projectUUID...");
+                return HttpURLConnection.HTTP_NOT_FOUND;
             }
             if (project.getVirtualMachineInterfaces() != null) {
                 List<ObjectReference<ApiPropertyBase>> vmiList = project.getVirtualMachineInterfaces();
                 for (ObjectReference<ApiPropertyBase> ref : vmiList) {
                     String vmiUUID = ref.getUuid();
-                    VirtualMachineInterface vmi = (VirtualMachineInterface) apiConnector.findById(
-                            VirtualMachineInterface.class, vmiUUID);
+                    VirtualMachineInterface vmi = ContrailReplica.findById(apiConnector, VirtualMachineInterface.class, vmiUUID, false);
                     List<ObjectReference<ApiPropertyBase>> iip = vmi.getInstanceIpBackRefs();
                     for (ObjectReference<ApiPropertyBase> iipRef : iip) {
                         String iipUUID = iipRef.getUuid();
-                        InstanceIp instanceIP = (InstanceIp) apiConnector.findById(InstanceIp.class, iipUUID);
+                        InstanceIp instanceIP = ContrailReplica.findById(apiConnector, InstanceIp.class, iipUUID, false);
                         if (!(loadBalancerPoolMember.getPoolMemberAddress().equals(instanceIP.getAddress()))) {
                             LOGGER.warn("LoadbalancerPool Member address does not exists...");
                             return HttpURLConnection.HTTP_FORBIDDEN;
@@ -114,14 +106,14 @@ public class LoadBalancerPoolMemberHandler implements INeutronLoadBalancerPoolMe
                 LOGGER.warn("No Servers available to create a member...");
                 return HttpURLConnection.HTTP_FORBIDDEN;
             }
-            LoadbalancerMember virtualLoadbalancerPoolMemberById = (LoadbalancerMember) apiConnector.findById(
-                    LoadbalancerMember.class, loadBalancerPoolMemberUUID);
+            LoadbalancerMember virtualLoadbalancerPoolMemberById = ContrailReplica.findById(apiConnector,
+                    LoadbalancerMember.class, loadBalancerPoolMemberUUID, false);
             if (virtualLoadbalancerPoolMemberById != null) {
                 LOGGER.warn("LoadbalancerPool Member already exists with UUID" + loadBalancerPoolMemberUUID);
                 return HttpURLConnection.HTTP_FORBIDDEN;
             }
-            LoadbalancerPool virtualLoadbalancerPool = (LoadbalancerPool) apiConnector.findById(LoadbalancerPool.class,
-                    loadBalancerPoolID);
+            LoadbalancerPool virtualLoadbalancerPool = ContrailReplica.findById(apiConnector,
+                    LoadbalancerPool.class, loadBalancerPoolID, false);
             if (virtualLoadbalancerPool == null) {
                 LOGGER.warn("LoadbalancerPool does not exist" + loadBalancerPoolID);
                 return HttpURLConnection.HTTP_FORBIDDEN;
@@ -134,10 +126,10 @@ public class LoadBalancerPoolMemberHandler implements INeutronLoadBalancerPoolMe
             return HttpURLConnection.HTTP_OK;
         } catch (IOException ie) {
             LOGGER.error("IOException :   " + ie);
-            return HttpURLConnection.HTTP_INTERNAL_ERROR;
+            return CircuitBreaker.statusOf(ie);
         } catch (Exception e) {
             LOGGER.error("Exception :   " + e);
-            return HttpURLConnection.HTTP_INTERNAL_ERROR;
+            return CircuitBreaker.statusOf(e);
         }
 
     }
@@ -220,6 +212,9 @@ public class LoadBalancerPoolMemberHandler implements INeutronLoadBalancerPoolMe
     @Override
     public int canDeleteNeutronLoadBalancerPoolMember(NeutronLoadBalancerPoolMember loadBalancerPoolMember) {
         apiConnector = Activator.apiConnector;
+        if (!StartupPreloader.isReady() || CircuitBreaker.isOpen()) {
+            return HttpURLConnection.HTTP_UNAVAILABLE;
+        }
         LoadbalancerMember virtualLoadBalancerMember = null;
         String loadBalancerMemberUUID = loadBalancerPoolMember.getPoolMemberID();
         try {
@@ -232,8 +227,7 @@ public class LoadBalancerPoolMemberHandler implements INeutronLoadBalancerPoolMe
             return HttpURLConnection.HTTP_BAD_REQUEST;
         }
         try {
-            virtualLoadBalancerMember = (LoadbalancerMember) apiConnector.findById(LoadbalancerMember.class,
-                    loadBalancerMemberUUID);
+            virtualLoadBalancerMember = ContrailReplica.findById(apiConnector, LoadbalancerMember.class, loadBalancerMemberUUID, false);
             if (virtualLoadBalancerMember == null) {
                 LOGGER.info("No LoadbalancerPoolMember exists with ID :  " + loadBalancerMemberUUID);
                 return HttpURLConnection.HTTP_BAD_REQUEST;
@@ -241,7 +235,7 @@ public class LoadBalancerPoolMemberHandler implements INeutronLoadBalancerPoolMe
             return HttpURLConnection.HTTP_OK;
         } catch (Exception e) {
             LOGGER.error("Exception : " + e);
-            return HttpURLConnection.HTTP_INTERNAL_ERROR;
+            return CircuitBreaker.statusOf(e);
         }
     }
 
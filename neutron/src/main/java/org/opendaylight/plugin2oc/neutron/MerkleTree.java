@@ -0,0 +1,165 @@
+/*
+ * Copyright (C) 2014 Juniper Networks, Inc.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ *
+ */
+package org.opendaylight.plugin2oc.neutron;
+
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+/**
+ * Hash tree over the canonical state of a set of objects keyed by UUID.
+ * Objects are spread over {@value #BUCKETS} leaf buckets by the first two
+ * hex digits of their UUID, grouped {@value #FANOUT} at a time under branch
+ * nodes. A node hash is the sum of the hashes of the objects below it, so
+ * adding, changing or removing an object only updates its path, and two
+ * trees are compared by descending into the nodes whose hashes differ.
+ */
+final class MerkleTree {
+    static final int FANOUT = 16;
+    static final int BUCKETS = FANOUT * FANOUT;
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private final TreeMap<String, Long> entries = new TreeMap<String, Long>();
+    private final long[] leaves = new long[BUCKETS];
+    private final long[] branches = new long[FANOUT];
+    private long root;
+
+    /**
+     * Invoked to hash the canonical state of an object.
+     *
+     * @param uuid
+     *            The UUID of the object.
+     * @param state
+     *            The canonical state, null for an object whose state is not
+     *            known.
+     */
+    static long hash(String uuid, String state) {
+        long hash = FNV_OFFSET;
+        for (byte b : uuid.getBytes(UTF8)) {
+            hash = (hash ^ (b & 0xff)) * FNV_PRIME;
+        }
+        if (state == null) {
+            hash = ~hash;
+        } else {
+            hash = (hash ^ 0xff) * FNV_PRIME;
+            for (byte b : state.getBytes(UTF8)) {
+                hash = (hash ^ (b & 0xff)) * FNV_PRIME;
+            }
+        }
+        // finalizer spreading the bits before the hashes are summed
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        return hash ^ (hash >>> 33);
+    }
+
+    /**
+     * @return The leaf bucket of a canonical, lower case UUID.
+     */
+    static int bucket(String uuid) {
+        return Character.digit(uuid.charAt(0), 16) * FANOUT + Character.digit(uuid.charAt(1), 16);
+    }
+
+    private static String prefix(int bucket) {
+        return Character.forDigit(bucket / FANOUT, 16) + "" + Character.forDigit(bucket % FANOUT, 16);
+    }
+
+    /**
+     * Invoked to add an object or change its hash.
+     */
+    void put(String uuid, long hash) {
+        Long previous = entries.put(uuid, hash);
+        apply(uuid, hash - (previous != null ? previous : 0L));
+    }
+
+    void remove(String uuid) {
+        Long previous = entries.remove(uuid);
+        if (previous != null) {
+            apply(uuid, -previous);
+        }
+    }
+
+    private void apply(String uuid, long delta) {
+        int bucket = bucket(uuid);
+        leaves[bucket] += delta;
+        branches[bucket / FANOUT] += delta;
+        root += delta;
+    }
+
+    Long get(String uuid) {
+        return entries.get(uuid);
+    }
+
+    int size() {
+        return entries.size();
+    }
+
+    /**
+     * @return The objects of a leaf bucket and their hashes.
+     */
+    SortedMap<String, Long> entries(int bucket) {
+        return bucket == BUCKETS - 1 ? entries.tailMap(prefix(bucket)) : entries.subMap(prefix(bucket), prefix(bucket + 1));
+    }
+
+    /**
+     * Invoked to find the leaf buckets in which two trees differ.
+     *
+     * @param first
+     *            A tree, null for an empty tree.
+     * @param second
+     *            A tree, null for an empty tree.
+     *
+     * @return The differing buckets, empty if both trees hold the same
+     *         objects in the same state.
+     */
+    static List<Integer> diff(MerkleTree first, MerkleTree second) {
+        List<Integer> buckets = new ArrayList<Integer>();
+        if (rootOf(first) == rootOf(second) && sizeOf(first) == sizeOf(second)) {
+            return buckets;
+        }
+        for (int branch = 0; branch < FANOUT; branch++) {
+            if (branchOf(first, branch) == branchOf(second, branch)) {
+                continue;
+            }
+            for (int bucket = branch * FANOUT; bucket < (branch + 1) * FANOUT; bucket++) {
+                if (leafOf(first, bucket) != leafOf(second, bucket)) {
+                    buckets.add(bucket);
+                }
+            }
+        }
+        if (buckets.isEmpty()) {
+            // the sums collided, fall back to comparing every bucket
+            for (int bucket = 0; bucket < BUCKETS; bucket++) {
+                buckets.add(bucket);
+            }
+        }
+        return buckets;
+    }
+
+    private static long rootOf(MerkleTree tree) {
+        return tree != null ? tree.root : 0L;
+    }
+
+    private static int sizeOf(MerkleTree tree) {
+        return tree != null ? tree.entries.size() : 0;
+    }
+
+    private static long branchOf(MerkleTree tree, int branch) {
+        return tree != null ? tree.branches[branch] : 0L;
+    }
+
+    private static long leafOf(MerkleTree tree, int bucket) {
+        return tree != null ? tree.leaves[bucket] : 0L;
+    }
+}
@@ -0,0 +1,430 @@
+/*
+ * Copyright (C) 2014 Juniper Networks, Inc.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ *
+ */
+package org.opendaylight.plugin2oc.neutron;
+
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+import net.juniper.contrail.api.ApiConnector;
+import net.juniper.contrail.api.ApiObjectBase;
+import net.juniper.contrail.api.types.LogicalRouter;
+import net.juniper.contrail.api.types.LoadbalancerPool;
+import net.juniper.contrail.api.types.SecurityGroup;
+import net.juniper.contrail.api.types.VirtualMachineInterface;
+import net.juniper.contrail.api.types.VirtualNetwork;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * In memory index from the fully qualified name of the Contrail objects
+ * whose names must be unique within a tenant to their UUID. The index of a
+ * type is loaded at startup, kept current by the writes going through the
+ * connector and reloaded periodically to pick up the writes of other
+ * clients, unless the {@link ListingChangeFeed} has reloaded it meanwhile. Until the index of a type has been loaded, lookups fall through
+ * to the API server.
+ */
+final class NameIndex {
+    static final Logger LOGGER = LoggerFactory.getLogger(NameIndex.class);
+    static final String REFRESH_PROPERTY = "plugin2oc.nameindex.refresh";
+    static final List<Class<? extends ApiObjectBase>> TYPES = new ArrayList<Class<? extends ApiObjectBase>>();
+    static {
+        TYPES.add(VirtualNetwork.class);
+        TYPES.add(VirtualMachineInterface.class);
+        TYPES.add(LogicalRouter.class);
+        TYPES.add(SecurityGroup.class);
+        TYPES.add(LoadbalancerPool.class);
+    }
+
+    private static final ConnectorScopedCache<Class<?>, Names> INDEXES = new ConnectorScopedCache<Class<?>, Names>();
+
+    /**
+     * Names of the objects of a type.
+     */
+    static final class Names {
+        private Map<String, String> uuids = new HashMap<String, String>();
+        private Map<String, String> names = new HashMap<String, String>();
+        private Map<String, String> pending;
+        private volatile boolean complete;
+        private volatile long loadedAt;
+        // looked up on every create, a lock does not pin the virtual threads waiting on it
+        private final ReentrantLock lock = new ReentrantLock();
+
+        String uuid(String name) {
+            lock.lock();
+            try {
+                return uuids.get(name);
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        boolean complete() {
+            return complete;
+        }
+
+        /**
+         * @return true if the names have been loaded less than the given
+         *         time ago.
+         */
+        boolean loadedWithin(long nanos) {
+            return complete && System.nanoTime() - loadedAt < nanos;
+        }
+
+        void put(String uuid, String name) {
+            lock.lock();
+            try {
+                remove(uuid);
+                uuids.put(name, uuid);
+                names.put(uuid, name);
+                if (pending != null) {
+                    pending.put(uuid, name);
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        void remove(String uuid) {
+            lock.lock();
+            try {
+                String name = names.remove(uuid);
+                if (name != null && uuid.equals(uuids.get(name))) {
+                    uuids.remove(name);
+                }
+                if (pending != null) {
+                    pending.put(uuid, null);
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        /**
+         * Invoked before a reload, the writes made while it runs are
+         * replayed on top of the loaded names.
+         */
+        void beginLoad() {
+            lock.lock();
+            try {
+                pending = new HashMap<String, String>();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        void endLoad(Map<String, String> loaded) {
+            lock.lock();
+            try {
+                if (pending == null) {
+                    return;
+                }
+                for (Map.Entry<String, String> write : pending.entrySet()) {
+                    if (write.getValue() != null) {
+                        loaded.put(write.getKey(), write.getValue());
+                    } else {
+                        loaded.remove(write.getKey());
+                    }
+                }
+                pending = null;
+                names = loaded;
+                uuids = new HashMap<String, String>();
+                for (Map.Entry<String, String> entry : loaded.entrySet()) {
+                    uuids.put(entry.getValue(), entry.getKey());
+                }
+                loadedAt = System.nanoTime();
+                complete = true;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        void abortLoad() {
+            lock.lock();
+            try {
+                pending = null;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        /**
+         * @return A copy of the names by UUID, null if they are not loaded.
+         */
+        Map<String, String> copy() {
+            lock.lock();
+            try {
+                return complete ? new HashMap<String, String>(names) : null;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        /**
+         * Invoked to seed the names from a snapshot, ignored once the names
+         * have been loaded from the API server.
+         */
+        void restore(Map<String, String> restored) {
+            lock.lock();
+            try {
+                if (complete) {
+                    return;
+                }
+                for (Map.Entry<String, String> entry : restored.entrySet()) {
+                    if (!names.containsKey(entry.getKey())) {
+                        names.put(entry.getKey(), entry.getValue());
+                        uuids.put(entry.getValue(), entry.getKey());
+                    }
+                }
+                complete = true;
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    private final ApiConnector apiConnector;
+    private ScheduledExecutorService loader;
+
+    NameIndex(ApiConnector apiConnector) {
+        this.apiConnector = apiConnector;
+    }
+
+    /**
+     * Invoked from {@link Activator#init()} to refresh the index every
+     * plugin2oc.nameindex.refresh milliseconds, the first load being made by
+     * the {@link StartupPreloader}.
+     *
+     * @return The index, null if it is disabled.
+     */
+    static NameIndex start(ApiConnector apiConnector) {
+        long refresh = Long.getLong(REFRESH_PROPERTY, 300000L);
+        if (apiConnector == null || refresh <= 0) {
+            return null;
+        }
+        final NameIndex index = new NameIndex(apiConnector);
+        final long refreshNanos = TimeUnit.MILLISECONDS.toNanos(refresh);
+        index.loader = Executors.newSingleThreadScheduledExecutor(ReconciliationService.daemonThreads("plugin2oc-nameindex"));
+        index.loader.scheduleWithFixedDelay(new Runnable() {
+            @Override
+            public void run() {
+                index.refresh(refreshNanos);
+            }
+        }, refresh, refresh, TimeUnit.MILLISECONDS);
+        return index;
+    }
+
+    void stop() {
+        if (loader != null) {
+            loader.shutdownNow();
+        }
+    }
+
+    /**
+     * Invoked to load the names of every indexed type.
+     */
+    void load() {
+        for (Class<? extends ApiObjectBase> type : TYPES) {
+            load(type);
+        }
+    }
+
+    /**
+     * Invoked periodically to reload the names of the types not loaded for
+     * the given time.
+     */
+    void refresh(long nanos) {
+        ConcurrentMap<Class<?>, Names> indexes = INDEXES.bind(apiConnector);
+        for (Class<? extends ApiObjectBase> type : TYPES) {
+            Names names = indexes.get(type);
+            if (names == null || !names.loadedWithin(nanos)) {
+                load(type);
+            }
+        }
+    }
+
+    /**
+     * Invoked to load the names of a type.
+     *
+     * @return The objects listed by the API server, null if the type could
+     *         not be listed.
+     */
+    List<? extends ApiObjectBase> load(final Class<? extends ApiObjectBase> type) {
+        return load(type, new Callable<List<? extends ApiObjectBase>>() {
+            @Override
+            public List<? extends ApiObjectBase> call() throws IOException {
+                return apiConnector.list(type, null);
+            }
+        });
+    }
+
+    /**
+     * Invoked to load the names of a type from a listing made by the caller.
+     *
+     * @param listing
+     *            The listing of every object of the type.
+     *
+     * @return The objects listed, null if the type could not be listed.
+     */
+    List<? extends ApiObjectBase> load(Class<? extends ApiObjectBase> type, Callable<List<? extends ApiObjectBase>> listing) {
+        Names names = names(INDEXES.bind(apiConnector), type);
+        names.beginLoad();
+        try {
+            Map<String, String> loaded = new HashMap<String, String>();
+            List<? extends ApiObjectBase> objects = listing.call();
+            if (objects != null) {
+                for (ApiObjectBase object : objects) {
+                    String name = key(object.getQualifiedName());
+                    if (name != null && object.getUuid() != null) {
+                        loaded.put(object.getUuid(), name);
+                    }
+                }
+            }
+            names.endLoad(loaded);
+            LOGGER.debug("Loaded " + loaded.size() + " " + type.getSimpleName() + " names");
+            return objects != null ? objects : new ArrayList<ApiObjectBase>();
+        } catch (Exception e) {
+            names.abortLoad();
+            LOGGER.error("Exception : " + e);
+            return null;
+        }
+    }
+
+    private static Names names(ConcurrentMap<Class<?>, Names> indexes, Class<?> type) {
+        Names names = indexes.get(type);
+        if (names == null) {
+            Names created = new Names();
+            names = indexes.putIfAbsent(type, created);
+            if (names == null) {
+                names = created;
+            }
+        }
+        return names;
+    }
+
+    private static String key(List<String> qualifiedName) {
+        if (qualifiedName == null || qualifiedName.isEmpty()) {
+            return null;
+        }
+        StringBuilder key = new StringBuilder();
+        for (String part : qualifiedName) {
+            if (key.length() > 0) {
+                key.append(':');
+            }
+            key.append(part);
+        }
+        return key.toString();
+    }
+
+    /**
+     * @return The loaded names of every indexed type, by type and UUID.
+     */
+    static Map<Class<? extends ApiObjectBase>, Map<String, String>> snapshot() {
+        Map<Class<? extends ApiObjectBase>, Map<String, String>> snapshot = new HashMap<Class<? extends ApiObjectBase>, Map<String, String>>();
+        for (Class<? extends ApiObjectBase> type : TYPES) {
+            Names names = INDEXES.entries().get(type);
+            Map<String, String> copy = names != null ? names.copy() : null;
+            if (copy != null) {
+                snapshot.put(type, copy);
+            }
+        }
+        return snapshot;
+    }
+
+    /**
+     * Invoked at startup to seed the index of a type from a snapshot until it
+     * is loaded from the API server.
+     */
+    static void restore(ApiConnector apiConnector, Class<? extends ApiObjectBase> type, Map<String, String> restored) {
+        names(INDEXES.bind(apiConnector), type).restore(restored);
+    }
+
+    /**
+     * Invoked to find an object by name within a project, in place of
+     * {@link ApiConnector#findByName(Class, ApiObjectBase, String)}.
+     *
+     * @param apiConnector
+     *            The connector currently used by the handlers.
+     * @param type
+     *            The type of the object.
+     * @param parent
+     *            The project owning the object.
+     * @param name
+     *            The name of the object.
+     *
+     * @return The UUID of the object, null if there is none with that name.
+     */
+    static String findByName(ApiConnector apiConnector, Class<? extends ApiObjectBase> type, ApiObjectBase parent, String name)
+            throws IOException {
+        Names names = INDEXES.bind(apiConnector).get(type);
+        if (names != null && names.complete() && parent != null && parent.getQualifiedName() != null && name != null) {
+            List<String> qualifiedName = new ArrayList<String>(parent.getQualifiedName());
+            qualifiedName.add(name);
+            return names.uuid(key(qualifiedName));
+        }
+        return apiConnector.findByName(type, parent, name);
+    }
+
+    /**
+     * Invoked once a write went through the connector, to apply it to the
+     * index.
+     */
+    static void written(Method method, Object[] args) {
+        Object last = args[args.length - 1];
+        if (last instanceof String) {
+            // delete(Class, String)
+            removed((Class<?>) args[0], (String) last);
+        } else if (("delete").equals(method.getName())) {
+            removed(last.getClass(), ((ApiObjectBase) last).getUuid());
+        } else if (("create").equals(method.getName())) {
+            added((ApiObjectBase) last);
+        }
+    }
+
+    /**
+     * Invoked when an object has been created, by the plugin or by another
+     * client.
+     */
+    static void added(ApiObjectBase object) {
+        Names names = indexed(object.getClass());
+        String name = key(object.getQualifiedName());
+        if (names != null && object.getUuid() != null && name != null) {
+            names.put(object.getUuid(), name);
+        }
+    }
+
+    /**
+     * Invoked when an object has been deleted, by the plugin or by another
+     * client.
+     */
+    static void removed(Class<?> type, String uuid) {
+        Names names = indexed(type);
+        if (names != null && uuid != null) {
+            names.remove(uuid);
+        }
+    }
+
+    private static Names indexed(Class<?> type) {
+        Names names = null;
+        for (Class<?> indexed = type; names == null && indexed != null; indexed = indexed.getSuperclass()) {
+            names = INDEXES.entries().get(indexed);
+        }
+        return names;
+    }
+}
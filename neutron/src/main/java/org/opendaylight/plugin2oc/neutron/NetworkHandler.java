@@ -10,6 +10,8 @@ package org.opendaylight.plugin2oc.neutron;
 
 import java.io.IOException;
 import java.net.HttpURLConnection;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.UUID;
 
 import net.juniper.contrail.api.ApiConnector;
@@ -58,6 +60,9 @@ public class NetworkHandler implements INeutronNetworkAware {
             LOGGER.error("Network tenant Id can not be null");
             return HttpURLConnection.HTTP_BAD_REQUEST;
         }
+        if (!StartupPreloader.isReady() || CircuitBreaker.isOpen()) {
+            return HttpURLConnection.HTTP_UNAVAILABLE;
+        }
         try {
             String networkUUID = network.getNetworkUUID();
             String projectUUID = network.getTenantID();
@@ -80,27 +85,17 @@ public class NetworkHandler implements INeutronNetworkAware {
                 LOGGER.error("UUID input incorrect", ex);
                 return HttpURLConnection.HTTP_BAD_REQUEST;
             }
-            Project project = (Project) apiConnector.findById(Project.class, projectUUID);
+            Project project = ContrailReplica.awaitById(apiConnector, Project.class, projectUUID);
             if (project == null) {
-                try {
-                    Thread.currentThread();
-                    Thread.sleep(3000);
-                } catch (InterruptedException e) {
-                    LOGGER.error("InterruptedException :    ", e);
-                    return HttpURLConnection.HTTP_BAD_REQUEST;
-                }
-                project = (Project) apiConnector.findById(Project.class, projectUUID);
-                if (project == null) {
-                    LOGGER.error("Could not find projectUUID...");
-                    return HttpURLConnection.HTTP_NOT_FOUND;
-                }
+                LOGGER.error("Could not find projectUUID...");
+                return HttpURLConnection.HTTP_NOT_FOUND;
             }
-            VirtualNetwork virtualNetworkById = (VirtualNetwork) apiConnector.findById(VirtualNetwork.class, networkUUID);
+            VirtualNetwork virtualNetworkById = ContrailReplica.findById(apiConnector, VirtualNetwork.class, networkUUID, false);
             if (virtualNetworkById != null) {
                 LOGGER.warn("Network already exists with UUID" + networkUUID);
                 return HttpURLConnection.HTTP_FORBIDDEN;
             }
-            String virtualNetworkByName = apiConnector.findByName(VirtualNetwork.class, project, network.getNetworkName());
+            String virtualNetworkByName = NameIndex.findByName(apiConnector, VirtualNetwork.class, project, network.getNetworkName());
             if (virtualNetworkByName != null) {
                 LOGGER.warn("Network already exists with name : " + virtualNetworkByName);
                 return HttpURLConnection.HTTP_FORBIDDEN;
@@ -108,10 +103,10 @@ public class NetworkHandler implements INeutronNetworkAware {
             return HttpURLConnection.HTTP_OK;
         } catch (IOException ie) {
             LOGGER.error("IOException :   " + ie);
-            return HttpURLConnection.HTTP_INTERNAL_ERROR;
+            return CircuitBreaker.statusOf(ie);
         } catch (Exception e) {
             LOGGER.error("Exception :   " + e);
-            return HttpURLConnection.HTTP_INTERNAL_ERROR;
+            return CircuitBreaker.statusOf(e);
         }
     }
 
@@ -123,6 +118,7 @@ public class NetworkHandler implements INeutronNetworkAware {
      */
     @Override
     public void neutronNetworkCreated(NeutronNetwork network) {
+        long intent = OperationJournal.begin(OperationJournal.CREATE, OperationJournal.NETWORK, network.getNetworkUUID());
         try {
             createNetwork(network);
         } catch (IOException ex) {
@@ -142,6 +138,7 @@ public class NetworkHandler implements INeutronNetworkAware {
         } catch (Exception e) {
             LOGGER.error("Exception :     " + e);
         }
+        OperationJournal.done(intent);
     }
 
     /**
@@ -156,7 +153,7 @@ public class NetworkHandler implements INeutronNetworkAware {
         virtualNetwork = mapNetworkProperties(network, virtualNetwork);
         boolean networkCreated;
         try {
-            networkCreated = apiConnector.create(virtualNetwork);
+            networkCreated = IdempotentExecutor.create(apiConnector, virtualNetwork);
             LOGGER.debug("networkCreated:   " + networkCreated);
             if (!networkCreated) {
                 LOGGER.warn("Network creation failed..");
@@ -175,7 +172,7 @@ public class NetworkHandler implements INeutronNetworkAware {
             floatingIpPool.setParent(virtualNetwork);
             boolean createFloatingIpPool;
             try {
-                createFloatingIpPool = apiConnector.create(floatingIpPool);
+                createFloatingIpPool = IdempotentExecutor.create(apiConnector, floatingIpPool);
                 if (!createFloatingIpPool) {
                     LOGGER.info("Floating Ip pool creation failed..");
                 } else {
@@ -185,6 +182,8 @@ public class NetworkHandler implements INeutronNetworkAware {
                 LOGGER.error("IOException : " + ioEx);
             }
         }
+        FloatingIpPoolCache.invalidate(virtualNetwork.getUuid());
+        FloatingIpAllocator.invalidateNetwork(virtualNetwork.getUuid());
     }
 
     /**
@@ -249,6 +248,9 @@ public class NetworkHandler implements INeutronNetworkAware {
             LOGGER.error("Neutron Networks can't be null..");
             return HttpURLConnection.HTTP_BAD_REQUEST;
         }
+        if (!StartupPreloader.isReady() || CircuitBreaker.isOpen()) {
+            return HttpURLConnection.HTTP_UNAVAILABLE;
+        }
         String networkUUID = originalNetwork.getNetworkUUID();
         String projectUUID = originalNetwork.getTenantID();
         try {
@@ -267,22 +269,24 @@ public class NetworkHandler implements INeutronNetworkAware {
             LOGGER.error("Neutron Networks name to be update can't be empty..");
             return HttpURLConnection.HTTP_BAD_REQUEST;
         }
-        try {
-            Project project = (Project) apiConnector.findById(Project.class, projectUUID);
-            String virtualNetworkByName = apiConnector.findByName(VirtualNetwork.class, project, deltaNetwork.getNetworkName());
-            if (virtualNetworkByName != null) {
-                LOGGER.warn("Network with name  " + deltaNetwork.getNetworkName() + "  already exists with UUID : " + virtualNetworkByName);
-                return HttpURLConnection.HTTP_FORBIDDEN;
+        if (deltaNetwork.getNetworkName() != null) {
+            try {
+                Project project = ContrailReplica.findById(apiConnector, Project.class, projectUUID, false);
+                String virtualNetworkByName = NameIndex.findByName(apiConnector, VirtualNetwork.class, project, deltaNetwork.getNetworkName());
+                if (virtualNetworkByName != null) {
+                    LOGGER.warn("Network with name  " + deltaNetwork.getNetworkName() + "  already exists with UUID : " + virtualNetworkByName);
+                    return HttpURLConnection.HTTP_FORBIDDEN;
+                }
+            } catch (IOException ioEx) {
+                LOGGER.error("IOException :     " + ioEx);
+                return CircuitBreaker.statusOf(ioEx);
             }
-        } catch (IOException ioEx) {
-            LOGGER.error("IOException :     " + ioEx);
-            return HttpURLConnection.HTTP_INTERNAL_ERROR;
         }
         try {
-            virtualnetwork = (VirtualNetwork) apiConnector.findById(VirtualNetwork.class, networkUUID);
+            virtualnetwork = ContrailReplica.findById(apiConnector, VirtualNetwork.class, networkUUID, false);
         } catch (IOException ex) {
             LOGGER.error("Exception :     " + ex);
-            return HttpURLConnection.HTTP_INTERNAL_ERROR;
+            return CircuitBreaker.statusOf(ex);
         }
         if (virtualnetwork == null) {
             LOGGER.error("No network exists for the specified UUID...");
@@ -308,16 +312,20 @@ public class NetworkHandler implements INeutronNetworkAware {
             LOGGER.error("UUID input incorrect", ex);
         }
         VirtualNetwork virtualNetwork = (VirtualNetwork) apiConnector.findById(VirtualNetwork.class, networkUUID);
+        Map<String, Object> properties = new LinkedHashMap<String, Object>();
         if (updatedNetwork.getShared() != null) {
             virtualNetwork.setIsShared(updatedNetwork.getShared());
+            properties.put("is_shared", updatedNetwork.getShared());
         }
         if (updatedNetwork.getRouterExternal() != null) {
             virtualNetwork.setRouterExternal(updatedNetwork.getRouterExternal());
+            properties.put("router_external", updatedNetwork.getRouterExternal());
         }
         virtualNetwork.setDisplayName(updatedNetwork.getNetworkName());
+        properties.put("display_name", updatedNetwork.getNetworkName());
         boolean networkUpdate;
         try {
-            networkUpdate = apiConnector.update(virtualNetwork);
+            networkUpdate = DeltaUpdates.updateProperties(apiConnector, virtualNetwork, properties);
             if (!networkUpdate) {
                 LOGGER.warn("Network Updation failed..");
             }
@@ -335,7 +343,7 @@ public class NetworkHandler implements INeutronNetworkAware {
                     floatingIpPool.setDisplayName(fipId);
                     floatingIpPool.setUuid(fipId);
                     floatingIpPool.setParent(virtualNetwork);
-                    boolean createFloatingIpPool = apiConnector.create(floatingIpPool);
+                    boolean createFloatingIpPool = IdempotentExecutor.create(apiConnector, floatingIpPool);
                     if (!createFloatingIpPool) {
                         LOGGER.info("Floating Ip pool creation failed..");
                     } else {
@@ -365,6 +373,8 @@ public class NetworkHandler implements INeutronNetworkAware {
                 }
             }
         }
+        FloatingIpPoolCache.invalidate(virtualNetwork.getUuid());
+        FloatingIpAllocator.invalidateNetwork(virtualNetwork.getUuid());
     }
 
     /**
@@ -375,6 +385,7 @@ public class NetworkHandler implements INeutronNetworkAware {
      */
     @Override
     public void neutronNetworkUpdated(NeutronNetwork network) {
+        long intent = OperationJournal.begin(OperationJournal.UPDATE, OperationJournal.NETWORK, network.getNetworkUUID());
         try {
             String networkUUID = network.getNetworkUUID();
             try {
@@ -396,6 +407,7 @@ public class NetworkHandler implements INeutronNetworkAware {
         } catch (Exception e) {
             LOGGER.error("Exception :" + e);
         }
+        OperationJournal.done(intent);
     }
 
     /**
@@ -409,7 +421,10 @@ public class NetworkHandler implements INeutronNetworkAware {
     @Override
     public int canDeleteNetwork(NeutronNetwork network) {
         apiConnector = Activator.apiConnector;
-        VirtualNetwork virtualNetwork = null;
+        if (!StartupPreloader.isReady() || CircuitBreaker.isOpen()) {
+            return HttpURLConnection.HTTP_UNAVAILABLE;
+        }
+        ObjectSummary virtualNetwork = null;
         String networkUUID = network.getNetworkUUID();
         try {
             try {
@@ -421,10 +436,11 @@ public class NetworkHandler implements INeutronNetworkAware {
                 LOGGER.error("UUID input incorrect", ex);
                 return HttpURLConnection.HTTP_BAD_REQUEST;
             }
-            virtualNetwork = (VirtualNetwork) apiConnector.findById(VirtualNetwork.class, networkUUID);
+            virtualNetwork = ProjectedReads.summary(apiConnector, VirtualNetwork.class, networkUUID, true,
+                    "virtual_machine_interface_back_refs", "floating_ip_pools", ObjectSummary.NETWORK_IPAM_REFS);
             if (virtualNetwork != null) {
-                if (virtualNetwork.getVirtualMachineInterfaceBackRefs() != null || virtualNetwork.getFloatingIpPools() != null
-                        || virtualNetwork.getNetworkIpam() != null) {
+                if (virtualNetwork.has("virtual_machine_interface_back_refs") || virtualNetwork.has("floating_ip_pools")
+                        || virtualNetwork.has(ObjectSummary.NETWORK_IPAM_REFS)) {
                     LOGGER.info("Network with UUID :  " + networkUUID
                             + " cannot be deleted as it has subnet(s)/port(s)/FloatingIp Pool(s) associated with it....");
                     return HttpURLConnection.HTTP_FORBIDDEN;
@@ -437,7 +453,7 @@ public class NetworkHandler implements INeutronNetworkAware {
             }
         } catch (Exception e) {
             LOGGER.error("Exception : " + e);
-            return HttpURLConnection.HTTP_INTERNAL_ERROR;
+            return CircuitBreaker.statusOf(e);
         }
     }
 
@@ -449,6 +465,7 @@ public class NetworkHandler implements INeutronNetworkAware {
      */
     @Override
     public void neutronNetworkDeleted(NeutronNetwork network) {
+        long intent = OperationJournal.begin(OperationJournal.DELETE, OperationJournal.NETWORK, network.getNetworkUUID());
         VirtualNetwork virtualNetwork = null;
         try {
             String networkUUID = network.getNetworkUUID();
@@ -458,6 +475,9 @@ public class NetworkHandler implements INeutronNetworkAware {
             networkUUID = UUID.fromString(networkUUID).toString();
             virtualNetwork = (VirtualNetwork) apiConnector.findById(VirtualNetwork.class, networkUUID);
             apiConnector.delete(virtualNetwork);
+            FloatingIpPoolCache.invalidate(networkUUID);
+            FloatingIpAllocator.invalidateNetwork(networkUUID);
+            NetworkSubnetIndex.invalidate(networkUUID);
             LOGGER.info("Network with UUID :  " + network.getNetworkUUID() + "  has been deleted successfully....");
             virtualNetwork = (VirtualNetwork) apiConnector.findById(VirtualNetwork.class, networkUUID);
             if (virtualNetwork == null) {
@@ -468,6 +488,7 @@ public class NetworkHandler implements INeutronNetworkAware {
         } catch (Exception e) {
             LOGGER.error("Exception :   " + e);
         }
+        OperationJournal.done(intent);
     }
 
 }
\ No newline at end of file
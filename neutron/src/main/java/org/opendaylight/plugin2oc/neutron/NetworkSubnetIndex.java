@@ -0,0 +1,326 @@
+/*
+ * Copyright (C) 2014 Juniper Networks, Inc.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ *
+ */
+package org.opendaylight.plugin2oc.neutron;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import net.juniper.contrail.api.ApiConnector;
+import net.juniper.contrail.api.ObjectReference;
+import net.juniper.contrail.api.types.VirtualNetwork;
+import net.juniper.contrail.api.types.VnSubnetsType;
+
+/**
+ * Index of the IPAM subnets of a virtual network, keyed both by prefix and by
+ * subnet UUID. The index of a network is built from its {@link VnSubnetsType}
+ * references and kept up to date by {@link SubnetHandler} as subnets are
+ * created and deleted. Whenever a caller passes a network it has just read,
+ * the index is rebuilt from it and replaces the cached one if they differ, so
+ * that subnets written by other clients are seen on the next read.
+ */
+final class NetworkSubnetIndex {
+    private static final ConnectorScopedCache<String, NetworkSubnetIndex> INDEXES = new ConnectorScopedCache<String, NetworkSubnetIndex>();
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final SubnetPrefixTrie<String> prefixes = new SubnetPrefixTrie<String>();
+    private final Map<String, String> cidrs = new HashMap<String, String>();
+    private final Map<SubnetPrefixTrie.Prefix, String> keys = new HashMap<SubnetPrefixTrie.Prefix, String>();
+
+    /**
+     * Invoked to get the index of a network, fetching the network on a cache
+     * miss.
+     *
+     * @param apiConnector
+     *            An instance of the connector used to resolve a cache miss.
+     * @param networkUUID
+     *            Formatted UUID of the network.
+     *
+     * @return The index, or null if the network does not exist.
+     */
+    static NetworkSubnetIndex forNetwork(ApiConnector apiConnector, String networkUUID) throws IOException {
+        NetworkSubnetIndex index = INDEXES.bind(apiConnector).get(networkUUID);
+        if (index != null) {
+            return index;
+        }
+        VirtualNetwork virtualNetwork = (VirtualNetwork) apiConnector.findById(VirtualNetwork.class, networkUUID);
+        if (virtualNetwork == null) {
+            return null;
+        }
+        NetworkSubnetIndex fresh = of(virtualNetwork.getNetworkIpam());
+        NetworkSubnetIndex existing = INDEXES.bind(apiConnector).putIfAbsent(networkUUID, fresh);
+        return existing != null ? existing : fresh;
+    }
+
+    /**
+     * Invoked to get the index of a network that has already been fetched.
+     * The index is built from the network, and replaces the cached index of
+     * the network if their subnets differ.
+     *
+     * @param apiConnector
+     *            The connector the network was fetched through.
+     * @param virtualNetwork
+     *            An instance of the virtual network.
+     *
+     * @return The index.
+     */
+    static NetworkSubnetIndex forNetwork(ApiConnector apiConnector, VirtualNetwork virtualNetwork) {
+        NetworkSubnetIndex index = of(virtualNetwork.getNetworkIpam());
+        String networkUUID = virtualNetwork.getUuid();
+        if (networkUUID == null) {
+            return index;
+        }
+        ConcurrentMap<String, NetworkSubnetIndex> indexes = INDEXES.bind(apiConnector);
+        NetworkSubnetIndex cached = indexes.get(networkUUID);
+        if (cached == null || !cached.sameSubnets(index)) {
+            indexes.put(networkUUID, index);
+        }
+        return index;
+    }
+
+    /**
+     * Invoked to build an uncached index from the IPAM references of a
+     * network.
+     *
+     * @param ipamRefs
+     *            The network IPAM references of a virtual network.
+     *
+     * @return The index.
+     */
+    static NetworkSubnetIndex of(List<ObjectReference<VnSubnetsType>> ipamRefs) {
+        NetworkSubnetIndex index = new NetworkSubnetIndex();
+        if (ipamRefs == null) {
+            return index;
+        }
+        for (ObjectReference<VnSubnetsType> ref : ipamRefs) {
+            VnSubnetsType vnSubnetsType = ref.getAttr();
+            if (vnSubnetsType == null || vnSubnetsType.getIpamSubnets() == null) {
+                continue;
+            }
+            for (VnSubnetsType.IpamSubnetType ipamSubnet : vnSubnetsType.getIpamSubnets()) {
+                String cidr = cidrOf(ipamSubnet);
+                if (cidr != null) {
+                    index.add(ipamSubnet.getSubnetUuid(), cidr);
+                }
+            }
+        }
+        return index;
+    }
+
+    /**
+     * @return The CIDR of an IPAM subnet, or null if it has no valid prefix.
+     */
+    static String cidrOf(VnSubnetsType.IpamSubnetType ipamSubnet) {
+        if (ipamSubnet.getSubnet() == null || ipamSubnet.getSubnet().getIpPrefix() == null
+                || ipamSubnet.getSubnet().getIpPrefixLen() == null) {
+            return null;
+        }
+        String cidr = ipamSubnet.getSubnet().getIpPrefix() + "/" + ipamSubnet.getSubnet().getIpPrefixLen();
+        return SubnetPrefixTrie.Prefix.parse(cidr) != null ? cidr : null;
+    }
+
+    /**
+     * Invoked after a subnet has been added to a network.
+     */
+    static void subnetAdded(String networkUUID, String subnetUUID, String cidr) {
+        NetworkSubnetIndex index = INDEXES.entries().get(networkUUID);
+        if (index != null) {
+            index.add(subnetUUID, cidr);
+        }
+    }
+
+    /**
+     * Invoked after a subnet has been removed from a network.
+     */
+    static void subnetRemoved(String networkUUID, String cidr) {
+        NetworkSubnetIndex index = INDEXES.entries().get(networkUUID);
+        if (index != null) {
+            index.remove(cidr);
+        }
+    }
+
+    /**
+     * Invoked when a network is deleted or its subnets can not be tracked
+     * incrementally.
+     */
+    static void invalidate(String networkUUID) {
+        if (networkUUID != null) {
+            INDEXES.entries().remove(networkUUID);
+        }
+    }
+
+    /**
+     * @return The subnets of every cached network by network UUID, leaving
+     *         out the networks with subnets lacking a UUID.
+     */
+    static Map<String, Map<String, String>> snapshot() {
+        Map<String, Map<String, String>> snapshot = new HashMap<String, Map<String, String>>();
+        for (Map.Entry<String, NetworkSubnetIndex> entry : INDEXES.entries().entrySet()) {
+            Map<String, String> subnets = entry.getValue().subnets();
+            if (subnets != null) {
+                snapshot.put(entry.getKey(), subnets);
+            }
+        }
+        return snapshot;
+    }
+
+    /**
+     * Invoked at startup to seed the index of a network from a snapshot.
+     *
+     * @param subnets
+     *            The CIDR of the subnets of the network by subnet UUID.
+     */
+    static void restore(ApiConnector apiConnector, String networkUUID, Map<String, String> subnets) {
+        NetworkSubnetIndex index = new NetworkSubnetIndex();
+        for (Map.Entry<String, String> subnet : subnets.entrySet()) {
+            index.add(subnet.getKey(), subnet.getValue());
+        }
+        INDEXES.bind(apiConnector).putIfAbsent(networkUUID, index);
+    }
+
+    /**
+     * Invoked to replace the index of a network found to differ from the
+     * network.
+     */
+    static void replace(ApiConnector apiConnector, VirtualNetwork virtualNetwork) {
+        INDEXES.bind(apiConnector).put(virtualNetwork.getUuid(), of(virtualNetwork.getNetworkIpam()));
+    }
+
+    /**
+     * @return A copy of the CIDR of the subnets by subnet UUID, null if some
+     *         subnets have no UUID.
+     */
+    Map<String, String> subnets() {
+        lock.readLock().lock();
+        try {
+            return prefixes.size() == cidrs.size() ? new HashMap<String, String>(cidrs) : null;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return true if both indexes hold the same prefixes with the same
+     *         subnet UUIDs.
+     */
+    boolean sameSubnets(NetworkSubnetIndex other) {
+        Map<SubnetPrefixTrie.Prefix, String> otherKeys;
+        other.lock.readLock().lock();
+        try {
+            otherKeys = new HashMap<SubnetPrefixTrie.Prefix, String>(other.keys);
+        } finally {
+            other.lock.readLock().unlock();
+        }
+        lock.readLock().lock();
+        try {
+            return keys.equals(otherKeys);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    void add(String subnetUUID, String cidr) {
+        // subnets created outside of the plugin may lack a UUID, they are
+        // still indexed by prefix
+        String key = subnetUUID != null ? subnetUUID : "";
+        lock.writeLock().lock();
+        try {
+            String previous = prefixes.put(cidr, key);
+            keys.put(SubnetPrefixTrie.Prefix.parse(cidr), key);
+            if (previous != null && !previous.isEmpty()) {
+                cidrs.remove(previous);
+            }
+            if (subnetUUID != null) {
+                cidrs.put(subnetUUID, cidr);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    void remove(String cidr) {
+        lock.writeLock().lock();
+        try {
+            String subnetUUID = prefixes.remove(cidr);
+            keys.remove(SubnetPrefixTrie.Prefix.parse(cidr));
+            if (subnetUUID != null && !subnetUUID.isEmpty()) {
+                cidrs.remove(subnetUUID);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * @return true if the network has a subnet with exactly this prefix.
+     */
+    boolean exists(String cidr) {
+        lock.readLock().lock();
+        try {
+            return prefixes.get(cidr) != null;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return true if a subnet of the network overlaps the prefix.
+     */
+    boolean overlaps(String cidr) {
+        lock.readLock().lock();
+        try {
+            return prefixes.overlaps(cidr);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return true if the network has a subnet with this UUID.
+     */
+    boolean hasSubnet(String subnetUUID) {
+        lock.readLock().lock();
+        try {
+            return cidrs.containsKey(subnetUUID);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return true if the subnet with this UUID contains the address.
+     */
+    boolean contains(String subnetUUID, String address) {
+        lock.readLock().lock();
+        try {
+            if (subnetUUID == null || SubnetPrefixTrie.Prefix.parse(address) == null) {
+                return false;
+            }
+            return subnetUUID.equals(prefixes.match(address));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return The CIDR of the subnet with this UUID, or null.
+     */
+    String cidr(String subnetUUID) {
+        lock.readLock().lock();
+        try {
+            return cidrs.get(subnetUUID);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+}
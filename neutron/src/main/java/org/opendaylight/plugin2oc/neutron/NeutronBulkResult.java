@@ -0,0 +1,52 @@
+/*
+ * Copyright (C) 2014 Juniper Networks, Inc.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ *
+ */
+package org.opendaylight.plugin2oc.neutron;
+
+/**
+ * Result of an object of a batch given to {@link NeutronBulkService}.
+ */
+public final class NeutronBulkResult {
+    private final int index;
+    private final String uuid;
+    private final int status;
+
+    NeutronBulkResult(int index, String uuid, int status) {
+        this.index = index;
+        this.uuid = uuid;
+        this.status = status;
+    }
+
+    /**
+     * @return The position of the object in the batch.
+     */
+    public int getIndex() {
+        return index;
+    }
+
+    /**
+     * @return The Neutron UUID of the object, null if it has none.
+     */
+    public String getUuid() {
+        return uuid;
+    }
+
+    /**
+     * @return A HTTP status code: 201 when the object has been created, the
+     *         code of the failed validation, 424 when an object it depends on
+     *         failed, or the code of the error.
+     */
+    public int getStatus() {
+        return status;
+    }
+
+    @Override
+    public String toString() {
+        return "NeutronBulkResult [index=" + index + ", uuid=" + uuid + ", status=" + status + "]";
+    }
+}
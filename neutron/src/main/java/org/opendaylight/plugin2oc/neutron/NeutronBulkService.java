@@ -0,0 +1,32 @@
+/*
+ * Copyright (C) 2014 Juniper Networks, Inc.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ *
+ */
+package org.opendaylight.plugin2oc.neutron;
+
+import java.util.List;
+
+/**
+ * Service creating a batch of Neutron objects in Contrail at once, for the
+ * orchestrators bringing up a whole topology. The objects of a batch which
+ * do not depend on each other are created in parallel.
+ */
+public interface NeutronBulkService {
+
+    /**
+     * Invoked to create a batch of Neutron objects.
+     *
+     * @param batch
+     *            The NeutronNetwork, NeutronSubnet, NeutronPort,
+     *            NeutronRouter, NeutronSecurityGroup and NeutronSecurityRule
+     *            objects to create, each object coming after the objects of
+     *            the batch it refers to, e.g. a subnet after its network.
+     *
+     * @return The result of each object, in the order of the batch.
+     */
+    List<NeutronBulkResult> execute(List<Object> batch);
+}
@@ -0,0 +1,279 @@
+/*
+ * Copyright (C) 2014 Juniper Networks, Inc.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ *
+ */
+package org.opendaylight.plugin2oc.neutron;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import net.juniper.contrail.api.ApiObjectBase;
+import net.juniper.contrail.api.ObjectReference;
+import net.juniper.contrail.api.types.LogicalRouter;
+import net.juniper.contrail.api.types.PolicyEntriesType;
+import net.juniper.contrail.api.types.SecurityGroup;
+import net.juniper.contrail.api.types.VirtualMachineInterface;
+import net.juniper.contrail.api.types.VirtualNetwork;
+import net.juniper.contrail.api.types.VnSubnetsType;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+
+/**
+ * What the validations read from a Contrail object: its parent, the UUIDs of
+ * its refs, back-refs and children, the prefixes of its IPAM subnets and the
+ * UUIDs of its policy rules. A summary is decoded from the answer of the API
+ * server as it streams in, every other value being skipped over, so that
+ * reading a network with thousands of ports or a security group with many
+ * rules does not build the object graph the connector would.
+ */
+final class ObjectSummary {
+    static final String NETWORK_IPAM_REFS = "network_ipam_refs";
+    static final String SECURITY_GROUP_ENTRIES = "security_group_entries";
+
+    String uuid;
+    String parentUuid;
+    List<String> qualifiedName;
+    final Map<String, List<String>> refs = new HashMap<String, List<String>>();
+    final List<String> subnets = new ArrayList<String>();
+    final List<String> ruleUuids = new ArrayList<String>();
+
+    /**
+     * @param field
+     *            The name of the refs, back-refs or children in the API, e.g.
+     *            floating_ip_back_refs.
+     *
+     * @return The UUIDs of the objects, empty if there are none.
+     */
+    List<String> refs(String field) {
+        List<String> uuids = refs.get(field);
+        return uuids != null ? uuids : Collections.<String> emptyList();
+    }
+
+    /**
+     * @return true if the object holds refs, back-refs or children of this
+     *         name, even an empty list of them.
+     */
+    boolean has(String field) {
+        return refs.containsKey(field);
+    }
+
+    /**
+     * @return true if an IPAM subnet of the object has exactly this prefix.
+     */
+    boolean hasSubnet(String cidr) {
+        SubnetPrefixTrie.Prefix prefix = SubnetPrefixTrie.Prefix.parse(cidr);
+        for (String subnet : subnets) {
+            if (SubnetPrefixTrie.Prefix.parse(subnet).equals(prefix)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Invoked to decode an object read from the API server, e.g.
+     * {"virtual-network": {"uuid": ..., "network_ipam_refs": [...], ...}}.
+     *
+     * @return The summary of the object.
+     */
+    static ObjectSummary decode(Reader in) throws IOException {
+        ObjectSummary summary = new ObjectSummary();
+        JsonReader reader = new JsonReader(in);
+        try {
+            reader.beginObject();
+            reader.nextName();
+            reader.beginObject();
+            while (reader.hasNext()) {
+                String name = reader.nextName();
+                if (reader.peek() == JsonToken.NULL) {
+                    reader.nextNull();
+                } else if (("uuid").equals(name)) {
+                    summary.uuid = reader.nextString();
+                } else if (("parent_uuid").equals(name)) {
+                    summary.parentUuid = reader.nextString();
+                } else if (("fq_name").equals(name) && reader.peek() == JsonToken.BEGIN_ARRAY) {
+                    summary.qualifiedName = new ArrayList<String>();
+                    reader.beginArray();
+                    while (reader.hasNext()) {
+                        summary.qualifiedName.add(reader.nextString());
+                    }
+                    reader.endArray();
+                } else if (SECURITY_GROUP_ENTRIES.equals(name)) {
+                    summary.readRules(reader);
+                } else if (reader.peek() == JsonToken.BEGIN_ARRAY) {
+                    summary.readRefs(reader, name);
+                } else {
+                    reader.skipValue();
+                }
+            }
+        } finally {
+            reader.close();
+        }
+        return summary;
+    }
+
+    private void readRefs(JsonReader reader, String field) throws IOException {
+        List<String> uuids = new ArrayList<String>();
+        reader.beginArray();
+        while (reader.hasNext()) {
+            if (reader.peek() != JsonToken.BEGIN_OBJECT) {
+                reader.skipValue();
+                continue;
+            }
+            reader.beginObject();
+            while (reader.hasNext()) {
+                String name = reader.nextName();
+                if (("uuid").equals(name) && reader.peek() == JsonToken.STRING) {
+                    uuids.add(reader.nextString());
+                } else if (("attr").equals(name) && NETWORK_IPAM_REFS.equals(field) && reader.peek() == JsonToken.BEGIN_OBJECT) {
+                    readIpamSubnets(reader);
+                } else {
+                    reader.skipValue();
+                }
+            }
+            reader.endObject();
+        }
+        reader.endArray();
+        refs.put(field, uuids);
+    }
+
+    private void readIpamSubnets(JsonReader reader) throws IOException {
+        reader.beginObject();
+        while (reader.hasNext()) {
+            if (!("ipam_subnets").equals(reader.nextName()) || reader.peek() != JsonToken.BEGIN_ARRAY) {
+                reader.skipValue();
+                continue;
+            }
+            reader.beginArray();
+            while (reader.hasNext()) {
+                reader.beginObject();
+                while (reader.hasNext()) {
+                    if (("subnet").equals(reader.nextName()) && reader.peek() == JsonToken.BEGIN_OBJECT) {
+                        readSubnet(reader);
+                    } else {
+                        reader.skipValue();
+                    }
+                }
+                reader.endObject();
+            }
+            reader.endArray();
+        }
+        reader.endObject();
+    }
+
+    private void readSubnet(JsonReader reader) throws IOException {
+        String prefix = null;
+        String length = null;
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String name = reader.nextName();
+            if (("ip_prefix").equals(name) && reader.peek() == JsonToken.STRING) {
+                prefix = reader.nextString();
+            } else if (("ip_prefix_len").equals(name) && reader.peek() == JsonToken.NUMBER) {
+                length = reader.nextString();
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+        if (prefix != null && length != null) {
+            subnets.add(prefix + "/" + length);
+        }
+    }
+
+    private void readRules(JsonReader reader) throws IOException {
+        reader.beginObject();
+        while (reader.hasNext()) {
+            if (!("policy_rule").equals(reader.nextName()) || reader.peek() != JsonToken.BEGIN_ARRAY) {
+                reader.skipValue();
+                continue;
+            }
+            reader.beginArray();
+            while (reader.hasNext()) {
+                reader.beginObject();
+                while (reader.hasNext()) {
+                    if (("rule_uuid").equals(reader.nextName()) && reader.peek() == JsonToken.STRING) {
+                        ruleUuids.add(reader.nextString());
+                    } else {
+                        reader.skipValue();
+                    }
+                }
+                reader.endObject();
+            }
+            reader.endArray();
+        }
+        reader.endObject();
+    }
+
+    /**
+     * Invoked to summarize an object read through the connector, with the
+     * same fields as decoding it would give.
+     *
+     * @return The summary, null if the object is null.
+     */
+    static ObjectSummary of(ApiObjectBase object) {
+        if (object == null) {
+            return null;
+        }
+        ObjectSummary summary = new ObjectSummary();
+        summary.uuid = object.getUuid();
+        summary.parentUuid = object.getParentUuid();
+        summary.qualifiedName = object.getQualifiedName();
+        if (object instanceof VirtualNetwork) {
+            VirtualNetwork virtualNetwork = (VirtualNetwork) object;
+            summary.putRefs("virtual_machine_interface_back_refs", virtualNetwork.getVirtualMachineInterfaceBackRefs());
+            summary.putRefs("floating_ip_pools", virtualNetwork.getFloatingIpPools());
+            summary.putRefs(NETWORK_IPAM_REFS, virtualNetwork.getNetworkIpam());
+            if (virtualNetwork.getNetworkIpam() != null) {
+                for (ObjectReference<VnSubnetsType> ref : virtualNetwork.getNetworkIpam()) {
+                    if (ref.getAttr() == null || ref.getAttr().getIpamSubnets() == null) {
+                        continue;
+                    }
+                    for (VnSubnetsType.IpamSubnetType ipamSubnet : ref.getAttr().getIpamSubnets()) {
+                        String cidr = NetworkSubnetIndex.cidrOf(ipamSubnet);
+                        if (cidr != null) {
+                            summary.subnets.add(cidr);
+                        }
+                    }
+                }
+            }
+        } else if (object instanceof VirtualMachineInterface) {
+            VirtualMachineInterface virtualMachineInterface = (VirtualMachineInterface) object;
+            summary.putRefs("floating_ip_back_refs", virtualMachineInterface.getFloatingIpBackRefs());
+            summary.putRefs("instance_ip_back_refs", virtualMachineInterface.getInstanceIpBackRefs());
+        } else if (object instanceof LogicalRouter) {
+            summary.putRefs("virtual_machine_interface_refs", ((LogicalRouter) object).getVirtualMachineInterface());
+        } else if (object instanceof SecurityGroup) {
+            PolicyEntriesType entries = ((SecurityGroup) object).getEntries();
+            if (entries != null && entries.getPolicyRule() != null) {
+                for (PolicyEntriesType.PolicyRuleType rule : entries.getPolicyRule()) {
+                    if (rule.getRuleUuid() != null) {
+                        summary.ruleUuids.add(rule.getRuleUuid());
+                    }
+                }
+            }
+        }
+        return summary;
+    }
+
+    private void putRefs(String field, List<? extends ObjectReference<?>> references) {
+        if (references == null) {
+            return;
+        }
+        List<String> uuids = new ArrayList<String>();
+        for (ObjectReference<?> reference : references) {
+            uuids.add(reference.getUuid());
+        }
+        refs.put(field, uuids);
+    }
+}
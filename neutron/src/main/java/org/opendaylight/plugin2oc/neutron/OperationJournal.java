@@ -0,0 +1,576 @@
+/*
+ * Copyright (C) 2014 Juniper Networks, Inc.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ *
+ */
+package org.opendaylight.plugin2oc.neutron;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.FilenameFilter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Write-ahead journal of the southbound operations. The handlers append an
+ * intent before an operation reaches Contrail and mark it done once it has
+ * completed, so the operations interrupted by a restart of the controller can
+ * be replayed when the bundle starts again.
+ *
+ * Intents are durable before {@link #begin} returns. Records appended while a
+ * flush is in progress are written and synced together by the next one, so
+ * concurrent operations share the cost of the fsync. The journal is split in
+ * segments, and a segment is deleted once every intent it holds is done.
+ *
+ * The operations in progress are tracked in memory whether or not the journal
+ * is configured, so that the {@link ReconciliationService} leaves alone the
+ * objects a handler is still writing, and every object written is reported to
+ * it so that it only reads these objects again from Neutron.
+ */
+final class OperationJournal {
+    static final Logger LOGGER = LoggerFactory.getLogger(OperationJournal.class);
+    static final String DIR_PROPERTY = "plugin2oc.journal.dir";
+    static final String SEGMENT_SIZE_PROPERTY = "plugin2oc.journal.segmentSize";
+    static final long DEFAULT_SEGMENT_SIZE = 16L * 1024 * 1024;
+
+    static final String CREATE = "create";
+    static final String UPDATE = "update";
+    static final String DELETE = "delete";
+
+    static final String NETWORK = "network";
+    static final String SUBNET = "subnet";
+    static final String PORT = "port";
+    static final String ROUTER = "router";
+    static final String FLOATING_IP = "floatingip";
+    static final String SECURITY_GROUP = "securitygroup";
+
+    private static final byte BEGIN = 1;
+    private static final byte END = 2;
+    private static final String SEGMENT_PREFIX = "journal-";
+    private static final String SEGMENT_SUFFIX = ".log";
+
+    private static volatile OperationJournal current;
+    /**
+     * Object of every operation in progress by sequence, operations which are
+     * not journaled having a negative sequence.
+     */
+    private static final ConcurrentMap<Long, String> IN_FLIGHT = new ConcurrentHashMap<Long, String>();
+    private static final AtomicLong UNJOURNALED = new AtomicLong(-1);
+
+    /**
+     * Operation appended to the journal and not yet marked done.
+     */
+    static final class Intent {
+        final long sequence;
+        final String operation;
+        final String type;
+        final Map<String, String> keys;
+
+        Intent(long sequence, String operation, String type, Map<String, String> keys) {
+            this.sequence = sequence;
+            this.operation = operation;
+            this.type = type;
+            this.keys = keys;
+        }
+
+        String uuid() {
+            return keys.get("uuid");
+        }
+
+        @Override
+        public String toString() {
+            return operation + " " + type + " " + keys;
+        }
+    }
+
+    private final File directory;
+    private final long segmentSize;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition appended = lock.newCondition();
+    private final Condition flushed = lock.newCondition();
+    private ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+    private List<Long> bufferedIntents = new ArrayList<Long>();
+    private long nextSequence = 1;
+    private long bufferedSequence;
+    private long durableSequence;
+    private long segmentId;
+    private FileChannel segment;
+    /**
+     * Segment of every open intent, and number of open intents per segment.
+     */
+    private final Map<Long, Long> openIntents = new HashMap<Long, Long>();
+    private final Map<Long, Integer> openPerSegment = new HashMap<Long, Integer>();
+    private final List<Intent> recovered = new ArrayList<Intent>();
+    private IOException failure;
+    private boolean closed;
+    private Thread flusher;
+
+    private OperationJournal(File directory, long segmentSize) {
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+    }
+
+    /**
+     * Invoked from {@link Activator#init()} to open the journal configured by
+     * the plugin2oc.journal.* system properties, recovering the intents left
+     * open by the previous run.
+     *
+     * @return The journal, or null if it is not configured or can not be
+     *         opened.
+     */
+    static OperationJournal start() {
+        String dir = System.getProperty(DIR_PROPERTY);
+        if (dir == null || ("").equals(dir)) {
+            LOGGER.info("Southbound operation journal is disabled");
+            return null;
+        }
+        try {
+            OperationJournal journal = open(new File(dir), Long.getLong(SEGMENT_SIZE_PROPERTY, DEFAULT_SEGMENT_SIZE));
+            current = journal;
+            LOGGER.info("Southbound operation journal opened in " + dir + ", " + journal.recovered.size() + " operation(s) to replay");
+            return journal;
+        } catch (IOException e) {
+            LOGGER.error("Exception : " + e);
+            return null;
+        }
+    }
+
+    static OperationJournal open(File directory, long segmentSize) throws IOException {
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Can not create journal directory " + directory);
+        }
+        final OperationJournal journal = new OperationJournal(directory, segmentSize);
+        journal.recover();
+        journal.flusher = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                journal.flushLoop();
+            }
+        }, "plugin2oc-journal");
+        journal.flusher.setDaemon(true);
+        journal.flusher.start();
+        return journal;
+    }
+
+    /**
+     * Invoked by the handlers before an operation is sent to Contrail.
+     *
+     * @param operation
+     *            One of {@link #CREATE}, {@link #UPDATE} or {@link #DELETE}.
+     * @param type
+     *            The Neutron resource type.
+     * @param uuid
+     *            The UUID of the Neutron object.
+     * @param keys
+     *            Pairs of names and values of other attributes needed to
+     *            replay the operation.
+     *
+     * @return The sequence of the intent to pass to {@link #done(long)}.
+     */
+    static long begin(String operation, String type, String uuid, String... keys) {
+        long sequence = journal(operation, type, uuid, keys);
+        if (sequence <= 0) {
+            sequence = UNJOURNALED.decrementAndGet();
+        }
+        IN_FLIGHT.put(sequence, key(type, uuid));
+        ReconciliationService.changed(type, uuid);
+        return sequence;
+    }
+
+    private static long journal(String operation, String type, String uuid, String... keys) {
+        OperationJournal journal = current;
+        if (journal == null) {
+            return -1;
+        }
+        Map<String, String> values = new LinkedHashMap<String, String>();
+        values.put("uuid", uuid);
+        for (int i = 0; i + 1 < keys.length; i += 2) {
+            values.put(keys[i], keys[i + 1]);
+        }
+        try {
+            return journal.append(operation, type, values);
+        } catch (IOException e) {
+            LOGGER.error("Exception : " + e);
+            return -1;
+        }
+    }
+
+    /**
+     * Invoked by the handlers once an operation has completed.
+     */
+    static void done(long sequence) {
+        IN_FLIGHT.remove(sequence);
+        OperationJournal journal = current;
+        if (journal != null && sequence > 0) {
+            journal.complete(sequence);
+        }
+    }
+
+    /**
+     * @return true if an operation on the object has begun and is not done.
+     */
+    static boolean inFlight(String type, String uuid) {
+        return uuid != null && IN_FLIGHT.containsValue(key(type, uuid));
+    }
+
+    private static String key(String type, String uuid) {
+        return type + " " + (uuid != null ? uuid.replace("-", "").toLowerCase() : "");
+    }
+
+    /**
+     * @return The intents recovered at startup, not yet replayed.
+     */
+    List<Intent> recovered() {
+        return Collections.unmodifiableList(recovered);
+    }
+
+    /**
+     * Invoked to append an intent and wait until it is durable.
+     *
+     * @return The sequence of the intent.
+     */
+    long append(String operation, String type, Map<String, String> keys) throws IOException {
+        ByteArrayOutputStream payload = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(payload);
+        lock.lock();
+        try {
+            long sequence = nextSequence++;
+            out.writeByte(BEGIN);
+            out.writeLong(sequence);
+            out.writeUTF(operation);
+            out.writeUTF(type);
+            out.writeShort(keys.size());
+            for (Map.Entry<String, String> key : keys.entrySet()) {
+                out.writeUTF(key.getKey());
+                out.writeUTF(key.getValue() != null ? key.getValue() : "");
+            }
+            buffer(payload.toByteArray(), sequence);
+            bufferedIntents.add(sequence);
+            while (durableSequence < sequence) {
+                if (failure != null) {
+                    throw failure;
+                }
+                if (closed) {
+                    throw new IOException("Journal closed");
+                }
+                flushed.awaitUninterruptibly();
+            }
+            return sequence;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Invoked to mark an intent done. The record is written by the next flush
+     * without waiting for it, replaying an operation that completed is
+     * harmless.
+     */
+    void complete(long sequence) {
+        ByteArrayOutputStream payload = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(payload);
+        lock.lock();
+        try {
+            out.writeByte(END);
+            out.writeLong(sequence);
+            Long segmentOfIntent = openIntents.remove(sequence);
+            if (segmentOfIntent == null) {
+                return;
+            }
+            buffer(payload.toByteArray(), bufferedSequence);
+            int open = openPerSegment.get(segmentOfIntent) - 1;
+            if (open == 0) {
+                openPerSegment.remove(segmentOfIntent);
+                if (segmentOfIntent != segmentId) {
+                    deleteSegment(segmentOfIntent);
+                }
+            } else {
+                openPerSegment.put(segmentOfIntent, open);
+            }
+        } catch (IOException e) {
+            LOGGER.error("Exception : " + e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void buffer(byte[] payload, long sequence) throws IOException {
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+        DataOutputStream out = new DataOutputStream(buffer);
+        out.writeInt(payload.length);
+        out.writeInt((int) crc.getValue());
+        out.write(payload);
+        bufferedSequence = Math.max(bufferedSequence, sequence);
+        appended.signal();
+    }
+
+    /**
+     * Loop of the flusher thread, writing and syncing everything appended
+     * since the previous flush.
+     */
+    private void flushLoop() {
+        while (true) {
+            byte[] batch;
+            List<Long> intents;
+            long sequence;
+            FileChannel channel;
+            lock.lock();
+            try {
+                while (buffer.size() == 0 && !closed) {
+                    appended.awaitUninterruptibly();
+                }
+                if (buffer.size() == 0) {
+                    return;
+                }
+                batch = buffer.toByteArray();
+                buffer = new ByteArrayOutputStream();
+                intents = bufferedIntents;
+                bufferedIntents = new ArrayList<Long>();
+                sequence = bufferedSequence;
+                channel = segment;
+            } finally {
+                lock.unlock();
+            }
+            try {
+                ByteBuffer bytes = ByteBuffer.wrap(batch);
+                while (bytes.hasRemaining()) {
+                    channel.write(bytes);
+                }
+                channel.force(false);
+                lock.lock();
+                try {
+                    for (Long intent : intents) {
+                        openIntents.put(intent, segmentId);
+                    }
+                    if (!intents.isEmpty()) {
+                        Integer open = openPerSegment.get(segmentId);
+                        openPerSegment.put(segmentId, (open != null ? open : 0) + intents.size());
+                    }
+                    durableSequence = Math.max(durableSequence, sequence);
+                    if (channel.size() >= segmentSize) {
+                        rotate();
+                    }
+                    flushed.signalAll();
+                } finally {
+                    lock.unlock();
+                }
+            } catch (IOException e) {
+                LOGGER.error("Exception : " + e);
+                lock.lock();
+                try {
+                    failure = e;
+                    flushed.signalAll();
+                } finally {
+                    lock.unlock();
+                }
+                return;
+            }
+        }
+    }
+
+    /**
+     * Invoked with the lock held to continue the journal in a new segment.
+     */
+    private void rotate() throws IOException {
+        long previous = segmentId;
+        segment.close();
+        openSegment(previous + 1);
+        if (!openPerSegment.containsKey(previous)) {
+            deleteSegment(previous);
+        }
+    }
+
+    private void openSegment(long id) throws IOException {
+        segmentId = id;
+        segment = new FileOutputStream(segmentFile(id), true).getChannel();
+    }
+
+    private File segmentFile(long id) {
+        return new File(directory, String.format("%s%020d%s", SEGMENT_PREFIX, id, SEGMENT_SUFFIX));
+    }
+
+    private void deleteSegment(long id) {
+        File file = segmentFile(id);
+        if (file.exists() && !file.delete()) {
+            LOGGER.warn("Journal segment " + file + " could not be deleted");
+        }
+    }
+
+    /**
+     * Invoked at open to read the existing segments, collect the intents that
+     * were not marked done, and carry them over to a new segment so that the
+     * old ones can be deleted.
+     */
+    private void recover() throws IOException {
+        File[] files = directory.listFiles(new FilenameFilter() {
+            @Override
+            public boolean accept(File dir, String name) {
+                return name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX);
+            }
+        });
+        if (files == null) {
+            files = new File[0];
+        }
+        Arrays.sort(files);
+        Map<Long, Intent> open = new LinkedHashMap<Long, Intent>();
+        long lastSegment = 0;
+        for (File file : files) {
+            String id = file.getName().substring(SEGMENT_PREFIX.length(), file.getName().length() - SEGMENT_SUFFIX.length());
+            try {
+                lastSegment = Math.max(lastSegment, Long.parseLong(id));
+            } catch (NumberFormatException e) {
+                continue;
+            }
+            readSegment(file, open);
+        }
+        for (Intent intent : open.values()) {
+            nextSequence = Math.max(nextSequence, intent.sequence + 1);
+        }
+        openSegment(lastSegment + 1);
+        // intents carried over keep their sequence
+        ByteArrayOutputStream carried = new ByteArrayOutputStream();
+        for (Intent intent : open.values()) {
+            ByteArrayOutputStream payload = new ByteArrayOutputStream();
+            DataOutputStream out = new DataOutputStream(payload);
+            out.writeByte(BEGIN);
+            out.writeLong(intent.sequence);
+            out.writeUTF(intent.operation);
+            out.writeUTF(intent.type);
+            out.writeShort(intent.keys.size());
+            for (Map.Entry<String, String> key : intent.keys.entrySet()) {
+                out.writeUTF(key.getKey());
+                out.writeUTF(key.getValue());
+            }
+            CRC32 crc = new CRC32();
+            crc.update(payload.toByteArray());
+            DataOutputStream record = new DataOutputStream(carried);
+            record.writeInt(payload.size());
+            record.writeInt((int) crc.getValue());
+            record.write(payload.toByteArray());
+            openIntents.put(intent.sequence, segmentId);
+            recovered.add(intent);
+        }
+        if (!open.isEmpty()) {
+            openPerSegment.put(segmentId, open.size());
+        }
+        ByteBuffer bytes = ByteBuffer.wrap(carried.toByteArray());
+        while (bytes.hasRemaining()) {
+            segment.write(bytes);
+        }
+        segment.force(false);
+        durableSequence = nextSequence - 1;
+        bufferedSequence = durableSequence;
+        for (File file : files) {
+            if (!file.equals(segmentFile(segmentId)) && !file.delete()) {
+                LOGGER.warn("Journal segment " + file + " could not be deleted");
+            }
+        }
+    }
+
+    /**
+     * Invoked to read the records of a segment, stopping at the first
+     * truncated or corrupted record left by a crash during a write.
+     */
+    private void readSegment(File file, Map<Long, Intent> open) throws IOException {
+        InputStream input = new FileInputStream(file);
+        try {
+            DataInputStream in = new DataInputStream(new BufferedInputStream(input));
+            while (true) {
+                int length;
+                int checksum;
+                byte[] payload;
+                try {
+                    length = in.readInt();
+                    checksum = in.readInt();
+                    if (length < 0 || length > file.length()) {
+                        LOGGER.warn("Journal segment " + file + " is corrupted, ignoring the rest of it");
+                        return;
+                    }
+                    payload = new byte[length];
+                    in.readFully(payload);
+                } catch (EOFException e) {
+                    return;
+                }
+                CRC32 crc = new CRC32();
+                crc.update(payload);
+                if ((int) crc.getValue() != checksum) {
+                    LOGGER.warn("Journal segment " + file + " is corrupted, ignoring the rest of it");
+                    return;
+                }
+                DataInputStream record = new DataInputStream(new ByteArrayInputStream(payload));
+                byte kind = record.readByte();
+                long sequence = record.readLong();
+                nextSequence = Math.max(nextSequence, sequence + 1);
+                if (kind == BEGIN) {
+                    String operation = record.readUTF();
+                    String type = record.readUTF();
+                    Map<String, String> keys = new LinkedHashMap<String, String>();
+                    for (int i = record.readShort(); i > 0; i--) {
+                        keys.put(record.readUTF(), record.readUTF());
+                    }
+                    open.put(sequence, new Intent(sequence, operation, type, keys));
+                } else if (kind == END) {
+                    open.remove(sequence);
+                }
+            }
+        } finally {
+            input.close();
+        }
+    }
+
+    /**
+     * Invoked from {@link Activator#destroy()} to flush the pending records
+     * and close the journal.
+     */
+    void close() {
+        if (current == this) {
+            current = null;
+        }
+        lock.lock();
+        try {
+            closed = true;
+            appended.signal();
+        } finally {
+            lock.unlock();
+        }
+        try {
+            flusher.join(5000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        try {
+            segment.close();
+        } catch (IOException e) {
+            LOGGER.error("Exception : " + e);
+        }
+    }
+}
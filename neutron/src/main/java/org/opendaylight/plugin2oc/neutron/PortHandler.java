@@ -11,8 +11,13 @@ package org.opendaylight.plugin2oc.neutron;
 import java.io.IOException;
 import java.net.HttpURLConnection;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.ReentrantLock;
 
 import net.juniper.contrail.api.ApiConnector;
 import net.juniper.contrail.api.ApiPropertyBase;
@@ -71,6 +76,9 @@ public class PortHandler implements INeutronPortAware {
             LOGGER.error("Port Name can't be empty/null...");
             return HttpURLConnection.HTTP_BAD_REQUEST;
         }
+        if (!StartupPreloader.isReady() || CircuitBreaker.isOpen()) {
+            return HttpURLConnection.HTTP_UNAVAILABLE;
+        }
         try {
             String portUUID = neutronPort.getPortUUID();
             String projectUUID = neutronPort.getTenantID();
@@ -112,42 +120,51 @@ public class PortHandler implements INeutronPortAware {
                 LOGGER.error("UUID input incorrect", ex);
                 return HttpURLConnection.HTTP_BAD_REQUEST;
             }
-            Project project = (Project) apiConnector.findById(Project.class, projectUUID);
+            Project project = ContrailReplica.awaitById(apiConnector, Project.class, projectUUID);
             if (project == null) {
-                try {
-                    Thread.currentThread();
-                    Thread.sleep(3000);
-                } catch (InterruptedException e) {
-                    LOGGER.error("InterruptedException :    ", e);
-                    return HttpURLConnection.HTTP_BAD_REQUEST;
-                }
-                project = (Project) apiConnector.findById(Project.class, projectUUID);
-                if (project == null) {
-                    LOGGER.error("Could not find projectUUID...");
-                    return HttpURLConnection.HTTP_NOT_FOUND;
-                }
+                LOGGER.error("Could not find projectUUID...");
+                return HttpURLConnection.HTTP_NOT_FOUND;
+            }
+            ObjectSummary virtualNetwork = ProjectedReads.summary(apiConnector, VirtualNetwork.class, networkUUID, false, "fq_name");
+            if (virtualNetwork == null || virtualNetwork.parentUuid == null) {
+                LOGGER.error("Could not find networkUUID...");
+                return HttpURLConnection.HTTP_NOT_FOUND;
             }
-            VirtualNetwork virtualNetwork = (VirtualNetwork) apiConnector.findById(VirtualNetwork.class, networkUUID);
-            if (!virtualNetwork.getParentUuid().matches(projectUUID)) {
+            if (!virtualNetwork.parentUuid.equals(projectUUID)) {
                 LOGGER.info("Port and Network should belong to same tenant...");
                 return HttpURLConnection.HTTP_BAD_REQUEST;
             }
-            VirtualMachineInterface virtualMAchineInterfaceByID = (VirtualMachineInterface)apiConnector.findById(VirtualMachineInterface.class, portUUID);
+            VirtualMachineInterface virtualMAchineInterfaceByID = ContrailReplica.findById(apiConnector,
+                    VirtualMachineInterface.class, portUUID, false);
             if (virtualMAchineInterfaceByID != null) {
                 LOGGER.warn("Port already exists with UUID : " + virtualMAchineInterfaceByID);
                 return HttpURLConnection.HTTP_FORBIDDEN;
             }
-            String virtualMAchineInterfaceByName = apiConnector.findByName(VirtualMachineInterface.class, project, neutronPort.getName());
+            String virtualMAchineInterfaceByName = NameIndex.findByName(apiConnector, VirtualMachineInterface.class, project,
+                    neutronPort.getName());
             if (virtualMAchineInterfaceByName != null) {
                 LOGGER.warn("Port already exists with Name : " + virtualMAchineInterfaceByName);
                 return HttpURLConnection.HTTP_FORBIDDEN;
             }
+            if (neutronPort.getFixedIPs() != null) {
+                for (Neutron_IPs ipValues : neutronPort.getFixedIPs()) {
+                    if (ipValues.getIpAddress() != null) {
+                        continue;
+                    }
+                    NeutronSubnet subnet = neutronSubnet(ipValues.getSubnetUUID());
+                    SubnetAddressAllocator allocator = subnet != null ? SubnetAddressAllocator.forSubnet(apiConnector, subnet, this) : null;
+                    if (allocator != null && allocator.freeCount() == 0) {
+                        LOGGER.error("No free address left in subnet : " + ipValues.getSubnetUUID());
+                        return HttpURLConnection.HTTP_CONFLICT;
+                    }
+                }
+            }
         } catch (IOException ie) {
             LOGGER.error("IOException :   " + ie);
-            return HttpURLConnection.HTTP_INTERNAL_ERROR;
+            return CircuitBreaker.statusOf(ie);
         } catch (Exception e) {
             LOGGER.error("Exception :   " + e);
-            return HttpURLConnection.HTTP_INTERNAL_ERROR;
+            return CircuitBreaker.statusOf(e);
         }
         return HttpURLConnection.HTTP_OK;
     }
@@ -165,10 +182,6 @@ public class PortHandler implements INeutronPortAware {
         String projectUUID = neutronPort.getTenantID();
         String portMACAddress = neutronPort.getMacAddress();
         String portName = neutronPort.getName();
-        VirtualMachineInterface virtualMachineInterface = null;
-        VirtualMachine virtualMachine = null;
-        VirtualNetwork virtualNetwork = null;
-        Project project = null;
         MacAddressesType macAddressesType = new MacAddressesType();
         try {
             if (!(networkUUID.contains("-"))) {
@@ -192,72 +205,228 @@ public class PortHandler implements INeutronPortAware {
         } catch (Exception ex) {
             LOGGER.error("UUID input incorrect", ex);
         }
-        try {
-            LOGGER.info("portId:    " + portUUID);
-            if (deviceUUID != null && !(("").equals(deviceUUID))) {
-                virtualMachine = (VirtualMachine) apiConnector.findById(VirtualMachine.class, deviceUUID);
-                LOGGER.debug("virtualMachine:   " + virtualMachine);
-                if (virtualMachine == null) {
-                    virtualMachine = new VirtualMachine();
-                    virtualMachine.setName(deviceUUID);
-                    virtualMachine.setUuid(deviceUUID);
-                    boolean virtualMachineCreated = apiConnector.create(virtualMachine);
-                    LOGGER.debug("virtualMachineCreated: " + virtualMachineCreated);
-                    if (!virtualMachineCreated) {
-                        LOGGER.warn("virtualMachine creation failed..");
+        LOGGER.info("portId:    " + portUUID);
+        final VirtualMachineInterface virtualMachineInterface = new VirtualMachineInterface();
+        virtualMachineInterface.setUuid(portUUID);
+        virtualMachineInterface.setName(portName);
+        virtualMachineInterface.setDisplayName(portName);
+        macAddressesType.addMacAddress(portMACAddress);
+        virtualMachineInterface.setMacAddresses(macAddressesType);
+        final AtomicReference<VirtualNetwork> virtualNetwork = new AtomicReference<VirtualNetwork>();
+        // the virtual machine and the parents are looked up in parallel, the
+        // instance IPs created in parallel once the interface is
+        DagExecutor dag = new DagExecutor();
+        List<String> interfaceDependencies = new ArrayList<String>();
+        if (deviceUUID != null && !(("").equals(deviceUUID))) {
+            final String virtualMachineUUID = deviceUUID;
+            dag.add("virtual-machine", new Callable<Integer>() {
+                @Override
+                public Integer call() throws IOException {
+                    VirtualMachine virtualMachine = (VirtualMachine) apiConnector.findById(VirtualMachine.class, virtualMachineUUID);
+                    LOGGER.debug("virtualMachine:   " + virtualMachine);
+                    if (virtualMachine == null) {
+                        virtualMachine = new VirtualMachine();
+                        virtualMachine.setName(virtualMachineUUID);
+                        virtualMachine.setUuid(virtualMachineUUID);
+                        boolean virtualMachineCreated = IdempotentExecutor.create(apiConnector, virtualMachine);
+                        LOGGER.debug("virtualMachineCreated: " + virtualMachineCreated);
+                        if (!virtualMachineCreated) {
+                            LOGGER.warn("virtualMachine creation failed..");
+                            return HttpURLConnection.HTTP_INTERNAL_ERROR;
+                        }
+                        LOGGER.info("virtualMachine : " + virtualMachine.getName() + "  having UUID : " + virtualMachine.getUuid()
+                                + "  sucessfully created...");
                     }
-                    LOGGER.info("virtualMachine : " + virtualMachine.getName() + "  having UUID : " + virtualMachine.getUuid()
-                            + "  sucessfully created...");
+                    virtualMachineInterface.setVirtualMachine(virtualMachine);
+                    return HttpURLConnection.HTTP_OK;
                 }
+            }, Collections.<String> emptyList());
+            interfaceDependencies.add("virtual-machine");
+        }
+        final String parentUUID = projectUUID;
+        final String virtualNetworkUUID = networkUUID;
+        dag.add("parents", new Callable<Integer>() {
+            @Override
+            public Integer call() throws IOException {
+                Project project = (Project) apiConnector.findById(Project.class, parentUUID);
+                virtualNetwork.set((VirtualNetwork) apiConnector.findById(VirtualNetwork.class, virtualNetworkUUID));
+                LOGGER.debug("virtualNetwork: " + virtualNetwork.get());
+                virtualMachineInterface.setParent(project);
+                virtualMachineInterface.setVirtualNetwork(virtualNetwork.get());
+                return HttpURLConnection.HTTP_OK;
             }
-            project = (Project) apiConnector.findById(Project.class, projectUUID);
-            virtualNetwork = (VirtualNetwork) apiConnector.findById(VirtualNetwork.class, networkUUID);
-            LOGGER.debug("virtualNetwork: " + virtualNetwork);
-            virtualMachineInterface = new VirtualMachineInterface();
-            virtualMachineInterface.setUuid(portUUID);
-            virtualMachineInterface.setName(portName);
-            virtualMachineInterface.setDisplayName(portName);
-            virtualMachineInterface.setParent(project);
-            virtualMachineInterface.setVirtualNetwork(virtualNetwork);
-            macAddressesType.addMacAddress(portMACAddress);
-            virtualMachineInterface.setMacAddresses(macAddressesType);
-            if (deviceUUID != null && !(("").equals(deviceUUID))) {
-                virtualMachineInterface.setVirtualMachine(virtualMachine);
-            }
-            boolean virtualMachineInterfaceCreated = apiConnector.create(virtualMachineInterface);
-            if (!virtualMachineInterfaceCreated) {
-                LOGGER.warn("actual virtualMachineInterface creation failed..");
-            }
-            LOGGER.info("virtualMachineInterface : " + virtualMachineInterface.getName() + "  having UUID : " + virtualMachineInterface.getUuid()
-                    + "  sucessfully created...");
-            List<Neutron_IPs> ips = neutronPort.getFixedIPs();
-            if (ips != null) {
-                for (Neutron_IPs ipValues : ips) {
-                    INeutronSubnetCRUD systemCRUD = NeutronCRUDInterfaces.getINeutronSubnetCRUD(this);
-                    NeutronSubnet subnet = null;
+        }, Collections.<String> emptyList());
+        interfaceDependencies.add("parents");
+        dag.add("virtual-machine-interface", new Callable<Integer>() {
+            @Override
+            public Integer call() throws IOException {
+                boolean virtualMachineInterfaceCreated = IdempotentExecutor.create(apiConnector, virtualMachineInterface);
+                if (!virtualMachineInterfaceCreated) {
+                    LOGGER.warn("actual virtualMachineInterface creation failed..");
+                    return HttpURLConnection.HTTP_INTERNAL_ERROR;
+                }
+                LOGGER.info("virtualMachineInterface : " + virtualMachineInterface.getName() + "  having UUID : "
+                        + virtualMachineInterface.getUuid() + "  sucessfully created...");
+                return HttpURLConnection.HTTP_CREATED;
+            }
+        }, interfaceDependencies);
+        final List<Neutron_IPs> ips = neutronPort.getFixedIPs() != null ? neutronPort.getFixedIPs() : Collections.<Neutron_IPs> emptyList();
+        // the addresses are picked before anything is created, so that no
+        // interface is left without its instance IPs on an exhausted subnet
+        final boolean[] picked = new boolean[ips.size()];
+        for (int i = 0; i < ips.size(); i++) {
+            Neutron_IPs ipValues = ips.get(i);
+            if (ipValues.getIpAddress() != null) {
+                SubnetAddressAllocator.claimed(ipValues.getSubnetUUID(), ipValues.getIpAddress());
+                continue;
+            }
+            String address = nextAddress(neutronSubnet(ipValues.getSubnetUUID()));
+            if (address == null) {
+                LOGGER.error("Port " + portUUID + " not created, no free address left in subnet : " + ipValues.getSubnetUUID());
+                releasePicked(ips, picked);
+                return;
+            }
+            ipValues.setIpAddress(address);
+            picked[i] = true;
+        }
+        for (int i = 0; i < ips.size(); i++) {
+            final Neutron_IPs ipValues = ips.get(i);
+            dag.add("instance-ip-" + i, new Callable<Integer>() {
+                @Override
+                public Integer call() throws IOException {
                     InstanceIp instanceIp = new InstanceIp();
                     String instaneIpUuid = UUID.randomUUID().toString();
-                    if (ipValues.getIpAddress() == null) {
-                        subnet = systemCRUD.getSubnet(ipValues.getSubnetUUID());
-                        instanceIp.setAddress(subnet.getLowAddr());
-                    } else {
-                        instanceIp.setAddress(ipValues.getIpAddress());
-                    }
+                    instanceIp.setAddress(ipValues.getIpAddress());
                     instanceIp.setName(instaneIpUuid);
                     instanceIp.setUuid(instaneIpUuid);
                     instanceIp.setParent(virtualMachineInterface);
                     instanceIp.setVirtualMachineInterface(virtualMachineInterface);
-                    instanceIp.setVirtualNetwork(virtualNetwork);
+                    instanceIp.setVirtualNetwork(virtualNetwork.get());
 
-                    boolean instanceIpCreated = apiConnector.create(instanceIp);
+                    boolean instanceIpCreated = IdempotentExecutor.create(apiConnector, instanceIp);
                     if (!instanceIpCreated) {
                         LOGGER.warn("instanceIp addition failed..");
+                        return HttpURLConnection.HTTP_INTERNAL_ERROR;
                     }
                     LOGGER.info("Instance IP " + instanceIp.getAddress() + " added sucessfully...");
+                    return HttpURLConnection.HTTP_CREATED;
+                }
+            }, Collections.singletonList("virtual-machine-interface"));
+        }
+        try {
+            Map<String, Integer> steps = dag.run();
+            for (Map.Entry<String, Integer> step : steps.entrySet()) {
+                if (step.getValue() >= HttpURLConnection.HTTP_MULT_CHOICE) {
+                    LOGGER.warn("Port " + portUUID + " : " + step.getKey() + " not created, HTTP " + step.getValue());
                 }
             }
-        } catch (IOException ie) {
-            LOGGER.error("IOException :    ", ie);
+            for (int i = 0; i < ips.size(); i++) {
+                Integer status = steps.get("instance-ip-" + i);
+                if (status != null && (status == HttpURLConnection.HTTP_INTERNAL_ERROR || status == HttpURLConnection.HTTP_UNAVAILABLE
+                        || status == DagExecutor.FAILED_DEPENDENCY)) {
+                    if (!picked[i]) {
+                        SubnetAddressAllocator.released(ips.get(i).getSubnetUUID(), ips.get(i).getIpAddress());
+                    }
+                } else {
+                    picked[i] = false;
+                }
+            }
+            releasePicked(ips, picked);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            LOGGER.error("InterruptedException :    ", e);
+        }
+    }
+
+    /**
+     * Invoked to return the addresses picked for a port which is not
+     * created.
+     */
+    private void releasePicked(List<Neutron_IPs> ips, boolean[] picked) {
+        for (int i = 0; i < picked.length; i++) {
+            if (picked[i]) {
+                releaseAddress(ips.get(i).getSubnetUUID(), ips.get(i).getIpAddress());
+                ips.get(i).setIpAddress(null);
+            }
+        }
+    }
+
+    /**
+     * @return The Neutron subnet CRUD service the addresses of the fixed IPs
+     *         are tracked in.
+     */
+    INeutronSubnetCRUD subnetCRUD() {
+        return NeutronCRUDInterfaces.getINeutronSubnetCRUD(this);
+    }
+
+    /**
+     * @return The Neutron subnet, or null if it is unknown.
+     */
+    private NeutronSubnet neutronSubnet(String subnetUUID) {
+        INeutronSubnetCRUD systemCRUD = subnetCRUD();
+        return systemCRUD != null && subnetUUID != null ? systemCRUD.getSubnet(subnetUUID) : null;
+    }
+
+    /**
+     * Invoked to pick the address of a fixed IP requested without one. The
+     * address is allocated in the Neutron subnet as well, and addresses the
+     * Neutron subnet already has in use are skipped.
+     *
+     * @param subnet
+     *            An instance of the Neutron subnet of the fixed IP.
+     *
+     * @return A free address of the subnet, or null if its pools are
+     *         exhausted or the subnet is unknown.
+     */
+    private String nextAddress(NeutronSubnet subnet) {
+        if (subnet == null) {
+            return null;
+        }
+        SubnetAddressAllocator allocator = SubnetAddressAllocator.forSubnet(apiConnector, subnet, this);
+        ReentrantLock lock = SubnetAddressAllocator.lockOf(subnet.getSubnetUUID());
+        lock.lock();
+        try {
+            if (allocator == null) {
+                // IPv6 and oversized pools are not tracked locally
+                String address = subnet.getLowAddr();
+                if (address != null) {
+                    subnet.allocateIP(address);
+                }
+                return address;
+            }
+            while (true) {
+                String address = allocator.allocate();
+                if (address == null || !subnet.isIPInUse(address)) {
+                    if (address != null) {
+                        subnet.allocateIP(address);
+                    }
+                    return address;
+                }
+                // in use in Neutron, the address stays claimed locally
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Invoked to return the address of a removed or never created instance
+     * IP to its subnet.
+     */
+    private void releaseAddress(String subnetUUID, String address) {
+        if (subnetUUID == null || address == null) {
+            return;
+        }
+        SubnetAddressAllocator.released(subnetUUID, address);
+        NeutronSubnet subnet = neutronSubnet(subnetUUID);
+        if (subnet != null) {
+            ReentrantLock lock = SubnetAddressAllocator.lockOf(subnetUUID);
+            lock.lock();
+            try {
+                subnet.releaseIP(address);
+            } finally {
+                lock.unlock();
+            }
         }
     }
 
@@ -269,6 +438,8 @@ public class PortHandler implements INeutronPortAware {
      */
     @Override
     public void neutronPortCreated(NeutronPort neutronPort) {
+        long intent = OperationJournal.begin(OperationJournal.CREATE, OperationJournal.PORT,
+                neutronPort.getPortUUID(), "device", neutronPort.getDeviceID());
         try {
             createPort(neutronPort);
             String portUUID = neutronPort.getPortUUID();
@@ -284,6 +455,7 @@ public class PortHandler implements INeutronPortAware {
         } catch (Exception ex) {
             LOGGER.error("Exception :    " + ex);
         }
+        OperationJournal.done(intent);
     }
 
     /**
@@ -301,22 +473,23 @@ public class PortHandler implements INeutronPortAware {
             return HttpURLConnection.HTTP_BAD_REQUEST;
         }
         apiConnector = Activator.apiConnector;
+        if (!StartupPreloader.isReady() || CircuitBreaker.isOpen()) {
+            return HttpURLConnection.HTTP_UNAVAILABLE;
+        }
         String portUUID = neutronPort.getPortUUID();
         if (!(portUUID.contains("-"))) {
             portUUID = Utils.uuidFormater(portUUID);
         }
         portUUID = UUID.fromString(portUUID).toString();
         try {
-            VirtualMachineInterface virtualMachineInterface = (VirtualMachineInterface) apiConnector
-                    .findById(VirtualMachineInterface.class, portUUID);
+            ObjectSummary virtualMachineInterface = ProjectedReads.summary(apiConnector, VirtualMachineInterface.class, portUUID, true,
+                    "floating_ip_back_refs");
 
             if (virtualMachineInterface == null) {
                 LOGGER.error("No port exists for specified UUID...");
                 return HttpURLConnection.HTTP_NOT_FOUND;
             } else {
-                List<ObjectReference<ApiPropertyBase>> vmi = new ArrayList<ObjectReference<ApiPropertyBase>>();
-                vmi = virtualMachineInterface.getFloatingIpBackRefs();
-                if (vmi != null) {
+                if (virtualMachineInterface.has("floating_ip_back_refs")) {
                     LOGGER.info("Port has floating Ip associated with it...");
                     return HttpURLConnection.HTTP_BAD_REQUEST;
                 }
@@ -324,7 +497,7 @@ public class PortHandler implements INeutronPortAware {
             }
         } catch (Exception ioEx) {
             LOGGER.error("IOException :   ", ioEx);
-            return HttpURLConnection.HTTP_INTERNAL_ERROR;
+            return CircuitBreaker.statusOf(ioEx);
         }
     }
 
@@ -368,6 +541,11 @@ public class PortHandler implements INeutronPortAware {
                 }
             }
             apiConnector.delete(virtualMachineInterface);
+            if (neutronPort.getFixedIPs() != null) {
+                for (Neutron_IPs fixedIp : neutronPort.getFixedIPs()) {
+                    releaseAddress(fixedIp.getSubnetUUID(), fixedIp.getIpAddress());
+                }
+            }
             virtualMachine = (VirtualMachine) apiConnector.findById(VirtualMachine.class, deviceUUID);
             if (virtualMachine != null) {
                 virtualMachineInterfaceBackRefs = virtualMachine.getVirtualMachineInterfaceBackRefs();
@@ -391,6 +569,8 @@ public class PortHandler implements INeutronPortAware {
      */
     @Override
     public void neutronPortDeleted(NeutronPort neutronPort) {
+        long intent = OperationJournal.begin(OperationJournal.DELETE, OperationJournal.PORT,
+                neutronPort.getPortUUID(), "device", neutronPort.getDeviceID());
         try {
             deletePort(neutronPort);
             String portUUID = neutronPort.getPortUUID();
@@ -408,6 +588,7 @@ public class PortHandler implements INeutronPortAware {
         } catch (Exception e) {
             LOGGER.error("Exception :    " + e);
         }
+        OperationJournal.done(intent);
     }
 
     /**
@@ -432,6 +613,9 @@ public class PortHandler implements INeutronPortAware {
             LOGGER.error("MAC Address for the port can't be updated..");
             return HttpURLConnection.HTTP_BAD_REQUEST;
         }
+        if (!StartupPreloader.isReady() || CircuitBreaker.isOpen()) {
+            return HttpURLConnection.HTTP_UNAVAILABLE;
+        }
         try {
             String portUUID = originalPort.getPortUUID();
             String networkUUID = deltaPort.getNetworkUUID();
@@ -445,62 +629,64 @@ public class PortHandler implements INeutronPortAware {
                 projectUUID = Utils.uuidFormater(projectUUID);
             }
             projectUUID = UUID.fromString(projectUUID).toString();
-            Project project = (Project) apiConnector.findById(Project.class, projectUUID);
+            Project project = ContrailReplica.findById(apiConnector, Project.class, projectUUID, false);
             VirtualMachineInterface virtualMachineInterface = (VirtualMachineInterface) apiConnector
                     .findById(VirtualMachineInterface.class, portUUID);
             if (virtualMachineInterface == null) {
                 LOGGER.error("No port exists for specified UUID...");
                 return HttpURLConnection.HTTP_NOT_FOUND;
             }
-            String virtualMachineInterfaceByName = apiConnector.findByName(VirtualMachineInterface.class, project, deltaPort.getName());
+            String virtualMachineInterfaceByName = NameIndex.findByName(apiConnector, VirtualMachineInterface.class, project,
+                    deltaPort.getName());
             if (virtualMachineInterfaceByName != null) {
                 LOGGER.warn("Port already exists with UUID : " + virtualMachineInterfaceByName);
                 return HttpURLConnection.HTTP_FORBIDDEN;
             }
-            if (networkUUID != null && !(("").equals(networkUUID))) {
-                if (!(networkUUID.contains("-"))) {
-                    networkUUID = Utils.uuidFormater(networkUUID);
-                }
-                networkUUID = UUID.fromString(networkUUID).toString();
-            }
-            VirtualNetwork virtualnetwork = (VirtualNetwork) apiConnector.findById(VirtualNetwork.class, networkUUID);
             if (networkUUID != null && fixedIPs == null) {
                 LOGGER.error("Subnet UUID must exist in the network..");
                 return HttpURLConnection.HTTP_BAD_REQUEST;
             }
             if (fixedIPs != null) {
-                if (virtualnetwork.getNetworkIpam() != null) {
-                    for (Neutron_IPs fixedIp : fixedIPs) {
-                        for (ObjectReference<VnSubnetsType> ref : virtualnetwork.getNetworkIpam()) {
-                            VnSubnetsType vnSubnetsType = ref.getAttr();
-                            if (vnSubnetsType != null) {
-                                List<VnSubnetsType.IpamSubnetType> subnets = vnSubnetsType.getIpamSubnets();
-                                if (subnets != null) {
-                                    for (VnSubnetsType.IpamSubnetType subnetValue : subnets) {
-                                        String subnetUUID = fixedIp.getSubnetUUID();
-                                        if (!(subnetUUID.contains("-"))) {
-                                            subnetUUID = Utils.uuidFormater(subnetUUID);
-                                        }
-                                        subnetUUID = UUID.fromString(subnetUUID).toString();
-                                        Boolean doesSubnetExist = subnetValue.getSubnetUuid().matches(subnetUUID);
-                                        if (!doesSubnetExist) {
-                                            LOGGER.error("Subnet UUID must exist in the network..");
-                                            return HttpURLConnection.HTTP_BAD_REQUEST;
-                                        }
-                                    }
-                                }
-                            }
-                        }
+                // the delta only carries the network when it changes
+                if (networkUUID == null || ("").equals(networkUUID)) {
+                    networkUUID = originalPort.getNetworkUUID();
+                }
+                if (!(networkUUID.contains("-"))) {
+                    networkUUID = Utils.uuidFormater(networkUUID);
+                }
+                networkUUID = UUID.fromString(networkUUID).toString();
+                NetworkSubnetIndex subnetIndex = NetworkSubnetIndex.forNetwork(apiConnector, networkUUID);
+                if (subnetIndex == null) {
+                    LOGGER.error("No network exists for the specified UUID...");
+                    return HttpURLConnection.HTTP_NOT_FOUND;
+                }
+                for (Neutron_IPs fixedIp : fixedIPs) {
+                    String subnetUUID = fixedIp.getSubnetUUID();
+                    if (subnetUUID == null) {
+                        LOGGER.error("Subnet UUID must exist in the network..");
+                        return HttpURLConnection.HTTP_BAD_REQUEST;
+                    }
+                    if (!(subnetUUID.contains("-"))) {
+                        subnetUUID = Utils.uuidFormater(subnetUUID);
+                    }
+                    subnetUUID = UUID.fromString(subnetUUID).toString();
+                    if (!subnetIndex.hasSubnet(subnetUUID)) {
+                        LOGGER.error("Subnet UUID must exist in the network..");
+                        return HttpURLConnection.HTTP_BAD_REQUEST;
+                    }
+                    if (fixedIp.getIpAddress() != null && !subnetIndex.contains(subnetUUID, fixedIp.getIpAddress())) {
+                        LOGGER.error("Fixed IP " + fixedIp.getIpAddress() + " is not in subnet " + subnetIndex.cidr(subnetUUID));
+                        return HttpURLConnection.HTTP_BAD_REQUEST;
                     }
                 }
             }
             return HttpURLConnection.HTTP_OK;
         } catch (IOException ie) {
             LOGGER.error("IOException:     " + ie);
-            return HttpURLConnection.HTTP_INTERNAL_ERROR;
+            return CircuitBreaker.statusOf(ie);
         } catch (Exception e) {
             LOGGER.error("Exception:     " + e);
-            return HttpURLConnection.HTTP_INTERNAL_ERROR;
+            return CircuitBreaker.statusOf(e);
         }
     }
 
@@ -555,22 +741,27 @@ public class PortHandler implements INeutronPortAware {
                                         Boolean doesSubnetExist = subnetValue.getSubnetUuid().matches(subnetUUID);
                                         if (doesSubnetExist) {
                                             // subnetExist = true;
+                                            List<InstanceIp> instanceIps = new ArrayList<InstanceIp>();
                                             for (ObjectReference<ApiPropertyBase> instanceIp : virtualMachineInterface.getInstanceIpBackRefs()) {
                                                 InstanceIp instanceIpLocal = (InstanceIp) apiConnector.findById(InstanceIp.class,
                                                         instanceIp.getUuid());
                                                 instanceIpLocal.setVirtualNetwork(virtualnetwork);
-                                                INeutronSubnetCRUD systemCRUD = NeutronCRUDInterfaces.getINeutronSubnetCRUD(this);
-                                                NeutronSubnet subnet = null;
-                                                for (Neutron_IPs ip : neutronPort.getFixedIPs()) {
-                                                    subnet = systemCRUD.getSubnet(ip.getSubnetUUID());
-                                                    subnet.releaseIP(ip.getIpAddress());
-                                                }
-                                                if (fixedIp.getIpAddress() == null) {
-                                                    subnet = systemCRUD.getSubnet(fixedIp.getSubnetUUID());
-                                                    instanceIpLocal.setAddress(subnet.getLowAddr());
-                                                } else {
-                                                    instanceIpLocal.setAddress(fixedIp.getIpAddress());
+                                                releaseAddress(fixedIp.getSubnetUUID(), instanceIpLocal.getAddress());
+                                                instanceIps.add(instanceIpLocal);
+                                            }
+                                            // the new address is taken once the old ones are returned
+                                            String address = fixedIp.getIpAddress();
+                                            if (address == null) {
+                                                address = nextAddress(neutronSubnet(fixedIp.getSubnetUUID()));
+                                                if (address == null) {
+                                                    LOGGER.error("Port " + portUUID + " not updated, no free address left in subnet : " + fixedIp.getSubnetUUID());
+                                                    continue;
                                                 }
+                                            } else {
+                                                SubnetAddressAllocator.claimed(fixedIp.getSubnetUUID(), address);
+                                            }
+                                            for (InstanceIp instanceIpLocal : instanceIps) {
+                                                instanceIpLocal.setAddress(address);
                                                 instanceIpUpdate = apiConnector.update(instanceIpLocal);
                                                 virtualMachineInterface.setVirtualNetwork(virtualnetwork);
                                             }
@@ -616,7 +807,7 @@ public class PortHandler implements INeutronPortAware {
             }
             if ((deviceUUID != null && !(("").equals(deviceUUID))) || portName != null || instanceIpUpdate) {
                 if ((deviceUUID != null && !(("").equals(deviceUUID))) || portName != null) {
-                    boolean portUpdate = apiConnector.update(virtualMachineInterface);
+                    boolean portUpdate = IdempotentExecutor.update(apiConnector, virtualMachineInterface);
                     if (!portUpdate) {
                         LOGGER.warn("Port Updation failed..");
                     }
@@ -638,6 +829,8 @@ public class PortHandler implements INeutronPortAware {
      */
     @Override
     public void neutronPortUpdated(NeutronPort updatedPort) {
+        long intent = OperationJournal.begin(OperationJournal.UPDATE, OperationJournal.PORT,
+                updatedPort.getPortUUID(), "device", updatedPort.getDeviceID());
         String deviceUUID = updatedPort.getDeviceID();
         String portUUID = updatedPort.getPortUUID();
         try {
@@ -674,5 +867,6 @@ public class PortHandler implements INeutronPortAware {
         } catch (Exception ex) {
             LOGGER.error("Exception :" + ex);
         }
+        OperationJournal.done(intent);
     }
 }
\ No newline at end of file
@@ -0,0 +1,345 @@
+/*
+ * Copyright (C) 2014 Juniper Networks, Inc.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ *
+ */
+package org.opendaylight.plugin2oc.neutron;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+
+import net.juniper.contrail.api.ApiConnector;
+import net.juniper.contrail.api.ApiObjectBase;
+import net.juniper.contrail.api.ApiSerializer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.google.gson.stream.JsonReader;
+
+/**
+ * Reads Contrail objects with only the fields a validation looks at. The
+ * connector always fetches the whole object, and a virtual network with its
+ * IPAM subnets and back-refs can weigh several hundred KB, whereas checking
+ * that a port can be deleted only needs its floating IP back-refs. The config
+ * API server accepts a fields parameter on a read, so these lookups are sent
+ * to it directly and the smaller answer is decoded as it streams in into an
+ * {@link ObjectSummary}.
+ *
+ * A projected read is never put in the {@link ContrailReplica}, where a full
+ * object is expected, but a non strict read summarizes the replica of the
+ * object when there is one. Without a configured API server, or when none of
+ * them answers, the lookup falls back to a full read through the connector.
+ *
+ * The {@link StartupPreloader} lists whole objects the same way, a page at a
+ * time, rather than listing a type and reading its objects one by one.
+ *
+ * The reads sent directly count against the {@link CircuitBreaker} and its
+ * limit on the calls in flight like the calls of the connector, and skip the
+ * nodes of the {@link ApiEndpointPool} taken out of rotation.
+ */
+final class ProjectedReads {
+    static final Logger LOGGER = LoggerFactory.getLogger(ProjectedReads.class);
+    static final String ENABLED_PROPERTY = "plugin2oc.projection.enabled";
+    static final String TIMEOUT_PROPERTY = "plugin2oc.projection.timeout";
+    private static final String TYPES_PACKAGE = "net.juniper.contrail.api.types.";
+
+    private static volatile List<String> servers = Collections.emptyList();
+    private static volatile ApiEndpointPool pool = null;
+
+    private ProjectedReads() {
+    }
+
+    /**
+     * A page of a detailed listing.
+     */
+    static final class Page {
+        final List<ApiObjectBase> objects = new ArrayList<ApiObjectBase>();
+        int size;
+        String marker;
+    }
+
+    /**
+     * Invoked from {@link Activator#getApiConnection()} with the config API
+     * servers, as host:port, to send the projected reads to. They are tried
+     * in order. Addresses without a host or a valid port are left out.
+     */
+    static void configure(List<String> addresses) {
+        pool = null;
+        List<String> valid = new ArrayList<String>();
+        if (Boolean.parseBoolean(System.getProperty(ENABLED_PROPERTY, "true")) && addresses != null) {
+            for (String address : addresses) {
+                if (isAddress(address)) {
+                    valid.add(address);
+                } else {
+                    LOGGER.error("Invalid Contrail API server for projected reads : " + address);
+                }
+            }
+        }
+        servers = Collections.unmodifiableList(valid);
+    }
+
+    /**
+     * Invoked from {@link Activator#getApiConnection()} when the connector
+     * spreads its calls over a pool, the projected reads then go to the nodes
+     * of the pool still in rotation.
+     */
+    static void configurePool(ApiEndpointPool apiEndpointPool) {
+        List<String> addresses = new ArrayList<String>();
+        for (ApiEndpointPool.Endpoint endpoint : apiEndpointPool.endpoints()) {
+            addresses.add(endpoint.address);
+        }
+        configure(addresses);
+        pool = apiEndpointPool;
+    }
+
+    /**
+     * @return The config API servers, as host:port, empty if none is
+     *         configured, leaving out the nodes of the pool out of rotation.
+     */
+    static List<String> servers() {
+        ApiEndpointPool apiEndpointPool = pool;
+        if (apiEndpointPool == null) {
+            return servers;
+        }
+        List<String> healthy = new ArrayList<String>();
+        for (ApiEndpointPool.Endpoint endpoint : apiEndpointPool.endpoints()) {
+            if (endpoint.healthy && servers.contains(endpoint.address)) {
+                healthy.add(endpoint.address);
+            }
+        }
+        return healthy;
+    }
+
+    /**
+     * @return true if the address is a host:port with a port in range.
+     */
+    static boolean isAddress(String address) {
+        int colon = address != null ? address.lastIndexOf(':') : -1;
+        if (colon <= 0 || ("null").equals(address.substring(0, colon))) {
+            return false;
+        }
+        try {
+            int port = Integer.parseInt(address.substring(colon + 1));
+            return port > 0 && port <= 65535;
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Invoked to read the specified fields of an object.
+     *
+     * @param strict
+     *            false to summarize the object held by the
+     *            {@link ContrailReplica} if there is one.
+     * @param fields
+     *            The properties, refs, back-refs or children to read, named as
+     *            in the API (e.g. floating_ip_back_refs). The UUID, name,
+     *            qualified name and parent are always returned.
+     *
+     * @return The summary of the object, null if there is no object with this
+     *         UUID.
+     */
+    static ObjectSummary summary(ApiConnector apiConnector, Class<? extends ApiObjectBase> cls, String uuid, boolean strict,
+            String... fields) throws IOException {
+        if (!strict) {
+            ApiObjectBase cached = ContrailReplica.cached(apiConnector, cls, uuid);
+            if (cached != null) {
+                return ObjectSummary.of(cached);
+            }
+        }
+        final String path = path(cls, uuid, fields);
+        for (final String server : servers()) {
+            try {
+                return CircuitBreaker.call(new Callable<ObjectSummary>() {
+                    @Override
+                    public ObjectSummary call() throws IOException {
+                        return read(server, path);
+                    }
+                });
+            } catch (IOException e) {
+                LOGGER.debug("Projected read of " + path + " from " + server + " failed : " + e);
+            } catch (IllegalStateException e) {
+                LOGGER.debug("Projected read of " + path + " could not be decoded : " + e);
+                break;
+            }
+        }
+        return ObjectSummary.of(apiConnector.findById(cls, uuid));
+    }
+
+    /**
+     * Invoked to list a page of whole objects of a type.
+     *
+     * @param limit
+     *            The number of objects of a page.
+     * @param marker
+     *            The UUID of the last object of the previous page, null for
+     *            the first page.
+     *
+     * @return The page, its marker being the UUID of its last object.
+     *
+     * @throws IOException
+     *             if no API server is configured or none of them answered.
+     */
+    static Page page(final Class<? extends ApiObjectBase> cls, int limit, String marker) throws IOException {
+        StringBuilder path = new StringBuilder("/").append(typeName(cls)).append("s?detail=true&page_limit=").append(limit);
+        if (marker != null) {
+            path.append("&page_marker=").append(marker);
+        }
+        final String listPath = path.toString();
+        IOException failure = new IOException("No Contrail API server configured for the listing of " + listPath);
+        for (final String server : servers()) {
+            try {
+                return CircuitBreaker.listing(new Callable<Page>() {
+                    @Override
+                    public Page call() throws IOException {
+                        return readPage(server, listPath, cls);
+                    }
+                });
+            } catch (IOException e) {
+                LOGGER.debug("Listing of " + listPath + " from " + server + " failed : " + e);
+                failure = e;
+            }
+        }
+        throw failure;
+    }
+
+    /**
+     * Invoked to send a listing to a server and decode the objects of its
+     * answer one at a time.
+     */
+    @SuppressWarnings("deprecation")
+    private static Page readPage(String server, String path, Class<? extends ApiObjectBase> cls) throws IOException {
+        Page page = new Page();
+        HttpURLConnection connection = open(server, path);
+        if (connection == null) {
+            return page;
+        }
+        String typeName = typeName(cls);
+        JsonReader in = new JsonReader(new InputStreamReader(connection.getInputStream(), "UTF-8"));
+        try {
+            JsonParser parser = new JsonParser();
+            in.beginObject();
+            while (in.hasNext()) {
+                if (!(typeName + "s").equals(in.nextName())) {
+                    in.skipValue();
+                    continue;
+                }
+                in.beginArray();
+                while (in.hasNext()) {
+                    JsonElement element = parser.parse(in);
+                    page.size++;
+                    JsonElement fields = element.isJsonObject() ? element.getAsJsonObject().get(typeName) : null;
+                    if (fields != null && fields.isJsonObject() && ((JsonObject) fields).has("uuid")) {
+                        page.marker = ((JsonObject) fields).get("uuid").getAsString();
+                    }
+                    ApiObjectBase object = ApiSerializer.deserialize(element.toString(), cls);
+                    if (object != null) {
+                        page.objects.add(object);
+                    }
+                }
+                in.endArray();
+            }
+            in.endObject();
+        } catch (RuntimeException e) {
+            throw new IOException("Listing " + path + " could not be decoded : " + e);
+        } finally {
+            in.close();
+        }
+        return page;
+    }
+
+    /**
+     * Invoked to send a read to a server and decode its answer.
+     *
+     * @return The summary of the object, null if it does not exist.
+     */
+    private static ObjectSummary read(String server, String path) throws IOException {
+        HttpURLConnection connection = open(server, path);
+        if (connection == null) {
+            return null;
+        }
+        Reader in = new InputStreamReader(connection.getInputStream(), "UTF-8");
+        try {
+            return ObjectSummary.decode(in);
+        } finally {
+            in.close();
+        }
+    }
+
+    /**
+     * @return The path of the read of the specified fields of an object.
+     */
+    static String path(Class<? extends ApiObjectBase> cls, String uuid, String... fields) {
+        StringBuilder path = new StringBuilder("/").append(typeName(cls)).append('/').append(uuid);
+        path.append("?exclude_children=true&exclude_back_refs=true");
+        if (fields.length > 0) {
+            path.append("&fields=");
+            for (int i = 0; i < fields.length; i++) {
+                path.append(i == 0 ? "" : ",").append(fields[i]);
+            }
+        }
+        return path.toString();
+    }
+
+    /**
+     * @return The name of a type in the API paths, e.g. virtual-network for
+     *         VirtualNetwork or for a subclass of it.
+     */
+    static String typeName(Class<?> cls) {
+        while (cls.getSuperclass() != null && !cls.getName().startsWith(TYPES_PACKAGE)) {
+            cls = cls.getSuperclass();
+        }
+        String name = cls.getSimpleName();
+        StringBuilder typeName = new StringBuilder();
+        for (int i = 0; i < name.length(); i++) {
+            char c = name.charAt(i);
+            if (Character.isUpperCase(c) && i > 0) {
+                typeName.append('-');
+            }
+            typeName.append(Character.toLowerCase(c));
+        }
+        return typeName.toString();
+    }
+
+    /**
+     * Invoked to send a read. The body is streamed from the returned
+     * connection, which is kept alive for the next read once the body is
+     * closed.
+     *
+     * @return The connection, null if the object does not exist.
+     *
+     * @throws IOException
+     *             if the server could not be reached or failed the read.
+     */
+    private static HttpURLConnection open(String server, String path) throws IOException {
+        int timeout = Integer.getInteger(TIMEOUT_PROPERTY, 5000);
+        HttpURLConnection connection = (HttpURLConnection) new URL("http://" + server + path).openConnection();
+        connection.setConnectTimeout(timeout);
+        connection.setReadTimeout(timeout);
+        connection.setRequestProperty("Accept", "application/json");
+        int status = connection.getResponseCode();
+        if (status != HttpURLConnection.HTTP_OK) {
+            connection.disconnect();
+            if (status == HttpURLConnection.HTTP_NOT_FOUND) {
+                return null;
+            }
+            throw new IOException("HTTP " + status);
+        }
+        return connection;
+    }
+}
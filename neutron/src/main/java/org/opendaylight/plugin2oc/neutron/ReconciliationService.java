@@ -0,0 +1,1341 @@
+/*
+ * Copyright (C) 2014 Juniper Networks, Inc.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ *
+ */
+package org.opendaylight.plugin2oc.neutron;
+
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import net.juniper.contrail.api.ApiConnector;
+import net.juniper.contrail.api.ApiObjectBase;
+import net.juniper.contrail.api.ApiPropertyBase;
+import net.juniper.contrail.api.ObjectReference;
+import net.juniper.contrail.api.types.FloatingIp;
+import net.juniper.contrail.api.types.LogicalRouter;
+import net.juniper.contrail.api.types.SecurityGroup;
+import net.juniper.contrail.api.types.VirtualMachineInterface;
+import net.juniper.contrail.api.types.VirtualNetwork;
+
+import org.opendaylight.controller.networkconfig.neutron.INeutronFloatingIPCRUD;
+import org.opendaylight.controller.networkconfig.neutron.INeutronNetworkCRUD;
+import org.opendaylight.controller.networkconfig.neutron.INeutronPortCRUD;
+import org.opendaylight.controller.networkconfig.neutron.INeutronRouterCRUD;
+import org.opendaylight.controller.networkconfig.neutron.INeutronSecurityGroupCRUD;
+import org.opendaylight.controller.networkconfig.neutron.INeutronSubnetCRUD;
+import org.opendaylight.controller.networkconfig.neutron.NeutronCRUDInterfaces;
+import org.opendaylight.controller.networkconfig.neutron.NeutronFloatingIP;
+import org.opendaylight.controller.networkconfig.neutron.NeutronNetwork;
+import org.opendaylight.controller.networkconfig.neutron.NeutronPort;
+import org.opendaylight.controller.networkconfig.neutron.NeutronRouter;
+import org.opendaylight.controller.networkconfig.neutron.NeutronSecurityGroup;
+import org.opendaylight.controller.networkconfig.neutron.NeutronSubnet;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Background service reconciling the Neutron CRUD caches with the objects in
+ * Contrail. Each pass walks networks, security groups, subnets, ports,
+ * routers and floating IPs in dependency order. The Neutron and Contrail
+ * views of every tenant are kept as {@link MerkleTree}s over the canonical
+ * object state, made of the fields the handlers write, so only the buckets
+ * whose hashes differ are compared object by object, and the missing creates
+ * and drifted updates found there are replayed through the regular handlers.
+ * The Neutron view is kept across passes: the handlers report the objects
+ * they write through the {@link OperationJournal}, a pass reads these objects
+ * only and updates their leaves, and the view is rebuilt from the Neutron
+ * caches every plugin2oc.reconcile.rebuild passes to pick up the changes made
+ * without a handler write.
+ * Objects the service has seen in Neutron and that have since disappeared
+ * from it can optionally be deleted from Contrail. Objects a handler is still
+ * writing are left to the next pass, and an object is only created once it
+ * has been in Neutron for a whole pass, so replays do not race the live
+ * callbacks. Every Contrail call made by the service is rate limited and
+ * replays run with bounded parallelism. The service is off unless
+ * plugin2oc.reconcile.interval is set.
+ */
+final class ReconciliationService implements Runnable {
+    static final Logger LOGGER = LoggerFactory.getLogger(ReconciliationService.class);
+    /**
+     * Seconds between two passes, 0 disables the service.
+     */
+    static final String INTERVAL_PROPERTY = "plugin2oc.reconcile.interval";
+    static final String RATE_PROPERTY = "plugin2oc.reconcile.rate";
+    static final String PARALLELISM_PROPERTY = "plugin2oc.reconcile.parallelism";
+    static final String BATCH_PROPERTY = "plugin2oc.reconcile.batch";
+    static final String DELETE_PROPERTY = "plugin2oc.reconcile.delete";
+    /**
+     * Number of Contrail objects per type whose cached state is dropped every
+     * pass, so that changes made directly in Contrail are eventually seen.
+     */
+    static final String REFRESH_PROPERTY = "plugin2oc.reconcile.refresh";
+    /**
+     * Number of passes between two rebuilds of the Neutron view from the
+     * whole Neutron caches.
+     */
+    static final String REBUILD_PROPERTY = "plugin2oc.reconcile.rebuild";
+    /**
+     * Seconds after startup before the operations recovered by the journal
+     * are replayed.
+     */
+    static final String REPLAY_DELAY_PROPERTY = "plugin2oc.journal.replayDelay";
+
+    private static volatile ReconciliationService running;
+
+    private final List<Resource<?>> resources = new ArrayList<Resource<?>>();
+    private final TokenBucket rateLimiter;
+    private final int parallelism;
+    private final Semaphore inFlight;
+    private final int batchSize;
+    private final int refreshSize;
+    private final boolean deleteOrphans;
+    private final int rebuildEvery;
+    private ScheduledExecutorService scheduler;
+    private ExecutorService workers;
+
+    ReconciliationService(double rate, int parallelism, int batchSize, int refreshSize, boolean deleteOrphans, int rebuildEvery) {
+        this.rateLimiter = new TokenBucket(rate, Math.max(1, (int) rate));
+        this.parallelism = Math.max(1, parallelism);
+        this.inFlight = new Semaphore(this.parallelism);
+        this.batchSize = batchSize;
+        this.refreshSize = refreshSize;
+        this.deleteOrphans = deleteOrphans;
+        this.rebuildEvery = Math.max(1, rebuildEvery);
+        // creation order, deletes run in reverse
+        resources.add(networks());
+        resources.add(securityGroups());
+        resources.add(subnets());
+        resources.add(ports());
+        resources.add(routers());
+        resources.add(floatingIps());
+    }
+
+    /**
+     * Invoked from {@link Activator#init()} to schedule the service as
+     * configured by the plugin2oc.reconcile.* system properties, and the
+     * replay of the operations recovered by the journal.
+     *
+     * @param journal
+     *            The southbound operation journal, or null.
+     *
+     * @return The running service, or null if it is disabled and there is
+     *         nothing to replay.
+     */
+    static ReconciliationService start(final OperationJournal journal) {
+        long interval = Long.getLong(INTERVAL_PROPERTY, 0L);
+        boolean replay = journal != null && !journal.recovered().isEmpty();
+        if (interval <= 0 && !replay) {
+            LOGGER.info("Neutron / Contrail reconciliation is disabled");
+            return null;
+        }
+        int parallelism = Math.max(1, Integer.getInteger(PARALLELISM_PROPERTY, 4));
+        double rate = 50;
+        try {
+            rate = Double.parseDouble(System.getProperty(RATE_PROPERTY, "50"));
+        } catch (NumberFormatException e) {
+            LOGGER.error("Invalid " + RATE_PROPERTY + " : " + e);
+        }
+        ReconciliationService service = new ReconciliationService(rate, parallelism, Math.max(1, Integer.getInteger(BATCH_PROPERTY, 500)),
+                Math.max(0, Integer.getInteger(REFRESH_PROPERTY, 50)), Boolean.getBoolean(DELETE_PROPERTY), Integer.getInteger(REBUILD_PROPERTY, 10));
+        service.workers = Executors.newFixedThreadPool(parallelism, daemonThreads("plugin2oc-reconcile-worker"));
+        service.scheduler = Executors.newSingleThreadScheduledExecutor(daemonThreads("plugin2oc-reconcile"));
+        if (replay) {
+            // leave the Neutron caches time to be populated
+            final ReconciliationService replaying = service;
+            service.scheduler.schedule(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        replaying.replayJournal(journal);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    } catch (Exception e) {
+                        LOGGER.error("Exception : " + e);
+                    }
+                }
+            }, Long.getLong(REPLAY_DELAY_PROPERTY, 30L), TimeUnit.SECONDS);
+        }
+        if (interval > 0) {
+            running = service;
+            service.scheduler.scheduleWithFixedDelay(service, interval, interval, TimeUnit.SECONDS);
+            LOGGER.info("Neutron / Contrail reconciliation scheduled every " + interval + " seconds");
+        }
+        return service;
+    }
+
+    static ThreadFactory daemonThreads(final String name) {
+        final AtomicInteger count = new AtomicInteger();
+        return new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, name + "-" + count.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        };
+    }
+
+    /**
+     * Invoked from {@link Activator#destroy()}.
+     */
+    void stop() {
+        if (running == this) {
+            running = null;
+        }
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+        if (workers != null) {
+            workers.shutdownNow();
+        }
+    }
+
+    /**
+     * Invoked by {@link OperationJournal#begin} when a handler writes an
+     * object, so that the next pass reads it again from Neutron.
+     *
+     * @param type
+     *            The Neutron resource type.
+     * @param uuid
+     *            The UUID of the Neutron object.
+     */
+    static void changed(String type, String uuid) {
+        ReconciliationService service = running;
+        if (service == null || uuid == null) {
+            return;
+        }
+        for (Resource<?> resource : service.resources) {
+            if (resource.type.equals(type)) {
+                resource.changed(uuid);
+            }
+        }
+    }
+
+    @Override
+    public void run() {
+        try {
+            reconcile();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            LOGGER.error("Exception : " + e);
+        }
+    }
+
+    /**
+     * Invoked to run one incremental pass over every resource type.
+     */
+    void reconcile() throws InterruptedException, IOException {
+        ApiConnector apiConnector = Activator.apiConnector;
+        if (apiConnector == null || CircuitBreaker.isOpen()) {
+            return;
+        }
+        for (Resource<?> resource : resources) {
+            resource.sync(apiConnector);
+        }
+        if (deleteOrphans) {
+            for (int i = resources.size() - 1; i >= 0; i--) {
+                resources.get(i).deleteOrphans();
+            }
+        }
+    }
+
+    /**
+     * Invoked to replay the operations the journal recovered at startup,
+     * creates and updates in dependency order and deletes in reverse order.
+     * Each operation is replayed against the current Neutron state: creates
+     * and updates of objects no longer in Neutron, and deletes of objects
+     * that are back in Neutron, are only marked done.
+     */
+    void replayJournal(OperationJournal journal) throws InterruptedException {
+        if (Activator.apiConnector == null) {
+            return;
+        }
+        Map<String, List<OperationJournal.Intent>> writes = new HashMap<String, List<OperationJournal.Intent>>();
+        Map<String, List<OperationJournal.Intent>> deletes = new HashMap<String, List<OperationJournal.Intent>>();
+        for (OperationJournal.Intent intent : journal.recovered()) {
+            Map<String, List<OperationJournal.Intent>> byType = OperationJournal.DELETE.equals(intent.operation) ? deletes : writes;
+            List<OperationJournal.Intent> intents = byType.get(intent.type);
+            if (intents == null) {
+                intents = new ArrayList<OperationJournal.Intent>();
+                byType.put(intent.type, intents);
+            }
+            intents.add(intent);
+        }
+        for (Resource<?> resource : resources) {
+            resource.replayIntents(journal, writes.get(resource.type));
+        }
+        for (int i = resources.size() - 1; i >= 0; i--) {
+            resources.get(i).replayIntents(journal, deletes.get(resources.get(i).type));
+        }
+    }
+
+    void permit() throws InterruptedException {
+        rateLimiter.acquire(1);
+    }
+
+    /**
+     * Invoked to run replays on the worker pool, at most parallelism at a
+     * time, and wait for all of them so that dependent types are only
+     * replayed once their parents exist.
+     */
+    void replay(List<Runnable> replays) throws InterruptedException {
+        List<Future<?>> pending = new ArrayList<Future<?>>();
+        for (final Runnable replay : replays) {
+            inFlight.acquire();
+            permit();
+            try {
+                pending.add(executor().submit(new Runnable() {
+                    @Override
+                    public void run() {
+                        try {
+                            replay.run();
+                        } catch (Exception e) {
+                            LOGGER.error("Exception : " + e);
+                        } finally {
+                            inFlight.release();
+                        }
+                    }
+                }));
+            } catch (RuntimeException e) {
+                inFlight.release();
+                throw e;
+            }
+        }
+        for (Future<?> future : pending) {
+            try {
+                future.get();
+            } catch (ExecutionException e) {
+                LOGGER.error("Exception : " + e.getCause());
+            }
+        }
+    }
+
+    private ExecutorService executor() {
+        if (workers == null) {
+            workers = Executors.newFixedThreadPool(parallelism, daemonThreads("plugin2oc-reconcile-worker"));
+        }
+        return workers;
+    }
+
+    static String contrailUuid(String uuid) {
+        if (uuid == null || ("").equals(uuid)) {
+            return null;
+        }
+        if (!(uuid.contains("-"))) {
+            uuid = Utils.uuidFormater(uuid);
+        }
+        return UUID.fromString(uuid).toString();
+    }
+
+    static String nullToEmpty(String value) {
+        return value != null ? value : "";
+    }
+
+    /**
+     * @return The Contrail form of a UUID referenced by a Neutron object, the
+     *         value itself if it is not a UUID.
+     */
+    static String referenceUuid(String uuid) {
+        try {
+            return nullToEmpty(contrailUuid(uuid));
+        } catch (IllegalArgumentException e) {
+            return nullToEmpty(uuid);
+        }
+    }
+
+    static boolean flag(Boolean value) {
+        return value != null && value;
+    }
+
+    /**
+     * @return The UUID of the first object referenced, or an empty string.
+     */
+    static String referenced(List<ObjectReference<ApiPropertyBase>> refs) {
+        return refs != null && !refs.isEmpty() ? nullToEmpty(refs.get(0).getUuid()) : "";
+    }
+
+    /**
+     * Reconciliation of one Neutron resource type against its Contrail
+     * object type.
+     *
+     * @param <N>
+     *            Type of the Neutron object.
+     */
+    abstract class Resource<N> {
+        final String type;
+        final Class<? extends ApiObjectBase> contrailType;
+        /**
+         * Last Neutron state seen for every object, used to replay the
+         * deletion of objects that are no longer in Neutron.
+         */
+        final Map<String, N> known = new HashMap<String, N>();
+        /**
+         * Neutron view of the objects, keyed and sorted by Contrail UUID,
+         * and its trees per tenant, kept across passes.
+         */
+        private final TreeMap<String, N> view = new TreeMap<String, N>();
+        private final Map<String, MerkleTree> neutronTrees = new HashMap<String, MerkleTree>();
+        private final Map<String, String> neutronTenants = new HashMap<String, String>();
+        /**
+         * Neutron UUID of the objects written since the last pass, by
+         * Contrail UUID.
+         */
+        private final ConcurrentMap<String, String> changed = new ConcurrentHashMap<String, String>();
+        private int passes;
+        /**
+         * Contrail view of the objects, per tenant, kept across passes.
+         */
+        private final Map<String, MerkleTree> contrailTrees = new HashMap<String, MerkleTree>();
+        private final TreeMap<String, String> contrailTenants = new TreeMap<String, String>();
+        /**
+         * Contrail objects whose state has to be fetched before it can be
+         * compared.
+         */
+        private final Set<String> unknown = new HashSet<String>();
+        final Set<String> current = Collections.unmodifiableSet(view.keySet());
+        private ApiConnector connector;
+        private String refreshCursor = "";
+
+        Resource(String type, Class<? extends ApiObjectBase> contrailType) {
+            this.type = type;
+            this.contrailType = contrailType;
+        }
+
+        abstract List<N> neutronObjects();
+
+        /**
+         * @return The Neutron object, null if it is no longer in Neutron.
+         */
+        abstract N neutronObject(String uuid);
+
+        abstract String uuid(N neutronObject);
+
+        abstract String tenant(N neutronObject);
+
+        /**
+         * @return The canonical state of the Neutron object compared with
+         *         {@link #contrailState(ApiObjectBase)}.
+         */
+        abstract String neutronState(N neutronObject);
+
+        abstract String contrailState(ApiObjectBase contrailObject);
+
+        abstract void create(N neutronObject);
+
+        abstract void update(N neutronObject);
+
+        abstract void delete(N neutronObject);
+
+        /**
+         * @return A Neutron object holding the attributes journaled to replay
+         *         its deletion.
+         */
+        abstract N keyed(Map<String, String> keys);
+
+        /**
+         * @return The UUIDs of the Contrail objects of the type, or null if
+         *         the type can not be listed and every Neutron object has to
+         *         be looked up.
+         */
+        Set<String> contrailUuids(ApiConnector apiConnector) throws IOException, InterruptedException {
+            permit();
+            Set<String> uuids = new HashSet<String>();
+            List<? extends ApiObjectBase> objects = apiConnector.list(contrailType, null);
+            if (objects != null) {
+                for (ApiObjectBase object : objects) {
+                    String uuid = contrailUuid(object.getUuid());
+                    if (uuid != null) {
+                        uuids.add(uuid);
+                    }
+                }
+            }
+            return uuids;
+        }
+
+        /**
+         * @return The canonical state of the Contrail object, or null if it
+         *         does not exist.
+         */
+        String fetchState(ApiConnector apiConnector, String uuid, N neutronObject) throws IOException, InterruptedException {
+            permit();
+            ApiObjectBase contrailObject = apiConnector.findById(contrailType, uuid);
+            return contrailObject != null ? contrailState(contrailObject) : null;
+        }
+
+        /**
+         * Invoked by the update replays to read the Contrail object the
+         * Neutron object is compared with.
+         *
+         * @return The Contrail object, or null if it does not exist or can
+         *         not be read.
+         */
+        ApiObjectBase contrailObject(String uuid) {
+            try {
+                permit();
+                return connector.findById(contrailType, contrailUuid(uuid));
+            } catch (IOException e) {
+                LOGGER.error("Exception : " + e);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return null;
+        }
+
+        /**
+         * @return The Neutron objects keyed and sorted by Contrail UUID.
+         */
+        TreeMap<String, N> neutronView() {
+            TreeMap<String, N> view = new TreeMap<String, N>();
+            List<N> objects = neutronObjects();
+            if (objects != null) {
+                for (N object : objects) {
+                    String uuid = contrailUuid(uuid(object));
+                    if (uuid != null) {
+                        view.put(uuid, object);
+                    }
+                }
+            }
+            return view;
+        }
+
+        void changed(String uuid) {
+            try {
+                String key = contrailUuid(uuid);
+                if (key != null) {
+                    changed.put(key, uuid);
+                }
+            } catch (IllegalArgumentException e) {
+                LOGGER.debug("Not a UUID : " + uuid);
+            }
+        }
+
+        /**
+         * Invoked to rebuild the Neutron view from the whole Neutron cache.
+         *
+         * @return The objects new to the view.
+         */
+        private Set<String> rebuildView() {
+            // cleared first, the objects written while the cache is read are read again next pass
+            changed.clear();
+            TreeMap<String, N> listed = neutronView();
+            for (String uuid : new ArrayList<String>(view.keySet())) {
+                if (!listed.containsKey(uuid)) {
+                    put(uuid, null);
+                }
+            }
+            Set<String> fresh = new HashSet<String>();
+            for (Map.Entry<String, N> entry : listed.entrySet()) {
+                if (put(entry.getKey(), entry.getValue())) {
+                    fresh.add(entry.getKey());
+                }
+            }
+            return fresh;
+        }
+
+        /**
+         * Invoked to read again the objects written since the last pass.
+         *
+         * @return The objects new to the view.
+         */
+        private Set<String> refreshView() {
+            Set<String> fresh = new HashSet<String>();
+            for (String uuid : new ArrayList<String>(changed.keySet())) {
+                String neutronUuid = changed.remove(uuid);
+                if (neutronUuid != null && put(uuid, neutronObject(neutronUuid))) {
+                    fresh.add(uuid);
+                }
+            }
+            return fresh;
+        }
+
+        /**
+         * Invoked to put an object in the Neutron view, or remove it, and
+         * update the leaf of its tree.
+         *
+         * @return true if the object is new to the view.
+         */
+        private boolean put(String uuid, N neutronObject) {
+            N previous = neutronObject != null ? view.put(uuid, neutronObject) : view.remove(uuid);
+            String previousTenant = neutronTenants.remove(uuid);
+            if (previousTenant != null) {
+                MerkleTree tree = neutronTrees.get(previousTenant);
+                if (tree != null) {
+                    tree.remove(uuid);
+                    if (tree.size() == 0) {
+                        neutronTrees.remove(previousTenant);
+                    }
+                }
+            }
+            if (neutronObject == null) {
+                return false;
+            }
+            String tenant = tenantOf(neutronObject);
+            neutronTenants.put(uuid, tenant);
+            tree(neutronTrees, tenant).put(uuid, MerkleTree.hash(uuid, neutronState(neutronObject)));
+            if (deleteOrphans) {
+                known.put(uuid, neutronObject);
+            }
+            return previous == null;
+        }
+
+        private String tenantOf(N neutronObject) {
+            return nullToEmpty(tenant(neutronObject));
+        }
+
+        private MerkleTree tree(Map<String, MerkleTree> trees, String tenant) {
+            MerkleTree tree = trees.get(tenant);
+            if (tree == null) {
+                tree = new MerkleTree();
+                trees.put(tenant, tree);
+            }
+            return tree;
+        }
+
+        /**
+         * Invoked to record that the Contrail state of an object has to be
+         * fetched again.
+         */
+        private void forget(String uuid, String tenant) {
+            String previous = contrailTenants.put(uuid, tenant);
+            if (previous != null && !previous.equals(tenant)) {
+                untrack(previous, uuid);
+            }
+            tree(contrailTrees, tenant).put(uuid, MerkleTree.hash(uuid, null));
+            unknown.add(uuid);
+        }
+
+        private void untrack(String tenant, String uuid) {
+            MerkleTree tree = contrailTrees.get(tenant);
+            if (tree != null) {
+                tree.remove(uuid);
+                if (tree.size() == 0) {
+                    contrailTrees.remove(tenant);
+                }
+            }
+        }
+
+        /**
+         * Invoked to align the Contrail view with the objects currently in
+         * Contrail. Objects Neutron never knew about are left out, so the
+         * trees of a tenant in sync are equal.
+         */
+        private void track(Set<String> members, Map<String, N> view) {
+            Iterator<Map.Entry<String, String>> tracked = contrailTenants.entrySet().iterator();
+            while (tracked.hasNext()) {
+                Map.Entry<String, String> entry = tracked.next();
+                if (!members.contains(entry.getKey()) || !(view.containsKey(entry.getKey()) || known.containsKey(entry.getKey()))) {
+                    untrack(entry.getValue(), entry.getKey());
+                    unknown.remove(entry.getKey());
+                    tracked.remove();
+                }
+            }
+            for (String uuid : members) {
+                if (contrailTenants.containsKey(uuid)) {
+                    continue;
+                }
+                N neutronObject = view.get(uuid);
+                if (neutronObject == null) {
+                    neutronObject = known.get(uuid);
+                }
+                if (neutronObject != null) {
+                    forget(uuid, tenantOf(neutronObject));
+                }
+            }
+        }
+
+        /**
+         * Invoked to drop the cached state of the next objects of the
+         * Contrail view.
+         */
+        private void refresh() {
+            int refreshed = 0;
+            for (Map.Entry<String, String> entry : new ArrayList<Map.Entry<String, String>>(contrailTenants.tailMap(refreshCursor, false)
+                    .entrySet())) {
+                if (refreshed++ == refreshSize) {
+                    return;
+                }
+                refreshCursor = entry.getKey();
+                forget(entry.getKey(), entry.getValue());
+            }
+            refreshCursor = "";
+        }
+
+        /**
+         * Invoked to compare the Neutron and Contrail trees of every tenant
+         * and reconcile the objects of the buckets that differ, up to the
+         * batch size; the remaining differences are left to the next pass.
+         */
+        void sync(ApiConnector apiConnector) throws InterruptedException, IOException {
+            boolean rebuild = passes++ % rebuildEvery == 0;
+            if (connector != apiConnector) {
+                contrailTrees.clear();
+                contrailTenants.clear();
+                unknown.clear();
+                connector = apiConnector;
+                rebuild = true;
+            }
+            // objects new to Neutron may still be handled by their created
+            // callback, they are only created from the next pass on
+            Set<String> fresh = rebuild ? rebuildView() : refreshView();
+            Set<String> members = contrailUuids(apiConnector);
+            track(members != null ? members : view.keySet(), view);
+            refresh();
+
+            Set<String> tenants = new TreeSet<String>(neutronTrees.keySet());
+            tenants.addAll(contrailTrees.keySet());
+            List<Runnable> replays = new ArrayList<Runnable>();
+            Map<String, String> replayed = new HashMap<String, String>();
+            int buckets = 0;
+            int work = 0;
+            scan: for (String tenant : tenants) {
+                MerkleTree neutronTree = neutronTrees.get(tenant);
+                for (int bucket : MerkleTree.diff(neutronTree, contrailTrees.get(tenant))) {
+                    buckets++;
+                    Set<String> uuids = new TreeSet<String>();
+                    if (neutronTree != null) {
+                        uuids.addAll(neutronTree.entries(bucket).keySet());
+                    }
+                    MerkleTree contrailTree = contrailTrees.get(tenant);
+                    if (contrailTree != null) {
+                        uuids.addAll(contrailTree.entries(bucket).keySet());
+                    }
+                    for (String uuid : uuids) {
+                        if (work >= batchSize) {
+                            break scan;
+                        }
+                        final N neutronObject = view.get(uuid);
+                        if (neutronObject == null) {
+                            // no longer in Neutron, see deleteOrphans
+                            continue;
+                        }
+                        if (OperationJournal.inFlight(type, uuid)) {
+                            continue;
+                        }
+                        String neutronTenant = tenantOf(neutronObject);
+                        long expected = MerkleTree.hash(uuid, neutronState(neutronObject));
+                        String contrailTenant = contrailTenants.get(uuid);
+                        Long actual = null;
+                        boolean fetched = false;
+                        if (contrailTenant != null) {
+                            if (!contrailTenant.equals(neutronTenant)) {
+                                forget(uuid, neutronTenant);
+                            }
+                            if (unknown.contains(uuid)) {
+                                fetched = true;
+                                work++;
+                                String state = fetchState(apiConnector, uuid, neutronObject);
+                                if (state != null) {
+                                    unknown.remove(uuid);
+                                    actual = MerkleTree.hash(uuid, state);
+                                    tree(contrailTrees, neutronTenant).put(uuid, actual);
+                                }
+                            } else {
+                                actual = tree(contrailTrees, neutronTenant).get(uuid);
+                            }
+                        }
+                        if (actual != null && actual == expected || actual == null && fresh.contains(uuid)) {
+                            continue;
+                        }
+                        if (!fetched) {
+                            work++;
+                        }
+                        replayed.put(uuid, neutronTenant);
+                        if (actual == null) {
+                            LOGGER.info("Reconciliation : " + type + " " + uuid + " is missing in Contrail");
+                            replays.add(new Runnable() {
+                                @Override
+                                public void run() {
+                                    create(neutronObject);
+                                }
+                            });
+                        } else {
+                            LOGGER.info("Reconciliation : " + type + " " + uuid + " differs in Contrail");
+                            replays.add(new Runnable() {
+                                @Override
+                                public void run() {
+                                    update(neutronObject);
+                                }
+                            });
+                        }
+                    }
+                }
+            }
+            LOGGER.debug("Reconciliation : " + tenants.size() + " tenant(s) and " + buckets + " differing bucket(s) of " + type + " compared");
+            replay(replays);
+            // the outcome of the replays is checked by the next pass
+            for (Map.Entry<String, String> entry : replayed.entrySet()) {
+                forget(entry.getKey(), entry.getValue());
+            }
+        }
+
+        /**
+         * Invoked to replay journaled operations of the type, marking each
+         * one done once it has been replayed.
+         */
+        void replayIntents(final OperationJournal journal, List<OperationJournal.Intent> intents) throws InterruptedException {
+            if (intents == null) {
+                return;
+            }
+            TreeMap<String, N> view = neutronView();
+            List<Runnable> replays = new ArrayList<Runnable>();
+            for (final OperationJournal.Intent intent : intents) {
+                String uuid;
+                try {
+                    uuid = contrailUuid(intent.uuid());
+                } catch (IllegalArgumentException e) {
+                    LOGGER.warn("Journaled operation " + intent + " can not be replayed : " + e);
+                    journal.complete(intent.sequence);
+                    continue;
+                }
+                final N neutronObject = uuid != null ? view.get(uuid) : null;
+                LOGGER.info("Replaying journaled operation " + intent);
+                replays.add(new Runnable() {
+                    @Override
+                    public void run() {
+                        try {
+                            if (OperationJournal.DELETE.equals(intent.operation)) {
+                                if (neutronObject == null) {
+                                    delete(keyed(intent.keys));
+                                }
+                            } else if (neutronObject != null) {
+                                if (OperationJournal.CREATE.equals(intent.operation)) {
+                                    create(neutronObject);
+                                } else {
+                                    update(neutronObject);
+                                }
+                            }
+                        } finally {
+                            journal.complete(intent.sequence);
+                        }
+                    }
+                });
+            }
+            replay(replays);
+        }
+
+        /**
+         * Invoked to delete the Contrail objects of Neutron objects that have
+         * been seen before and are no longer in Neutron.
+         */
+        void deleteOrphans() throws InterruptedException {
+            List<Runnable> replays = new ArrayList<Runnable>();
+            for (String uuid : new ArrayList<String>(known.keySet())) {
+                if (current.contains(uuid) || OperationJournal.inFlight(type, uuid)) {
+                    continue;
+                }
+                final N neutronObject = known.remove(uuid);
+                if (contrailTenants.containsKey(uuid)) {
+                    LOGGER.info("Reconciliation : " + type + " " + uuid + " is no longer in Neutron");
+                    replays.add(new Runnable() {
+                        @Override
+                        public void run() {
+                            delete(neutronObject);
+                        }
+                    });
+                }
+            }
+            replay(replays);
+        }
+    }
+
+    private Resource<NeutronNetwork> networks() {
+        final NetworkHandler handler = new NetworkHandler();
+        return new Resource<NeutronNetwork>(OperationJournal.NETWORK, VirtualNetwork.class) {
+            @Override
+            List<NeutronNetwork> neutronObjects() {
+                INeutronNetworkCRUD crud = NeutronCRUDInterfaces.getINeutronNetworkCRUD(ReconciliationService.this);
+                return crud != null ? crud.getAllNetworks() : null;
+            }
+
+            @Override
+            NeutronNetwork neutronObject(String uuid) {
+                INeutronNetworkCRUD crud = NeutronCRUDInterfaces.getINeutronNetworkCRUD(ReconciliationService.this);
+                return crud != null ? crud.getNetwork(uuid) : null;
+            }
+
+            @Override
+            String uuid(NeutronNetwork network) {
+                return network.getNetworkUUID();
+            }
+
+            @Override
+            String tenant(NeutronNetwork network) {
+                return network.getTenantID();
+            }
+
+            @Override
+            NeutronNetwork keyed(Map<String, String> keys) {
+                NeutronNetwork network = new NeutronNetwork();
+                network.setNetworkUUID(keys.get("uuid"));
+                return network;
+            }
+
+            @Override
+            String neutronState(NeutronNetwork network) {
+                return nullToEmpty(network.getNetworkName()) + "|" + flag(network.getShared()) + "|" + flag(network.getRouterExternal());
+            }
+
+            @Override
+            String contrailState(ApiObjectBase contrailObject) {
+                VirtualNetwork virtualNetwork = (VirtualNetwork) contrailObject;
+                return nullToEmpty(virtualNetwork.getDisplayName()) + "|" + flag(virtualNetwork.getIsShared()) + "|"
+                        + flag(virtualNetwork.getRouterExternal());
+            }
+
+            @Override
+            void create(NeutronNetwork network) {
+                if (handler.canCreateNetwork(network) == HttpURLConnection.HTTP_OK) {
+                    handler.neutronNetworkCreated(network);
+                }
+            }
+
+            @Override
+            void update(NeutronNetwork network) {
+                VirtualNetwork virtualNetwork = (VirtualNetwork) contrailObject(network.getNetworkUUID());
+                if (virtualNetwork == null) {
+                    return;
+                }
+                // the delta holds the drifted fields only, as a Neutron update
+                NeutronNetwork delta = new NeutronNetwork();
+                delta.setNetworkUUID(network.getNetworkUUID());
+                if (!nullToEmpty(network.getNetworkName()).equals(nullToEmpty(virtualNetwork.getDisplayName()))) {
+                    delta.setNetworkName(network.getNetworkName());
+                }
+                if (flag(network.getShared()) != flag(virtualNetwork.getIsShared())) {
+                    delta.setShared(network.getShared());
+                }
+                if (flag(network.getRouterExternal()) != flag(virtualNetwork.getRouterExternal())) {
+                    delta.setRouterExternal(network.getRouterExternal());
+                }
+                if (handler.canUpdateNetwork(delta, network) == HttpURLConnection.HTTP_OK) {
+                    handler.neutronNetworkUpdated(network);
+                }
+            }
+
+            @Override
+            void delete(NeutronNetwork network) {
+                if (handler.canDeleteNetwork(network) == HttpURLConnection.HTTP_OK) {
+                    handler.neutronNetworkDeleted(network);
+                }
+            }
+        };
+    }
+
+    private Resource<NeutronSecurityGroup> securityGroups() {
+        final SecurityGroupHandler handler = new SecurityGroupHandler();
+        return new Resource<NeutronSecurityGroup>(OperationJournal.SECURITY_GROUP, SecurityGroup.class) {
+            @Override
+            List<NeutronSecurityGroup> neutronObjects() {
+                INeutronSecurityGroupCRUD crud = NeutronCRUDInterfaces.getINeutronSecurityGroupCRUD(ReconciliationService.this);
+                return crud != null ? crud.getAllNeutronSecurityGroups() : null;
+            }
+
+            @Override
+            NeutronSecurityGroup neutronObject(String uuid) {
+                INeutronSecurityGroupCRUD crud = NeutronCRUDInterfaces.getINeutronSecurityGroupCRUD(ReconciliationService.this);
+                return crud != null ? crud.getNeutronSecurityGroup(uuid) : null;
+            }
+
+            @Override
+            String uuid(NeutronSecurityGroup securityGroup) {
+                return securityGroup.getSecurityGroupUUID();
+            }
+
+            @Override
+            String tenant(NeutronSecurityGroup securityGroup) {
+                return securityGroup.getSecurityGroupTenantID();
+            }
+
+            @Override
+            NeutronSecurityGroup keyed(Map<String, String> keys) {
+                NeutronSecurityGroup securityGroup = new NeutronSecurityGroup();
+                securityGroup.setSecurityGroupUUID(keys.get("uuid"));
+                return securityGroup;
+            }
+
+            @Override
+            String neutronState(NeutronSecurityGroup securityGroup) {
+                return nullToEmpty(securityGroup.getSecurityGroupName());
+            }
+
+            @Override
+            String contrailState(ApiObjectBase contrailObject) {
+                return nullToEmpty(((SecurityGroup) contrailObject).getDisplayName());
+            }
+
+            @Override
+            void create(NeutronSecurityGroup securityGroup) {
+                if (handler.canCreateNeutronSecurityGroup(securityGroup) == HttpURLConnection.HTTP_OK) {
+                    handler.neutronSecurityGroupCreated(securityGroup);
+                }
+            }
+
+            @Override
+            void update(NeutronSecurityGroup securityGroup) {
+                // only the name is written by the handler
+                NeutronSecurityGroup delta = new NeutronSecurityGroup();
+                delta.setSecurityGroupUUID(securityGroup.getSecurityGroupUUID());
+                delta.setSecurityGroupName(securityGroup.getSecurityGroupName());
+                if (handler.canUpdateNeutronSecurityGroup(delta, securityGroup) == HttpURLConnection.HTTP_OK) {
+                    handler.neutronSecurityGroupUpdated(securityGroup);
+                }
+            }
+
+            @Override
+            void delete(NeutronSecurityGroup securityGroup) {
+                if (handler.canDeleteNeutronSecurityGroup(securityGroup) == HttpURLConnection.HTTP_OK) {
+                    handler.neutronSecurityGroupDeleted(securityGroup);
+                }
+            }
+        };
+    }
+
+    /**
+     * Subnets are not Contrail objects but IPAM entries of their network, so
+     * their existence is checked on the network, once per network and pass,
+     * and orphaned subnets are left to the deletion of the network.
+     */
+    private Resource<NeutronSubnet> subnets() {
+        final SubnetHandler handler = new SubnetHandler();
+        return new Resource<NeutronSubnet>(OperationJournal.SUBNET, VirtualNetwork.class) {
+            private final Map<String, NetworkSubnetIndex> networks = new HashMap<String, NetworkSubnetIndex>();
+
+            @Override
+            List<NeutronSubnet> neutronObjects() {
+                INeutronSubnetCRUD crud = NeutronCRUDInterfaces.getINeutronSubnetCRUD(ReconciliationService.this);
+                return crud != null ? crud.getAllSubnets() : null;
+            }
+
+            @Override
+            NeutronSubnet neutronObject(String uuid) {
+                INeutronSubnetCRUD crud = NeutronCRUDInterfaces.getINeutronSubnetCRUD(ReconciliationService.this);
+                return crud != null ? crud.getSubnet(uuid) : null;
+            }
+
+            @Override
+            String uuid(NeutronSubnet subnet) {
+                return subnet.getSubnetUUID();
+            }
+
+            @Override
+            String tenant(NeutronSubnet subnet) {
+                return subnet.getTenantID();
+            }
+
+            @Override
+            NeutronSubnet keyed(Map<String, String> keys) {
+                NeutronSubnet subnet = new NeutronSubnet();
+                subnet.setSubnetUUID(keys.get("uuid"));
+                subnet.setNetworkUUID(keys.get("network"));
+                subnet.setCidr(keys.get("cidr"));
+                return subnet;
+            }
+
+            @Override
+            Set<String> contrailUuids(ApiConnector apiConnector) {
+                networks.clear();
+                return null;
+            }
+
+            @Override
+            String fetchState(ApiConnector apiConnector, String uuid, NeutronSubnet subnet) throws IOException, InterruptedException {
+                String networkUUID = contrailUuid(subnet.getNetworkUUID());
+                if (networkUUID == null) {
+                    return null;
+                }
+                if (!networks.containsKey(networkUUID)) {
+                    permit();
+                    VirtualNetwork virtualNetwork = (VirtualNetwork) apiConnector.findById(VirtualNetwork.class, networkUUID);
+                    networks.put(networkUUID, virtualNetwork != null ? NetworkSubnetIndex.of(virtualNetwork.getNetworkIpam()) : null);
+                }
+                NetworkSubnetIndex index = networks.get(networkUUID);
+                return index != null && index.exists(subnet.getCidr()) ? neutronState(subnet) : null;
+            }
+
+            @Override
+            void deleteOrphans() {
+                known.keySet().retainAll(current);
+            }
+
+            @Override
+            String neutronState(NeutronSubnet subnet) {
+                return nullToEmpty(subnet.getCidr());
+            }
+
+            @Override
+            String contrailState(ApiObjectBase contrailObject) {
+                return "";
+            }
+
+            @Override
+            void create(NeutronSubnet subnet) {
+                if (handler.canCreateSubnet(subnet) == HttpURLConnection.HTTP_OK) {
+                    handler.neutronSubnetCreated(subnet);
+                }
+            }
+
+            @Override
+            void update(NeutronSubnet subnet) {
+            }
+
+            @Override
+            void delete(NeutronSubnet subnet) {
+                if (handler.canDeleteSubnet(subnet) == HttpURLConnection.HTTP_OK) {
+                    handler.neutronSubnetDeleted(subnet);
+                }
+            }
+        };
+    }
+
+    private Resource<NeutronPort> ports() {
+        final PortHandler handler = new PortHandler();
+        return new Resource<NeutronPort>(OperationJournal.PORT, VirtualMachineInterface.class) {
+            @Override
+            List<NeutronPort> neutronObjects() {
+                INeutronPortCRUD crud = NeutronCRUDInterfaces.getINeutronPortCRUD(ReconciliationService.this);
+                return crud != null ? crud.getAllPorts() : null;
+            }
+
+            @Override
+            NeutronPort neutronObject(String uuid) {
+                INeutronPortCRUD crud = NeutronCRUDInterfaces.getINeutronPortCRUD(ReconciliationService.this);
+                return crud != null ? crud.getPort(uuid) : null;
+            }
+
+            @Override
+            String uuid(NeutronPort port) {
+                return port.getPortUUID();
+            }
+
+            @Override
+            String tenant(NeutronPort port) {
+                return port.getTenantID();
+            }
+
+            @Override
+            NeutronPort keyed(Map<String, String> keys) {
+                NeutronPort port = new NeutronPort();
+                port.setPortUUID(keys.get("uuid"));
+                port.setDeviceID(keys.get("device"));
+                return port;
+            }
+
+            @Override
+            String neutronState(NeutronPort port) {
+                return nullToEmpty(port.getName()) + "|" + referenceUuid(port.getDeviceID());
+            }
+
+            @Override
+            String contrailState(ApiObjectBase contrailObject) {
+                VirtualMachineInterface virtualMachineInterface = (VirtualMachineInterface) contrailObject;
+                return nullToEmpty(virtualMachineInterface.getDisplayName()) + "|" + referenced(virtualMachineInterface.getVirtualMachine());
+            }
+
+            @Override
+            void create(NeutronPort port) {
+                if (handler.canCreatePort(port) == HttpURLConnection.HTTP_OK) {
+                    handler.neutronPortCreated(port);
+                }
+            }
+
+            @Override
+            void update(NeutronPort port) {
+                // only the name or the device have drifted, a delta without
+                // fixed IPs leaves the instance IPs alone
+                NeutronPort delta = new NeutronPort();
+                delta.setPortUUID(port.getPortUUID());
+                delta.setName(port.getName());
+                delta.setTenantID(port.getTenantID());
+                delta.setNetworkUUID(port.getNetworkUUID());
+                delta.setDeviceID(port.getDeviceID());
+                handler.neutronPortUpdated(delta);
+            }
+
+            @Override
+            void delete(NeutronPort port) {
+                if (handler.canDeletePort(port) == HttpURLConnection.HTTP_OK) {
+                    handler.neutronPortDeleted(port);
+                }
+            }
+        };
+    }
+
+    private Resource<NeutronRouter> routers() {
+        final RouterHandler handler = new RouterHandler();
+        return new Resource<NeutronRouter>(OperationJournal.ROUTER, LogicalRouter.class) {
+            @Override
+            List<NeutronRouter> neutronObjects() {
+                INeutronRouterCRUD crud = NeutronCRUDInterfaces.getINeutronRouterCRUD(ReconciliationService.this);
+                return crud != null ? crud.getAllRouters() : null;
+            }
+
+            @Override
+            NeutronRouter neutronObject(String uuid) {
+                INeutronRouterCRUD crud = NeutronCRUDInterfaces.getINeutronRouterCRUD(ReconciliationService.this);
+                return crud != null ? crud.getRouter(uuid) : null;
+            }
+
+            @Override
+            String uuid(NeutronRouter router) {
+                return router.getRouterUUID();
+            }
+
+            @Override
+            String tenant(NeutronRouter router) {
+                return router.getTenantID();
+            }
+
+            @Override
+            NeutronRouter keyed(Map<String, String> keys) {
+                NeutronRouter router = new NeutronRouter();
+                router.setRouterUUID(keys.get("uuid"));
+                return router;
+            }
+
+            @Override
+            String neutronState(NeutronRouter router) {
+                return nullToEmpty(router.getName()) + "|" + gateway(router);
+            }
+
+            @Override
+            String contrailState(ApiObjectBase contrailObject) {
+                LogicalRouter logicalRouter = (LogicalRouter) contrailObject;
+                return nullToEmpty(logicalRouter.getDisplayName()) + "|" + referenced(logicalRouter.getVirtualNetwork());
+            }
+
+            private String gateway(NeutronRouter router) {
+                return router.getExternalGatewayInfo() != null ? referenceUuid(router.getExternalGatewayInfo().getNetworkID()) : "";
+            }
+
+            @Override
+            void create(NeutronRouter router) {
+                if (handler.canCreateRouter(router) == HttpURLConnection.HTTP_OK) {
+                    handler.neutronRouterCreated(router);
+                }
+            }
+
+            @Override
+            void update(NeutronRouter router) {
+                LogicalRouter logicalRouter = (LogicalRouter) contrailObject(router.getRouterUUID());
+                if (logicalRouter == null) {
+                    return;
+                }
+                NeutronRouter delta = new NeutronRouter();
+                delta.setRouterUUID(router.getRouterUUID());
+                if (!nullToEmpty(router.getName()).equals(nullToEmpty(logicalRouter.getDisplayName()))) {
+                    delta.setName(router.getName());
+                }
+                if (!gateway(router).equals(referenced(logicalRouter.getVirtualNetwork()))) {
+                    delta.setExternalGatewayInfo(router.getExternalGatewayInfo());
+                }
+                if (handler.canUpdateRouter(delta, router) == HttpURLConnection.HTTP_OK) {
+                    handler.neutronRouterUpdated(router);
+                }
+            }
+
+            @Override
+            void delete(NeutronRouter router) {
+                if (handler.canDeleteRouter(router) == HttpURLConnection.HTTP_OK) {
+                    handler.neutronRouterDeleted(router);
+                }
+            }
+        };
+    }
+
+    private Resource<NeutronFloatingIP> floatingIps() {
+        final FloatingIpHandler handler = new FloatingIpHandler();
+        return new Resource<NeutronFloatingIP>(OperationJournal.FLOATING_IP, FloatingIp.class) {
+            @Override
+            List<NeutronFloatingIP> neutronObjects() {
+                INeutronFloatingIPCRUD crud = NeutronCRUDInterfaces.getINeutronFloatingIPCRUD(ReconciliationService.this);
+                return crud != null ? crud.getAllFloatingIPs() : null;
+            }
+
+            @Override
+            NeutronFloatingIP neutronObject(String uuid) {
+                INeutronFloatingIPCRUD crud = NeutronCRUDInterfaces.getINeutronFloatingIPCRUD(ReconciliationService.this);
+                return crud != null ? crud.getFloatingIP(uuid) : null;
+            }
+
+            @Override
+            String uuid(NeutronFloatingIP floatingIp) {
+                return floatingIp.getFloatingIPUUID();
+            }
+
+            @Override
+            String tenant(NeutronFloatingIP floatingIp) {
+                return floatingIp.getTenantUUID();
+            }
+
+            @Override
+            NeutronFloatingIP keyed(Map<String, String> keys) {
+                NeutronFloatingIP floatingIp = new NeutronFloatingIP();
+                floatingIp.setFloatingIPUUID(keys.get("uuid"));
+                return floatingIp;
+            }
+
+            @Override
+            String neutronState(NeutronFloatingIP floatingIp) {
+                return nullToEmpty(contrailUuid(floatingIp.getPortUUID()));
+            }
+
+            @Override
+            String contrailState(ApiObjectBase contrailObject) {
+                List<ObjectReference<ApiPropertyBase>> interfaces = ((FloatingIp) contrailObject).getVirtualMachineInterface();
+                return interfaces != null && !interfaces.isEmpty() ? nullToEmpty(interfaces.get(0).getUuid()) : "";
+            }
+
+            @Override
+            void create(NeutronFloatingIP floatingIp) {
+                if (handler.canCreateFloatingIP(floatingIp) == HttpURLConnection.HTTP_OK) {
+                    handler.neutronFloatingIPCreated(floatingIp);
+                }
+            }
+
+            @Override
+            void update(NeutronFloatingIP floatingIp) {
+                // only the port association is written by the handler
+                NeutronFloatingIP delta = new NeutronFloatingIP();
+                delta.setFloatingIPUUID(floatingIp.getFloatingIPUUID());
+                delta.setPortUUID(floatingIp.getPortUUID());
+                if (handler.canUpdateFloatingIP(delta, floatingIp) == HttpURLConnection.HTTP_OK) {
+                    handler.neutronFloatingIPUpdated(floatingIp);
+                }
+            }
+
+            @Override
+            void delete(NeutronFloatingIP floatingIp) {
+                if (handler.canDeleteFloatingIP(floatingIp) == HttpURLConnection.HTTP_OK) {
+                    handler.neutronFloatingIPDeleted(floatingIp);
+                }
+            }
+        };
+    }
+}
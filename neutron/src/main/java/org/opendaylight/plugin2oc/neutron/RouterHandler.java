@@ -67,6 +67,9 @@ public class RouterHandler implements INeutronRouterAware {
             LOGGER.error("Router name can't be null/empty.");
             return HttpURLConnection.HTTP_BAD_REQUEST;
         }
+        if (!StartupPreloader.isReady() || CircuitBreaker.isOpen()) {
+            return HttpURLConnection.HTTP_UNAVAILABLE;
+        }
         try {
             String projectUUID = router.getTenantID();
             String routerUUID = router.getRouterUUID();
@@ -90,28 +93,20 @@ public class RouterHandler implements INeutronRouterAware {
                 LOGGER.error("UUID input incorrect", ex);
                 return HttpURLConnection.HTTP_BAD_REQUEST;
             }
-            Project project = (Project) apiConnector.findById(Project.class, projectUUID);
+            Project project = ContrailReplica.awaitById(apiConnector, Project.class, projectUUID);
             if (project == null) {
-                Thread.currentThread();
-                Thread.sleep(3000);
-                project = (Project) apiConnector.findById(Project.class, projectUUID);
-                if (project == null) {
-                    LOGGER.error("Could not find projectUUID...");
-                    return HttpURLConnection.HTTP_NOT_FOUND;
-                }
+                LOGGER.error("Could not find projectUUID...");
+                return HttpURLConnection.HTTP_NOT_FOUND;
             }
-            String routerByName = apiConnector.findByName(LogicalRouter.class, project, router.getName());
+            String routerByName = NameIndex.findByName(apiConnector, LogicalRouter.class, project, router.getName());
             if (routerByName != null) {
                 LOGGER.warn("Router already exists with UUID : " + routerByName);
                 return HttpURLConnection.HTTP_FORBIDDEN;
             }
             return HttpURLConnection.HTTP_OK;
-        } catch (InterruptedException interruptedException) {
-            LOGGER.error("InterruptedException :    ", interruptedException);
-            return HttpURLConnection.HTTP_INTERNAL_ERROR;
         } catch (IOException ie) {
             LOGGER.error("IOException :   " + ie);
-            return HttpURLConnection.HTTP_INTERNAL_ERROR;
+            return CircuitBreaker.statusOf(ie);
         }
     }
 
@@ -143,6 +138,7 @@ public class RouterHandler implements INeutronRouterAware {
      */
     @Override
     public void neutronRouterCreated(NeutronRouter router) {
+        long intent = OperationJournal.begin(OperationJournal.CREATE, OperationJournal.ROUTER, router.getRouterUUID());
         try {
             createRouter(router);
             String routerUUID = router.getRouterUUID();
@@ -161,6 +157,7 @@ public class RouterHandler implements INeutronRouterAware {
         } catch (Exception e) {
             LOGGER.error("Exception :    " + e);
         }
+        OperationJournal.done(intent);
     }
 
     /**
@@ -179,6 +176,9 @@ public class RouterHandler implements INeutronRouterAware {
             LOGGER.info("Router object can't be null...");
             return HttpURLConnection.HTTP_BAD_REQUEST;
         }
+        if (!StartupPreloader.isReady() || CircuitBreaker.isOpen()) {
+            return HttpURLConnection.HTTP_UNAVAILABLE;
+        }
         String routerUUID = router.getRouterUUID();
         try {
             if (!(routerUUID.contains("-"))) {
@@ -220,6 +220,7 @@ public class RouterHandler implements INeutronRouterAware {
      */
     @Override
     public void neutronRouterDeleted(NeutronRouter router) {
+        long intent = OperationJournal.begin(OperationJournal.DELETE, OperationJournal.ROUTER, router.getRouterUUID());
         try {
             String routerUUID = router.getRouterUUID();
             if (!(routerUUID.contains("-"))) {
@@ -236,6 +237,7 @@ public class RouterHandler implements INeutronRouterAware {
         } catch (IOException ex) {
             LOGGER.error("Exception :    " + ex);
         }
+        OperationJournal.done(intent);
     }
 
     /**
@@ -255,6 +257,9 @@ public class RouterHandler implements INeutronRouterAware {
             LOGGER.error("Neutron Router object can't be null..");
             return HttpURLConnection.HTTP_BAD_REQUEST;
         }
+        if (!StartupPreloader.isReady() || CircuitBreaker.isOpen()) {
+            return HttpURLConnection.HTTP_UNAVAILABLE;
+        }
         String networkUUID = null;
         String routerUUID = router.getRouterUUID();
         try {
@@ -270,7 +275,7 @@ public class RouterHandler implements INeutronRouterAware {
             return HttpURLConnection.HTTP_BAD_REQUEST;
         }
         try {
-            LogicalRouter logicalRouter = (LogicalRouter) apiConnector.findById(LogicalRouter.class, routerUUID);
+            LogicalRouter logicalRouter = ContrailReplica.findById(apiConnector, LogicalRouter.class, routerUUID, false);
             if (logicalRouter == null) {
                 LOGGER.warn("Router object not found..");
                 return HttpURLConnection.HTTP_NOT_FOUND;
@@ -278,7 +283,7 @@ public class RouterHandler implements INeutronRouterAware {
             return HttpURLConnection.HTTP_OK;
         } catch (IOException ioEx) {
             LOGGER.error("Exception :    " + ioEx);
-            return HttpURLConnection.HTTP_INTERNAL_ERROR;
+            return CircuitBreaker.statusOf(ioEx);
         }
     }
 
@@ -325,7 +330,7 @@ public class RouterHandler implements INeutronRouterAware {
             return HttpURLConnection.HTTP_OK;
         } catch (Exception e) {
             LOGGER.error("Exception :    " + e);
-            return HttpURLConnection.HTTP_INTERNAL_ERROR;
+            return CircuitBreaker.statusOf(e);
         }
     }
 
@@ -337,6 +342,7 @@ public class RouterHandler implements INeutronRouterAware {
      */
     @Override
     public void neutronRouterUpdated(NeutronRouter updatedRouter) {
+        long intent = OperationJournal.begin(OperationJournal.UPDATE, OperationJournal.ROUTER, updatedRouter.getRouterUUID());
         try {
             String routerUUID = updatedRouter.getRouterUUID();
             String networkUUID = null;
@@ -368,7 +374,7 @@ public class RouterHandler implements INeutronRouterAware {
         } catch (Exception ex) {
             LOGGER.error("Exception :    " + ex);
         }
-
+        OperationJournal.done(intent);
     }
 
     /**
@@ -385,6 +391,9 @@ public class RouterHandler implements INeutronRouterAware {
     @Override
     public int canAttachInterface(NeutronRouter router, NeutronRouter_Interface routerInterface) {
         apiConnector = Activator.apiConnector;
+        if (!StartupPreloader.isReady() || CircuitBreaker.isOpen()) {
+            return HttpURLConnection.HTTP_UNAVAILABLE;
+        }
         String portUUId = routerInterface.getPortUUID();
         String routerUUId = router.getRouterUUID();
         try {
@@ -428,18 +437,16 @@ public class RouterHandler implements INeutronRouterAware {
             }
             routerUUId = UUID.fromString(routerUUId).toString();
             logicalRouter = (LogicalRouter) apiConnector.findById(LogicalRouter.class, routerUUId);
-            virtualMachineInterface = (VirtualMachineInterface) apiConnector.findById(VirtualMachineInterface.class, portUUId);
+            virtualMachineInterface = interfaceOf(ProjectedReads.summary(apiConnector, VirtualMachineInterface.class, portUUId, false,
+                    "fq_name"));
             if (virtualMachineInterface != null) {
                 logicalRouter.addVirtualMachineInterface(virtualMachineInterface);
             }
             // virtualMachineInterface.setDeviceOwner(); // TODO : Support needs
             // to be added
             // virtualMachineInterface.setDeviceId();
-            boolean updateVMI = apiConnector.update(virtualMachineInterface);
-            if (!updateVMI) {
-                LOGGER.warn("virtualMachineInterface updation failed..");
-            }
-            boolean interfaceAttached = apiConnector.update(logicalRouter);
+            // the link is held by the router, the interface itself is unchanged
+            boolean interfaceAttached = DeltaUpdates.addRef(apiConnector, logicalRouter, virtualMachineInterface, null);
             if (!interfaceAttached) {
                 LOGGER.warn("Interface attachment failed..");
             }
@@ -482,6 +489,9 @@ public class RouterHandler implements INeutronRouterAware {
     @Override
     public int canDetachInterface(NeutronRouter router, NeutronRouter_Interface routerInterface) {
         apiConnector = Activator.apiConnector;
+        if (!StartupPreloader.isReady() || CircuitBreaker.isOpen()) {
+            return HttpURLConnection.HTTP_UNAVAILABLE;
+        }
         String portUUID = routerInterface.getPortUUID();
         String routerUUID = router.getRouterUUID();
         try {
@@ -498,17 +508,15 @@ public class RouterHandler implements INeutronRouterAware {
             return HttpURLConnection.HTTP_BAD_REQUEST;
         }
         try {
-            LogicalRouter logicalRouter = (LogicalRouter) apiConnector.findById(LogicalRouter.class, routerUUID);
+            ObjectSummary logicalRouter = ProjectedReads.summary(apiConnector, LogicalRouter.class, routerUUID, true,
+                    "virtual_machine_interface_refs");
             if (logicalRouter != null) {
-                List<ObjectReference<ApiPropertyBase>> vmiList = logicalRouter.getVirtualMachineInterface();
-                if (vmiList != null) {
-                    for (ObjectReference<ApiPropertyBase> vmiRef : vmiList) {
-                        if (vmiRef.getUuid().matches(portUUID)) {
-                            return HttpURLConnection.HTTP_OK;
-                        } else {
-                            LOGGER.error("No interface attached with port ID " + portUUID);
-                            return HttpURLConnection.HTTP_BAD_REQUEST;
-                        }
+                for (String vmiUUID : logicalRouter.refs("virtual_machine_interface_refs")) {
+                    if (vmiUUID.matches(portUUID)) {
+                        return HttpURLConnection.HTTP_OK;
+                    } else {
+                        LOGGER.error("No interface attached with port ID " + portUUID);
+                        return HttpURLConnection.HTTP_BAD_REQUEST;
                     }
                 }
             } else {
@@ -517,10 +525,10 @@ public class RouterHandler implements INeutronRouterAware {
             }
         } catch (IOException ioEx) {
             LOGGER.error("IOException   : ", ioEx);
-            return HttpURLConnection.HTTP_INTERNAL_ERROR;
+            return CircuitBreaker.statusOf(ioEx);
         } catch (Exception  ex) {
             LOGGER.error("IOException   : ", ex);
-            return HttpURLConnection.HTTP_INTERNAL_ERROR;
+            return CircuitBreaker.statusOf(ex);
         }
         return HttpURLConnection.HTTP_OK;
     }
@@ -559,17 +567,13 @@ public class RouterHandler implements INeutronRouterAware {
                     }
                 }
             }
-            VirtualMachineInterface virtualMachineInterface = (VirtualMachineInterface) apiConnector
-                    .findById(VirtualMachineInterface.class, portUUID);
+            VirtualMachineInterface virtualMachineInterface = interfaceOf(ProjectedReads.summary(apiConnector,
+                    VirtualMachineInterface.class, portUUID, false, "fq_name"));
             // virtualMachineInterface.clearDeviceId(); //TODO - support to be
             // added in OpenContrail
             // virtualMachineInterface.clearDeviceId(); //TODO - support to be
             // added in OpenContrail
-            boolean updateVMI = apiConnector.update(virtualMachineInterface);
-            if (!updateVMI) {
-                LOGGER.warn("virtualMachineInterface updation failed..");
-            }
-            boolean interfaceDetached = apiConnector.update(logicalRouter);
+            boolean interfaceDetached = DeltaUpdates.removeRef(apiConnector, logicalRouter, virtualMachineInterface);
             if (!interfaceDetached) {
                 LOGGER.warn("Interface detachment failed..");
             }
@@ -606,6 +610,30 @@ public class RouterHandler implements INeutronRouterAware {
         }
     }
 
+    /**
+     * Invoked to stand in for a router interface in the refs of a router, the
+     * router holding the link so that the interface is not read in full.
+     *
+     * @param summary
+     *            The summary of the interface, with its qualified name.
+     *
+     * @return An interface having only the UUID and qualified name of the
+     *         summary, null if the summary is null.
+     */
+    private static VirtualMachineInterface interfaceOf(final ObjectSummary summary) {
+        if (summary == null) {
+            return null;
+        }
+        VirtualMachineInterface virtualMachineInterface = new VirtualMachineInterface() {
+            @Override
+            public List<String> getQualifiedName() {
+                return summary.qualifiedName;
+            }
+        };
+        virtualMachineInterface.setUuid(summary.uuid);
+        return virtualMachineInterface;
+    }
+
     /**
      * Invoked to map the NeutronRouter object properties to the logicalRouter
      * object.
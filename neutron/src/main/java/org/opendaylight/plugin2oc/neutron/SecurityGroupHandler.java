@@ -59,6 +59,9 @@ public class SecurityGroupHandler implements INeutronSecurityGroupAware {
             LOGGER.error("SecurityGroup TenantID can't be null...");
             return HttpURLConnection.HTTP_BAD_REQUEST;
         }
+        if (!StartupPreloader.isReady() || CircuitBreaker.isOpen()) {
+            return HttpURLConnection.HTTP_UNAVAILABLE;
+        }
         LOGGER.debug("SecurityGroup object " + neutronSecurityGroup);
         try {
             String secGroupUUID = neutronSecurityGroup.getSecurityGroupUUID();
@@ -82,27 +85,18 @@ public class SecurityGroupHandler implements INeutronSecurityGroupAware {
                 LOGGER.error("UUID input incorrect", ex);
                 return HttpURLConnection.HTTP_BAD_REQUEST;
             }
-            SecurityGroup securityGroup = (SecurityGroup) apiConnector.findById(SecurityGroup.class, secGroupUUID);
+            SecurityGroup securityGroup = ContrailReplica.findById(apiConnector, SecurityGroup.class, secGroupUUID, false);
             if (securityGroup != null) {
                 LOGGER.warn("SecurityGroup already exists..");
                 return HttpURLConnection.HTTP_FORBIDDEN;
             }
-            Project project = (Project) apiConnector.findById(Project.class, projectID);
+            Project project = ContrailReplica.awaitById(apiConnector, Project.class, projectID);
             if (project == null) {
-                try {
-                    Thread.currentThread();
-                    Thread.sleep(3000);
-                } catch (InterruptedException e) {
-                    LOGGER.error("InterruptedException :    ", e);
-                    return HttpURLConnection.HTTP_BAD_REQUEST;
-                }
-                project = (Project) apiConnector.findById(Project.class, projectID);
-                if (project == null) {
-                    LOGGER.error("Could not find projectUUID...");
-                    return HttpURLConnection.HTTP_NOT_FOUND;
-                }
+                LOGGER.error("Could not find projectUUID...");
+                return HttpURLConnection.HTTP_NOT_FOUND;
             }
-            String securityGroupByName = apiConnector.findByName(SecurityGroup.class, project, neutronSecurityGroup.getSecurityGroupName());
+            String securityGroupByName = NameIndex.findByName(apiConnector, SecurityGroup.class, project,
+                    neutronSecurityGroup.getSecurityGroupName());
             if (securityGroupByName != null) {
                 LOGGER.warn("SecurityGroup already exists with UUID : " + securityGroupByName);
                 return HttpURLConnection.HTTP_FORBIDDEN;
@@ -110,10 +104,10 @@ public class SecurityGroupHandler implements INeutronSecurityGroupAware {
             return HttpURLConnection.HTTP_OK;
         } catch (IOException ie) {
             LOGGER.error("IOException :   " + ie);
-            return HttpURLConnection.HTTP_INTERNAL_ERROR;
+            return CircuitBreaker.statusOf(ie);
         } catch (Exception e) {
             LOGGER.error("Exception :   " + e);
-            return HttpURLConnection.HTTP_INTERNAL_ERROR;
+            return CircuitBreaker.statusOf(e);
         }
     }
 
@@ -126,6 +120,8 @@ public class SecurityGroupHandler implements INeutronSecurityGroupAware {
      */
     @Override
     public void neutronSecurityGroupCreated(NeutronSecurityGroup neutronSecurityGroup) {
+        long intent = OperationJournal.begin(OperationJournal.CREATE, OperationJournal.SECURITY_GROUP,
+                neutronSecurityGroup.getSecurityGroupUUID());
         try {
             String secGroupUUID = neutronSecurityGroup.getSecurityGroupUUID();
             if (!(secGroupUUID.contains("-"))) {
@@ -141,6 +137,7 @@ public class SecurityGroupHandler implements INeutronSecurityGroupAware {
         } catch (Exception e) {
             LOGGER.error("Exception :     " + e);
         }
+        OperationJournal.done(intent);
     }
 
     /**
@@ -154,7 +151,7 @@ public class SecurityGroupHandler implements INeutronSecurityGroupAware {
         SecurityGroup securityGroup = mapSecurityGroupProperties(neutronSecurityGroup);
         boolean securityGroupCreated;
         try {
-            securityGroupCreated = apiConnector.create(securityGroup);
+            securityGroupCreated = IdempotentExecutor.create(apiConnector, securityGroup);
             LOGGER.debug("SecurityGroupCreated:   " + securityGroupCreated);
             if (!securityGroupCreated) {
                 LOGGER.warn("SecurityGroup creation failed..");
@@ -218,6 +215,9 @@ public class SecurityGroupHandler implements INeutronSecurityGroupAware {
             LOGGER.error("Neutron SecurityGroup can't be null..");
             return HttpURLConnection.HTTP_BAD_REQUEST;
         }
+        if (!StartupPreloader.isReady() || CircuitBreaker.isOpen()) {
+            return HttpURLConnection.HTTP_UNAVAILABLE;
+        }
         String secGroupUUID = originalSecurityGroup.getSecurityGroupUUID();
         try {
             if (!(secGroupUUID.contains("-"))) {
@@ -229,7 +229,7 @@ public class SecurityGroupHandler implements INeutronSecurityGroupAware {
             return HttpURLConnection.HTTP_BAD_REQUEST;
         }
         try {
-            SecurityGroup securityGroup = (SecurityGroup) apiConnector.findById(SecurityGroup.class, secGroupUUID);
+            SecurityGroup securityGroup = ContrailReplica.findById(apiConnector, SecurityGroup.class, secGroupUUID, false);
             if (securityGroup == null) {
                 LOGGER.warn("SecurityGroup does not exist for the specified UUID..");
                 return HttpURLConnection.HTTP_NOT_FOUND;
@@ -237,10 +237,10 @@ public class SecurityGroupHandler implements INeutronSecurityGroupAware {
             return HttpURLConnection.HTTP_OK;
         } catch (IOException ie) {
             LOGGER.error("IOException:     " + ie);
-            return HttpURLConnection.HTTP_INTERNAL_ERROR;
+            return CircuitBreaker.statusOf(ie);
         } catch (Exception e) {
             LOGGER.error("Exception:     " + e);
-            return HttpURLConnection.HTTP_INTERNAL_ERROR;
+            return CircuitBreaker.statusOf(e);
         }
     }
 
@@ -253,6 +253,8 @@ public class SecurityGroupHandler implements INeutronSecurityGroupAware {
      */
     @Override
     public void neutronSecurityGroupUpdated(NeutronSecurityGroup updatedSecurityGroup) {
+        long intent = OperationJournal.begin(OperationJournal.UPDATE, OperationJournal.SECURITY_GROUP,
+                updatedSecurityGroup.getSecurityGroupUUID());
         try {
             String secGroupUUID = updatedSecurityGroup.getSecurityGroupUUID();
             if (!(secGroupUUID.contains("-"))) {
@@ -269,6 +271,7 @@ public class SecurityGroupHandler implements INeutronSecurityGroupAware {
         } catch (Exception ex) {
             LOGGER.error("Exception :" + ex);
         }
+        OperationJournal.done(intent);
     }
 
     /**
@@ -287,7 +290,7 @@ public class SecurityGroupHandler implements INeutronSecurityGroupAware {
             SecurityGroup securityGroup = (SecurityGroup) apiConnector.findById(SecurityGroup.class, secGroupUUID);
             securityGroup.setDisplayName(neutronSecurityGroup.getSecurityGroupName());
             boolean securityGroupUpdate;
-            securityGroupUpdate = apiConnector.update(securityGroup);
+            securityGroupUpdate = IdempotentExecutor.update(apiConnector, securityGroup);
             if (!securityGroupUpdate) {
                 LOGGER.warn("SecurityGroup Updation failed..");
             } else {
@@ -313,6 +316,9 @@ public class SecurityGroupHandler implements INeutronSecurityGroupAware {
     @Override
     public int canDeleteNeutronSecurityGroup(NeutronSecurityGroup neutronSecurityGroup) {
         apiConnector = Activator.apiConnector;
+        if (!StartupPreloader.isReady() || CircuitBreaker.isOpen()) {
+            return HttpURLConnection.HTTP_UNAVAILABLE;
+        }
         String secGroupUUID = neutronSecurityGroup.getSecurityGroupUUID();
         try {
             if (!(secGroupUUID.contains("-"))) {
@@ -324,7 +330,7 @@ public class SecurityGroupHandler implements INeutronSecurityGroupAware {
             return HttpURLConnection.HTTP_BAD_REQUEST;
         }
         try {
-            SecurityGroup securityGroup = (SecurityGroup) apiConnector.findById(SecurityGroup.class, secGroupUUID);
+            SecurityGroup securityGroup = ContrailReplica.findById(apiConnector, SecurityGroup.class, secGroupUUID, true);
             if (securityGroup == null) {
                 LOGGER.warn("SecurityGroup does not exist for the specified UUID..");
                 return HttpURLConnection.HTTP_NOT_FOUND;
@@ -337,7 +343,7 @@ public class SecurityGroupHandler implements INeutronSecurityGroupAware {
             }
         } catch (Exception e) {
             LOGGER.error("Exception : " + e);
-            return HttpURLConnection.HTTP_INTERNAL_ERROR;
+            return CircuitBreaker.statusOf(e);
         }
     }
 
@@ -350,6 +356,8 @@ public class SecurityGroupHandler implements INeutronSecurityGroupAware {
      */
     @Override
     public void neutronSecurityGroupDeleted(NeutronSecurityGroup neutronSecurityGroup) {
+        long intent = OperationJournal.begin(OperationJournal.DELETE, OperationJournal.SECURITY_GROUP,
+                neutronSecurityGroup.getSecurityGroupUUID());
         String secGroupUUID = neutronSecurityGroup.getSecurityGroupUUID();
         try {
             if (!(secGroupUUID.contains("-"))) {
@@ -368,6 +376,7 @@ public class SecurityGroupHandler implements INeutronSecurityGroupAware {
         } catch (Exception e) {
             LOGGER.error("Exception :   " + e);
         }
+        OperationJournal.done(intent);
     }
 
 }
@@ -51,12 +51,15 @@ public class SecurityGroupRulesHandler implements INeutronSecurityRuleAware {
      */
     @Override
     public int canCreateNeutronSecurityRule(NeutronSecurityRule securityRule) {
-        SecurityGroup virtualSecurityGroup;
+        ObjectSummary virtualSecurityGroup;
         apiConnector = Activator.apiConnector;
         if (securityRule == null) {
             LOGGER.error("SecurityGroupRule object can't be null..");
             return HttpURLConnection.HTTP_BAD_REQUEST;
         }
+        if (!StartupPreloader.isReady() || CircuitBreaker.isOpen()) {
+            return HttpURLConnection.HTTP_UNAVAILABLE;
+        }
         if(securityRule.getSecurityRuleUUID() == null || securityRule.getSecurityRuleUUID() == "")
         {
             LOGGER.error("SecurityGroup Rule UUID can't be null/empty...");
@@ -123,26 +126,20 @@ public class SecurityGroupRulesHandler implements INeutronSecurityRuleAware {
         }
         secGroupRuleUUID = UUID.fromString(secGroupRuleUUID).toString();
         try {
-            virtualSecurityGroup = (SecurityGroup) apiConnector.findById(SecurityGroup.class, secGroupRuleUUID);
+            virtualSecurityGroup = ProjectedReads.summary(apiConnector, SecurityGroup.class, secGroupRuleUUID, false,
+                    ObjectSummary.SECURITY_GROUP_ENTRIES);
         } catch (IOException e) {
             LOGGER.error("Exception :     " + e);
-            return HttpURLConnection.HTTP_INTERNAL_ERROR;
+            return CircuitBreaker.statusOf(e);
         }
         if (virtualSecurityGroup == null) {
             LOGGER.warn("SecurityGroup does not exists for the specified security group ID");
             return HttpURLConnection.HTTP_FORBIDDEN;
         }
-        if (virtualSecurityGroup.getEntries() != null) {
-            if (virtualSecurityGroup.getEntries().getPolicyRule().isEmpty() == false) {
-                ListIterator<PolicyRuleType> i = virtualSecurityGroup.getEntries().getPolicyRule().listIterator();
-                PolicyRuleType policyRule;
-                while (i.hasNext()) {
-                    policyRule = (PolicyRuleType) i.next();
-                    if (policyRule.getRuleUuid().equalsIgnoreCase(securityRule.getSecurityRuleUUID())) {
-                        LOGGER.warn("SecurityGroup rule already exsist for the specified security group");
-                        return HttpURLConnection.HTTP_CONFLICT;
-                    }
-                }
+        for (String ruleUUID : virtualSecurityGroup.ruleUuids) {
+            if (ruleUUID.equalsIgnoreCase(securityRule.getSecurityRuleUUID())) {
+                LOGGER.warn("SecurityGroup rule already exsist for the specified security group");
+                return HttpURLConnection.HTTP_CONFLICT;
             }
         }
         if (securityRule.getSecurityRemoteGroupID() == null && securityRule.getSecurityRuleRemoteIpPrefix() == null) {
@@ -163,10 +160,10 @@ public class SecurityGroupRulesHandler implements INeutronSecurityRuleAware {
             }
             secGroupRuleUUID = UUID.fromString(secGroupRuleUUID).toString();
             try {
-                virtualSecurityGroup = (SecurityGroup) apiConnector.findById(SecurityGroup.class, secGroupRuleUUID);
+                virtualSecurityGroup = ProjectedReads.summary(apiConnector, SecurityGroup.class, secGroupRuleUUID, false, "fq_name");
             } catch (IOException e) {
                 LOGGER.error("Exception :     " + e);
-                return HttpURLConnection.HTTP_INTERNAL_ERROR;
+                return CircuitBreaker.statusOf(e);
             }
             if (virtualSecurityGroup == null) {
                 LOGGER.warn("SecurityRemoteGroup does not exists for the specified security group ID");
@@ -281,7 +278,10 @@ public class SecurityGroupRulesHandler implements INeutronSecurityRuleAware {
     @Override
     public int canDeleteNeutronSecurityRule(NeutronSecurityRule securityRule) {
         apiConnector = Activator.apiConnector;
-        SecurityGroup virtualSecurityGroup = null;
+        if (!StartupPreloader.isReady() || CircuitBreaker.isOpen()) {
+            return HttpURLConnection.HTTP_UNAVAILABLE;
+        }
+        ObjectSummary virtualSecurityGroup = null;
         String secGroupRuleUUID = securityRule.getSecurityRuleGroupID();
         if (!(securityRule.getSecurityRuleGroupID().contains("-"))) {
             secGroupRuleUUID = Utils.uuidFormater(securityRule.getSecurityRuleGroupID());
@@ -293,27 +293,21 @@ public class SecurityGroupRulesHandler implements INeutronSecurityRuleAware {
         }
         secRuleUUID = UUID.fromString(secRuleUUID).toString();
         try {
-            virtualSecurityGroup = (SecurityGroup) apiConnector.findById(SecurityGroup.class, secGroupRuleUUID);
+            virtualSecurityGroup = ProjectedReads.summary(apiConnector, SecurityGroup.class, secGroupRuleUUID, false,
+                    ObjectSummary.SECURITY_GROUP_ENTRIES);
         } catch (IOException e) {
             LOGGER.error("Exception :     " + e);
-            return HttpURLConnection.HTTP_INTERNAL_ERROR;
+            return CircuitBreaker.statusOf(e);
         }
         if (virtualSecurityGroup == null) {
             LOGGER.warn("SecurityGroup does not exists for the specified security group ID");
             return HttpURLConnection.HTTP_FORBIDDEN;
             }
         boolean flag = false;
-        if (virtualSecurityGroup.getEntries() != null) {
-            if (virtualSecurityGroup.getEntries().getPolicyRule().isEmpty() == false) {
-                ListIterator<PolicyRuleType> i = virtualSecurityGroup.getEntries().getPolicyRule().listIterator();
-                PolicyRuleType policyRule;
-                while (i.hasNext()) {
-                    policyRule = (PolicyRuleType) i.next();
-                    if (policyRule.getRuleUuid().equalsIgnoreCase(secRuleUUID)) {
-                        LOGGER.info("SecurityGroup rule can be deleted...");
-                        flag = true;
-                    }
-                }
+        for (String ruleUUID : virtualSecurityGroup.ruleUuids) {
+            if (ruleUUID.equalsIgnoreCase(secRuleUUID)) {
+                LOGGER.info("SecurityGroup rule can be deleted...");
+                flag = true;
             }
         }
         if (flag == false) {
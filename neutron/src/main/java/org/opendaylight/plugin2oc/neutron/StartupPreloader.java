@@ -0,0 +1,339 @@
+/*
+ * Copyright (C) 2014 Juniper Networks, Inc.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ *
+ */
+package org.opendaylight.plugin2oc.neutron;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import net.juniper.contrail.api.ApiConnector;
+import net.juniper.contrail.api.ApiObjectBase;
+import net.juniper.contrail.api.types.FloatingIpPool;
+import net.juniper.contrail.api.types.LogicalRouter;
+import net.juniper.contrail.api.types.Project;
+import net.juniper.contrail.api.types.SecurityGroup;
+import net.juniper.contrail.api.types.VirtualMachineInterface;
+import net.juniper.contrail.api.types.VirtualNetwork;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Bootstrap phase started from {@link Activator#init()} and run in the
+ * background, so that the activation of the bundle does not wait for it.
+ * Every preloaded type is listed once, the listing also loading the
+ * {@link NameIndex}. When plugin2oc.preload.objects is set, the objects are
+ * fetched as well, by a bounded number of threads, and put in the shared
+ * caches until one replica lifetime after the preload: the
+ * {@link ContrailReplica} for every type, the {@link NetworkSubnetIndex} for
+ * the networks and the {@link FloatingIpPoolCache} for the pools. With
+ * config API servers to send them to, the whole objects are listed a page
+ * at a time through {@link ProjectedReads}, otherwise the listed objects
+ * are read in pages of single reads through the connector. The plugin is
+ * reported ready once every type has been listed. Until then, for at most
+ * plugin2oc.preload.maxNotReady milliseconds, the canXxx methods of the
+ * handlers answer 503, and a preload that failed or timed out is retried
+ * every plugin2oc.preload.retryInterval milliseconds.
+ */
+final class StartupPreloader {
+    static final Logger LOGGER = LoggerFactory.getLogger(StartupPreloader.class);
+    static final String PARALLELISM_PROPERTY = "plugin2oc.preload.parallelism";
+    static final String PAGE_SIZE_PROPERTY = "plugin2oc.preload.pageSize";
+    static final String TIMEOUT_PROPERTY = "plugin2oc.preload.timeout";
+    static final String OBJECTS_PROPERTY = "plugin2oc.preload.objects";
+    static final String RETRY_INTERVAL_PROPERTY = "plugin2oc.preload.retryInterval";
+    static final String MAX_NOT_READY_PROPERTY = "plugin2oc.preload.maxNotReady";
+    static final List<Class<? extends ApiObjectBase>> TYPES = new ArrayList<Class<? extends ApiObjectBase>>();
+    static {
+        TYPES.add(Project.class);
+        TYPES.add(VirtualNetwork.class);
+        TYPES.add(VirtualMachineInterface.class);
+        TYPES.add(SecurityGroup.class);
+        TYPES.add(LogicalRouter.class);
+        TYPES.add(FloatingIpPool.class);
+    }
+
+    private static volatile boolean ready = true;
+    private static volatile long notReadySince;
+
+    private final ApiConnector apiConnector;
+    private final NameIndex nameIndex;
+    private final int pageSize;
+    private ScheduledExecutorService retries;
+
+    StartupPreloader(ApiConnector apiConnector, NameIndex nameIndex, int pageSize) {
+        this.apiConnector = apiConnector;
+        this.nameIndex = nameIndex;
+        this.pageSize = Math.max(1, pageSize);
+    }
+
+    /**
+     * @return false while the startup preload has not succeeded and was
+     *         started less than plugin2oc.preload.maxNotReady milliseconds
+     *         ago, the handlers must then refuse requests.
+     */
+    static boolean isReady() {
+        if (ready) {
+            return true;
+        }
+        // past the window the requests are served from the API server, the caches filling on demand
+        return System.nanoTime() - notReadySince >= TimeUnit.MILLISECONDS.toNanos(Long.getLong(MAX_NOT_READY_PROPERTY, 60000L));
+    }
+
+    private static void notReady() {
+        if (ready) {
+            // set before the flag so that no caller sees it not ready with a stale time
+            notReadySince = System.nanoTime();
+            ready = false;
+        }
+    }
+
+    /**
+     * Invoked from {@link Activator#init()} to preload the caches in the
+     * background, retrying until the preload succeeds.
+     *
+     * @param nameIndex
+     *            The name index to load, null if it is disabled.
+     *
+     * @return The preloader, null if there is no connector.
+     */
+    static StartupPreloader start(ApiConnector apiConnector, NameIndex nameIndex) {
+        if (apiConnector == null) {
+            ready = true;
+            return null;
+        }
+        notReady();
+        final StartupPreloader preloader = new StartupPreloader(apiConnector, nameIndex, Integer.getInteger(PAGE_SIZE_PROPERTY, 100));
+        final long interval = Math.max(1, Long.getLong(RETRY_INTERVAL_PROPERTY, 10000L));
+        preloader.retries = Executors.newSingleThreadScheduledExecutor(ReconciliationService.daemonThreads("plugin2oc-preload-retry"));
+        preloader.retries.scheduleWithFixedDelay(new Runnable() {
+            private boolean retried;
+
+            @Override
+            public void run() {
+                if (StartupPreloader.run(preloader.apiConnector, preloader.nameIndex)) {
+                    preloader.retries.shutdown();
+                } else if (!retried) {
+                    retried = true;
+                    LOGGER.warn("plugin2oc not ready, startup preload retried every " + interval + " ms");
+                }
+            }
+        }, 0, interval, TimeUnit.MILLISECONDS);
+        return preloader;
+    }
+
+    void stop() {
+        if (retries != null) {
+            retries.shutdownNow();
+        }
+    }
+
+    /**
+     * Invoked to preload the caches, waiting at most plugin2oc.preload.timeout
+     * milliseconds.
+     *
+     * @param nameIndex
+     *            The name index to load, null if it is disabled.
+     *
+     * @return true if every type could be listed, the plugin is then ready.
+     */
+    static boolean run(ApiConnector apiConnector, NameIndex nameIndex) {
+        if (apiConnector == null) {
+            ready = true;
+            return true;
+        }
+        notReady();
+        long start = System.nanoTime();
+        ExecutorService workers = Executors.newFixedThreadPool(Math.max(1, Integer.getInteger(PARALLELISM_PROPERTY, 4)),
+                ReconciliationService.daemonThreads("plugin2oc-preload"));
+        try {
+            StartupPreloader preloader = new StartupPreloader(apiConnector, nameIndex, Integer.getInteger(PAGE_SIZE_PROPERTY, 100));
+            long deadline = start + TimeUnit.MILLISECONDS.toNanos(Long.getLong(TIMEOUT_PROPERTY, 60000L));
+            int objects = preloader.preload(workers, deadline);
+            if (objects < 0) {
+                return false;
+            }
+            ready = true;
+            LOGGER.info("plugin2oc ready, preloaded " + objects + " objects in " + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) + " ms");
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } finally {
+            workers.shutdownNow();
+        }
+    }
+
+    /**
+     * Invoked to list every type and fetch the listed objects.
+     *
+     * @return The number of objects fetched, -1 if a type could not be
+     *         listed.
+     */
+    int preload(ExecutorService workers, final long deadline) throws InterruptedException {
+        Map<Class<? extends ApiObjectBase>, Future<List<? extends ApiObjectBase>>> listings =
+                new LinkedHashMap<Class<? extends ApiObjectBase>, Future<List<? extends ApiObjectBase>>>();
+        final boolean fetch = Boolean.getBoolean(OBJECTS_PROPERTY);
+        final boolean paged = fetch && !ProjectedReads.servers().isEmpty();
+        for (final Class<? extends ApiObjectBase> type : TYPES) {
+            listings.put(type, workers.submit(new Callable<List<? extends ApiObjectBase>>() {
+                @Override
+                public List<? extends ApiObjectBase> call() throws Exception {
+                    return paged ? listPages(type, deadline) : list(type);
+                }
+            }));
+        }
+        if (nameIndex != null) {
+            // the indexed types that are not preloaded still get their first load
+            for (final Class<? extends ApiObjectBase> type : NameIndex.TYPES) {
+                if (!TYPES.contains(type)) {
+                    listings.put(type, workers.submit(new Callable<List<? extends ApiObjectBase>>() {
+                        @Override
+                        public List<? extends ApiObjectBase> call() throws Exception {
+                            return nameIndex.load(type);
+                        }
+                    }));
+                }
+            }
+        }
+        List<Callable<Integer>> pages = new ArrayList<Callable<Integer>>();
+        boolean listedAll = true;
+        int fetched = 0;
+        for (Map.Entry<Class<? extends ApiObjectBase>, Future<List<? extends ApiObjectBase>>> listing : listings.entrySet()) {
+            List<? extends ApiObjectBase> listed = await(listing.getKey(), listing.getValue(), deadline);
+            listedAll &= listed != null;
+            if (listed == null || !fetch || !TYPES.contains(listing.getKey())) {
+                continue;
+            }
+            if (paged) {
+                fetched += listed.size();
+                continue;
+            }
+            for (int from = 0; from < listed.size(); from += pageSize) {
+                pages.add(page(listing.getKey(), listed.subList(from, Math.min(listed.size(), from + pageSize)), deadline));
+            }
+        }
+        long remaining = deadline - System.nanoTime();
+        if (!listedAll) {
+            return -1;
+        }
+        if (pages.isEmpty() || remaining <= 0) {
+            return fetched;
+        }
+        for (Future<Integer> page : workers.invokeAll(pages, remaining, TimeUnit.NANOSECONDS)) {
+            try {
+                fetched += page.get();
+            } catch (Exception e) {
+                LOGGER.warn("Preload page not completed : " + e);
+            }
+        }
+        return fetched;
+    }
+
+    private List<? extends ApiObjectBase> list(Class<? extends ApiObjectBase> type) throws Exception {
+        if (nameIndex != null && NameIndex.TYPES.contains(type)) {
+            return nameIndex.load(type);
+        }
+        return apiConnector.list(type, null);
+    }
+
+    /**
+     * Invoked to list the whole objects of a type a page at a time, putting
+     * them in the caches as they come.
+     *
+     * @return The objects listed.
+     */
+    private List<? extends ApiObjectBase> listPages(final Class<? extends ApiObjectBase> type, final long deadline) throws Exception {
+        Callable<List<? extends ApiObjectBase>> listing = new Callable<List<? extends ApiObjectBase>>() {
+            @Override
+            public List<? extends ApiObjectBase> call() throws IOException {
+                List<ApiObjectBase> listed = new ArrayList<ApiObjectBase>();
+                String marker = null;
+                while (true) {
+                    if (Thread.currentThread().isInterrupted()) {
+                        throw new InterruptedIOException("Listing of " + type.getSimpleName() + " interrupted");
+                    }
+                    ProjectedReads.Page page = ProjectedReads.page(type, pageSize, marker);
+                    for (ApiObjectBase object : page.objects) {
+                        cache(type, object, deadline);
+                        listed.add(object);
+                    }
+                    // a server ignoring the page limit answers every object at once
+                    if (page.size != pageSize || page.marker == null || page.marker.equals(marker)) {
+                        return listed;
+                    }
+                    marker = page.marker;
+                }
+            }
+        };
+        if (nameIndex != null && NameIndex.TYPES.contains(type)) {
+            return nameIndex.load(type, listing);
+        }
+        return listing.call();
+    }
+
+    private static List<? extends ApiObjectBase> await(Class<?> type, Future<List<? extends ApiObjectBase>> listing, long deadline)
+            throws InterruptedException {
+        try {
+            return listing.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+        } catch (Exception e) {
+            listing.cancel(true);
+            LOGGER.warn("Could not list " + type.getSimpleName() + " : " + e);
+            return null;
+        }
+    }
+
+    /**
+     * @param deadline
+     *            The end of the preload, the objects are held in the replica
+     *            until one replica lifetime after it.
+     *
+     * @return A task fetching a page of listed objects into the caches.
+     */
+    Callable<Integer> page(final Class<? extends ApiObjectBase> type, final List<? extends ApiObjectBase> listed, final long deadline) {
+        return new Callable<Integer>() {
+            @Override
+            public Integer call() throws Exception {
+                int fetched = 0;
+                for (ApiObjectBase object : listed) {
+                    if (Thread.currentThread().isInterrupted()) {
+                        break;
+                    }
+                    ApiObjectBase full = apiConnector.findById(type, object.getUuid());
+                    if (full != null) {
+                        cache(type, full, deadline);
+                        fetched++;
+                    }
+                }
+                return fetched;
+            }
+        };
+    }
+
+    /**
+     * Invoked to put a whole object in the caches.
+     */
+    void cache(Class<? extends ApiObjectBase> type, ApiObjectBase full, long deadline) {
+        ContrailReplica.preload(apiConnector, type, full, deadline);
+        if (full instanceof VirtualNetwork) {
+            NetworkSubnetIndex.forNetwork(apiConnector, (VirtualNetwork) full);
+        } else if (full instanceof FloatingIpPool) {
+            FloatingIpPoolCache.preload(apiConnector, (FloatingIpPool) full);
+        }
+    }
+}
@@ -0,0 +1,243 @@
+/*
+ * Copyright (C) 2014 Juniper Networks, Inc.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ *
+ */
+package org.opendaylight.plugin2oc.neutron;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+import net.juniper.contrail.api.ApiConnector;
+
+import org.opendaylight.controller.networkconfig.neutron.INeutronPortCRUD;
+import org.opendaylight.controller.networkconfig.neutron.NeutronCRUDInterfaces;
+import org.opendaylight.controller.networkconfig.neutron.NeutronPort;
+import org.opendaylight.controller.networkconfig.neutron.NeutronSubnet;
+import org.opendaylight.controller.networkconfig.neutron.NeutronSubnet_IPAllocationPool;
+import org.opendaylight.controller.networkconfig.neutron.Neutron_IPs;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Local allocator of the fixed IP addresses of a Neutron subnet. The
+ * allocation pools of the subnet are kept as an {@link AddressRangeSet},
+ * seeded once from the fixed IPs of the existing Neutron ports, so ports
+ * created without an address each get a distinct free address. The
+ * {@link PortHandler} skips the addresses the Neutron subnet has in use and
+ * allocates and releases the addresses it picks in the Neutron subnet too, so
+ * both keep track of the same addresses.
+ */
+final class SubnetAddressAllocator {
+    static final Logger LOGGER = LoggerFactory.getLogger(SubnetAddressAllocator.class);
+    /**
+     * Largest allocation pool tracked locally, the size of a /12.
+     */
+    static final long MAX_POOL_SIZE = 1L << 20;
+    private static final ConnectorScopedCache<String, SubnetAddressAllocator> ALLOCATORS = new ConnectorScopedCache<String, SubnetAddressAllocator>();
+    /**
+     * Locks guarding the addresses of the Neutron subnets, one per stripe of
+     * subnet UUIDs so the set stays fixed as subnets come and go.
+     */
+    private static final ReentrantLock[] LOCKS = new ReentrantLock[64];
+
+    static {
+        for (int i = 0; i < LOCKS.length; i++) {
+            LOCKS[i] = new ReentrantLock();
+        }
+    }
+
+    private final AddressRangeSet addresses;
+
+    private SubnetAddressAllocator(AddressRangeSet addresses) {
+        this.addresses = addresses;
+    }
+
+    /**
+     * Invoked to get the allocator of a subnet, building and seeding it on
+     * first use.
+     *
+     * @param apiConnector
+     *            The connector currently used by the handlers.
+     * @param subnet
+     *            An instance of the Neutron subnet.
+     * @param crudOwner
+     *            The handler used to look up the Neutron port CRUD service
+     *            when the allocator has to be seeded.
+     *
+     * @return The allocator, or null if the subnet is not an IPv4 subnet
+     *         whose pools can be tracked locally.
+     */
+    static SubnetAddressAllocator forSubnet(ApiConnector apiConnector, NeutronSubnet subnet, Object crudOwner) {
+        ConcurrentMap<String, SubnetAddressAllocator> allocators = ALLOCATORS.bind(apiConnector);
+        SubnetAddressAllocator allocator = allocators.get(subnet.getSubnetUUID());
+        if (allocator != null) {
+            return allocator;
+        }
+        AddressRangeSet addresses = rangesOf(subnet);
+        if (addresses == null) {
+            return null;
+        }
+        allocator = new SubnetAddressAllocator(addresses);
+        int seeded = 0;
+        INeutronPortCRUD portCRUD = NeutronCRUDInterfaces.getINeutronPortCRUD(crudOwner);
+        if (portCRUD != null && portCRUD.getAllPorts() != null) {
+            for (NeutronPort port : portCRUD.getAllPorts()) {
+                if (port.getFixedIPs() == null) {
+                    continue;
+                }
+                for (Neutron_IPs fixedIp : port.getFixedIPs()) {
+                    if (subnet.getSubnetUUID().equals(fixedIp.getSubnetUUID()) && allocator.claim(fixedIp.getIpAddress())) {
+                        seeded++;
+                    }
+                }
+            }
+        }
+        LOGGER.debug("Address allocator of subnet " + subnet.getCidr() + " tracks " + addresses.rangeCount() + " pool(s), " + seeded
+                + " address(es) in use");
+        SubnetAddressAllocator existing = allocators.putIfAbsent(subnet.getSubnetUUID(), allocator);
+        return existing != null ? existing : allocator;
+    }
+
+    private static AddressRangeSet rangesOf(NeutronSubnet subnet) {
+        SubnetPrefixTrie.Prefix prefix = SubnetPrefixTrie.Prefix.parse(subnet.getCidr());
+        if (prefix == null || prefix.address.length != 4) {
+            return null;
+        }
+        List<AddressBitmap> ranges = new ArrayList<AddressBitmap>();
+        List<NeutronSubnet_IPAllocationPool> pools = subnet.getAllocationPools();
+        if (pools == null || pools.isEmpty()) {
+            if (prefix.length > 30) {
+                return null;
+            }
+            long network = 0;
+            for (byte part : prefix.address) {
+                network = (network << 8) | (part & 0xff);
+            }
+            long size = (1L << (32 - prefix.length)) - 2;
+            if (size > MAX_POOL_SIZE) {
+                return null;
+            }
+            ranges.add(new AddressBitmap(network + 1, (int) size));
+        } else {
+            for (NeutronSubnet_IPAllocationPool pool : pools) {
+                long start = Utils.ipv4ToLong(pool.getPoolStart());
+                long end = Utils.ipv4ToLong(pool.getPoolEnd());
+                if (start < 0 || end < start || end - start + 1 > MAX_POOL_SIZE) {
+                    return null;
+                }
+                ranges.add(new AddressBitmap(start, (int) (end - start + 1)));
+            }
+        }
+        AddressRangeSet addresses;
+        try {
+            addresses = new AddressRangeSet(ranges);
+        } catch (IllegalArgumentException e) {
+            LOGGER.warn("Allocation pools of subnet " + subnet.getCidr() + " can not be tracked : " + e.getMessage());
+            return null;
+        }
+        long gateway = Utils.ipv4ToLong(subnet.getGatewayIP());
+        if (gateway >= 0) {
+            addresses.claim(gateway);
+        }
+        return addresses;
+    }
+
+    /**
+     * Invoked to claim an address the port request specified, if the
+     * allocator of its subnet exists.
+     *
+     * @param subnetUUID
+     *            UUID of the Neutron subnet.
+     * @param address
+     *            The requested address.
+     */
+    static void claimed(String subnetUUID, String address) {
+        if (subnetUUID == null || address == null) {
+            return;
+        }
+        SubnetAddressAllocator allocator = ALLOCATORS.entries().get(subnetUUID);
+        if (allocator != null) {
+            allocator.claim(address);
+        }
+    }
+
+    /**
+     * Invoked after an instance IP has been removed to return its address to
+     * the allocator of its subnet, if one exists.
+     *
+     * @param subnetUUID
+     *            UUID of the Neutron subnet.
+     * @param address
+     *            The released address.
+     */
+    static void released(String subnetUUID, String address) {
+        if (subnetUUID == null || address == null) {
+            return;
+        }
+        SubnetAddressAllocator allocator = ALLOCATORS.entries().get(subnetUUID);
+        if (allocator != null) {
+            allocator.release(address);
+        }
+    }
+
+    /**
+     * Invoked to get the lock held while the addresses of a Neutron subnet
+     * are allocated or released. A lock rather than a monitor, so a virtual
+     * thread waiting for it does not pin its carrier.
+     *
+     * @param subnetUUID
+     *            UUID of the Neutron subnet.
+     *
+     * @return The lock of the subnet, shared with the subnets of its stripe.
+     */
+    static ReentrantLock lockOf(String subnetUUID) {
+        return LOCKS[(subnetUUID == null ? 0 : subnetUUID.hashCode() & Integer.MAX_VALUE) % LOCKS.length];
+    }
+
+    /**
+     * Invoked when a subnet is deleted.
+     */
+    static void invalidate(String subnetUUID) {
+        if (subnetUUID != null) {
+            ALLOCATORS.entries().remove(subnetUUID);
+        }
+    }
+
+    /**
+     * Invoked to claim any free address of the subnet.
+     *
+     * @return The claimed address, or null if the pools are exhausted.
+     */
+    String allocate() {
+        long address = addresses.claimNext();
+        return address >= 0 ? Utils.longToIpv4(address) : null;
+    }
+
+    /**
+     * @return true if the address is in the pools and was free.
+     */
+    boolean claim(String address) {
+        long value = Utils.ipv4ToLong(address);
+        return value >= 0 && addresses.claim(value);
+    }
+
+    /**
+     * @return The number of addresses left in the pools.
+     */
+    int freeCount() {
+        return addresses.freeCount();
+    }
+
+    void release(String address) {
+        long value = Utils.ipv4ToLong(address);
+        if (value >= 0) {
+            addresses.release(value);
+        }
+    }
+}
@@ -61,11 +61,18 @@ public class SubnetHandler implements INeutronSubnetAware {
             LOGGER.info("Subnet Cidr can not be empty or null...");
             return HttpURLConnection.HTTP_BAD_REQUEST;
         }
+        if (SubnetPrefixTrie.Prefix.parse(subnet.getCidr()) == null) {
+            LOGGER.info("Subnet Cidr " + subnet.getCidr() + " is not in correct format...");
+            return HttpURLConnection.HTTP_BAD_REQUEST;
+        }
         boolean isvalidGateway = validGatewayIP(subnet, subnet.getGatewayIP());
         if (!isvalidGateway) {
             LOGGER.error("Incorrect gateway IP....");
             return HttpURLConnection.HTTP_BAD_REQUEST;
         }
+        if (!StartupPreloader.isReady() || CircuitBreaker.isOpen()) {
+            return HttpURLConnection.HTTP_UNAVAILABLE;
+        }
         String networkUUID = subnet.getNetworkUUID();
         String subnetUUID = subnet.getSubnetUUID();
         try {
@@ -88,48 +95,31 @@ public class SubnetHandler implements INeutronSubnetAware {
             return HttpURLConnection.HTTP_BAD_REQUEST;
         }
         try {
-            virtualnetwork = (VirtualNetwork) apiConnector.findById(VirtualNetwork.class, networkUUID);
+            virtualnetwork = ContrailReplica.findById(apiConnector, VirtualNetwork.class, networkUUID, false);
         } catch (IOException e) {
             LOGGER.error("Exception : " + e);
-            return HttpURLConnection.HTTP_INTERNAL_ERROR;
+            return CircuitBreaker.statusOf(e);
         }
         if (virtualnetwork == null) {
             LOGGER.error("No network exists for the specified UUID...");
             return HttpURLConnection.HTTP_FORBIDDEN;
         } else {
             try {
-                boolean ifSubnetExist = subnetExists(virtualnetwork.getNetworkIpam(), subnet);
-                if (ifSubnetExist) {
-                    LOGGER.error("The subnet already exists..");
+                NetworkSubnetIndex subnetIndex = NetworkSubnetIndex.forNetwork(apiConnector, virtualnetwork);
+                if (subnetIndex.overlaps(subnet.getCidr())) {
+                    LOGGER.error("The subnet already exists or overlaps an existing subnet..");
                     return HttpURLConnection.HTTP_FORBIDDEN;
                 }
             } catch (Exception e) {
                 LOGGER.error("Exception:  " + e);
-                return HttpURLConnection.HTTP_INTERNAL_ERROR;
+                return CircuitBreaker.statusOf(e);
             }
             return HttpURLConnection.HTTP_OK;
         }
     }
 
     private boolean subnetExists(List<ObjectReference<VnSubnetsType>> ipamRefs, NeutronSubnet subnet) {
-        if (ipamRefs != null) {
-            for (ObjectReference<VnSubnetsType> ref : ipamRefs) {
-                VnSubnetsType vnSubnetsType = ref.getAttr();
-                if (vnSubnetsType != null) {
-                    List<VnSubnetsType.IpamSubnetType> subnets = vnSubnetsType.getIpamSubnets();
-                    if (subnets != null) {
-                        for (VnSubnetsType.IpamSubnetType subnetValue : subnets) {
-                            String[] ipPrefix = getIpPrefix(subnet);
-                            Boolean doesSubnetExist = subnetValue.getSubnet().getIpPrefix().matches(ipPrefix[0]);
-                            if (doesSubnetExist) {
-                                return doesSubnetExist;
-                            }
-                        }
-                    }
-                }
-            }
-        }
-        return false;
+        return NetworkSubnetIndex.of(ipamRefs).exists(subnet.getCidr());
     }
 
     /**
@@ -140,6 +130,8 @@ public class SubnetHandler implements INeutronSubnetAware {
      */
     @Override
     public void neutronSubnetCreated(NeutronSubnet subnet) {
+        long intent = OperationJournal.begin(OperationJournal.CREATE, OperationJournal.SUBNET, subnet.getSubnetUUID(), "network",
+                subnet.getNetworkUUID(), "cidr", subnet.getCidr());
         String networkUUID = subnet.getNetworkUUID();
         String subnetUUID = subnet.getSubnetUUID();
         try {
@@ -162,6 +154,7 @@ public class SubnetHandler implements INeutronSubnetAware {
         } catch (Exception ex) {
             LOGGER.error("Exception :   ", ex);
         }
+        OperationJournal.done(intent);
     }
 
     /**
@@ -177,23 +170,38 @@ public class SubnetHandler implements INeutronSubnetAware {
     private void createSubnet(NeutronSubnet subnet) throws IOException {
         // add subnet properties to the virtual-network object
         String networkUUID = subnet.getNetworkUUID();
+        String subnetUUID = subnet.getSubnetUUID();
         try {
             if (!(networkUUID.contains("-"))) {
                 networkUUID = Utils.uuidFormater(networkUUID);
             }
             networkUUID = UUID.fromString(networkUUID).toString();
+            if (!(subnetUUID.contains("-"))) {
+                subnetUUID = Utils.uuidFormater(subnetUUID);
+            }
+            subnetUUID = UUID.fromString(subnetUUID).toString();
         } catch (Exception ex) {
             LOGGER.error("UUID input incorrect", ex);
         }
         try {
             VirtualNetwork virtualNetwork = (VirtualNetwork) apiConnector.findById(VirtualNetwork.class, networkUUID);
-            virtualNetwork = mapSubnetProperties(subnet, virtualNetwork);
-            boolean subnetCreate = apiConnector.update(virtualNetwork);
+            // the full update replaces the refs to any other IPAM
+            boolean otherIpams = virtualNetwork.getNetworkIpam() != null && virtualNetwork.getNetworkIpam().size() > 1;
+            NetworkIpam ipam = defaultNetworkIpam();
+            virtualNetwork = mapSubnetProperties(subnet, virtualNetwork, ipam);
+            boolean subnetCreate;
+            if (otherIpams || virtualNetwork.getNetworkIpam() == null) {
+                subnetCreate = apiConnector.update(virtualNetwork);
+            } else {
+                subnetCreate = DeltaUpdates.addRef(apiConnector, virtualNetwork, ipam, virtualNetwork.getNetworkIpam().get(0).getAttr());
+            }
             if (!subnetCreate) {
                 LOGGER.warn("Subnet creation failed..");
             } else {
+                NetworkSubnetIndex.subnetAdded(networkUUID, subnetUUID, subnet.getCidr());
                 LOGGER.info("Subnet " + subnet.getCidr() + " sucessfully added to the network having UUID : " + virtualNetwork.getUuid());
             }
+            FloatingIpAllocator.invalidateNetwork(networkUUID);
         } catch (IOException ioEx) {
             LOGGER.error("IOException   : ", ioEx);
         } catch (Exception ex) {
@@ -208,13 +216,14 @@ public class SubnetHandler implements INeutronSubnetAware {
      *            An instance of new Neutron Subnet object.
      * @param virtualNetwork
      *            An instance of new virtualNetwork object.
+     * @param ipam
+     *            The default network IPAM.
      *
      * @return {@link VirtualNetwork}
      */
-    private VirtualNetwork mapSubnetProperties(NeutronSubnet subnet, VirtualNetwork vn) {
+    private VirtualNetwork mapSubnetProperties(NeutronSubnet subnet, VirtualNetwork vn, NetworkIpam ipam) {
         String subnetUUID = subnet.getSubnetUUID();
         String[] ipPrefix = null;
-        NetworkIpam ipam = null;
         VnSubnetsType vnSubnetsType = new VnSubnetsType();
         SubnetType subnetType = new SubnetType();
         try {
@@ -231,11 +240,6 @@ public class SubnetHandler implements INeutronSubnetAware {
             } else {
                 throw new IllegalArgumentException("String " + subnet.getCidr() + " not in correct format..");
             }
-            // Find default-network-ipam
-            String ipamId = apiConnector.findByName(NetworkIpam.class, null, "default-network-ipam");
-            ipam = (NetworkIpam) apiConnector.findById(NetworkIpam.class, ipamId);
-        } catch (IOException ex) {
-            LOGGER.error("IOException :     " + ex);
         } catch (Exception ex) {
             LOGGER.error("Exception :      " + ex);
         }
@@ -261,6 +265,16 @@ public class SubnetHandler implements INeutronSubnetAware {
         return vn;
     }
 
+    /**
+     * Invoked to find the default-network-ipam the subnets are added to.
+     *
+     * @return The IPAM, null if it does not exist.
+     */
+    private NetworkIpam defaultNetworkIpam() throws IOException {
+        String ipamId = apiConnector.findByName(NetworkIpam.class, null, "default-network-ipam");
+        return (NetworkIpam) apiConnector.findById(NetworkIpam.class, ipamId);
+    }
+
     /**
      * Invoked to get the IP Prefix from the Neutron Subnet object.
      *
@@ -313,6 +327,9 @@ public class SubnetHandler implements INeutronSubnetAware {
             }
         }
         apiConnector = Activator.apiConnector;
+        if (!StartupPreloader.isReady() || CircuitBreaker.isOpen()) {
+            return HttpURLConnection.HTTP_UNAVAILABLE;
+        }
         VirtualNetwork virtualnetwork;
         try {
             String networkUUID = originalSubnet.getNetworkUUID();
@@ -325,7 +342,7 @@ public class SubnetHandler implements INeutronSubnetAware {
                 subnetUUID = Utils.uuidFormater(subnetUUID);
             }
             subnetUUID = UUID.fromString(subnetUUID).toString();
-            virtualnetwork = (VirtualNetwork) apiConnector.findById(VirtualNetwork.class, networkUUID);
+            virtualnetwork = ContrailReplica.findById(apiConnector, VirtualNetwork.class, networkUUID, false);
             List<ObjectReference<VnSubnetsType>> ipamRefs = virtualnetwork.getNetworkIpam();
             if (ipamRefs != null) {
                 for (ObjectReference<VnSubnetsType> ref : ipamRefs) {
@@ -346,7 +363,7 @@ public class SubnetHandler implements INeutronSubnetAware {
             }
         } catch (IOException e) {
             LOGGER.error("Exception :     " + e);
-            return HttpURLConnection.HTTP_INTERNAL_ERROR;
+            return CircuitBreaker.statusOf(e);
         }
         LOGGER.warn("Subnet updation failed..");
         return HttpURLConnection.HTTP_BAD_REQUEST;
@@ -360,6 +377,8 @@ public class SubnetHandler implements INeutronSubnetAware {
      */
     @Override
     public void neutronSubnetUpdated(NeutronSubnet subnet) {
+        long intent = OperationJournal.begin(OperationJournal.UPDATE, OperationJournal.SUBNET, subnet.getSubnetUUID(), "network",
+                subnet.getNetworkUUID(), "cidr", subnet.getCidr());
         try {
             boolean ifSubnetExist = false;
             String networkUUID = subnet.getNetworkUUID();
@@ -430,6 +449,7 @@ public class SubnetHandler implements INeutronSubnetAware {
         } catch (Exception ex) {
             LOGGER.error("Exception :     " + ex);
         }
+        OperationJournal.done(intent);
     }
 
     /**
@@ -444,6 +464,9 @@ public class SubnetHandler implements INeutronSubnetAware {
     @Override
     public int canDeleteSubnet(NeutronSubnet subnet) {
         apiConnector = Activator.apiConnector;
+        if (!StartupPreloader.isReady() || CircuitBreaker.isOpen()) {
+            return HttpURLConnection.HTTP_UNAVAILABLE;
+        }
         VirtualNetwork virtualNetwork = null;
         String networkUUID = subnet.getNetworkUUID();
         String subnetUUID = subnet.getSubnetUUID();
@@ -456,8 +479,8 @@ public class SubnetHandler implements INeutronSubnetAware {
                 subnetUUID = Utils.uuidFormater(subnetUUID);
             }
             subnetUUID = UUID.fromString(subnetUUID).toString();
-            virtualNetwork = (VirtualNetwork) apiConnector.findById(VirtualNetwork.class, networkUUID);
-            boolean doesSubnetExist = subnetExists(virtualNetwork.getNetworkIpam(), subnet);
+            virtualNetwork = ContrailReplica.findById(apiConnector, VirtualNetwork.class, networkUUID, true);
+            boolean doesSubnetExist = NetworkSubnetIndex.forNetwork(apiConnector, virtualNetwork).exists(subnet.getCidr());
             if(virtualNetwork.getNetworkIpam()!=null){
                 if (virtualNetwork.getNetworkIpam().get(0).getAttr().getIpamSubnets().size() == 1 && virtualNetwork.getFloatingIpPools() != null) {
                     LOGGER.error("Cannot Delete subnet / IP Block, Floating Pool(s) in use...");
@@ -472,7 +495,7 @@ public class SubnetHandler implements INeutronSubnetAware {
             }
         } catch (Exception ex) {
             LOGGER.error("Exception :     " + ex);
-            return HttpURLConnection.HTTP_INTERNAL_ERROR;
+            return CircuitBreaker.statusOf(ex);
         }
     }
 
@@ -494,14 +517,14 @@ public class SubnetHandler implements INeutronSubnetAware {
             List<VnSubnetsType.IpamSubnetType> subnets = null;
             List<ObjectReference<VnSubnetsType>> ipamRefs = virtualNetwork.getNetworkIpam();
             if (ipamRefs != null) {
+                SubnetPrefixTrie.Prefix prefix = SubnetPrefixTrie.Prefix.parse(subnet.getCidr());
                 for (ObjectReference<VnSubnetsType> ref : ipamRefs) {
                     vnSubnetsType = ref.getAttr();
                     if (vnSubnetsType != null) {
                         subnets = vnSubnetsType.getIpamSubnets();
                         for (VnSubnetsType.IpamSubnetType subnetValue : subnets) {
-                            String[] ipPrefix = getIpPrefix(subnet);
-                            boolean doesSubnetExist = subnetValue.getSubnet().getIpPrefix().matches(ipPrefix[0]);
-                            if (doesSubnetExist) {
+                            String cidr = NetworkSubnetIndex.cidrOf(subnetValue);
+                            if (cidr != null && SubnetPrefixTrie.Prefix.parse(cidr).equals(prefix)) {
                                 subnetVmType = subnetValue;
                             }
                         }
@@ -509,17 +532,23 @@ public class SubnetHandler implements INeutronSubnetAware {
                 }
                 vnSubnetsType.clearIpamSubnets();
                 for (VnSubnetsType.IpamSubnetType subnetVal : subnets) {
-                    if (!subnetVal.getSubnet().getIpPrefix().matches(subnetVmType.getSubnet().getIpPrefix())) {
+                    if (subnetVal != subnetVmType) {
                         vnSubnetsType.addIpamSubnets(subnetVal);
                     }
                 }
+                boolean otherIpams = ipamRefs.size() > 1;
+                NetworkIpam ipam = defaultNetworkIpam();
                 if (vnSubnetsType.getIpamSubnets() != null) {
                     virtualNetwork.clearNetworkIpam();
-                    String ipamId = apiConnector.findByName(NetworkIpam.class, null, "default-network-ipam");
-                    NetworkIpam ipam = (NetworkIpam) apiConnector.findById(NetworkIpam.class, ipamId);
                     virtualNetwork.addNetworkIpam(ipam, vnSubnetsType);
+                    if (!otherIpams) {
+                        return DeltaUpdates.addRef(apiConnector, virtualNetwork, ipam, vnSubnetsType);
+                    }
                 } else {
                     virtualNetwork.clearNetworkIpam();
+                    if (!otherIpams) {
+                        return DeltaUpdates.removeRef(apiConnector, virtualNetwork, ipam);
+                    }
                 }
                 return apiConnector.update(virtualNetwork);
             } else {
@@ -543,6 +572,8 @@ public class SubnetHandler implements INeutronSubnetAware {
      */
     @Override
     public void neutronSubnetDeleted(NeutronSubnet subnet) {
+        long intent = OperationJournal.begin(OperationJournal.DELETE, OperationJournal.SUBNET, subnet.getSubnetUUID(), "network",
+                subnet.getNetworkUUID(), "cidr", subnet.getCidr());
         String networkUUID = subnet.getNetworkUUID();
         String subnetUUID = subnet.getSubnetUUID();
         VirtualNetwork virtualNetwork;
@@ -557,9 +588,12 @@ public class SubnetHandler implements INeutronSubnetAware {
             subnetUUID = UUID.fromString(subnetUUID).toString();
             virtualNetwork = (VirtualNetwork) apiConnector.findById(VirtualNetwork.class, networkUUID);
             boolean subnetDelete = deleteSubnet(subnet, virtualNetwork);
+            FloatingIpAllocator.invalidateNetwork(networkUUID);
             if (!subnetDelete) {
                 LOGGER.error("Subnet deletion failed..");
             } else {
+                NetworkSubnetIndex.subnetRemoved(networkUUID, subnet.getCidr());
+                SubnetAddressAllocator.invalidate(subnet.getSubnetUUID());
                 LOGGER.info("Subnet " + subnet.getCidr() + " sucessfully deleted from network  : " + virtualNetwork.getUuid());
             }
 
@@ -573,6 +607,7 @@ public class SubnetHandler implements INeutronSubnetAware {
         } catch (Exception ex) {
             LOGGER.error("Exception :    " + ex);
         }
+        OperationJournal.done(intent);
     }
 
     boolean validGatewayIP(NeutronSubnet subnet, String ipAddress) {
@@ -0,0 +1,228 @@
+/*
+ * Copyright (C) 2014 Juniper Networks, Inc.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ *
+ */
+package org.opendaylight.plugin2oc.neutron;
+
+import java.util.Arrays;
+
+/**
+ * Binary trie of IPv4 and IPv6 prefixes. Every lookup walks at most one bit
+ * per prefix bit, so exists, overlaps and contains checks cost O(prefix
+ * length) whatever the number of subnets. Instances are not thread safe.
+ *
+ * @param <V>
+ *            Type of the value stored for each prefix.
+ */
+final class SubnetPrefixTrie<V> {
+
+    private static final class Node<V> {
+        Node<V> zero;
+        Node<V> one;
+        V value;
+        int count;
+    }
+
+    /**
+     * A parsed CIDR with its host bits cleared.
+     */
+    static final class Prefix {
+        final byte[] address;
+        final int length;
+
+        Prefix(byte[] address, int length) {
+            this.address = address;
+            this.length = length;
+        }
+
+        boolean bit(int index) {
+            return (address[index >>> 3] & (0x80 >>> (index & 7))) != 0;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (!(other instanceof Prefix)) {
+                return false;
+            }
+            Prefix prefix = (Prefix) other;
+            return length == prefix.length && Arrays.equals(address, prefix.address);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * Arrays.hashCode(address) + length;
+        }
+
+        /**
+         * Invoked to parse a CIDR, or a single address which is handled as a
+         * host prefix.
+         *
+         * @return The prefix, or null if the string is malformed.
+         */
+        static Prefix parse(String cidr) {
+            if (cidr == null) {
+                return null;
+            }
+            int slash = cidr.indexOf('/');
+            byte[] address = Utils.ipAddressBytes(slash < 0 ? cidr : cidr.substring(0, slash));
+            if (address == null) {
+                return null;
+            }
+            int length = address.length * 8;
+            if (slash >= 0) {
+                try {
+                    length = Integer.parseInt(cidr.substring(slash + 1).trim());
+                } catch (NumberFormatException e) {
+                    return null;
+                }
+                if (length < 0 || length > address.length * 8) {
+                    return null;
+                }
+            }
+            for (int i = length; i < address.length * 8; i++) {
+                address[i >>> 3] &= ~(0x80 >>> (i & 7));
+            }
+            return new Prefix(address, length);
+        }
+    }
+
+    private final Node<V> ipv4Root = new Node<V>();
+    private final Node<V> ipv6Root = new Node<V>();
+
+    private Node<V> root(Prefix prefix) {
+        return prefix.address.length == 4 ? ipv4Root : ipv6Root;
+    }
+
+    private static Prefix checked(String cidr) {
+        Prefix prefix = Prefix.parse(cidr);
+        if (prefix == null) {
+            throw new IllegalArgumentException("String " + cidr + " not in correct format..");
+        }
+        return prefix;
+    }
+
+    int size() {
+        return ipv4Root.count + ipv6Root.count;
+    }
+
+    /**
+     * Invoked to store a value for a prefix.
+     *
+     * @return The value previously stored for the same prefix, or null.
+     */
+    V put(String cidr, V value) {
+        Prefix prefix = checked(cidr);
+        Node<V> node = root(prefix);
+        for (int i = 0; i < prefix.length; i++) {
+            Node<V> next = prefix.bit(i) ? node.one : node.zero;
+            if (next == null) {
+                next = new Node<V>();
+                if (prefix.bit(i)) {
+                    node.one = next;
+                } else {
+                    node.zero = next;
+                }
+            }
+            node = next;
+        }
+        V previous = node.value;
+        node.value = value;
+        if (previous == null) {
+            // walk again to account for the new entry on the whole path
+            Node<V> counted = root(prefix);
+            counted.count++;
+            for (int i = 0; i < prefix.length; i++) {
+                counted = prefix.bit(i) ? counted.one : counted.zero;
+                counted.count++;
+            }
+        }
+        return previous;
+    }
+
+    /**
+     * Invoked to remove a prefix, pruning the branches left empty.
+     *
+     * @return The removed value, or null if the prefix was not stored.
+     */
+    V remove(String cidr) {
+        Prefix prefix = checked(cidr);
+        Node<V> node = find(prefix);
+        if (node == null || node.value == null) {
+            return null;
+        }
+        V previous = node.value;
+        node.value = null;
+        Node<V> parent = root(prefix);
+        parent.count--;
+        for (int i = 0; i < prefix.length; i++) {
+            Node<V> next = prefix.bit(i) ? parent.one : parent.zero;
+            if (--next.count == 0) {
+                if (prefix.bit(i)) {
+                    parent.one = null;
+                } else {
+                    parent.zero = null;
+                }
+                break;
+            }
+            parent = next;
+        }
+        return previous;
+    }
+
+    /**
+     * @return The value stored for exactly this prefix, or null.
+     */
+    V get(String cidr) {
+        Node<V> node = find(checked(cidr));
+        return node != null ? node.value : null;
+    }
+
+    /**
+     * @return true if a stored prefix contains, equals or is contained by the
+     *         specified prefix.
+     */
+    boolean overlaps(String cidr) {
+        Prefix prefix = checked(cidr);
+        Node<V> node = root(prefix);
+        for (int i = 0; i < prefix.length; i++) {
+            if (node.value != null) {
+                return true;
+            }
+            node = prefix.bit(i) ? node.one : node.zero;
+            if (node == null) {
+                return false;
+            }
+        }
+        return node.count > 0;
+    }
+
+    /**
+     * Invoked to find the longest stored prefix containing an address.
+     *
+     * @return The value of that prefix, or null if no prefix contains it.
+     */
+    V match(String address) {
+        Prefix prefix = checked(address);
+        Node<V> node = root(prefix);
+        V best = node.value;
+        for (int i = 0; i < prefix.length && node != null; i++) {
+            node = prefix.bit(i) ? node.one : node.zero;
+            if (node != null && node.value != null) {
+                best = node.value;
+            }
+        }
+        return best;
+    }
+
+    private Node<V> find(Prefix prefix) {
+        Node<V> node = root(prefix);
+        for (int i = 0; i < prefix.length && node != null; i++) {
+            node = prefix.bit(i) ? node.one : node.zero;
+        }
+        return node;
+    }
+}
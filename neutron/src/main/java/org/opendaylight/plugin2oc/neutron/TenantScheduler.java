@@ -0,0 +1,491 @@
+/*
+ * Copyright (C) 2014 Juniper Networks, Inc.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ *
+ */
+package org.opendaylight.plugin2oc.neutron;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayDeque;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import net.juniper.contrail.api.ApiConnector;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Fair scheduling of the calls to the shared Contrail {@link ApiConnector}
+ * between the Neutron tenants, so that a tenant creating many objects at
+ * once does not delay the requests of the others.
+ *
+ * The {@link TenantTagger} around each handler tags the thread with the
+ * tenant of the request for the length of each callback. A
+ * limited number of calls run at the same time, no more
+ * than the circuit breaker currently lets through, and when they are all
+ * taken the waiting calls are run by start-time fair queuing:
+ * each call is given a virtual finish time advancing by the inverse of the
+ * weight of its tenant, and the call with the smallest one runs next. A
+ * tenant can besides be limited to a number of calls at the same time and
+ * to a rate of calls. Calls waiting longer than the queue timeout fail with
+ * an IOException. The limits can be changed at runtime through
+ * {@link TenantSchedulerMXBean}. A tenant with no call running or waiting
+ * leaves the tenants scanned for the next call, and only the
+ * plugin2oc.tenant.idleTenants most recent idle tenants are remembered, so
+ * that the state kept does not grow with the number of tenants ever seen.
+ * Tenants whose limits were changed are always remembered.
+ */
+final class TenantScheduler implements InvocationHandler, TenantSchedulerMXBean {
+    static final Logger LOGGER = LoggerFactory.getLogger(TenantScheduler.class);
+    static final String SLOTS_PROPERTY = "plugin2oc.tenant.slots";
+    static final String MAX_CONCURRENT_PROPERTY = "plugin2oc.tenant.maxConcurrent";
+    static final String RATE_PROPERTY = "plugin2oc.tenant.rate";
+    static final String BURST_PROPERTY = "plugin2oc.tenant.burst";
+    static final String QUEUE_TIMEOUT_PROPERTY = "plugin2oc.tenant.queueTimeout";
+    static final String IDLE_TENANTS_PROPERTY = "plugin2oc.tenant.idleTenants";
+    static final String SYSTEM_TENANT = "system";
+    static final String OBJECT_NAME = "org.opendaylight.plugin2oc:type=TenantScheduler";
+
+    private static final ThreadLocal<String> TENANT = new ThreadLocal<String>();
+
+    private static final class Tenant {
+        final String id;
+        final ArrayDeque<Waiter> queue = new ArrayDeque<Waiter>();
+        double weight = 1;
+        int maxConcurrent;
+        volatile TokenBucket rate;
+        boolean configured;
+        int inFlight;
+        double lastTag;
+        long admitted;
+        long waitNanos;
+
+        Tenant(String id) {
+            this.id = id;
+        }
+    }
+
+    private static final class Waiter {
+        final Condition ready;
+        final double tag;
+        boolean admitted;
+
+        Waiter(Condition ready, double tag) {
+            this.ready = ready;
+            this.tag = tag;
+        }
+    }
+
+    private final ApiConnector target;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Map<String, Tenant> tenants = new TreeMap<String, Tenant>();
+    private final int maxIdle = Math.max(0, Integer.getInteger(IDLE_TENANTS_PROPERTY, 1024));
+    private final Map<String, Tenant> idle = new LinkedHashMap<String, Tenant>(16, 0.75f, true) {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Tenant> eldest) {
+            return size() > maxIdle;
+        }
+    };
+    private final int defaultMaxConcurrent;
+    private final double defaultRate;
+    private final int defaultBurst;
+    private final long queueTimeoutNanos;
+    private int slots;
+    private int inFlight;
+    private double virtualTime;
+
+    TenantScheduler(ApiConnector target, int slots, int maxConcurrent, double rate, int burst, long queueTimeoutMillis) {
+        this.target = target;
+        this.slots = Math.max(1, slots);
+        this.defaultMaxConcurrent = Math.max(1, maxConcurrent);
+        this.defaultRate = rate;
+        this.defaultBurst = Math.max(1, burst);
+        this.queueTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(queueTimeoutMillis);
+    }
+
+    /**
+     * Invoked from {@link Activator#getApiConnection()} to share the
+     * connector between the tenants as configured by the plugin2oc.tenant.*
+     * system properties.
+     *
+     * @return The scheduled connector.
+     */
+    static ApiConnector schedule(ApiConnector connector) {
+        if (connector == null) {
+            return null;
+        }
+        int slots = Integer.getInteger(SLOTS_PROPERTY, 32);
+        double rate = Double.parseDouble(System.getProperty(RATE_PROPERTY, "0"));
+        TenantScheduler scheduler = new TenantScheduler(connector, slots, Integer.getInteger(MAX_CONCURRENT_PROPERTY, slots), rate,
+                Integer.getInteger(BURST_PROPERTY, Math.max(1, (int) rate)), Long.getLong(QUEUE_TIMEOUT_PROPERTY, 30000L));
+        scheduler.register();
+        return scheduler.proxy();
+    }
+
+    /**
+     * Invoked by the {@link TenantTagger} to tag the current thread with the
+     * tenant of the request being handled, the previous tag being restored with
+     * {@link #exit(String)} in a finally block.
+     *
+     * @param tenantId
+     *            The Neutron tenant ID, null for none.
+     *
+     * @return The tag the thread had, null if none.
+     */
+    static String enter(String tenantId) {
+        String previous = TENANT.get();
+        TENANT.set(tenantId == null || tenantId.isEmpty() ? null : tenantId.replace("-", "").toLowerCase());
+        return previous;
+    }
+
+    /**
+     * Invoked at the end of a callback to restore the tag the thread had
+     * before {@link #enter(String)}.
+     *
+     * @param previous
+     *            The tag returned by {@link #enter(String)}.
+     */
+    static void exit(String previous) {
+        if (previous == null) {
+            TENANT.remove();
+        } else {
+            TENANT.set(previous);
+        }
+    }
+
+    /**
+     * @return The tenant the current thread is tagged with, null if none.
+     */
+    static String tenant() {
+        return TENANT.get();
+    }
+
+    ApiConnector proxy() {
+        return (ApiConnector) Proxy.newProxyInstance(ApiConnector.class.getClassLoader(), new Class<?>[] { ApiConnector.class }, this);
+    }
+
+    private void register() {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName(OBJECT_NAME);
+            if (server.isRegistered(name)) {
+                server.unregisterMBean(name);
+            }
+            server.registerMBean(this, name);
+        } catch (Exception e) {
+            LOGGER.error("Exception : " + e);
+        }
+    }
+
+    /**
+     * Invoked from {@link Activator#destroy()} to withdraw the management
+     * interface of the scheduler.
+     */
+    static void unregister() {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName(OBJECT_NAME);
+            if (server.isRegistered(name)) {
+                server.unregisterMBean(name);
+            }
+        } catch (Exception e) {
+            LOGGER.error("Exception : " + e);
+        }
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+        if (method.getDeclaringClass() == Object.class) {
+            if (("equals").equals(method.getName())) {
+                return proxy == args[0];
+            }
+            if (("hashCode").equals(method.getName())) {
+                return System.identityHashCode(proxy);
+            }
+            return "TenantScheduler(" + target + ")";
+        }
+        Tenant tenant = acquire(tenant() != null ? tenant() : SYSTEM_TENANT);
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        } finally {
+            release(tenant);
+        }
+    }
+
+    /**
+     * Invoked before a call to wait for the turn of its tenant.
+     *
+     * @return The tenant, to release once the call is done.
+     */
+    Tenant acquire(String tenantId) throws IOException, InterruptedException {
+        long start = System.nanoTime();
+        Tenant tenant;
+        TokenBucket rate;
+        lock.lock();
+        try {
+            tenant = tenant(tenantId);
+            rate = tenant.rate;
+            retire(tenant);
+        } finally {
+            lock.unlock();
+        }
+        // the rate is waited for before queuing so as not to hold a slot
+        if (rate != null) {
+            rate.acquire(1);
+        }
+        lock.lock();
+        try {
+            tenant = tenant(tenantId);
+            Waiter waiter = new Waiter(lock.newCondition(), Math.max(virtualTime, tenant.lastTag) + 1 / tenant.weight);
+            tenant.lastTag = waiter.tag;
+            tenant.queue.add(waiter);
+            dispatch();
+            long remaining = queueTimeoutNanos;
+            while (!waiter.admitted) {
+                if (remaining <= 0) {
+                    tenant.queue.remove(waiter);
+                    retire(tenant);
+                    throw new IOException("Contrail API call of tenant " + tenantId + " queued too long");
+                }
+                try {
+                    remaining = waiter.ready.awaitNanos(remaining);
+                } catch (InterruptedException e) {
+                    if (waiter.admitted) {
+                        release(tenant);
+                    } else {
+                        tenant.queue.remove(waiter);
+                        retire(tenant);
+                    }
+                    throw e;
+                }
+            }
+            tenant.admitted++;
+            tenant.waitNanos += System.nanoTime() - start;
+            return tenant;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Invoked once a call is done to let the next one run.
+     */
+    void release(Tenant tenant) {
+        lock.lock();
+        try {
+            inFlight--;
+            tenant.inFlight--;
+            retire(tenant);
+            dispatch();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Invoked with the lock held to run the waiting calls with the smallest
+     * finish times while slots are free.
+     */
+    private void dispatch() {
+        while (inFlight < Math.min(slots, CircuitBreaker.capacity())) {
+            Tenant next = null;
+            for (Tenant tenant : tenants.values()) {
+                Waiter head = tenant.queue.peek();
+                if (head != null && tenant.inFlight < tenant.maxConcurrent && (next == null || head.tag < next.queue.peek().tag)) {
+                    next = tenant;
+                }
+            }
+            if (next == null) {
+                return;
+            }
+            Waiter waiter = next.queue.poll();
+            virtualTime = Math.max(virtualTime, waiter.tag - 1 / next.weight);
+            inFlight++;
+            next.inFlight++;
+            waiter.admitted = true;
+            waiter.ready.signal();
+        }
+    }
+
+    /**
+     * Invoked with the lock held to get the state of a tenant, taking it
+     * back from the idle tenants or creating it.
+     */
+    private Tenant tenant(String tenantId) {
+        Tenant tenant = tenants.get(tenantId);
+        if (tenant == null) {
+            tenant = idle.remove(tenantId);
+        }
+        if (tenant == null) {
+            tenant = new Tenant(tenantId);
+            tenant.maxConcurrent = defaultMaxConcurrent;
+            tenant.lastTag = virtualTime;
+            if (defaultRate > 0) {
+                tenant.rate = new TokenBucket(defaultRate, defaultBurst);
+            }
+        }
+        tenants.put(tenantId, tenant);
+        return tenant;
+    }
+
+    /**
+     * Invoked with the lock held to move a tenant with no call running or
+     * waiting to the idle tenants.
+     */
+    private void retire(Tenant tenant) {
+        if (tenant.inFlight == 0 && tenant.queue.isEmpty() && !tenant.configured && tenants.get(tenant.id) == tenant) {
+            tenants.remove(tenant.id);
+            idle.put(tenant.id, tenant);
+        }
+    }
+
+    /**
+     * @return The tenants running calls or remembered, by tenant ID.
+     */
+    private Map<String, Tenant> known() {
+        Map<String, Tenant> known = new TreeMap<String, Tenant>(idle);
+        known.putAll(tenants);
+        return known;
+    }
+
+    private static String key(String tenantId) {
+        return tenantId.replace("-", "").toLowerCase();
+    }
+
+    @Override
+    public int getSlots() {
+        lock.lock();
+        try {
+            return slots;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void setSlots(int slots) {
+        lock.lock();
+        try {
+            this.slots = Math.max(1, slots);
+            dispatch();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public Map<String, Integer> getQueued() {
+        Map<String, Integer> queued = new TreeMap<String, Integer>();
+        lock.lock();
+        try {
+            for (Map.Entry<String, Tenant> tenant : known().entrySet()) {
+                queued.put(tenant.getKey(), tenant.getValue().queue.size());
+            }
+        } finally {
+            lock.unlock();
+        }
+        return queued;
+    }
+
+    @Override
+    public Map<String, Integer> getInFlight() {
+        Map<String, Integer> running = new TreeMap<String, Integer>();
+        lock.lock();
+        try {
+            for (Map.Entry<String, Tenant> tenant : known().entrySet()) {
+                running.put(tenant.getKey(), tenant.getValue().inFlight);
+            }
+        } finally {
+            lock.unlock();
+        }
+        return running;
+    }
+
+    @Override
+    public Map<String, Long> getAdmitted() {
+        Map<String, Long> admitted = new TreeMap<String, Long>();
+        lock.lock();
+        try {
+            for (Map.Entry<String, Tenant> tenant : known().entrySet()) {
+                admitted.put(tenant.getKey(), tenant.getValue().admitted);
+            }
+        } finally {
+            lock.unlock();
+        }
+        return admitted;
+    }
+
+    @Override
+    public Map<String, Long> getWaitMillis() {
+        Map<String, Long> waited = new TreeMap<String, Long>();
+        lock.lock();
+        try {
+            for (Map.Entry<String, Tenant> tenant : known().entrySet()) {
+                waited.put(tenant.getKey(), TimeUnit.NANOSECONDS.toMillis(tenant.getValue().waitNanos));
+            }
+        } finally {
+            lock.unlock();
+        }
+        return waited;
+    }
+
+    @Override
+    public void setWeight(String tenantId, double weight) {
+        if (weight <= 0) {
+            throw new IllegalArgumentException("Weight must be positive");
+        }
+        lock.lock();
+        try {
+            Tenant tenant = tenant(key(tenantId));
+            tenant.weight = weight;
+            tenant.configured = true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void setRateLimit(String tenantId, double permitsPerSecond, int burst) {
+        lock.lock();
+        try {
+            Tenant tenant = tenant(key(tenantId));
+            tenant.rate = permitsPerSecond > 0 ? new TokenBucket(permitsPerSecond, Math.max(1, burst)) : null;
+            tenant.configured = true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void setMaxConcurrent(String tenantId, int maxConcurrent) {
+        lock.lock();
+        try {
+            Tenant tenant = tenant(key(tenantId));
+            tenant.maxConcurrent = Math.max(1, maxConcurrent);
+            tenant.configured = true;
+            dispatch();
+        } finally {
+            lock.unlock();
+        }
+    }
+}
@@ -0,0 +1,70 @@
+/*
+ * Copyright (C) 2014 Juniper Networks, Inc.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ *
+ */
+package org.opendaylight.plugin2oc.neutron;
+
+import java.util.Map;
+
+/**
+ * Management interface of the {@link TenantScheduler}, registered as
+ * org.opendaylight.plugin2oc:type=TenantScheduler. The tenants are keyed by
+ * their Neutron tenant ID without dashes, the calls made outside a Neutron
+ * request by "system".
+ */
+public interface TenantSchedulerMXBean {
+
+    /**
+     * @return The number of Contrail API calls run at the same time for all
+     *         the tenants.
+     */
+    int getSlots();
+
+    void setSlots(int slots);
+
+    /**
+     * @return The number of calls waiting, by tenant.
+     */
+    Map<String, Integer> getQueued();
+
+    /**
+     * @return The number of calls running, by tenant.
+     */
+    Map<String, Integer> getInFlight();
+
+    /**
+     * @return The number of calls run since the start, by tenant.
+     */
+    Map<String, Long> getAdmitted();
+
+    /**
+     * @return The time in milliseconds the calls have waited in total, by
+     *         tenant.
+     */
+    Map<String, Long> getWaitMillis();
+
+    /**
+     * Invoked to change the share of a tenant, 1 by default.
+     */
+    void setWeight(String tenantId, double weight);
+
+    /**
+     * Invoked to limit the rate of the calls of a tenant.
+     *
+     * @param permitsPerSecond
+     *            The sustained rate, 0 to remove the limit.
+     * @param burst
+     *            The number of calls which can be run at once after the
+     *            tenant has been idle.
+     */
+    void setRateLimit(String tenantId, double permitsPerSecond, int burst);
+
+    /**
+     * Invoked to change the number of calls of a tenant run at the same time.
+     */
+    void setMaxConcurrent(String tenantId, int maxConcurrent);
+}
@@ -0,0 +1,100 @@
+/*
+ * Copyright (C) 2014 Juniper Networks, Inc.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ *
+ */
+package org.opendaylight.plugin2oc.neutron;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.Proxy;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * Proxy around a Neutron handler running each of its callbacks under the
+ * tenant of the request for the {@link TenantScheduler}. The tenant is read
+ * from the last Neutron object given to the callback having one, the
+ * original object of an update, and the tag the thread had is restored once
+ * the callback returns so that no tag outlives it on the threads of the
+ * northbound.
+ */
+final class TenantTagger implements InvocationHandler {
+    private final Object target;
+
+    private TenantTagger(Object target) {
+        this.target = target;
+    }
+
+    /**
+     * Invoked from {@link Activator#configureInstance} and by the
+     * {@link BulkOperationHandler} to wrap a handler.
+     *
+     * @param handler
+     *            The handler.
+     *
+     * @return A proxy implementing the interfaces of the handler.
+     */
+    static Object tag(Object handler) {
+        Set<Class<?>> interfaces = new LinkedHashSet<Class<?>>();
+        for (Class<?> type = handler.getClass(); type != null; type = type.getSuperclass()) {
+            for (Class<?> implemented : type.getInterfaces()) {
+                interfaces.add(implemented);
+            }
+        }
+        return Proxy.newProxyInstance(handler.getClass().getClassLoader(), interfaces.toArray(new Class<?>[interfaces.size()]),
+                new TenantTagger(handler));
+    }
+
+    /**
+     * @return The tenant ID of a Neutron object, read from its
+     *         getXxxTenantID or getTenantUUID method, null if it has none.
+     */
+    static String tenantOf(Object object) {
+        if (object == null) {
+            return null;
+        }
+        for (Method method : object.getClass().getMethods()) {
+            String name = method.getName();
+            if (name.startsWith("get") && (name.endsWith("TenantID") || name.endsWith("TenantUUID")) && method.getParameterTypes().length == 0
+                    && method.getReturnType() == String.class && !Modifier.isStatic(method.getModifiers())) {
+                try {
+                    return (String) method.invoke(object);
+                } catch (Exception e) {
+                    return null;
+                }
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+        if (method.getDeclaringClass() == Object.class) {
+            if (("equals").equals(method.getName())) {
+                return proxy == args[0];
+            }
+            if (("hashCode").equals(method.getName())) {
+                return System.identityHashCode(proxy);
+            }
+            return "TenantTagger(" + target + ")";
+        }
+        String tenant = null;
+        for (int i = args == null ? -1 : args.length - 1; i >= 0 && tenant == null; i--) {
+            tenant = tenantOf(args[i]);
+        }
+        String previous = TenantScheduler.enter(tenant);
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        } finally {
+            TenantScheduler.exit(previous);
+        }
+    }
+}
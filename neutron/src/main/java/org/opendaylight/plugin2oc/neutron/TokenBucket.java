@@ -0,0 +1,77 @@
+/*
+ * Copyright (C) 2014 Juniper Networks, Inc.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ *
+ */
+package org.opendaylight.plugin2oc.neutron;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Lock-free token bucket rate limiter. The bucket is tracked as the
+ * theoretical time at which the next permit is due, so acquiring a permit is
+ * a single compare-and-set.
+ */
+final class TokenBucket {
+    private final long intervalNanos;
+    private final long burstNanos;
+    private final AtomicLong nextPermit;
+
+    /**
+     * @param permitsPerSecond
+     *            Sustained rate of the bucket.
+     * @param burst
+     *            Number of permits that can be taken at once after the
+     *            bucket has been idle.
+     */
+    TokenBucket(double permitsPerSecond, int burst) {
+        if (permitsPerSecond <= 0 || burst < 1) {
+            throw new IllegalArgumentException("Rate and burst must be positive");
+        }
+        this.intervalNanos = Math.max(1L, (long) (TimeUnit.SECONDS.toNanos(1) / permitsPerSecond));
+        this.burstNanos = intervalNanos * (burst - 1);
+        // a new bucket starts full
+        this.nextPermit = new AtomicLong(System.nanoTime() - burstNanos);
+    }
+
+    /**
+     * Invoked to take permits without waiting.
+     *
+     * @return true if the permits were available.
+     */
+    boolean tryAcquire(int permits) {
+        while (true) {
+            long now = System.nanoTime();
+            long current = nextPermit.get();
+            long start = Math.max(current, now - burstNanos);
+            if (start - now > 0) {
+                return false;
+            }
+            if (nextPermit.compareAndSet(current, start + intervalNanos * permits)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Invoked to take permits, waiting until they are due.
+     */
+    void acquire(int permits) throws InterruptedException {
+        while (true) {
+            long now = System.nanoTime();
+            long current = nextPermit.get();
+            long start = Math.max(current, now - burstNanos);
+            if (nextPermit.compareAndSet(current, start + intervalNanos * permits)) {
+                long wait = start - now;
+                if (wait > 0) {
+                    TimeUnit.NANOSECONDS.sleep(wait);
+                }
+                return;
+            }
+        }
+    }
+}
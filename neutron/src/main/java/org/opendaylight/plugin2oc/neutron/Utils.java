@@ -8,6 +8,8 @@
  */
 package org.opendaylight.plugin2oc.neutron;
 
+import java.net.InetAddress;
+import java.net.UnknownHostException;
 import java.util.regex.Pattern;
 
 import org.slf4j.Logger;
@@ -61,4 +63,80 @@ public class Utils {
             return false;
         }
     }
+
+    /**
+     * Invoked to convert a dotted IPv4 address to its numeric value.
+     *
+     * @param String
+     *            An instance of IPv4 address string.
+     *
+     * @return The address as an unsigned 32 bit value, or -1 if the string is
+     *         not a valid IPv4 address.
+     */
+    public static long ipv4ToLong(String address) {
+        if (address == null) {
+            return -1;
+        }
+        String[] octets = address.trim().split("\\.", -1);
+        if (octets.length != 4) {
+            return -1;
+        }
+        long value = 0;
+        for (String octet : octets) {
+            if (octet.length() == 0 || octet.length() > 3) {
+                return -1;
+            }
+            int part = 0;
+            for (int i = 0; i < octet.length(); i++) {
+                char c = octet.charAt(i);
+                if (c < '0' || c > '9') {
+                    return -1;
+                }
+                part = part * 10 + (c - '0');
+            }
+            if (part > 255) {
+                return -1;
+            }
+            value = (value << 8) | part;
+        }
+        return value;
+    }
+
+    /**
+     * Invoked to convert a numeric IPv4 address to its dotted form.
+     *
+     * @param long
+     *            An unsigned 32 bit IPv4 address.
+     *
+     * @return Dotted IPv4 address string.
+     */
+    public static String longToIpv4(long value) {
+        return ((value >> 24) & 0xff) + "." + ((value >> 16) & 0xff) + "." + ((value >> 8) & 0xff) + "." + (value & 0xff);
+    }
+
+    /**
+     * Invoked to get the bytes of a literal IPv4 or IPv6 address. No name
+     * lookup is ever made.
+     *
+     * @param String
+     *            An instance of IPv4 or IPv6 address string.
+     *
+     * @return The 4 or 16 address bytes, or null if the string is not a valid
+     *         address literal.
+     */
+    public static byte[] ipAddressBytes(String address) {
+        long ipv4 = ipv4ToLong(address);
+        if (ipv4 >= 0) {
+            return new byte[] { (byte) (ipv4 >>> 24), (byte) (ipv4 >>> 16), (byte) (ipv4 >>> 8), (byte) ipv4 };
+        }
+        if (address == null || address.indexOf(':') < 0) {
+            return null;
+        }
+        try {
+            // a string containing ':' is parsed as an IPv6 literal, never resolved
+            return InetAddress.getByName(address.trim()).getAddress();
+        } catch (UnknownHostException e) {
+            return null;
+        }
+    }
 }
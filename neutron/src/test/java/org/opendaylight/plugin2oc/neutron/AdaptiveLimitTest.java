@@ -0,0 +1,113 @@
+/*
+ * Copyright (C) 2014 Juniper Networks, Inc.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ *
+ */
+package org.opendaylight.plugin2oc.neutron;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.TimeUnit;
+
+import javax.management.ObjectName;
+
+import org.junit.Test;
+
+/**
+ * Test Class for the concurrency limit following the latency of the API
+ * server.
+ */
+public class AdaptiveLimitTest {
+    static final long FAST = TimeUnit.MILLISECONDS.toNanos(10);
+
+    /* Test method to check that the calls beyond the limit are refused */
+    @Test
+    public void testRejects() {
+        AdaptiveLimit limit = new AdaptiveLimit(2, 1, 8, 2, 0.5);
+        assertTrue(limit.tryAcquire());
+        assertTrue(limit.tryAcquire());
+        assertFalse(limit.tryAcquire());
+        assertEquals(1, limit.getRejections());
+        assertEquals(2, limit.getInFlight());
+    }
+
+    /* Test method to check that the limit grows while the calls stay fast and the limit is used */
+    @Test
+    public void testIncrease() {
+        AdaptiveLimit limit = new AdaptiveLimit(4, 1, 5, 2, 0.5);
+        for (int i = 0; i < 8; i++) {
+            for (int j = 0; j < 3; j++) {
+                assertTrue(limit.tryAcquire());
+            }
+            for (int j = 0; j < 3; j++) {
+                limit.release(FAST, false);
+            }
+        }
+        assertEquals(5, limit.getLimit());
+        assertEquals(10, limit.getMinLatencyMillis());
+        // an idle server does not grow the limit
+        AdaptiveLimit idle = new AdaptiveLimit(4, 1, 8, 2, 0.5);
+        for (int i = 0; i < 20; i++) {
+            assertTrue(idle.tryAcquire());
+            idle.release(FAST, false);
+        }
+        assertEquals(4, idle.getLimit());
+    }
+
+    /* Test method to check that the limit shrinks once per round trip when calls get slow or fail */
+    @Test
+    public void testDecrease() throws InterruptedException {
+        AdaptiveLimit limit = new AdaptiveLimit(8, 3, 8, 2, 0.5);
+        limit.tryAcquire();
+        limit.release(FAST, false);
+        Thread.sleep(40);
+        for (int i = 0; i < 3; i++) {
+            limit.tryAcquire();
+            limit.release(FAST * 3, false);
+        }
+        assertEquals(4, limit.getLimit());
+        Thread.sleep(5);
+        limit.tryAcquire();
+        limit.release(1, true);
+        assertEquals(3, limit.getLimit());
+        Thread.sleep(5);
+        limit.tryAcquire();
+        limit.release(1, true);
+        assertEquals(3, limit.getLimit());
+    }
+
+    /* Test method to check that slow listings leave the limit and the latencies alone while failed ones lower the limit */
+    @Test
+    public void testListingUntimed() throws InterruptedException {
+        AdaptiveLimit limit = new AdaptiveLimit(8, 3, 8, 2, 0.5);
+        limit.tryAcquire();
+        limit.release(FAST, false);
+        Thread.sleep(40);
+        for (int i = 0; i < 3; i++) {
+            limit.tryAcquire();
+            limit.releaseListing(FAST * 30, false);
+        }
+        assertEquals(8, limit.getLimit());
+        assertEquals(10, limit.getMinLatencyMillis());
+        assertEquals(0, limit.getInFlight());
+        limit.tryAcquire();
+        limit.releaseListing(1, true);
+        assertEquals(4, limit.getLimit());
+    }
+
+    /* Test method to check that the metrics of the limit are withdrawn from JMX */
+    @Test
+    public void testUnregister() throws Exception {
+        ObjectName name = new ObjectName(AdaptiveLimit.OBJECT_NAME);
+        new AdaptiveLimit(8, 3, 8, 2, 0.5).register();
+        assertTrue(ManagementFactory.getPlatformMBeanServer().isRegistered(name));
+        AdaptiveLimit.unregister();
+        assertFalse(ManagementFactory.getPlatformMBeanServer().isRegistered(name));
+    }
+}
@@ -0,0 +1,105 @@
+/*
+ * Copyright (C) 2014 Juniper Networks, Inc.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ *
+ */
+package org.opendaylight.plugin2oc.neutron;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.Test;
+
+/**
+ * Test Class for the address bitmap used by the local allocators.
+ */
+public class AddressBitmapTest {
+
+    /* Test method to check the conversion between dotted and numeric IPv4 addresses */
+    @Test
+    public void testIpv4Conversion() {
+        assertEquals(167772417L, Utils.ipv4ToLong("10.0.1.1"));
+        assertEquals("10.0.1.1", Utils.longToIpv4(167772417L));
+        assertEquals(4294967295L, Utils.ipv4ToLong("255.255.255.255"));
+        assertEquals(-1L, Utils.ipv4ToLong("10.0.1"));
+        assertEquals(-1L, Utils.ipv4ToLong("10.0.1.256"));
+        assertEquals(-1L, Utils.ipv4ToLong("fd00::1"));
+        assertEquals(-1L, Utils.ipv4ToLong(null));
+    }
+
+    /* Test method to check that a claimed address can not be claimed again until released */
+    @Test
+    public void testClaimAndRelease() {
+        long first = Utils.ipv4ToLong("10.0.1.1");
+        AddressBitmap bitmap = new AddressBitmap(first, 254);
+        assertTrue(bitmap.claim(first + 10));
+        assertFalse(bitmap.claim(first + 10));
+        assertTrue(bitmap.isClaimed(first + 10));
+        assertEquals(253, bitmap.freeCount());
+        assertTrue(bitmap.release(first + 10));
+        assertFalse(bitmap.release(first + 10));
+        assertEquals(254, bitmap.freeCount());
+    }
+
+    /* Test method to check that every address is handed out exactly once */
+    @Test
+    public void testClaimNextExhaustsRange() {
+        long first = Utils.ipv4ToLong("10.0.1.1");
+        AddressBitmap bitmap = new AddressBitmap(first, 130);
+        bitmap.claim(first);
+        Set<Long> claimed = new HashSet<Long>();
+        for (int i = 0; i < 129; i++) {
+            long address = bitmap.claimNext();
+            assertTrue(bitmap.covers(address));
+            assertTrue(claimed.add(address));
+        }
+        assertFalse(claimed.contains(first));
+        assertEquals(0, bitmap.freeCount());
+        assertEquals(-1L, bitmap.claimNext());
+    }
+
+    /* Test method to check that addresses outside of the range are rejected */
+    @Test(expected = IllegalArgumentException.class)
+    public void testClaimOutsideRange() {
+        AddressBitmap bitmap = new AddressBitmap(Utils.ipv4ToLong("10.0.1.1"), 254);
+        bitmap.claim(Utils.ipv4ToLong("10.0.1.255"));
+    }
+
+    /* Test method to check that a range set hands out the addresses of every pool once */
+    @Test
+    public void testRangeSetAllocation() {
+        List<AddressBitmap> pools = new ArrayList<AddressBitmap>();
+        pools.add(new AddressBitmap(Utils.ipv4ToLong("10.0.0.100"), 2));
+        pools.add(new AddressBitmap(Utils.ipv4ToLong("10.0.0.10"), 2));
+        AddressRangeSet addresses = new AddressRangeSet(pools);
+        assertTrue(addresses.covers(Utils.ipv4ToLong("10.0.0.11")));
+        assertFalse(addresses.covers(Utils.ipv4ToLong("10.0.0.50")));
+        assertTrue(addresses.claim(Utils.ipv4ToLong("10.0.0.101")));
+        Set<Long> claimed = new HashSet<Long>();
+        for (int i = 0; i < 3; i++) {
+            assertTrue(claimed.add(addresses.claimNext()));
+        }
+        assertFalse(claimed.contains(Utils.ipv4ToLong("10.0.0.101")));
+        assertEquals(-1L, addresses.claimNext());
+        assertTrue(addresses.release(Utils.ipv4ToLong("10.0.0.10")));
+        assertEquals(Utils.ipv4ToLong("10.0.0.10"), addresses.claimNext());
+    }
+
+    /* Test method to check that overlapping pools are rejected */
+    @Test(expected = IllegalArgumentException.class)
+    public void testRangeSetOverlap() {
+        List<AddressBitmap> pools = new ArrayList<AddressBitmap>();
+        pools.add(new AddressBitmap(Utils.ipv4ToLong("10.0.0.10"), 10));
+        pools.add(new AddressBitmap(Utils.ipv4ToLong("10.0.0.15"), 10));
+        new AddressRangeSet(pools);
+    }
+}
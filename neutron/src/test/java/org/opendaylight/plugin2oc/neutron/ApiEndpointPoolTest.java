@@ -0,0 +1,161 @@
+/*
+ * Copyright (C) 2014 Juniper Networks, Inc.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ *
+ */
+package org.opendaylight.plugin2oc.neutron;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.net.SocketTimeoutException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import net.juniper.contrail.api.ApiConnector;
+import net.juniper.contrail.api.types.VirtualNetwork;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Test Class for the pool of Contrail API endpoints.
+ */
+public class ApiEndpointPoolTest {
+    static final String UUID = "6b9570f2-17b1-4fc3-99ec-1b7f7778a29a";
+
+    final List<FakeApiServer> nodes = new ArrayList<FakeApiServer>();
+    final AtomicBoolean timingOut = new AtomicBoolean();
+    ApiEndpointPool pool;
+    ApiConnector connector;
+
+    @Before
+    public void beforeTest() {
+        List<ApiEndpointPool.Endpoint> endpoints = new ArrayList<ApiEndpointPool.Endpoint>();
+        for (int i = 0; i < 3; i++) {
+            FakeApiServer node = new FakeApiServer() {
+                @Override
+                Object answer(Method method, Object[] args) throws Throwable {
+                    if (timingOut.get()) {
+                        throw new SocketTimeoutException("Read timed out");
+                    }
+                    return super.answer(method, args);
+                }
+            };
+            nodes.add(node);
+            endpoints.add(new ApiEndpointPool.Endpoint("10.0.0." + (i + 1) + ":8082", node.connector()));
+        }
+        pool = new ApiEndpointPool(endpoints);
+        connector = pool.proxy();
+    }
+
+    private int busiest() {
+        int busiest = 0;
+        for (int i = 1; i < nodes.size(); i++) {
+            if (nodes.get(i).calls() > nodes.get(busiest).calls()) {
+                busiest = i;
+            }
+        }
+        return busiest;
+    }
+
+    /* Test method to check that the writes of a resource always go to the same endpoint */
+    @Test
+    public void testWritesAreSticky() throws IOException {
+        for (int i = 0; i < 10; i++) {
+            connector.delete(VirtualNetwork.class, UUID);
+        }
+        assertEquals(10, nodes.get(busiest()).calls());
+    }
+
+    /* Test method to check that a failing endpoint is taken out of rotation and its writes fail over */
+    @Test
+    public void testFailover() throws IOException {
+        connector.delete(VirtualNetwork.class, UUID);
+        int sticky = busiest();
+        nodes.get(sticky).failing.set(true);
+        connector.delete(VirtualNetwork.class, UUID);
+        assertFalse(pool.endpoints().get(sticky).healthy);
+        connector.delete(VirtualNetwork.class, UUID);
+        assertEquals(2, nodes.get(sticky).calls());
+        assertEquals(4, nodes.get(0).calls() + nodes.get(1).calls() + nodes.get(2).calls());
+    }
+
+    /* Test method to check that a write the endpoint may have received is not sent to another one */
+    @Test
+    public void testWriteNotResent() {
+        timingOut.set(true);
+        try {
+            connector.delete(VirtualNetwork.class, UUID);
+            fail();
+        } catch (IOException e) {
+            assertEquals(1, nodes.get(0).calls() + nodes.get(1).calls() + nodes.get(2).calls());
+        }
+        assertFalse(pool.endpoints().get(busiest()).healthy);
+    }
+
+    /* Test method to check that the writes of an unhealthy endpoint go to the next one without trying it */
+    @Test
+    public void testWritesSkipUnhealthy() throws IOException {
+        connector.delete(VirtualNetwork.class, UUID);
+        int sticky = busiest();
+        pool.endpoints().get(sticky).healthy = false;
+        connector.delete(VirtualNetwork.class, UUID);
+        connector.delete(VirtualNetwork.class, UUID);
+        assertEquals(1, nodes.get(sticky).calls());
+        assertEquals(3, nodes.get(0).calls() + nodes.get(1).calls() + nodes.get(2).calls());
+    }
+
+    /* Test method to check that reads skip unhealthy endpoints */
+    @Test
+    public void testReadsSkipUnhealthy() throws IOException {
+        pool.endpoints().get(0).healthy = false;
+        for (int i = 0; i < 20; i++) {
+            connector.findById(VirtualNetwork.class, UUID);
+        }
+        assertEquals(0, nodes.get(0).calls());
+        assertEquals(20, nodes.get(1).calls() + nodes.get(2).calls());
+    }
+
+    /* Test method to check that reads go to the endpoint with the fewest calls in flight */
+    @Test
+    public void testReadsLeastOutstanding() throws IOException {
+        pool.endpoints().get(0).outstanding.set(5);
+        pool.endpoints().get(1).outstanding.set(3);
+        connector.findById(VirtualNetwork.class, UUID);
+        assertEquals(1, nodes.get(2).calls());
+    }
+
+    /* Test method to check that the health check puts a recovered endpoint back in rotation */
+    @Test
+    public void testHealthCheck() {
+        nodes.get(1).failing.set(true);
+        pool.checkHealth();
+        assertFalse(pool.endpoints().get(1).healthy);
+        nodes.get(1).failing.set(false);
+        pool.checkHealth();
+        assertTrue(pool.endpoints().get(1).healthy);
+    }
+
+    /* Test method to check that a call fails once every endpoint failed it */
+    @Test
+    public void testAllDown() {
+        for (FakeApiServer node : nodes) {
+            node.failing.set(true);
+        }
+        try {
+            connector.findById(VirtualNetwork.class, UUID);
+            fail();
+        } catch (IOException e) {
+            assertEquals(3, nodes.get(0).calls() + nodes.get(1).calls() + nodes.get(2).calls());
+        }
+    }
+}
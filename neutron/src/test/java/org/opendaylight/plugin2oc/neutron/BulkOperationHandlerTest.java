@@ -0,0 +1,233 @@
+/*
+ * Copyright (C) 2014 Juniper Networks, Inc.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ *
+ */
+package org.opendaylight.plugin2oc.neutron;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import net.juniper.contrail.api.types.NetworkIpam;
+import net.juniper.contrail.api.types.Project;
+import net.juniper.contrail.api.types.VirtualNetwork;
+
+import org.junit.After;
+import org.junit.Test;
+import org.opendaylight.controller.networkconfig.neutron.INeutronSubnetCRUD;
+import org.opendaylight.controller.networkconfig.neutron.NeutronPort;
+import org.opendaylight.controller.networkconfig.neutron.NeutronSubnet;
+import org.opendaylight.controller.networkconfig.neutron.NeutronSubnet_IPAllocationPool;
+import org.opendaylight.controller.networkconfig.neutron.Neutron_IPs;
+
+/**
+ * Test Class for the checks and the ordering of the batches of Neutron
+ * objects.
+ */
+public class BulkOperationHandlerTest {
+    final List<String> created = new CopyOnWriteArrayList<String>();
+
+    private BulkOperationHandler.Operation operation(final String uuid, final int validation, final String... dependencies) {
+        return new BulkOperationHandler.Operation() {
+            @Override
+            String uuid() {
+                return uuid;
+            }
+
+            @Override
+            List<String> dependencies() {
+                return Arrays.asList(dependencies);
+            }
+
+            @Override
+            int validate() {
+                return validation;
+            }
+
+            @Override
+            void create() {
+                created.add(uuid);
+            }
+
+            @Override
+            boolean verify() {
+                return true;
+            }
+        };
+    }
+
+    @After
+    public void afterTest() {
+        Activator.apiConnector = null;
+    }
+
+    private static List<Integer> statuses(List<NeutronBulkResult> results) {
+        List<Integer> statuses = new ArrayList<Integer>();
+        for (NeutronBulkResult result : results) {
+            statuses.add(result.getStatus());
+        }
+        return statuses;
+    }
+
+    /* Test method to check that the objects are created after the objects they refer to */
+    @Test
+    public void testCreated() {
+        List<NeutronBulkResult> results = BulkOperationHandler.run(Arrays.asList(
+                operation("6b9570f2-17b1-4fc3-99ec-1b7f7778a29a", 200),
+                operation("subnet-1", 200, "6b9570f217b14fc399ec1b7f7778a29a"),
+                operation("port-1", 200, "6B9570F2-17B1-4FC3-99EC-1B7F7778A29A", "subnet-1", "group-outside")));
+        assertEquals(Arrays.asList(201, 201, 201), statuses(results));
+        assertEquals("port-1", results.get(2).getUuid());
+        assertEquals(Arrays.asList("6b9570f2-17b1-4fc3-99ec-1b7f7778a29a", "subnet-1", "port-1"), created);
+    }
+
+    /* Test method to check that the invalid objects are rejected and the objects depending on them not created */
+    @Test
+    public void testRejected() {
+        List<NeutronBulkResult> results = BulkOperationHandler.run(Arrays.asList(
+                operation("network-1", 200),
+                operation("network-1", 200),
+                operation("subnet-1", 200, "network-2"),
+                operation("network-2", 403),
+                operation("port-1", 200, "network-2"),
+                null,
+                operation("subnet-2", 400, "network-1")));
+        assertEquals(Arrays.asList(201, 409, 400, 403, DagExecutor.FAILED_DEPENDENCY, 400, 400), statuses(results));
+        assertNull(results.get(5).getUuid());
+        assertEquals(Collections.singletonList("network-1"), created);
+    }
+
+    /* Test method to check that a creation still running at the timeout is interrupted and its object unstored */
+    @Test
+    public void testTimeoutRollsBack() throws InterruptedException {
+        final CountDownLatch unstored = new CountDownLatch(1);
+        System.setProperty(BulkOperationHandler.TIMEOUT_PROPERTY, "100");
+        try {
+            List<NeutronBulkResult> results = BulkOperationHandler.run(Arrays.<BulkOperationHandler.Operation> asList(
+                    new BulkOperationHandler.Operation() {
+                        @Override
+                        String uuid() {
+                            return "network-1";
+                        }
+
+                        @Override
+                        List<String> dependencies() {
+                            return Collections.emptyList();
+                        }
+
+                        @Override
+                        int validate() {
+                            return 200;
+                        }
+
+                        @Override
+                        void create() {
+                            try {
+                                Thread.sleep(10000);
+                                created.add("network-1");
+                            } catch (InterruptedException e) {
+                                Thread.currentThread().interrupt();
+                            }
+                        }
+
+                        @Override
+                        boolean verify() {
+                            return !created.isEmpty();
+                        }
+
+                        @Override
+                        void unstore() {
+                            unstored.countDown();
+                        }
+                    }));
+            assertEquals(Arrays.asList(504), statuses(results));
+            assertTrue(unstored.await(1, TimeUnit.SECONDS));
+            assertTrue(created.isEmpty());
+        } finally {
+            System.clearProperty(BulkOperationHandler.TIMEOUT_PROPERTY);
+        }
+    }
+
+    /* Test method to check that the handlers of a batch find the subnet of a fixed IP created earlier in the batch */
+    @Test
+    public void testFixedIpOnBatchSubnet() {
+        Project project = new Project();
+        project.setUuid("100071fe-0216-46bc-a3e6-1ff582fbd324");
+        project.setName("tenant");
+        VirtualNetwork network = new VirtualNetwork();
+        network.setUuid("54a271fe-0216-46bc-a3e6-1ff582fbd324");
+        network.setName("network");
+        network.setParent(project);
+        final NetworkIpam ipam = new NetworkIpam();
+        ipam.setUuid("94a271fe-0216-46bc-a3e6-1ff582fbd324");
+        ipam.setName("default-network-ipam");
+        FakeApiServer contrail = new FakeApiServer() {
+            @Override
+            Object answer(Method method, Object[] args) throws Throwable {
+                if (("findByName").equals(method.getName())) {
+                    return ipam.getName().equals(args[args.length - 1]) ? ipam.getUuid() : null;
+                }
+                return super.answer(method, args);
+            }
+        };
+        Activator.apiConnector = contrail.put(project).put(network).put(ipam).connector();
+        final Map<String, NeutronSubnet> stored = new ConcurrentHashMap<String, NeutronSubnet>();
+        final INeutronSubnetCRUD subnetCRUD = (INeutronSubnetCRUD) Proxy.newProxyInstance(INeutronSubnetCRUD.class.getClassLoader(),
+                new Class<?>[] { INeutronSubnetCRUD.class }, new InvocationHandler() {
+                    @Override
+                    public Object invoke(Object proxy, Method method, Object[] args) {
+                        if (("addSubnet").equals(method.getName())) {
+                            stored.put(((NeutronSubnet) args[0]).getSubnetUUID(), (NeutronSubnet) args[0]);
+                        } else if (("getSubnet").equals(method.getName())) {
+                            return stored.get(args[0]);
+                        }
+                        return method.getReturnType() == boolean.class ? Boolean.TRUE : null;
+                    }
+                });
+        NeutronSubnet subnet = new NeutronSubnet();
+        subnet.setSubnetUUID("7b9570f2-17b1-4fc3-99ec-1b7f7778a29b");
+        subnet.setNetworkUUID(network.getUuid());
+        subnet.setTenantID(project.getUuid());
+        subnet.setCidr("10.1.0.0/24");
+        subnet.setGatewayIP("10.1.0.1");
+        NeutronSubnet_IPAllocationPool pool = new NeutronSubnet_IPAllocationPool();
+        pool.setPoolStart("10.1.0.2");
+        pool.setPoolEnd("10.1.0.9");
+        subnet.setAllocationPools(new ArrayList<NeutronSubnet_IPAllocationPool>(Collections.singletonList(pool)));
+        NeutronPort port = new NeutronPort();
+        port.setPortUUID("64a271fe-0216-46bc-a3e6-1ff582fbd324");
+        port.setNetworkUUID(network.getUuid());
+        port.setTenantID(project.getUuid());
+        port.setMacAddress("02:70:72:93:4d:d6");
+        port.setName("port");
+        Neutron_IPs fixedIp = new Neutron_IPs();
+        fixedIp.setSubnetUUID(subnet.getSubnetUUID());
+        port.setFixedIPs(new ArrayList<Neutron_IPs>(Collections.singletonList(fixedIp)));
+        BulkOperationHandler handler = new BulkOperationHandler() {
+            @Override
+            INeutronSubnetCRUD subnetCRUD() {
+                return subnetCRUD;
+            }
+        };
+        assertEquals(Arrays.asList(201, 201), statuses(handler.execute(Arrays.<Object> asList(subnet, port))));
+        assertEquals(subnet, stored.get(subnet.getSubnetUUID()));
+        assertEquals("10.1.0.2", port.getFixedIPs().get(0).getIpAddress());
+    }
+}
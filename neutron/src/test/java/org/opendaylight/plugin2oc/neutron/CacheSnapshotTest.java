@@ -0,0 +1,124 @@
+/*
+ * Copyright (C) 2014 Juniper Networks, Inc.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ *
+ */
+package org.opendaylight.plugin2oc.neutron;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import net.juniper.contrail.api.ApiConnector;
+import net.juniper.contrail.api.types.Project;
+import net.juniper.contrail.api.types.VirtualNetwork;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Test Class for the snapshot of the southbound indexes.
+ */
+public class CacheSnapshotTest {
+    static final String NETWORK_UUID = "6b9570f2-17b1-4fc3-99ec-1b7f7778a29a";
+    static final String SUBNET_UUID = "0f3c4b5e-8a1d-4c2b-9e7f-1a2b3c4d5e6f";
+
+    private File dir;
+    private File file;
+
+    @Before
+    public void beforeTest() throws Exception {
+        dir = File.createTempFile("plugin2oc-snapshot", "");
+        dir.delete();
+        dir.mkdirs();
+        file = new File(dir, CacheSnapshot.FILE_NAME);
+    }
+
+    @After
+    public void afterTest() {
+        File[] files = dir.listFiles();
+        if (files != null) {
+            for (File entry : files) {
+                entry.delete();
+            }
+        }
+        dir.delete();
+    }
+
+    private static CacheSnapshot.Content content(long writtenAt) {
+        Map<String, String> networks = new HashMap<String, String>();
+        networks.put(NETWORK_UUID, "default-domain:demo:private");
+        Map<String, Map<String, String>> names = new HashMap<String, Map<String, String>>();
+        names.put(VirtualNetwork.class.getSimpleName(), networks);
+        Map<String, String> cidrs = new HashMap<String, String>();
+        cidrs.put(SUBNET_UUID, "10.0.0.0/24");
+        Map<String, Map<String, String>> subnets = new HashMap<String, Map<String, String>>();
+        subnets.put(NETWORK_UUID, cidrs);
+        return new CacheSnapshot.Content(writtenAt, names, subnets);
+    }
+
+    /* Test method to check that a snapshot reads back as written */
+    @Test
+    public void testRoundTrip() throws IOException {
+        CacheSnapshot.write(file, content(1234L));
+        CacheSnapshot.Content read = CacheSnapshot.read(file);
+        assertEquals(1234L, read.writtenAt);
+        assertEquals(content(1234L).names, read.names);
+        assertEquals(content(1234L).subnets, read.subnets);
+    }
+
+    /* Test method to check that a corrupt snapshot is rejected */
+    @Test
+    public void testCorrupt() throws IOException {
+        CacheSnapshot.write(file, content(1234L));
+        RandomAccessFile raw = new RandomAccessFile(file, "rw");
+        raw.seek(20);
+        raw.write(raw.read() ^ 0x40);
+        raw.close();
+        try {
+            CacheSnapshot.read(file);
+            fail();
+        } catch (IOException e) {
+            assertTrue(e.getMessage().contains("checksum"));
+        }
+    }
+
+    /* Test method to check that a restored snapshot seeds the name and subnet indexes */
+    @Test
+    public void testRestore() throws IOException {
+        CacheSnapshot.write(file, content(System.currentTimeMillis()));
+        ApiConnector apiConnector = new FakeApiServer().connector();
+        Map<String, Map<String, String>> restored = new CacheSnapshot(file, apiConnector).restore();
+        assertEquals(1, restored.size());
+        Project project = new Project() {
+            @Override
+            public List<String> getQualifiedName() {
+                return Arrays.asList("default-domain", "demo");
+            }
+        };
+        assertEquals(NETWORK_UUID, NameIndex.findByName(apiConnector, VirtualNetwork.class, project, "private"));
+        assertEquals("10.0.0.0/24", NetworkSubnetIndex.forNetwork(apiConnector, NETWORK_UUID).cidr(SUBNET_UUID));
+    }
+
+    /* Test method to check that a snapshot older than the maximum age is ignored */
+    @Test
+    public void testTooOld() throws IOException {
+        CacheSnapshot.write(file, content(System.currentTimeMillis() - 2 * 3600000L));
+        ApiConnector apiConnector = new FakeApiServer().connector();
+        assertTrue(new CacheSnapshot(file, apiConnector).restore().isEmpty());
+        assertNull(NetworkSubnetIndex.forNetwork(apiConnector, NETWORK_UUID));
+    }
+}
@@ -0,0 +1,142 @@
+/*
+ * Copyright (C) 2014 Juniper Networks, Inc.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ *
+ */
+package org.opendaylight.plugin2oc.neutron;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import net.juniper.contrail.api.ApiConnector;
+import net.juniper.contrail.api.types.Project;
+import net.juniper.contrail.api.types.VirtualNetwork;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Test Class for the change feed applying the changes of other clients to
+ * the caches.
+ */
+public class ChangeFeedSubscriberTest {
+    static final String UUID = "6b9570f2-17b1-4fc3-99ec-1b7f7778a29a";
+    static final String OTHER_UUID = "0f3c4b5e-8a1d-4c2b-9e7f-1a2b3c4d5e6f";
+
+    final FakeApiServer server = new FakeApiServer();
+    final Project project = new Project() {
+        @Override
+        public List<String> getQualifiedName() {
+            return Arrays.asList("default-domain", "demo");
+        }
+    };
+    ApiConnector connector;
+
+    static VirtualNetwork network(final String uuid, final String name) {
+        return new VirtualNetwork() {
+            @Override
+            public String getUuid() {
+                return uuid;
+            }
+
+            @Override
+            public List<String> getQualifiedName() {
+                return Arrays.asList("default-domain", "demo", name);
+            }
+        };
+    }
+
+    @Before
+    public void beforeTest() {
+        server.put(network(UUID, "private"));
+        connector = ContrailReplica.observe(server.connector());
+    }
+
+    /* Test method to check that the listing feed reports the objects created and deleted between two polls */
+    @Test
+    public void testListingFeed() throws IOException {
+        ListingChangeFeed feed = new ListingChangeFeed(connector);
+        assertTrue(feed.poll().isEmpty());
+        server.put(network(OTHER_UUID, "public"));
+        server.remove(UUID);
+        List<ChangeFeed.Change> changes = feed.poll();
+        assertEquals(2, changes.size());
+        assertEquals(ChangeFeed.Change.CREATED, changes.get(0).kind);
+        assertEquals(OTHER_UUID, changes.get(0).uuid);
+        assertEquals(ChangeFeed.Change.DELETED, changes.get(1).kind);
+        assertEquals(UUID, changes.get(1).uuid);
+    }
+
+    /* Test method to check that a change published by another client drops the cached object */
+    @Test
+    public void testUpdateInvalidatesReplica() throws IOException {
+        ChangeEventQueue queue = new ChangeEventQueue();
+        ChangeFeedSubscriber subscriber = new ChangeFeedSubscriber(queue);
+        ContrailReplica.findById(connector, VirtualNetwork.class, UUID, false);
+        ContrailReplica.findById(connector, VirtualNetwork.class, UUID, false);
+        assertEquals(1, server.calls("findById"));
+        queue.publish(ChangeFeed.Change.UPDATED, VirtualNetwork.class, UUID, null);
+        subscriber.run();
+        ContrailReplica.findById(connector, VirtualNetwork.class, UUID, false);
+        assertEquals(2, server.calls("findById"));
+    }
+
+    /* Test method to check that the changes of the listing feed are applied to the name index */
+    @Test
+    public void testNameIndexFollowsChanges() throws IOException {
+        new NameIndex(connector).load();
+        ChangeFeedSubscriber subscriber = new ChangeFeedSubscriber(new ListingChangeFeed(connector));
+        subscriber.run();
+        server.put(network(OTHER_UUID, "public"));
+        server.remove(UUID);
+        subscriber.run();
+        assertEquals(OTHER_UUID, NameIndex.findByName(connector, VirtualNetwork.class, project, "public"));
+        assertNull(NameIndex.findByName(connector, VirtualNetwork.class, project, "private"));
+    }
+
+    /* Test method to check that the configured feed class is created */
+    @Test
+    public void testConfiguredFeed() {
+        assertTrue(ChangeFeedSubscriber.feed(connector, null, null) instanceof ListingChangeFeed);
+        assertTrue(ChangeFeedSubscriber.feed(connector, null, ListingChangeFeed.class.getName()) instanceof ListingChangeFeed);
+        assertTrue(ChangeFeedSubscriber.feed(connector, null, ChangeEventQueue.class.getName()) == ChangeEventQueue.shared());
+        assertNull(ChangeFeedSubscriber.feed(connector, null, "org.example.Missing"));
+    }
+
+    /* Test method to check that the subscriber only runs when an interval is configured */
+    @Test
+    public void testOptIn() {
+        assertNull(ChangeFeedSubscriber.start(connector, null));
+        System.setProperty(ChangeFeedSubscriber.INTERVAL_PROPERTY, "60000");
+        try {
+            ChangeFeedSubscriber subscriber = ChangeFeedSubscriber.start(connector, null);
+            assertNotNull(subscriber);
+            subscriber.stop();
+        } finally {
+            System.clearProperty(ChangeFeedSubscriber.INTERVAL_PROPERTY);
+        }
+    }
+
+    /* Test method to check that the listing feed and the name index share one listing */
+    @Test
+    public void testSharedListing() throws IOException {
+        NameIndex index = new NameIndex(connector);
+        ListingChangeFeed feed = new ListingChangeFeed(connector, index);
+        feed.poll();
+        assertEquals(ChangeFeedSubscriber.TYPES.size(), server.calls("list"));
+        assertEquals(UUID, NameIndex.findByName(connector, VirtualNetwork.class, project, "private"));
+        index.refresh(TimeUnit.MINUTES.toNanos(5));
+        assertEquals(NameIndex.TYPES.size(), server.calls("list"));
+        assertEquals(0, server.calls("findByName"));
+    }
+}
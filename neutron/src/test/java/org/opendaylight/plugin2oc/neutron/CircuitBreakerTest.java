@@ -0,0 +1,197 @@
+/*
+ * Copyright (C) 2014 Juniper Networks, Inc.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ *
+ */
+package org.opendaylight.plugin2oc.neutron;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.net.HttpURLConnection;
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import net.juniper.contrail.api.ApiConnector;
+import net.juniper.contrail.api.types.VirtualNetwork;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Test Class for the circuit breaker around the Contrail API connector.
+ */
+public class CircuitBreakerTest {
+    final AtomicBoolean broken = new AtomicBoolean();
+    final AtomicLong delay = new AtomicLong();
+    FakeApiServer server;
+    ApiConnector connector;
+
+    @Before
+    public void beforeTest() {
+        server = new FakeApiServer() {
+            @Override
+            Object answer(Method method, Object[] args) throws Throwable {
+                Thread.sleep(delay.get());
+                if (broken.get()) {
+                    throw new IllegalStateException("Unexpected answer");
+                }
+                return super.answer(method, args);
+            }
+        };
+        server.failing.set(true);
+        connector = server.connector();
+    }
+
+    private boolean call(ApiConnector protectedConnector) {
+        try {
+            protectedConnector.findById(VirtualNetwork.class, "6b9570f2-17b1-4fc3-99ec-1b7f7778a29a");
+            return true;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /* Test method to check that the circuit opens once the window is full of failures and then fails fast */
+    @Test
+    public void testOpens() {
+        CircuitBreaker breaker = new CircuitBreaker(connector, 4, 50, 5000, 60000, 8);
+        ApiConnector protectedConnector = breaker.proxy();
+        for (int i = 0; i < 4; i++) {
+            assertFalse(breaker.rejects());
+            assertFalse(call(protectedConnector));
+        }
+        assertTrue(breaker.rejects());
+        assertFalse(call(protectedConnector));
+        assertEquals(4, server.calls());
+    }
+
+    /* Test method to check that a successful probe after the open period closes the circuit */
+    @Test
+    public void testProbeCloses() throws InterruptedException {
+        CircuitBreaker breaker = new CircuitBreaker(connector, 2, 50, 5000, 20, 8);
+        ApiConnector protectedConnector = breaker.proxy();
+        call(protectedConnector);
+        call(protectedConnector);
+        assertTrue(breaker.rejects());
+        Thread.sleep(40);
+        assertFalse(breaker.rejects());
+        assertFalse(call(protectedConnector));
+        assertTrue(breaker.rejects());
+        Thread.sleep(40);
+        server.failing.set(false);
+        assertTrue(call(protectedConnector));
+        assertFalse(breaker.rejects());
+        assertTrue(call(protectedConnector));
+    }
+
+    /* Test method to check that a probe failing with an unexpected exception keeps the circuit open */
+    @Test
+    public void testProbeExceptionReopens() throws InterruptedException {
+        CircuitBreaker breaker = new CircuitBreaker(connector, 2, 50, 5000, 20, 8);
+        ApiConnector protectedConnector = breaker.proxy();
+        call(protectedConnector);
+        call(protectedConnector);
+        assertTrue(breaker.rejects());
+        Thread.sleep(40);
+        server.failing.set(false);
+        broken.set(true);
+        try {
+            call(protectedConnector);
+        } catch (IllegalStateException e) {
+            // expected
+        }
+        assertTrue(breaker.rejects());
+    }
+
+    /* Test method to check that slow listings do not open the circuit while slow reads do */
+    @Test
+    public void testSlowListingNotCounted() throws IOException {
+        server.failing.set(false);
+        delay.set(20);
+        CircuitBreaker breaker = new CircuitBreaker(connector, 2, 50, 5, 60000, 8);
+        ApiConnector protectedConnector = breaker.proxy();
+        for (int i = 0; i < 4; i++) {
+            protectedConnector.list(VirtualNetwork.class, null);
+        }
+        assertFalse(breaker.rejects());
+        call(protectedConnector);
+        call(protectedConnector);
+        assertTrue(breaker.rejects());
+    }
+
+    /* Test method to check that a saturated limit sheds calls without opening the circuit */
+    @Test
+    public void testSaturatedStaysClosed() {
+        server.failing.set(false);
+        AdaptiveLimit limit = new AdaptiveLimit(1, 1, 1, 2, 0.5);
+        CircuitBreaker breaker = new CircuitBreaker(connector, 2, 50, 60000, 60000, limit);
+        assertTrue(limit.tryAcquire());
+        assertFalse(breaker.rejects());
+        assertFalse(call(breaker.proxy()));
+        assertFalse(breaker.rejects());
+        limit.release(1, false);
+        assertTrue(call(breaker.proxy()));
+    }
+
+    /* Test method to check that the calls refused half open or shed throw a CircuitOpenException answered 503 and count as open */
+    @Test
+    public void testRefusedCallsCircuitOpen() throws Exception {
+        AdaptiveLimit limit = new AdaptiveLimit(1, 1, 1, 2, 0.5);
+        final CircuitBreaker breaker = new CircuitBreaker(connector, 1, 50, 60000, 20, limit);
+        final ApiConnector protectedConnector = breaker.proxy();
+        try {
+            protectedConnector.findById(VirtualNetwork.class, "6b9570f2-17b1-4fc3-99ec-1b7f7778a29a");
+            fail("IOException expected");
+        } catch (IOException e) {
+            assertEquals(HttpURLConnection.HTTP_INTERNAL_ERROR, CircuitBreaker.statusOf(e));
+        }
+        try {
+            protectedConnector.findById(VirtualNetwork.class, "6b9570f2-17b1-4fc3-99ec-1b7f7778a29a");
+            fail("CircuitOpenException expected");
+        } catch (CircuitOpenException e) {
+            assertEquals(HttpURLConnection.HTTP_UNAVAILABLE, CircuitBreaker.statusOf(e));
+        }
+        Thread.sleep(40);
+        server.failing.set(false);
+        delay.set(200);
+        Thread probe = new Thread() {
+            @Override
+            public void run() {
+                call(protectedConnector);
+            }
+        };
+        probe.start();
+        Thread.sleep(50);
+        assertTrue(breaker.rejects());
+        assertTrue(breaker.saturated());
+        try {
+            protectedConnector.findById(VirtualNetwork.class, "6b9570f2-17b1-4fc3-99ec-1b7f7778a29a");
+            fail("CircuitOpenException expected");
+        } catch (CircuitOpenException e) {
+            // refused while the probe is in flight
+        }
+        probe.join();
+        assertFalse(breaker.rejects());
+        assertTrue(limit.tryAcquire());
+        try {
+            breaker.guard(new Callable<Object>() {
+                @Override
+                public Object call() {
+                    return null;
+                }
+            }, false);
+            fail("CircuitOpenException expected");
+        } catch (CircuitOpenException e) {
+            assertFalse(breaker.rejects());
+        }
+    }
+}
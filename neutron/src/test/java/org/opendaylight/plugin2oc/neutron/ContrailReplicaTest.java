@@ -0,0 +1,119 @@
+/*
+ * Copyright (C) 2014 Juniper Networks, Inc.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ *
+ */
+package org.opendaylight.plugin2oc.neutron;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import net.juniper.contrail.api.ApiConnector;
+import net.juniper.contrail.api.types.Project;
+import net.juniper.contrail.api.types.VirtualNetwork;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Test Class for the replica serving the validation reads.
+ */
+public class ContrailReplicaTest {
+    static final String UUID = "6b9570f2-17b1-4fc3-99ec-1b7f7778a29a";
+
+    final FakeApiServer server = new FakeApiServer();
+    ApiConnector connector;
+
+    @Before
+    public void beforeTest() {
+        server.put(UUID, new VirtualNetwork());
+        connector = ContrailReplica.observe(server.connector());
+    }
+
+    @After
+    public void afterTest() {
+        System.clearProperty(ContrailReplica.TTL_PROPERTY);
+        System.clearProperty(ContrailReplica.NEGATIVE_TTL_PROPERTY);
+        System.clearProperty(ContrailReplica.AWAIT_PROPERTY);
+    }
+
+    /* Test method to check that an object created a little later is awaited and a missing one is not waited for forever */
+    @Test
+    public void testAwait() throws IOException {
+        server.remove(UUID);
+        new Thread() {
+            @Override
+            public void run() {
+                try {
+                    Thread.sleep(100);
+                } catch (InterruptedException e) {
+                    return;
+                }
+                server.put(UUID, new VirtualNetwork());
+            }
+        }.start();
+        assertNotNull(ContrailReplica.awaitById(connector, VirtualNetwork.class, UUID));
+        System.setProperty(ContrailReplica.AWAIT_PROPERTY, "100");
+        long start = System.nanoTime();
+        assertNull(ContrailReplica.awaitById(connector, Project.class, UUID));
+        assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(1));
+    }
+
+    /* Test method to check that a validation read is served from the replica once read */
+    @Test
+    public void testServedLocally() throws IOException {
+        VirtualNetwork first = ContrailReplica.findById(connector, VirtualNetwork.class, UUID, false);
+        VirtualNetwork second = ContrailReplica.findById(connector, VirtualNetwork.class, UUID, false);
+        assertNotNull(first);
+        assertSame(first, second);
+        assertEquals(1, server.calls("findById"));
+    }
+
+    /* Test method to check that a strict read always goes to the API server */
+    @Test
+    public void testStrict() throws IOException {
+        ContrailReplica.findById(connector, VirtualNetwork.class, UUID, false);
+        ContrailReplica.findById(connector, VirtualNetwork.class, UUID, true);
+        assertEquals(2, server.calls("findById"));
+    }
+
+    /* Test method to check that a write through the connector drops the replica of the object */
+    @Test
+    public void testOwnWritesVisible() throws IOException {
+        assertNotNull(ContrailReplica.findById(connector, VirtualNetwork.class, UUID, false));
+        connector.delete(VirtualNetwork.class, UUID);
+        assertNull(ContrailReplica.findById(connector, VirtualNetwork.class, UUID, false));
+        assertEquals(2, server.calls("findById"));
+    }
+
+    /* Test method to check that missing objects are only remembered for the negative lifetime */
+    @Test
+    public void testNegativeLifetime() throws IOException, InterruptedException {
+        System.setProperty(ContrailReplica.NEGATIVE_TTL_PROPERTY, "20");
+        assertNull(ContrailReplica.findById(connector, Project.class, UUID, false));
+        assertNull(ContrailReplica.findById(connector, Project.class, UUID, false));
+        assertEquals(1, server.calls("findById"));
+        Thread.sleep(40);
+        ContrailReplica.findById(connector, Project.class, UUID, false);
+        assertEquals(2, server.calls("findById"));
+    }
+
+    /* Test method to check that the replica can be disabled */
+    @Test
+    public void testDisabled() throws IOException {
+        System.setProperty(ContrailReplica.TTL_PROPERTY, "0");
+        ContrailReplica.findById(connector, VirtualNetwork.class, UUID, false);
+        ContrailReplica.findById(connector, VirtualNetwork.class, UUID, false);
+        assertEquals(2, server.calls("findById"));
+    }
+}
@@ -0,0 +1,256 @@
+/*
+ * Copyright (C) 2014 Juniper Networks, Inc.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ *
+ */
+package org.opendaylight.plugin2oc.neutron;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Test Class for the parallel run of tasks depending on each other.
+ */
+public class DagExecutorTest {
+    final List<String> started = new CopyOnWriteArrayList<String>();
+    ExecutorService executor;
+
+    @Before
+    public void beforeTest() {
+        executor = Executors.newFixedThreadPool(4);
+    }
+
+    @After
+    public void afterTest() {
+        executor.shutdownNow();
+    }
+
+    private Callable<Integer> task(final String id, final int status) {
+        return new Callable<Integer>() {
+            @Override
+            public Integer call() {
+                started.add(id);
+                return status;
+            }
+        };
+    }
+
+    /* Test method to check that a task runs after the tasks it depends on */
+    @Test
+    public void testOrder() throws InterruptedException {
+        DagExecutor dag = new DagExecutor();
+        dag.add("network", task("network", 201), Collections.<String> emptyList());
+        dag.add("subnet", task("subnet", 201), Arrays.asList("network"));
+        dag.add("group", task("group", 201), Collections.<String> emptyList());
+        dag.add("port", task("port", 201), Arrays.asList("subnet", "group"));
+        Map<String, Integer> statuses = dag.run(executor, 10000);
+        assertEquals(Arrays.asList("network", "subnet", "group", "port"), Arrays.asList(statuses.keySet().toArray()));
+        for (int status : statuses.values()) {
+            assertEquals(201, status);
+        }
+        assertTrue(started.indexOf("network") < started.indexOf("subnet"));
+        assertTrue(started.indexOf("subnet") < started.indexOf("port"));
+        assertTrue(started.indexOf("group") < started.indexOf("port"));
+    }
+
+    /* Test method to check that the tasks depending on a failed task are not run */
+    @Test
+    public void testFailedDependency() throws InterruptedException {
+        DagExecutor dag = new DagExecutor();
+        dag.add("network", task("network", 400), Collections.<String> emptyList());
+        dag.add("subnet", task("subnet", 201), Arrays.asList("network"));
+        dag.add("port", task("port", 201), Arrays.asList("subnet"));
+        dag.add("group", new Callable<Integer>() {
+            @Override
+            public Integer call() {
+                throw new IllegalStateException();
+            }
+        }, Collections.<String> emptyList());
+        Map<String, Integer> statuses = dag.run(executor, 10000);
+        assertEquals(400, (int) statuses.get("network"));
+        assertEquals(DagExecutor.FAILED_DEPENDENCY, (int) statuses.get("subnet"));
+        assertEquals(DagExecutor.FAILED_DEPENDENCY, (int) statuses.get("port"));
+        assertEquals(500, (int) statuses.get("group"));
+        assertEquals(Arrays.asList("network"), started);
+    }
+
+    /* Test method to check that the tasks not done in time end with a timeout */
+    @Test
+    public void testTimeout() throws InterruptedException {
+        final CountDownLatch release = new CountDownLatch(1);
+        DagExecutor dag = new DagExecutor();
+        dag.add("network", new Callable<Integer>() {
+            @Override
+            public Integer call() throws InterruptedException {
+                release.await(10, TimeUnit.SECONDS);
+                return 201;
+            }
+        }, Collections.<String> emptyList());
+        dag.add("subnet", task("subnet", 201), Arrays.asList("network"));
+        Map<String, Integer> statuses = dag.run(executor, 100);
+        release.countDown();
+        assertEquals(504, (int) statuses.get("network"));
+        assertEquals(DagExecutor.FAILED_DEPENDENCY, (int) statuses.get("subnet"));
+        assertTrue(started.isEmpty());
+    }
+
+    /* Test method to check that a task still running at the timeout is interrupted */
+    @Test
+    public void testTimeoutCancelsRunning() throws InterruptedException {
+        final CountDownLatch running = new CountDownLatch(1);
+        final CountDownLatch interrupted = new CountDownLatch(1);
+        DagExecutor dag = new DagExecutor();
+        dag.add("network", new Callable<Integer>() {
+            @Override
+            public Integer call() throws InterruptedException {
+                running.countDown();
+                try {
+                    Thread.sleep(10000);
+                } catch (InterruptedException e) {
+                    interrupted.countDown();
+                    throw e;
+                }
+                return 201;
+            }
+        }, Collections.<String> emptyList());
+        dag.add("group", task("group", 201), Collections.<String> emptyList());
+        Map<String, Integer> statuses = dag.run(executor, 100);
+        assertTrue(running.await(1, TimeUnit.SECONDS));
+        assertEquals(504, (int) statuses.get("network"));
+        assertEquals(201, (int) statuses.get("group"));
+        assertTrue(interrupted.await(1, TimeUnit.SECONDS));
+    }
+
+    /* Test method to check that the tasks depending on the same task run at the same time */
+    @Test
+    public void testParallelBranches() throws InterruptedException {
+        final CountDownLatch together = new CountDownLatch(2);
+        Callable<Integer> member = new Callable<Integer>() {
+            @Override
+            public Integer call() throws InterruptedException {
+                together.countDown();
+                return together.await(10, TimeUnit.SECONDS) ? 201 : 500;
+            }
+        };
+        DagExecutor dag = new DagExecutor();
+        dag.add("pool", task("pool", 201), Collections.<String> emptyList());
+        dag.add("member-0", member, Arrays.asList("pool"));
+        dag.add("member-1", member, Arrays.asList("pool"));
+        Map<String, Integer> statuses = dag.run();
+        assertEquals(201, (int) statuses.get("member-0"));
+        assertEquals(201, (int) statuses.get("member-1"));
+    }
+
+    /* Test method to check that the writes of a tenant do not wait for the threads held by another tenant */
+    @Test
+    public void testWritersPerTenant() throws Exception {
+        System.setProperty(DagExecutor.PARALLELISM_PROPERTY, "1");
+        System.setProperty(DagExecutor.TIMEOUT_PROPERTY, "5000");
+        final CountDownLatch blocked = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        Thread busy = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                String previous = TenantScheduler.enter("6b9570f2-17b1-4fc3-99ec-1b7f7778a29a");
+                try {
+                    DagExecutor dag = new DagExecutor();
+                    dag.add("blocked", new Callable<Integer>() {
+                        @Override
+                        public Integer call() throws InterruptedException {
+                            blocked.countDown();
+                            return release.await(10, TimeUnit.SECONDS) ? 201 : 500;
+                        }
+                    }, Collections.<String> emptyList());
+                    dag.run();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    TenantScheduler.exit(previous);
+                }
+            }
+        });
+        busy.start();
+        String previous = TenantScheduler.enter("7b9570f2-17b1-4fc3-99ec-1b7f7778a29a");
+        try {
+            assertTrue(blocked.await(10, TimeUnit.SECONDS));
+            DagExecutor dag = new DagExecutor();
+            dag.add("network", task("network", 201), Collections.<String> emptyList());
+            assertEquals(201, (int) dag.run().get("network"));
+        } finally {
+            TenantScheduler.exit(previous);
+            release.countDown();
+            busy.join();
+            System.clearProperty(DagExecutor.PARALLELISM_PROPERTY);
+            System.clearProperty(DagExecutor.TIMEOUT_PROPERTY);
+            DagExecutor.shutdown();
+        }
+    }
+
+    /* Test method to check that the writer pools do not grow with the number of tenants */
+    @Test
+    public void testWriterPoolsBounded() throws InterruptedException {
+        try {
+            for (int i = 0; i < 40; i++) {
+                String previous = TenantScheduler.enter(String.format("%08d-17b1-4fc3-99ec-1b7f7778a29a", i));
+                try {
+                    DagExecutor dag = new DagExecutor();
+                    dag.add("network", task("network", 201), Collections.<String> emptyList());
+                    assertEquals(201, (int) dag.run().get("network"));
+                } finally {
+                    TenantScheduler.exit(previous);
+                }
+            }
+            assertTrue(DagExecutor.writerPools() <= 16);
+        } finally {
+            DagExecutor.shutdown();
+        }
+        assertEquals(0, DagExecutor.writerPools());
+    }
+
+    /* Test method to check that the virtual thread mode runs the tasks, on platform threads when the JDK has none */
+    @Test
+    public void testVirtualDispatch() throws Exception {
+        System.setProperty(DagExecutor.VIRTUAL_PROPERTY, "true");
+        ExecutorService executor;
+        try {
+            executor = DagExecutor.executor("plugin2oc-test", 1);
+        } finally {
+            System.clearProperty(DagExecutor.VIRTUAL_PROPERTY);
+        }
+        try {
+            String name = executor.submit(new Callable<String>() {
+                @Override
+                public String call() {
+                    return Thread.currentThread().getName();
+                }
+            }).get(10, TimeUnit.SECONDS);
+            assertEquals("plugin2oc-test-1", name);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    /* Test method to check that a task cannot depend on a task added after it */
+    @Test(expected = IllegalArgumentException.class)
+    public void testUnknownDependency() {
+        new DagExecutor().add("subnet", task("subnet", 201), Arrays.asList("network"));
+    }
+}
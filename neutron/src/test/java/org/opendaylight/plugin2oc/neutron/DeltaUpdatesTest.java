@@ -0,0 +1,153 @@
+/*
+ * Copyright (C) 2014 Juniper Networks, Inc.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ *
+ */
+package org.opendaylight.plugin2oc.neutron;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import net.juniper.contrail.api.ApiConnector;
+import net.juniper.contrail.api.types.NetworkIpam;
+import net.juniper.contrail.api.types.VirtualNetwork;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Test Class for the updates writing only what a handler changed.
+ */
+public class DeltaUpdatesTest {
+    static final String UUID = "6b9570f2-17b1-4fc3-99ec-1b7f7778a29a";
+    static final String IPAM_UUID = "0f3c4b5e-8a1d-4c2b-9e7f-1a2b3c4d5e6f";
+
+    final VirtualNetwork network = new VirtualNetwork() {
+        @Override
+        public String getUuid() {
+            return UUID;
+        }
+    };
+    final NetworkIpam ipam = new NetworkIpam() {
+        @Override
+        public String getUuid() {
+            return IPAM_UUID;
+        }
+
+        @Override
+        public List<String> getQualifiedName() {
+            return Arrays.asList("default-domain", "default-project", "default-network-ipam");
+        }
+    };
+    final FakeApiServer contrail = new FakeApiServer();
+    ApiConnector connector;
+    HttpServer server;
+    int status = 200;
+    String requested;
+    String body;
+
+    @Before
+    public void beforeTest() throws IOException {
+        connector = contrail.connector();
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                requested = exchange.getRequestMethod() + " " + exchange.getRequestURI();
+                ByteArrayOutputStream received = new ByteArrayOutputStream();
+                InputStream in = exchange.getRequestBody();
+                byte[] buffer = new byte[1024];
+                for (int n = in.read(buffer); n != -1; n = in.read(buffer)) {
+                    received.write(buffer, 0, n);
+                }
+                body = received.toString("UTF-8");
+                exchange.sendResponseHeaders(status, -1);
+                exchange.close();
+            }
+        });
+        server.start();
+        ProjectedReads.configure(Collections.singletonList("127.0.0.1:" + server.getAddress().getPort()));
+    }
+
+    @After
+    public void afterTest() {
+        server.stop(0);
+        ProjectedReads.configure(null);
+        System.clearProperty(CircuitBreaker.WINDOW_PROPERTY);
+        CircuitBreaker.protect(new FakeApiServer().connector());
+    }
+
+    /* Test method to check that adding a ref sends a ref-update of this ref only */
+    @Test
+    public void testAddRef() throws IOException {
+        assertTrue(DeltaUpdates.addRef(connector, network, ipam, null));
+        assertEquals("POST /ref-update", requested);
+        assertTrue(body.contains("\"type\":\"virtual-network\""));
+        assertTrue(body.contains("\"ref-type\":\"network-ipam\""));
+        assertTrue(body.contains("\"ref-uuid\":\"" + IPAM_UUID + "\""));
+        assertTrue(body.contains("\"ref-fq-name\":[\"default-domain\",\"default-project\",\"default-network-ipam\"]"));
+        assertTrue(body.contains("\"operation\":\"ADD\""));
+        assertEquals(0, contrail.calls("update"));
+    }
+
+    /* Test method to check that only the changed properties are sent */
+    @Test
+    public void testUpdateProperties() throws IOException {
+        Map<String, Object> properties = new LinkedHashMap<String, Object>();
+        properties.put("router_external", true);
+        properties.put("display_name", "public");
+        assertTrue(DeltaUpdates.updateProperties(connector, network, properties));
+        assertEquals("PUT /virtual-network/" + UUID, requested);
+        assertEquals("{\"virtual-network\":{\"uuid\":\"" + UUID + "\",\"router_external\":true,\"display_name\":\"public\"}}", body);
+        assertEquals(0, contrail.calls("update"));
+    }
+
+    /* Test method to check that the object is updated in full when the delta is not accepted */
+    @Test
+    public void testFallback() throws IOException {
+        status = 404;
+        assertTrue(DeltaUpdates.removeRef(connector, network, ipam));
+        assertTrue(body.contains("\"operation\":\"DELETE\""));
+        assertEquals(1, contrail.calls("update"));
+        ProjectedReads.configure(null);
+        assertTrue(DeltaUpdates.removeRef(connector, network, ipam));
+        assertEquals(2, contrail.calls("update"));
+    }
+
+    /* Test method to check that no delta is sent while the circuit breaker is open */
+    @Test
+    public void testCircuitOpen() throws IOException {
+        System.setProperty(CircuitBreaker.WINDOW_PROPERTY, "1");
+        FakeApiServer failing = new FakeApiServer();
+        failing.failing.set(true);
+        try {
+            CircuitBreaker.protect(failing.connector()).findById(VirtualNetwork.class, UUID);
+            fail();
+        } catch (IOException e) {
+            assertTrue(CircuitBreaker.isOpen());
+        }
+        assertTrue(DeltaUpdates.addRef(connector, network, ipam, null));
+        assertNull(requested);
+        assertEquals(1, contrail.calls("update"));
+    }
+}
@@ -0,0 +1,125 @@
+/*
+ * Copyright (C) 2014 Juniper Networks, Inc.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ *
+ */
+package org.opendaylight.plugin2oc.neutron;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.net.ConnectException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import net.juniper.contrail.api.ApiConnector;
+import net.juniper.contrail.api.ApiObjectBase;
+
+/**
+ * In-memory Contrail API server shared by the tests of the connector
+ * wrappers. Objects stored by UUID are returned by findById and list, the
+ * writes change the store and every call is counted by method name. Tests
+ * needing another behaviour override {@link #answer(Method, Object[])}.
+ */
+class FakeApiServer implements InvocationHandler {
+    final AtomicBoolean failing = new AtomicBoolean();
+    private final Map<String, ApiObjectBase> objects = new LinkedHashMap<String, ApiObjectBase>();
+    private final ConcurrentMap<String, AtomicInteger> calls = new ConcurrentHashMap<String, AtomicInteger>();
+
+    /**
+     * @return A connector sending its calls to this server.
+     */
+    ApiConnector connector() {
+        return (ApiConnector) Proxy.newProxyInstance(ApiConnector.class.getClassLoader(), new Class<?>[] { ApiConnector.class }, this);
+    }
+
+    /**
+     * Invoked to store an object under its own UUID.
+     */
+    FakeApiServer put(ApiObjectBase object) {
+        return put(object.getUuid(), object);
+    }
+
+    synchronized FakeApiServer put(String uuid, ApiObjectBase object) {
+        objects.put(uuid, object);
+        return this;
+    }
+
+    synchronized void remove(String uuid) {
+        objects.remove(uuid);
+    }
+
+    /**
+     * @return The number of calls made to the given methods, to every method
+     *         if none is given.
+     */
+    int calls(String... methods) {
+        int count = 0;
+        for (Map.Entry<String, AtomicInteger> entry : calls.entrySet()) {
+            boolean counted = methods.length == 0;
+            for (String method : methods) {
+                counted |= method.equals(entry.getKey());
+            }
+            count += counted ? entry.getValue().get() : 0;
+        }
+        return count;
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+        if (method.getDeclaringClass() == Object.class) {
+            try {
+                return method.invoke(this, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+        AtomicInteger count = calls.get(method.getName());
+        if (count == null) {
+            calls.putIfAbsent(method.getName(), new AtomicInteger());
+            count = calls.get(method.getName());
+        }
+        count.incrementAndGet();
+        if (failing.get()) {
+            throw new ConnectException("Connection refused");
+        }
+        return answer(method, args);
+    }
+
+    /**
+     * Invoked to answer a call the server does not fail.
+     */
+    synchronized Object answer(Method method, Object[] args) throws Throwable {
+        String name = method.getName();
+        if (("findById").equals(name)) {
+            ApiObjectBase object = objects.get(args[1]);
+            return ((Class<?>) args[0]).isInstance(object) ? object : null;
+        }
+        if (("list").equals(name)) {
+            List<ApiObjectBase> listed = new ArrayList<ApiObjectBase>();
+            for (ApiObjectBase object : objects.values()) {
+                if (((Class<?>) args[0]).isInstance(object)) {
+                    listed.add(object);
+                }
+            }
+            return listed;
+        }
+        if ((("create").equals(name) || ("update").equals(name)) && ((ApiObjectBase) args[0]).getUuid() != null) {
+            objects.put(((ApiObjectBase) args[0]).getUuid(), (ApiObjectBase) args[0]);
+        }
+        if (("delete").equals(name)) {
+            objects.remove(args.length == 2 ? args[1] : ((ApiObjectBase) args[0]).getUuid());
+        }
+        return method.getReturnType() == boolean.class ? Boolean.TRUE : null;
+    }
+}
@@ -10,7 +10,10 @@ package org.opendaylight.plugin2oc.neutron;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 
 import java.io.IOException;
 import java.net.HttpURLConnection;
@@ -23,7 +26,9 @@ import net.juniper.contrail.api.ObjectReference;
 import net.juniper.contrail.api.types.FloatingIp;
 import net.juniper.contrail.api.types.FloatingIpPool;
 import net.juniper.contrail.api.types.Project;
+import net.juniper.contrail.api.types.SubnetType;
 import net.juniper.contrail.api.types.VirtualNetwork;
+import net.juniper.contrail.api.types.VnSubnetsType;
 
 import org.junit.After;
 import org.junit.Before;
@@ -190,6 +195,113 @@ public class FloatingIpHandlerTest {
                assertEquals(HttpURLConnection.HTTP_OK,floatingIphandler.canCreateFloatingIP(neutronFloatingIP));
        }
 
+    /* Test method to check if the floating ip pool of a network is resolved only once */
+    @Test
+    public void testCanCreateFloatingIpPoolCached() throws IOException {
+        Activator.apiConnector = mockedApiConnector;
+        NeutronFloatingIP neutronFloatingIP = defaultNeutronObject();
+        when(mockedApiConnector.findById(FloatingIp.class, neutronFloatingIP.getFloatingIPUUID())).thenReturn(null);
+        when(mockedApiConnector.findById(Project.class, neutronFloatingIP.getTenantUUID())).thenReturn(mockProject);
+        when(mockedApiConnector.findById(VirtualNetwork.class, neutronFloatingIP.getFloatingNetworkUUID())).thenReturn(mockedVirtualNetwork);
+        List<ObjectReference<ApiPropertyBase>> fipPoolList = new ArrayList<ObjectReference<ApiPropertyBase>>();
+        fipPoolList.add(new ObjectReference<ApiPropertyBase>(mockFloatingIpPool.getQualifiedName(), null));
+        fipPoolList.get(0).setReference(mockFloatingIpPool.getQualifiedName(), null, "", "119570f2-17b1-4fc3-99ec-1b7f7778a29a");
+        when(mockedVirtualNetwork.getFloatingIpPools()).thenReturn(fipPoolList);
+        when(mockedApiConnector.findById(FloatingIpPool.class, "119570f2-17b1-4fc3-99ec-1b7f7778a29a")).thenReturn(mockFloatingIpPool);
+        assertEquals(HttpURLConnection.HTTP_OK, floatingIphandler.canCreateFloatingIP(neutronFloatingIP));
+        assertEquals(HttpURLConnection.HTTP_OK, floatingIphandler.canCreateFloatingIP(neutronFloatingIP));
+        verify(mockedApiConnector, times(1)).findById(VirtualNetwork.class, neutronFloatingIP.getFloatingNetworkUUID());
+        verify(mockedApiConnector, times(1)).findById(FloatingIpPool.class, "119570f2-17b1-4fc3-99ec-1b7f7778a29a");
+    }
+
+    /* Test method to check if the local allocator rejects an address already in use */
+    @Test
+    public void testCanCreateFloatingIpAddressInUse() throws IOException {
+        Activator.apiConnector = mockedApiConnector;
+        System.setProperty(FloatingIpAllocator.ENABLED_PROPERTY, "true");
+        try {
+            NeutronFloatingIP neutronFloatingIP = defaultNeutronObject();
+            when(mockedApiConnector.findById(FloatingIp.class, neutronFloatingIP.getFloatingIPUUID())).thenReturn(null);
+            when(mockedApiConnector.findById(Project.class, neutronFloatingIP.getTenantUUID())).thenReturn(mockProject);
+            when(mockedApiConnector.findById(VirtualNetwork.class, neutronFloatingIP.getFloatingNetworkUUID())).thenReturn(mockedVirtualNetwork);
+            List<ObjectReference<ApiPropertyBase>> fipPoolList = new ArrayList<ObjectReference<ApiPropertyBase>>();
+            fipPoolList.add(new ObjectReference<ApiPropertyBase>(mockFloatingIpPool.getQualifiedName(), null));
+            fipPoolList.get(0).setReference(mockFloatingIpPool.getQualifiedName(), null, "", "119570f2-17b1-4fc3-99ec-1b7f7778a29a");
+            when(mockedVirtualNetwork.getFloatingIpPools()).thenReturn(fipPoolList);
+            VnSubnetsType vnSubnetType = new VnSubnetsType();
+            VnSubnetsType.IpamSubnetType ipamSubnet = new VnSubnetsType.IpamSubnetType();
+            ipamSubnet.setSubnet(new SubnetType());
+            ipamSubnet.getSubnet().setIpPrefix("10.0.1.0");
+            ipamSubnet.getSubnet().setIpPrefixLen(24);
+            vnSubnetType.addIpamSubnets(ipamSubnet);
+            ObjectReference<VnSubnetsType> ref = new ObjectReference<VnSubnetsType>();
+            ref.setReference(new ArrayList<String>(), vnSubnetType, "", "");
+            List<ObjectReference<VnSubnetsType>> ipamRefs = new ArrayList<ObjectReference<VnSubnetsType>>();
+            ipamRefs.add(ref);
+            when(mockedVirtualNetwork.getNetworkIpam()).thenReturn(ipamRefs);
+            when(mockFloatingIpPool.getUuid()).thenReturn("119570f2-17b1-4fc3-99ec-1b7f7778a29a");
+            when(mockFloatingIpPool.getParentUuid()).thenReturn(neutronFloatingIP.getFloatingNetworkUUID());
+            when(mockedApiConnector.findById(FloatingIpPool.class, "119570f2-17b1-4fc3-99ec-1b7f7778a29a")).thenReturn(mockFloatingIpPool);
+            List<ObjectReference<ApiPropertyBase>> fipList = new ArrayList<ObjectReference<ApiPropertyBase>>();
+            fipList.add(new ObjectReference<ApiPropertyBase>());
+            when(mockFloatingIpPool.getFloatingIps()).thenReturn(fipList);
+            when(mockedFloatingIp.getAddress()).thenReturn(neutronFloatingIP.getFloatingIPAddress());
+            List<FloatingIp> floatingIps = new ArrayList<FloatingIp>();
+            floatingIps.add(mockedFloatingIp);
+            doReturn(floatingIps).when(mockedApiConnector).getObjects(FloatingIp.class, fipList);
+            assertEquals(HttpURLConnection.HTTP_CONFLICT, floatingIphandler.canCreateFloatingIP(neutronFloatingIP));
+            neutronFloatingIP.setFloatingIPAddress("10.0.2.1");
+            assertEquals(HttpURLConnection.HTTP_BAD_REQUEST, floatingIphandler.canCreateFloatingIP(neutronFloatingIP));
+            neutronFloatingIP.setFloatingIPAddress(null);
+            assertEquals(HttpURLConnection.HTTP_OK, floatingIphandler.canCreateFloatingIP(neutronFloatingIP));
+        } finally {
+            System.clearProperty(FloatingIpAllocator.ENABLED_PROPERTY);
+        }
+    }
+
+    /* Test method to check if the local allocator is seeded again when an address it holds was released by another client */
+    @Test
+    public void testCanCreateFloatingIpAllocatorRefreshed() throws IOException {
+        Activator.apiConnector = mockedApiConnector;
+        System.setProperty(FloatingIpAllocator.ENABLED_PROPERTY, "true");
+        try {
+            NeutronFloatingIP neutronFloatingIP = defaultNeutronObject();
+            when(mockedApiConnector.findById(FloatingIp.class, neutronFloatingIP.getFloatingIPUUID())).thenReturn(null);
+            when(mockedApiConnector.findById(Project.class, neutronFloatingIP.getTenantUUID())).thenReturn(mockProject);
+            when(mockedApiConnector.findById(VirtualNetwork.class, neutronFloatingIP.getFloatingNetworkUUID())).thenReturn(mockedVirtualNetwork);
+            List<ObjectReference<ApiPropertyBase>> fipPoolList = new ArrayList<ObjectReference<ApiPropertyBase>>();
+            fipPoolList.add(new ObjectReference<ApiPropertyBase>(mockFloatingIpPool.getQualifiedName(), null));
+            fipPoolList.get(0).setReference(mockFloatingIpPool.getQualifiedName(), null, "", "119570f2-17b1-4fc3-99ec-1b7f7778a29a");
+            when(mockedVirtualNetwork.getFloatingIpPools()).thenReturn(fipPoolList);
+            VnSubnetsType vnSubnetType = new VnSubnetsType();
+            VnSubnetsType.IpamSubnetType ipamSubnet = new VnSubnetsType.IpamSubnetType();
+            ipamSubnet.setSubnet(new SubnetType());
+            ipamSubnet.getSubnet().setIpPrefix("10.0.1.0");
+            ipamSubnet.getSubnet().setIpPrefixLen(24);
+            vnSubnetType.addIpamSubnets(ipamSubnet);
+            ObjectReference<VnSubnetsType> ref = new ObjectReference<VnSubnetsType>();
+            ref.setReference(new ArrayList<String>(), vnSubnetType, "", "");
+            List<ObjectReference<VnSubnetsType>> ipamRefs = new ArrayList<ObjectReference<VnSubnetsType>>();
+            ipamRefs.add(ref);
+            when(mockedVirtualNetwork.getNetworkIpam()).thenReturn(ipamRefs);
+            when(mockFloatingIpPool.getUuid()).thenReturn("119570f2-17b1-4fc3-99ec-1b7f7778a29a");
+            when(mockFloatingIpPool.getParentUuid()).thenReturn(neutronFloatingIP.getFloatingNetworkUUID());
+            when(mockedApiConnector.findById(FloatingIpPool.class, "119570f2-17b1-4fc3-99ec-1b7f7778a29a")).thenReturn(mockFloatingIpPool);
+            List<ObjectReference<ApiPropertyBase>> fipList = new ArrayList<ObjectReference<ApiPropertyBase>>();
+            fipList.add(new ObjectReference<ApiPropertyBase>());
+            // the floating ip holding the address is deleted by another client after the allocator is seeded
+            when(mockFloatingIpPool.getFloatingIps()).thenReturn(fipList, fipList, null);
+            when(mockedFloatingIp.getAddress()).thenReturn(neutronFloatingIP.getFloatingIPAddress());
+            List<FloatingIp> floatingIps = new ArrayList<FloatingIp>();
+            floatingIps.add(mockedFloatingIp);
+            doReturn(floatingIps).when(mockedApiConnector).getObjects(FloatingIp.class, fipList);
+            assertEquals(HttpURLConnection.HTTP_CONFLICT, floatingIphandler.canCreateFloatingIP(neutronFloatingIP));
+            assertEquals(HttpURLConnection.HTTP_OK, floatingIphandler.canCreateFloatingIP(neutronFloatingIP));
+        } finally {
+            System.clearProperty(FloatingIpAllocator.ENABLED_PROPERTY);
+        }
+    }
+
     /* Test method to check if can update FloatingIP Null object */
     @Test
     public void testcanUpdateFloatingIPObjNull() throws IOException {
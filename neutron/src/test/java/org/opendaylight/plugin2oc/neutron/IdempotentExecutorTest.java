@@ -0,0 +1,123 @@
+/*
+ * Copyright (C) 2014 Juniper Networks, Inc.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ *
+ */
+package org.opendaylight.plugin2oc.neutron;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.IOException;
+
+import net.juniper.contrail.api.ApiConnector;
+import net.juniper.contrail.api.types.NetworkIpam;
+import net.juniper.contrail.api.types.SubnetType;
+import net.juniper.contrail.api.types.VirtualNetwork;
+import net.juniper.contrail.api.types.VnSubnetsType;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Test Class for the idempotent execution of Contrail creates.
+ */
+public class IdempotentExecutorTest {
+    private static final String UUID = "6b9570f2-17b1-4fc3-99ec-1b7f7778a29a";
+
+    ApiConnector mockedApiConnector = mock(ApiConnector.class);
+    VirtualNetwork virtualNetwork;
+
+    @Before
+    public void beforeTest() {
+        virtualNetwork = network("network-1");
+    }
+
+    private static VirtualNetwork network(String name) {
+        VirtualNetwork network = new VirtualNetwork();
+        network.setName(name);
+        network.setUuid(UUID);
+        return network;
+    }
+
+    /* Test method to check that a create failing on a transient error is retried */
+    @Test
+    public void testCreateRetriedAfterIOException() throws IOException {
+        when(mockedApiConnector.create(virtualNetwork)).thenThrow(new IOException("Read timed out")).thenReturn(true);
+        when(mockedApiConnector.findById(VirtualNetwork.class, UUID)).thenReturn(null);
+        assertTrue(IdempotentExecutor.create(mockedApiConnector, virtualNetwork));
+        verify(mockedApiConnector, times(2)).create(virtualNetwork);
+    }
+
+    /* Test method to check that an equivalent object left by an earlier attempt counts as created */
+    @Test
+    public void testCreateAlreadyExists() throws IOException {
+        when(mockedApiConnector.create(virtualNetwork)).thenReturn(false);
+        when(mockedApiConnector.findById(VirtualNetwork.class, UUID)).thenReturn(network("network-1"));
+        assertTrue(IdempotentExecutor.create(mockedApiConnector, virtualNetwork));
+        verify(mockedApiConnector, times(1)).create(virtualNetwork);
+    }
+
+    /* Test method to check that an object with the same UUID and another content is a conflict */
+    @Test
+    public void testCreateConflict() throws IOException {
+        when(mockedApiConnector.create(virtualNetwork)).thenReturn(false);
+        when(mockedApiConnector.findById(VirtualNetwork.class, UUID)).thenReturn(network("network-2"));
+        assertFalse(IdempotentExecutor.create(mockedApiConnector, virtualNetwork));
+        verify(mockedApiConnector, times(1)).create(virtualNetwork);
+    }
+
+    /* Test method to check that an object with the same name and another property is a conflict */
+    @Test
+    public void testCreateConflictProperty() throws IOException {
+        virtualNetwork.setIsShared(true);
+        VirtualNetwork existing = network("network-1");
+        existing.setIsShared(false);
+        when(mockedApiConnector.create(virtualNetwork)).thenReturn(false);
+        when(mockedApiConnector.findById(VirtualNetwork.class, UUID)).thenReturn(existing);
+        assertFalse(IdempotentExecutor.create(mockedApiConnector, virtualNetwork));
+    }
+
+    private static NetworkIpam ipam(String name, String uuid) {
+        NetworkIpam ipam = new NetworkIpam();
+        ipam.setName(name);
+        ipam.setUuid(uuid);
+        return ipam;
+    }
+
+    private static VnSubnetsType subnets(String prefix) {
+        SubnetType subnet = new SubnetType();
+        subnet.setIpPrefix(prefix);
+        subnet.setIpPrefixLen(24);
+        VnSubnetsType.IpamSubnetType ipamSubnet = new VnSubnetsType.IpamSubnetType();
+        ipamSubnet.setSubnet(subnet);
+        VnSubnetsType vnSubnetsType = new VnSubnetsType();
+        vnSubnetsType.addIpamSubnets(ipamSubnet);
+        return vnSubnetsType;
+    }
+
+    /* Test method to check that the references set by the caller and their attributes are compared, regardless of their order */
+    @Test
+    public void testEquivalentReferences() {
+        NetworkIpam first = ipam("ipam-1", "6b9570f2-17b1-4fc3-99ec-1b7f7778a2a1");
+        NetworkIpam second = ipam("ipam-2", "6b9570f2-17b1-4fc3-99ec-1b7f7778a2a2");
+        virtualNetwork.addNetworkIpam(first, subnets("10.0.1.0"));
+        virtualNetwork.addNetworkIpam(second, subnets("10.0.2.0"));
+        VirtualNetwork existing = network("network-1");
+        existing.addNetworkIpam(second, subnets("10.0.2.0"));
+        assertFalse(IdempotentExecutor.equivalent(existing, virtualNetwork));
+        existing.addNetworkIpam(first, subnets("10.0.3.0"));
+        assertFalse(IdempotentExecutor.equivalent(existing, virtualNetwork));
+        existing.clearNetworkIpam();
+        existing.addNetworkIpam(second, subnets("10.0.2.0"));
+        existing.addNetworkIpam(first, subnets("10.0.1.0"));
+        assertTrue(IdempotentExecutor.equivalent(existing, virtualNetwork));
+    }
+}
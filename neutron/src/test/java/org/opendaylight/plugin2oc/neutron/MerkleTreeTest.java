@@ -0,0 +1,54 @@
+/*
+ * Copyright (C) 2014 Juniper Networks, Inc.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ *
+ */
+package org.opendaylight.plugin2oc.neutron;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.junit.Test;
+
+/**
+ * Test Class for the hash tree used by the reconciliation service.
+ */
+public class MerkleTreeTest {
+    private static final String FIRST = "0a1b2c3d-0000-4000-8000-000000000001";
+    private static final String SECOND = "ff1b2c3d-0000-4000-8000-000000000002";
+
+    /* Test method to check that trees holding the same state do not differ */
+    @Test
+    public void testSameState() {
+        MerkleTree neutron = new MerkleTree();
+        MerkleTree contrail = new MerkleTree();
+        neutron.put(FIRST, MerkleTree.hash(FIRST, "net-1"));
+        neutron.put(SECOND, MerkleTree.hash(SECOND, "net-2"));
+        contrail.put(SECOND, MerkleTree.hash(SECOND, "net-2"));
+        contrail.put(FIRST, MerkleTree.hash(FIRST, "net-1"));
+        assertTrue(MerkleTree.diff(neutron, contrail).isEmpty());
+        assertTrue(MerkleTree.diff(null, new MerkleTree()).isEmpty());
+    }
+
+    /* Test method to check that only the buckets of drifted or missing objects differ */
+    @Test
+    public void testDiff() {
+        MerkleTree neutron = new MerkleTree();
+        MerkleTree contrail = new MerkleTree();
+        neutron.put(FIRST, MerkleTree.hash(FIRST, "net-1"));
+        neutron.put(SECOND, MerkleTree.hash(SECOND, "net-2"));
+        contrail.put(FIRST, MerkleTree.hash(FIRST, "renamed"));
+        assertEquals(Arrays.asList(0x0a, 0xff), MerkleTree.diff(neutron, contrail));
+        contrail.put(FIRST, MerkleTree.hash(FIRST, "net-1"));
+        assertEquals(Collections.singletonList(0xff), MerkleTree.diff(neutron, contrail));
+        assertEquals(Collections.singleton(SECOND), neutron.entries(0xff).keySet());
+        neutron.remove(SECOND);
+        assertTrue(MerkleTree.diff(neutron, contrail).isEmpty());
+    }
+}
@@ -0,0 +1,99 @@
+/*
+ * Copyright (C) 2014 Juniper Networks, Inc.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ *
+ */
+package org.opendaylight.plugin2oc.neutron;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import net.juniper.contrail.api.ApiConnector;
+import net.juniper.contrail.api.types.Project;
+import net.juniper.contrail.api.types.VirtualNetwork;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Test Class for the index of the Contrail object names.
+ */
+public class NameIndexTest {
+    static final String UUID = "6b9570f2-17b1-4fc3-99ec-1b7f7778a29a";
+    static final String OTHER_UUID = "0f3c4b5e-8a1d-4c2b-9e7f-1a2b3c4d5e6f";
+
+    final FakeApiServer server = new FakeApiServer();
+    final Project project = new Project() {
+        @Override
+        public List<String> getQualifiedName() {
+            return Arrays.asList("default-domain", "demo");
+        }
+    };
+    ApiConnector connector;
+    NameIndex index;
+
+    static VirtualNetwork network(final String uuid, final String name) {
+        return new VirtualNetwork() {
+            @Override
+            public String getUuid() {
+                return uuid;
+            }
+
+            @Override
+            public List<String> getQualifiedName() {
+                return Arrays.asList("default-domain", "demo", name);
+            }
+        };
+    }
+
+    @Before
+    public void beforeTest() {
+        server.put(network(UUID, "private"));
+        connector = ContrailReplica.observe(server.connector());
+        index = new NameIndex(connector);
+    }
+
+    /* Test method to check that lookups go to the API server until the index is loaded */
+    @Test
+    public void testFallsThroughUntilLoaded() throws IOException {
+        NameIndex.findByName(connector, VirtualNetwork.class, project, "private");
+        assertEquals(1, server.calls("findByName"));
+        index.load();
+        assertEquals(UUID, NameIndex.findByName(connector, VirtualNetwork.class, project, "private"));
+        assertNull(NameIndex.findByName(connector, VirtualNetwork.class, project, "public"));
+        assertEquals(1, server.calls("findByName"));
+    }
+
+    /* Test method to check that the writes through the connector are applied to the index */
+    @Test
+    public void testOwnWrites() throws IOException {
+        index.load();
+        connector.create(network(OTHER_UUID, "public"));
+        assertEquals(OTHER_UUID, NameIndex.findByName(connector, VirtualNetwork.class, project, "public"));
+        connector.delete(VirtualNetwork.class, UUID);
+        assertNull(NameIndex.findByName(connector, VirtualNetwork.class, project, "private"));
+        assertEquals(0, server.calls("findByName"));
+    }
+
+    /* Test method to check that the writes made while the index reloads are not lost */
+    @Test
+    public void testWritesDuringReload() {
+        NameIndex.Names names = new NameIndex.Names();
+        names.beginLoad();
+        names.put(OTHER_UUID, "default-domain:demo:public");
+        Map<String, String> loaded = new HashMap<String, String>();
+        loaded.put(UUID, "default-domain:demo:private");
+        names.endLoad(loaded);
+        assertEquals(OTHER_UUID, names.uuid("default-domain:demo:public"));
+        assertEquals(UUID, names.uuid("default-domain:demo:private"));
+    }
+}
@@ -10,6 +10,7 @@ package org.opendaylight.plugin2oc.neutron;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 
@@ -110,6 +111,53 @@ public class NetworkHandlerTest {
         assertEquals(HttpURLConnection.HTTP_BAD_REQUEST, networkHandler.canCreateNetwork(null));
     }
 
+    /* Test method to check that bad input is refused while the circuit to the API server is open */
+    @Test
+    public void testCanCreateNetworkCircuitOpen() throws IOException {
+        System.setProperty(CircuitBreaker.WINDOW_PROPERTY, "1");
+        try {
+            ApiConnector protectedConnector = CircuitBreaker.protect(mockedApiConnector);
+            when(mockedApiConnector.findById(VirtualNetwork.class, "6b9570f2-17b1-4fc3-99ec-1b7f7778a29a")).thenThrow(
+                    new IOException("Connection refused"));
+            try {
+                protectedConnector.findById(VirtualNetwork.class, "6b9570f2-17b1-4fc3-99ec-1b7f7778a29a");
+            } catch (IOException e) {
+                // expected, opens the circuit
+            }
+            assertTrue(CircuitBreaker.isOpen());
+            Activator.apiConnector = protectedConnector;
+            assertEquals(HttpURLConnection.HTTP_BAD_REQUEST, networkHandler.canCreateNetwork(null));
+            assertEquals(HttpURLConnection.HTTP_UNAVAILABLE, networkHandler.canCreateNetwork(defaultNeutronObject()));
+        } finally {
+            System.clearProperty(CircuitBreaker.WINDOW_PROPERTY);
+            CircuitBreaker.protect(mock(ApiConnector.class));
+        }
+    }
+
+    /* Test method to check that a call the circuit breaker refuses after the check is answered 503 rather than 500 */
+    @Test
+    public void testCanCreateNetworkCallShed() throws IOException {
+        Activator.apiConnector = mockedApiConnector;
+        when(mockedApiConnector.findById(Project.class, "123570f2-17b1-4fc3-99ec-1b7f7778a29a")).thenThrow(
+                new CircuitOpenException("Contrail API call shed, too many calls in flight"));
+        assertEquals(HttpURLConnection.HTTP_UNAVAILABLE, networkHandler.canCreateNetwork(defaultNeutronObject()));
+    }
+
+    /* Test method to check that requests are refused until the startup preload succeeds */
+    @Test
+    public void testCanCreateNetworkNotReady() {
+        FakeApiServer server = new FakeApiServer();
+        server.failing.set(true);
+        Activator.apiConnector = server.connector();
+        try {
+            StartupPreloader.run(Activator.apiConnector, null);
+            assertEquals(HttpURLConnection.HTTP_BAD_REQUEST, networkHandler.canCreateNetwork(null));
+            assertEquals(HttpURLConnection.HTTP_UNAVAILABLE, networkHandler.canCreateNetwork(defaultNeutronObject()));
+        } finally {
+            StartupPreloader.run(null, null);
+        }
+    }
+
     /* Test method to check if neutron network uuid or name is null */
     @Test
     public void testCanCreateNetworkUuidNameNull() {
@@ -0,0 +1,67 @@
+/*
+ * Copyright (C) 2014 Juniper Networks, Inc.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ *
+ */
+package org.opendaylight.plugin2oc.neutron;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.Arrays;
+
+import org.junit.Test;
+
+/**
+ * Test Class for the streaming decoding of the objects read by the
+ * validations.
+ */
+public class ObjectSummaryTest {
+
+    /* Test method to check that the parent, refs and IPAM subnets of a network are decoded */
+    @Test
+    public void testDecodeNetwork() throws IOException {
+        String json = "{\"virtual-network\": {\"fq_name\": [\"default-domain\", \"demo\", \"private\"],"
+                + " \"uuid\": \"vn-1\", \"parent_uuid\": \"project-1\", \"id_perms\": {\"enable\": true, \"uuid\": {\"uuid_mslong\": 1}},"
+                + " \"virtual_machine_interface_back_refs\": [{\"to\": [\"a\"], \"uuid\": \"vmi-1\"}, {\"to\": [\"b\"], \"uuid\": \"vmi-2\"}],"
+                + " \"floating_ip_pools\": [],"
+                + " \"network_ipam_refs\": [{\"to\": [\"ipam\"], \"uuid\": \"ipam-1\", \"attr\": {\"ipam_subnets\": ["
+                + "{\"subnet\": {\"ip_prefix\": \"10.0.0.0\", \"ip_prefix_len\": 24}, \"default_gateway\": \"10.0.0.1\"},"
+                + "{\"subnet\": {\"ip_prefix\": \"10.1.0.0\", \"ip_prefix_len\": 16}, \"subnet_uuid\": null}]}}],"
+                + " \"route_target_list\": null}}";
+        ObjectSummary summary = ObjectSummary.decode(new StringReader(json));
+        assertEquals("vn-1", summary.uuid);
+        assertEquals("project-1", summary.parentUuid);
+        assertEquals(Arrays.asList("vmi-1", "vmi-2"), summary.refs("virtual_machine_interface_back_refs"));
+        assertEquals(Arrays.asList("ipam-1"), summary.refs(ObjectSummary.NETWORK_IPAM_REFS));
+        assertEquals(Arrays.asList("10.0.0.0/24", "10.1.0.0/16"), summary.subnets);
+        assertTrue(summary.hasSubnet("10.1.0.0/16"));
+        assertFalse(summary.hasSubnet("10.2.0.0/16"));
+    }
+
+    /* Test method to check that an empty list is told apart from a missing one */
+    @Test
+    public void testEmptyRefs() throws IOException {
+        ObjectSummary summary = ObjectSummary.decode(new StringReader("{\"virtual-network\": {\"floating_ip_pools\": []}}"));
+        assertTrue(summary.has("floating_ip_pools"));
+        assertTrue(summary.refs("floating_ip_pools").isEmpty());
+        assertFalse(summary.has("virtual_machine_interface_back_refs"));
+    }
+
+    /* Test method to check that the rule UUIDs of a security group are decoded */
+    @Test
+    public void testDecodeRules() throws IOException {
+        String json = "{\"security-group\": {\"uuid\": \"sg-1\", \"security_group_entries\": {\"policy_rule\": ["
+                + "{\"rule_uuid\": \"rule-1\", \"src_addresses\": [{\"security_group\": \"local\"}], \"protocol\": \"any\"},"
+                + "{\"direction\": \">\", \"rule_uuid\": \"rule-2\"}]}}}";
+        ObjectSummary summary = ObjectSummary.decode(new StringReader(json));
+        assertEquals(Arrays.asList("rule-1", "rule-2"), summary.ruleUuids);
+        assertTrue(summary.refs.isEmpty());
+    }
+}
@@ -0,0 +1,117 @@
+/*
+ * Copyright (C) 2014 Juniper Networks, Inc.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ *
+ */
+package org.opendaylight.plugin2oc.neutron;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Test Class for the southbound operation journal.
+ */
+public class OperationJournalTest {
+    private File dir;
+
+    @Before
+    public void beforeTest() throws Exception {
+        dir = File.createTempFile("plugin2oc-journal", "");
+        dir.delete();
+    }
+
+    @After
+    public void afterTest() {
+        File[] files = dir.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        dir.delete();
+    }
+
+    private static Map<String, String> keys(String uuid) {
+        Map<String, String> keys = new LinkedHashMap<String, String>();
+        keys.put("uuid", uuid);
+        return keys;
+    }
+
+    /* Test method to check that only the intents not marked done are recovered */
+    @Test
+    public void testRecoverOpenIntents() throws Exception {
+        OperationJournal journal = OperationJournal.open(dir, OperationJournal.DEFAULT_SEGMENT_SIZE);
+        long done = journal.append(OperationJournal.CREATE, OperationJournal.NETWORK, keys("net-1"));
+        journal.append(OperationJournal.DELETE, OperationJournal.PORT, keys("port-1"));
+        journal.complete(done);
+        journal.close();
+        journal = OperationJournal.open(dir, OperationJournal.DEFAULT_SEGMENT_SIZE);
+        List<OperationJournal.Intent> recovered = journal.recovered();
+        assertEquals(1, recovered.size());
+        assertEquals(OperationJournal.DELETE, recovered.get(0).operation);
+        assertEquals("port-1", recovered.get(0).uuid());
+        journal.complete(recovered.get(0).sequence);
+        journal.close();
+        journal = OperationJournal.open(dir, OperationJournal.DEFAULT_SEGMENT_SIZE);
+        assertTrue(journal.recovered().isEmpty());
+        journal.close();
+    }
+
+    /* Test method to check that segments are rotated and deleted once their intents are done */
+    @Test
+    public void testSegmentRotation() throws Exception {
+        OperationJournal journal = OperationJournal.open(dir, 64);
+        long first = journal.append(OperationJournal.CREATE, OperationJournal.NETWORK, keys("net-1"));
+        for (int i = 0; i < 10; i++) {
+            journal.complete(journal.append(OperationJournal.UPDATE, OperationJournal.NETWORK, keys("net-" + i)));
+        }
+        assertTrue(dir.list().length > 1);
+        journal.complete(first);
+        journal.append(OperationJournal.UPDATE, OperationJournal.NETWORK, keys("net-2"));
+        journal.close();
+        journal = OperationJournal.open(dir, 64);
+        assertEquals(1, journal.recovered().size());
+        assertEquals("net-2", journal.recovered().get(0).uuid());
+        assertEquals(1, dir.list().length);
+        journal.close();
+    }
+
+    /* Test method to check that a record torn by a crash is ignored */
+    @Test
+    public void testTornRecord() throws Exception {
+        OperationJournal journal = OperationJournal.open(dir, OperationJournal.DEFAULT_SEGMENT_SIZE);
+        journal.append(OperationJournal.CREATE, OperationJournal.ROUTER, keys("router-1"));
+        journal.close();
+        FileOutputStream out = new FileOutputStream(dir.listFiles()[0], true);
+        out.write(new byte[] { 0, 0, 0, 40, 1, 2 });
+        out.close();
+        journal = OperationJournal.open(dir, OperationJournal.DEFAULT_SEGMENT_SIZE);
+        assertEquals(1, journal.recovered().size());
+        assertEquals("router-1", journal.recovered().get(0).uuid());
+        journal.close();
+    }
+
+    /* Test method to check that operations are tracked in progress without a journal */
+    @Test
+    public void testInFlight() {
+        long intent = OperationJournal.begin(OperationJournal.CREATE, OperationJournal.PORT, "64a271fe021646bca3e61ff582fbd324");
+        assertTrue(OperationJournal.inFlight(OperationJournal.PORT, "64a271fe-0216-46bc-a3e6-1ff582fbd324"));
+        assertFalse(OperationJournal.inFlight(OperationJournal.NETWORK, "64a271fe-0216-46bc-a3e6-1ff582fbd324"));
+        OperationJournal.done(intent);
+        assertFalse(OperationJournal.inFlight(OperationJournal.PORT, "64a271fe-0216-46bc-a3e6-1ff582fbd324"));
+    }
+}
@@ -11,9 +11,13 @@ package org.opendaylight.plugin2oc.neutron;
 import java.io.IOException;
 import java.net.HttpURLConnection;
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
 
 import net.juniper.contrail.api.ApiConnector;
+import net.juniper.contrail.api.ApiPropertyBase;
 import net.juniper.contrail.api.ObjectReference;
 import net.juniper.contrail.api.types.InstanceIp;
 import net.juniper.contrail.api.types.Project;
@@ -23,12 +27,20 @@ import net.juniper.contrail.api.types.VirtualMachineInterface;
 import net.juniper.contrail.api.types.VirtualNetwork;
 import net.juniper.contrail.api.types.VnSubnetsType;
 
+import org.opendaylight.controller.networkconfig.neutron.INeutronSubnetCRUD;
 import org.opendaylight.controller.networkconfig.neutron.NeutronPort;
+import org.opendaylight.controller.networkconfig.neutron.NeutronSubnet;
+import org.opendaylight.controller.networkconfig.neutron.NeutronSubnet_IPAllocationPool;
 import org.opendaylight.controller.networkconfig.neutron.Neutron_IPs;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.any;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import org.junit.After;
@@ -157,6 +169,16 @@ public class PortHandlerTest {
         assertEquals(HttpURLConnection.HTTP_NOT_FOUND, porthandler.canCreatePort(neutronPort));
     }
 
+    /* Test method to check if the network of the port is not available */
+    @Test
+    public void testCanCreatePortNetworkNotFound() throws Exception {
+        Activator.apiConnector = mockedApiConnector;
+        NeutronPort neutronPort = defaultNeutronPortObject();
+        when(mockedApiConnector.findById(Project.class, neutronPort.getTenantID())).thenReturn(mockedProject);
+        when(mockedApiConnector.findById(VirtualNetwork.class, neutronPort.getNetworkUUID())).thenReturn(null);
+        assertEquals(HttpURLConnection.HTTP_NOT_FOUND, porthandler.canCreatePort(neutronPort));
+    }
+
     /* Test method to check if neutron port create exist */
     @Test
     public void testCanCreatePortExist() throws IOException {
@@ -314,6 +336,43 @@ public class PortHandlerTest {
         assertEquals(HttpURLConnection.HTTP_BAD_REQUEST, porthandler.canUpdatePort(dummyNeutronPort, neutronPort));
     }
 
+    /*
+     * Test method to update port when the fixed IP is outside of its subnet,
+     * the network is only fetched once
+     */
+    @Test
+    public void testcanUpdatePortFixedIPOutsideSubnet() throws IOException {
+        Activator.apiConnector = mockedApiConnector;
+        NeutronPort neutronPort = defaultNeutronPortObject();
+        NeutronPort dummyNeutronPort = detaNeutronPort();
+        when(mockedApiConnector.findById(Project.class, neutronPort.getTenantID())).thenReturn(mockedProject);
+        when(mockedApiConnector.findById(VirtualMachineInterface.class, neutronPort.getPortUUID())).thenReturn(mockedVirtualMachineInterface);
+        when(mockedApiConnector.findByName(VirtualMachineInterface.class, mockedProject, dummyNeutronPort.getName())).thenReturn(null);
+        List<Neutron_IPs> ips = new ArrayList<Neutron_IPs>();
+        Neutron_IPs fixedIP = new Neutron_IPs();
+        fixedIP.setSubnetUUID("0b9570f2-17b1-4fc3-99ec-1b7f7778a29b");
+        fixedIP.setIpAddress("10.0.1.5");
+        ips.add(fixedIP);
+        dummyNeutronPort.setFixedIPs(ips);
+        when(mockedApiConnector.findById(VirtualNetwork.class, neutronPort.getNetworkUUID())).thenReturn(mockedVirtualNetwork);
+        VnSubnetsType vnSubnetType = new VnSubnetsType();
+        ObjectReference<VnSubnetsType> ref = new ObjectReference<VnSubnetsType>();
+        List<ObjectReference<VnSubnetsType>> ipamRefs = new ArrayList<ObjectReference<VnSubnetsType>>();
+        VnSubnetsType.IpamSubnetType subnetType = new VnSubnetsType.IpamSubnetType();
+        subnetType.setSubnet(new SubnetType());
+        subnetType.setSubnetUuid("0b9570f2-17b1-4fc3-99ec-1b7f7778a29b");
+        subnetType.getSubnet().setIpPrefix("10.0.0.0");
+        subnetType.getSubnet().setIpPrefixLen(24);
+        vnSubnetType.addIpamSubnets(subnetType);
+        ref.setReference(new ArrayList<String>(), vnSubnetType, "", "");
+        ipamRefs.add(ref);
+        when(mockedVirtualNetwork.getNetworkIpam()).thenReturn(ipamRefs);
+        assertEquals(HttpURLConnection.HTTP_BAD_REQUEST, porthandler.canUpdatePort(dummyNeutronPort, neutronPort));
+        fixedIP.setIpAddress("10.0.0.5");
+        assertEquals(HttpURLConnection.HTTP_OK, porthandler.canUpdatePort(dummyNeutronPort, neutronPort));
+        verify(mockedApiConnector, times(1)).findById(VirtualNetwork.class, neutronPort.getNetworkUUID());
+    }
+
     /* Test method to update port when check for FixedIPs Not Null */
     @Test
     public void testcanUpdatePortok() throws IOException {
@@ -328,4 +387,163 @@ public class PortHandlerTest {
         dummyNeutronPort.setFixedIPs(null);
         assertEquals(HttpURLConnection.HTTP_OK, porthandler.canUpdatePort(dummyNeutronPort, neutronPort));
     }
-}
\ No newline at end of file
+
+    /* dummy Neutron subnet with an allocation pool of the given size */
+    public NeutronSubnet defaultNeutronSubnet(int poolSize) {
+        NeutronSubnet subnet = new NeutronSubnet();
+        subnet.setSubnetUUID("7b9570f2-17b1-4fc3-99ec-1b7f7778a29b");
+        subnet.setNetworkUUID("54a271fe-0216-46bc-a3e6-1ff582fbd324");
+        subnet.setCidr("10.1.0.0/24");
+        subnet.setGatewayIP("10.1.0.1");
+        List<NeutronSubnet_IPAllocationPool> allocationPools = new ArrayList<NeutronSubnet_IPAllocationPool>();
+        NeutronSubnet_IPAllocationPool pool = new NeutronSubnet_IPAllocationPool();
+        pool.setPoolStart("10.1.0.2");
+        pool.setPoolEnd("10.1.0." + (1 + poolSize));
+        allocationPools.add(pool);
+        subnet.setAllocationPools(allocationPools);
+        return subnet;
+    }
+
+    /* dummy Neutron port with a fixed IP requested without an address */
+    public NeutronPort defaultNeutronPort(int index, String subnetUUID) {
+        NeutronPort neutronPort = new NeutronPort();
+        neutronPort.setPortUUID(String.format("64a271fe-0216-46bc-a3e6-%012d", index));
+        neutronPort.setNetworkUUID("54a271fe-0216-46bc-a3e6-1ff582fbd324");
+        neutronPort.setMacAddress("02:70:72:93:4d:d6");
+        neutronPort.setName("port" + index);
+        neutronPort.setTenantID("100071fe-0216-46bc-a3e6-1ff582fbd324");
+        Neutron_IPs fixedIp = new Neutron_IPs();
+        fixedIp.setSubnetUUID(subnetUUID);
+        List<Neutron_IPs> ips = new ArrayList<Neutron_IPs>();
+        ips.add(fixedIp);
+        neutronPort.setFixedIPs(ips);
+        return neutronPort;
+    }
+
+    /* port handler reading the Neutron subnets from the given CRUD service */
+    public PortHandler portHandler(final INeutronSubnetCRUD subnetCRUD) throws IOException {
+        PortHandler.apiConnector = mockedApiConnector;
+        Project project = new Project();
+        project.setName("tenant");
+        VirtualNetwork virtualNetwork = new VirtualNetwork();
+        virtualNetwork.setParent(project);
+        virtualNetwork.setName("network");
+        when(mockedApiConnector.findById(Project.class, "100071fe-0216-46bc-a3e6-1ff582fbd324")).thenReturn(project);
+        when(mockedApiConnector.findById(VirtualNetwork.class, "54a271fe-0216-46bc-a3e6-1ff582fbd324")).thenReturn(virtualNetwork);
+        when(mockedApiConnector.create(any(VirtualMachineInterface.class))).thenReturn(true);
+        when(mockedApiConnector.create(any(InstanceIp.class))).thenReturn(true);
+        return new PortHandler() {
+            @Override
+            INeutronSubnetCRUD subnetCRUD() {
+                return subnetCRUD;
+            }
+        };
+    }
+
+    /* Test method to check if ports created concurrently without an address get distinct addresses */
+    @Test
+    public void testCreatePortConcurrentDistinctAddresses() throws Exception {
+        final NeutronSubnet subnet = defaultNeutronSubnet(16);
+        INeutronSubnetCRUD subnetCRUD = mock(INeutronSubnetCRUD.class);
+        when(subnetCRUD.getSubnet(subnet.getSubnetUUID())).thenReturn(subnet);
+        final PortHandler handler = portHandler(subnetCRUD);
+        final List<NeutronPort> ports = new ArrayList<NeutronPort>();
+        for (int i = 0; i < 8; i++) {
+            ports.add(defaultNeutronPort(i, subnet.getSubnetUUID()));
+        }
+        final CountDownLatch start = new CountDownLatch(1);
+        List<Thread> threads = new ArrayList<Thread>();
+        for (final NeutronPort port : ports) {
+            Thread thread = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        start.await();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                    handler.neutronPortCreated(port);
+                }
+            });
+            thread.start();
+            threads.add(thread);
+        }
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        Set<String> addresses = new HashSet<String>();
+        for (NeutronPort port : ports) {
+            String address = port.getFixedIPs().get(0).getIpAddress();
+            assertNotNull(address);
+            assertTrue(subnet.isIPInUse(address));
+            addresses.add(address);
+        }
+        assertEquals(ports.size(), addresses.size());
+        verify(mockedApiConnector, times(ports.size())).create(any(InstanceIp.class));
+    }
+
+    /* Test method to check if a port is not created once its subnet is exhausted */
+    @Test
+    public void testCreatePortSubnetExhausted() throws Exception {
+        NeutronSubnet subnet = defaultNeutronSubnet(1);
+        subnet.setSubnetUUID("8b9570f2-17b1-4fc3-99ec-1b7f7778a29b");
+        INeutronSubnetCRUD subnetCRUD = mock(INeutronSubnetCRUD.class);
+        when(subnetCRUD.getSubnet(subnet.getSubnetUUID())).thenReturn(subnet);
+        PortHandler handler = portHandler(subnetCRUD);
+        NeutronPort first = defaultNeutronPort(1, subnet.getSubnetUUID());
+        NeutronPort second = defaultNeutronPort(2, subnet.getSubnetUUID());
+        handler.neutronPortCreated(first);
+        handler.neutronPortCreated(second);
+        assertEquals("10.1.0.2", first.getFixedIPs().get(0).getIpAddress());
+        assertNull(second.getFixedIPs().get(0).getIpAddress());
+        verify(mockedApiConnector, times(1)).create(any(VirtualMachineInterface.class));
+    }
+
+    /* Test method to check if a port update returns the old addresses once and takes a single new address */
+    @Test
+    public void testUpdatePortAddressClaimedOnce() throws Exception {
+        NeutronSubnet subnet = defaultNeutronSubnet(4);
+        subnet.setSubnetUUID("9c9570f2-17b1-4fc3-99ec-1b7f7778a29b");
+        INeutronSubnetCRUD subnetCRUD = mock(INeutronSubnetCRUD.class);
+        when(subnetCRUD.getSubnet(subnet.getSubnetUUID())).thenReturn(subnet);
+        PortHandler handler = portHandler(subnetCRUD);
+        SubnetAddressAllocator allocator = SubnetAddressAllocator.forSubnet(mockedApiConnector, subnet, handler);
+        List<ObjectReference<ApiPropertyBase>> instanceIpRefs = new ArrayList<ObjectReference<ApiPropertyBase>>();
+        for (String address : new String[] { "10.1.0.2", "10.1.0.3" }) {
+            assertTrue(allocator.claim(address));
+            subnet.allocateIP(address);
+            InstanceIp instanceIp = new InstanceIp();
+            instanceIp.setUuid("a" + address.replace(".", ""));
+            instanceIp.setAddress(address);
+            ObjectReference<ApiPropertyBase> ref = new ObjectReference<ApiPropertyBase>();
+            ref.setReference(new ArrayList<String>(), null, "", instanceIp.getUuid());
+            instanceIpRefs.add(ref);
+            when(mockedApiConnector.findById(InstanceIp.class, instanceIp.getUuid())).thenReturn(instanceIp);
+        }
+        VirtualMachineInterface virtualMachineInterface = mock(VirtualMachineInterface.class);
+        when(virtualMachineInterface.getInstanceIpBackRefs()).thenReturn(instanceIpRefs);
+        when(mockedApiConnector.findById(VirtualMachineInterface.class, "64a271fe-0216-46bc-a3e6-000000000001")).thenReturn(
+                virtualMachineInterface);
+        VnSubnetsType.IpamSubnetType ipamSubnet = new VnSubnetsType.IpamSubnetType();
+        ipamSubnet.setSubnet(new SubnetType());
+        ipamSubnet.getSubnet().setIpPrefix("10.1.0.0");
+        ipamSubnet.getSubnet().setIpPrefixLen(24);
+        ipamSubnet.setSubnetUuid(subnet.getSubnetUUID());
+        VnSubnetsType vnSubnetsType = new VnSubnetsType();
+        vnSubnetsType.addIpamSubnets(ipamSubnet);
+        ObjectReference<VnSubnetsType> ipamRef = new ObjectReference<VnSubnetsType>();
+        ipamRef.setReference(new ArrayList<String>(), vnSubnetsType, "", "");
+        List<ObjectReference<VnSubnetsType>> ipamRefs = new ArrayList<ObjectReference<VnSubnetsType>>();
+        ipamRefs.add(ipamRef);
+        when(mockedVirtualNetwork.getNetworkIpam()).thenReturn(ipamRefs);
+        when(mockedApiConnector.findById(VirtualNetwork.class, "54a271fe-0216-46bc-a3e6-1ff582fbd324")).thenReturn(mockedVirtualNetwork);
+        when(mockedApiConnector.update(any(InstanceIp.class))).thenReturn(true);
+        handler.neutronPortUpdated(defaultNeutronPort(1, subnet.getSubnetUUID()));
+        String address = ((InstanceIp) mockedApiConnector.findById(InstanceIp.class, "a10102")).getAddress();
+        assertEquals(address, ((InstanceIp) mockedApiConnector.findById(InstanceIp.class, "a10103")).getAddress());
+        assertEquals(3, allocator.freeCount());
+        assertTrue(subnet.isIPInUse(address));
+        verify(mockedApiConnector, times(2)).update(any(InstanceIp.class));
+    }
+}
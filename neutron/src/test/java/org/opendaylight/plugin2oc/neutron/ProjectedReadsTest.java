@@ -0,0 +1,150 @@
+/*
+ * Copyright (C) 2014 Juniper Networks, Inc.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ *
+ */
+package org.opendaylight.plugin2oc.neutron;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.Arrays;
+import java.util.Collections;
+
+import net.juniper.contrail.api.ApiConnector;
+import net.juniper.contrail.api.types.VirtualMachineInterface;
+import net.juniper.contrail.api.types.VirtualNetwork;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Test Class for the reads of the fields a validation looks at.
+ */
+public class ProjectedReadsTest {
+    static final String UUID = "6b9570f2-17b1-4fc3-99ec-1b7f7778a29a";
+
+    final VirtualNetwork network = new VirtualNetwork() {
+        @Override
+        public String getUuid() {
+            return UUID;
+        }
+    };
+    final FakeApiServer contrail = new FakeApiServer();
+    ApiConnector connector;
+    HttpServer server;
+    String requested;
+    String body;
+
+    @Before
+    public void beforeTest() throws IOException {
+        connector = contrail.put(network).connector();
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                requested = exchange.getRequestURI().toString();
+                if (body == null) {
+                    exchange.sendResponseHeaders(404, -1);
+                } else {
+                    byte[] bytes = body.getBytes("UTF-8");
+                    exchange.sendResponseHeaders(200, bytes.length);
+                    exchange.getResponseBody().write(bytes);
+                }
+                exchange.close();
+            }
+        });
+        server.start();
+    }
+
+    @After
+    public void afterTest() {
+        server.stop(0);
+        ProjectedReads.configure(null);
+        System.clearProperty(CircuitBreaker.WINDOW_PROPERTY);
+        CircuitBreaker.protect(new FakeApiServer().connector());
+    }
+
+    /* Test method to check the path of a projected read */
+    @Test
+    public void testPath() {
+        assertEquals("virtual-machine-interface", ProjectedReads.typeName(VirtualMachineInterface.class));
+        assertEquals("/virtual-network/" + UUID + "?exclude_children=true&exclude_back_refs=true&fields=floating_ip_pools,network_ipam_refs",
+                ProjectedReads.path(VirtualNetwork.class, UUID, "floating_ip_pools", "network_ipam_refs"));
+    }
+
+    /* Test method to check that the projected read is sent to the API server */
+    @Test
+    public void testProjectedRead() throws IOException {
+        ProjectedReads.configure(Collections.singletonList("127.0.0.1:" + server.getAddress().getPort()));
+        assertNull(ProjectedReads.summary(connector, VirtualNetwork.class, UUID, true, "network_ipam_refs"));
+        assertEquals(ProjectedReads.path(VirtualNetwork.class, UUID, "network_ipam_refs"), requested);
+        body = "{\"virtual-network\": {\"uuid\": \"" + UUID + "\", \"network_ipam_refs\": []}}";
+        ObjectSummary summary = ProjectedReads.summary(connector, VirtualNetwork.class, UUID, true, "network_ipam_refs");
+        assertEquals(UUID, summary.uuid);
+        assertTrue(summary.has("network_ipam_refs"));
+        assertEquals(0, contrail.calls("findById"));
+    }
+
+    /* Test method to check that a full read is done when no API server answers */
+    @Test
+    public void testFallback() throws IOException {
+        assertEquals(UUID, ProjectedReads.summary(connector, VirtualNetwork.class, UUID, true, "network_ipam_refs").uuid);
+        int port = server.getAddress().getPort();
+        server.stop(0);
+        ProjectedReads.configure(Arrays.asList("127.0.0.1:" + port));
+        assertEquals(UUID, ProjectedReads.summary(connector, VirtualNetwork.class, UUID, true, "network_ipam_refs").uuid);
+        assertEquals(2, contrail.calls("findById"));
+    }
+
+    /* Test method to check that the addresses without a host or a valid port are left out */
+    @Test
+    public void testInvalidAddress() {
+        ProjectedReads.configure(Arrays.asList("null:0", "127.0.0.1", ":8082", "127.0.0.1:port", "127.0.0.1:8082"));
+        assertEquals(Collections.singletonList("127.0.0.1:8082"), ProjectedReads.servers());
+    }
+
+    /* Test method to check that the nodes of the pool out of rotation are skipped */
+    @Test
+    public void testUnhealthySkipped() throws IOException {
+        body = "{\"virtual-network\": {\"uuid\": \"" + UUID + "\"}}";
+        ApiEndpointPool.Endpoint endpoint = new ApiEndpointPool.Endpoint("127.0.0.1:" + server.getAddress().getPort(), connector);
+        ProjectedReads.configurePool(new ApiEndpointPool(Arrays.asList(endpoint, new ApiEndpointPool.Endpoint("127.0.0.1:1", connector))));
+        endpoint.healthy = false;
+        assertEquals(Collections.singletonList("127.0.0.1:1"), ProjectedReads.servers());
+        ProjectedReads.configurePool(new ApiEndpointPool(Arrays.asList(endpoint)));
+        assertEquals(UUID, ProjectedReads.summary(connector, VirtualNetwork.class, UUID, true, "network_ipam_refs").uuid);
+        assertNull(requested);
+        assertEquals(1, contrail.calls("findById"));
+    }
+
+    /* Test method to check that the projected reads count against the circuit breaker and are not sent while it is open */
+    @Test
+    public void testCircuitBreaker() throws IOException {
+        System.setProperty(CircuitBreaker.WINDOW_PROPERTY, "1");
+        CircuitBreaker.protect(new FakeApiServer().connector());
+        int port = server.getAddress().getPort();
+        server.stop(0);
+        ProjectedReads.configure(Arrays.asList("127.0.0.1:" + port));
+        assertFalse(CircuitBreaker.isOpen());
+        assertEquals(UUID, ProjectedReads.summary(connector, VirtualNetwork.class, UUID, true, "network_ipam_refs").uuid);
+        assertTrue(CircuitBreaker.isOpen());
+        beforeTest();
+        body = "{\"virtual-network\": {\"uuid\": \"" + UUID + "\"}}";
+        ProjectedReads.configure(Arrays.asList("127.0.0.1:" + server.getAddress().getPort()));
+        assertEquals(UUID, ProjectedReads.summary(connector, VirtualNetwork.class, UUID, true, "network_ipam_refs").uuid);
+        assertNull(requested);
+    }
+}
@@ -9,16 +9,25 @@
 package org.opendaylight.plugin2oc.neutron;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.reflect.Method;
 import java.net.HttpURLConnection;
+import java.net.InetSocketAddress;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 import net.juniper.contrail.api.ApiConnector;
+import net.juniper.contrail.api.ApiObjectBase;
 import net.juniper.contrail.api.ApiPropertyBase;
 import net.juniper.contrail.api.ObjectReference;
 import net.juniper.contrail.api.types.LogicalRouter;
@@ -31,6 +40,10 @@ import org.junit.Test;
 import org.opendaylight.controller.networkconfig.neutron.NeutronRouter;
 import org.opendaylight.controller.networkconfig.neutron.NeutronRouter_Interface;
 import org.opendaylight.controller.networkconfig.neutron.NeutronRouter_NetworkReference;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
 /**
  * Test Class for Neutron Router.
  */
@@ -44,6 +57,21 @@ public class RouterHandlerTest {
     Project mockedProject = mock(Project.class);
     NeutronRouter_Interface mockNeutronRouter_Interface = mock(NeutronRouter_Interface.class);
     VirtualMachineInterface mockVirtualMachineInterface = mock(VirtualMachineInterface.class);
+    final List<String> connectorCalls = Collections.synchronizedList(new ArrayList<String>());
+    final FakeApiServer contrail = new FakeApiServer() {
+        @Override
+        synchronized Object answer(Method method, Object[] args) throws Throwable {
+            if (args != null && args.length > 0 && args[0] != null) {
+                Object type = args[0] instanceof Class ? args[0] : args[0].getClass();
+                connectorCalls.add(method.getName() + " " + ((Class<?>) type).getSimpleName());
+            }
+            return super.answer(method, args);
+        }
+    };
+    final List<String> requested = Collections.synchronizedList(new ArrayList<String>());
+    HttpServer server;
+    int status = 200;
+    String refUpdate;
 
     @Before
     public void beforeTest() {
@@ -61,6 +89,49 @@ public class RouterHandlerTest {
     public void AfterTest() {
         routerHandler = null;
         Activator.apiConnector = null;
+        RouterHandler.apiConnector = null;
+        if (server != null) {
+            server.stop(0);
+            ProjectedReads.configure(null);
+            CircuitBreaker.protect(new FakeApiServer().connector());
+        }
+    }
+
+    /* API server answering the projected read of the port and the ref-updates */
+
+    public void serve() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                requested.add(exchange.getRequestMethod() + " " + exchange.getRequestURI().getPath());
+                if (("GET").equals(exchange.getRequestMethod())) {
+                    byte[] body = ("{\"virtual-machine-interface\": {\"uuid\": \"119570f2-17b1-4fc3-99ec-1b7f7778a29a\", "
+                            + "\"fq_name\": [\"default-domain\", \"demo\", \"port-01\"]}}").getBytes("UTF-8");
+                    exchange.sendResponseHeaders(200, body.length);
+                    OutputStream out = exchange.getResponseBody();
+                    out.write(body);
+                    out.close();
+                    return;
+                }
+                ByteArrayOutputStream received = new ByteArrayOutputStream();
+                InputStream in = exchange.getRequestBody();
+                byte[] buffer = new byte[1024];
+                for (int n = in.read(buffer); n != -1; n = in.read(buffer)) {
+                    received.write(buffer, 0, n);
+                }
+                refUpdate = received.toString("UTF-8");
+                exchange.sendResponseHeaders(status, -1);
+                exchange.close();
+            }
+        });
+        server.start();
+        ProjectedReads.configure(Collections.singletonList("127.0.0.1:" + server.getAddress().getPort()));
+        LogicalRouter logicalRouter = new LogicalRouter();
+        logicalRouter.setUuid("009570f2-17b1-4fc3-99ec-1b7f7778a29a");
+        logicalRouter.setName("Router-01");
+        contrail.put(logicalRouter);
+        RouterHandler.apiConnector = contrail.connector();
     }
 
     /* dummy params for Neutron Router */
@@ -265,4 +336,54 @@ public class RouterHandlerTest {
          when(mockedLogicalRouter.getVirtualMachineInterface()).thenReturn(vmiList);
          assertEquals(HttpURLConnection.HTTP_BAD_REQUEST,routerHandler.canDetachInterface(neutronRouter,neutronRouterInterface));
      }
+
+    /* Test method to check that attaching an interface sends a ref-update of the router only */
+    @Test
+    public void testInterfaceAttachedRefUpdate() throws Exception {
+        serve();
+        routerHandler.neutronRouterInterfaceAttached(defaultNeutronObject(), deltaNeutronRouter_Interface());
+        assertEquals(Collections.singletonList("findById LogicalRouter"), connectorCalls);
+        assertEquals(2, requested.size());
+        assertEquals("GET /virtual-machine-interface/119570f2-17b1-4fc3-99ec-1b7f7778a29a", requested.get(0));
+        assertEquals("POST /ref-update", requested.get(1));
+        assertTrue(refUpdate.contains("\"type\":\"logical-router\""));
+        assertTrue(refUpdate.contains("\"uuid\":\"009570f2-17b1-4fc3-99ec-1b7f7778a29a\""));
+        assertTrue(refUpdate.contains("\"ref-type\":\"virtual-machine-interface\""));
+        assertTrue(refUpdate.contains("\"ref-uuid\":\"119570f2-17b1-4fc3-99ec-1b7f7778a29a\""));
+        assertTrue(refUpdate.contains("\"ref-fq-name\":[\"default-domain\",\"demo\",\"port-01\"]"));
+        assertTrue(refUpdate.contains("\"operation\":\"ADD\""));
+    }
+
+    /* Test method to check that detaching an interface sends a ref-update of the router only */
+    @Test
+    public void testInterfaceDetachedRefUpdate() throws Exception {
+        serve();
+        routerHandler.neutronRouterInterfaceDetached(defaultNeutronObject(), deltaNeutronRouter_Interface());
+        assertFalse(connectorCalls.contains("findById VirtualMachineInterface"));
+        assertFalse(connectorCalls.contains("update VirtualMachineInterface"));
+        assertFalse(connectorCalls.contains("update LogicalRouter"));
+        assertEquals("POST /ref-update", requested.get(requested.size() - 1));
+        assertFalse(requested.contains("PUT /virtual-machine-interface/119570f2-17b1-4fc3-99ec-1b7f7778a29a"));
+        assertTrue(refUpdate.contains("\"type\":\"logical-router\""));
+        assertTrue(refUpdate.contains("\"uuid\":\"009570f2-17b1-4fc3-99ec-1b7f7778a29a\""));
+        assertTrue(refUpdate.contains("\"ref-uuid\":\"119570f2-17b1-4fc3-99ec-1b7f7778a29a\""));
+        assertTrue(refUpdate.contains("\"operation\":\"DELETE\""));
+    }
+
+    /* Test method to check that the router is updated in full with the interface ref when the ref-update is not accepted */
+    @Test
+    public void testInterfaceAttachedFallback() throws Exception {
+        serve();
+        status = 404;
+        routerHandler.neutronRouterInterfaceAttached(defaultNeutronObject(), deltaNeutronRouter_Interface());
+        assertEquals(1, contrail.calls("update"));
+        assertTrue(connectorCalls.contains("update LogicalRouter"));
+        assertFalse(connectorCalls.contains("findById VirtualMachineInterface"));
+        assertFalse(connectorCalls.contains("update VirtualMachineInterface"));
+        ApiObjectBase updated = contrail.connector().findById(LogicalRouter.class, "009570f2-17b1-4fc3-99ec-1b7f7778a29a");
+        List<ObjectReference<ApiPropertyBase>> vmiRefs = ((LogicalRouter) updated).getVirtualMachineInterface();
+        assertEquals(1, vmiRefs.size());
+        assertEquals("119570f2-17b1-4fc3-99ec-1b7f7778a29a", vmiRefs.get(0).getUuid());
+        assertEquals("port-01", vmiRefs.get(0).getReferredName().get(2));
+    }
 }
@@ -0,0 +1,194 @@
+/*
+ * Copyright (C) 2014 Juniper Networks, Inc.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ *
+ */
+package org.opendaylight.plugin2oc.neutron;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import net.juniper.contrail.api.ApiConnector;
+import net.juniper.contrail.api.types.Project;
+import net.juniper.contrail.api.types.VirtualNetwork;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Test Class for the startup preload of the southbound caches.
+ */
+public class StartupPreloaderTest {
+    final FakeApiServer server = new FakeApiServer();
+    ApiConnector connector;
+
+    static VirtualNetwork network(final String uuid, final String name) {
+        return new VirtualNetwork() {
+            @Override
+            public String getUuid() {
+                return uuid;
+            }
+
+            @Override
+            public List<String> getQualifiedName() {
+                return Arrays.asList("default-domain", "demo", name);
+            }
+        };
+    }
+
+    @Before
+    public void beforeTest() {
+        System.setProperty(StartupPreloader.PAGE_SIZE_PROPERTY, "1");
+        server.put(network("6b9570f2-17b1-4fc3-99ec-1b7f7778a29a", "private"));
+        server.put(network("0f3c4b5e-8a1d-4c2b-9e7f-1a2b3c4d5e6f", "public"));
+        connector = ContrailReplica.observe(server.connector());
+    }
+
+    @After
+    public void afterTest() {
+        System.clearProperty(StartupPreloader.PAGE_SIZE_PROPERTY);
+        System.clearProperty(StartupPreloader.OBJECTS_PROPERTY);
+        System.clearProperty(StartupPreloader.RETRY_INTERVAL_PROPERTY);
+        System.clearProperty(StartupPreloader.MAX_NOT_READY_PROPERTY);
+        ProjectedReads.configure(null);
+        System.clearProperty(ContrailReplica.TTL_PROPERTY);
+        StartupPreloader.run(null, null);
+    }
+
+    /* Test method to check that by default the names are preloaded from the listings only */
+    @Test
+    public void testListingOnly() throws IOException {
+        assertTrue(StartupPreloader.run(connector, new NameIndex(connector)));
+        assertTrue(StartupPreloader.isReady());
+        assertEquals(0, server.calls("findById"));
+        Project project = new Project() {
+            @Override
+            public List<String> getQualifiedName() {
+                return Arrays.asList("default-domain", "demo");
+            }
+        };
+        assertEquals("0f3c4b5e-8a1d-4c2b-9e7f-1a2b3c4d5e6f", NameIndex.findByName(connector, VirtualNetwork.class, project, "public"));
+        assertEquals(0, server.calls("findById", "findByName"));
+    }
+
+    /* Test method to check that the fetched objects are served without remote calls after the replica lifetime */
+    @Test
+    public void testPreloadObjects() throws IOException, InterruptedException {
+        System.setProperty(StartupPreloader.OBJECTS_PROPERTY, "true");
+        System.setProperty(ContrailReplica.TTL_PROPERTY, "20");
+        assertTrue(StartupPreloader.run(connector, new NameIndex(connector)));
+        assertEquals(2, server.calls("findById"));
+        Thread.sleep(50);
+        assertNotNull(ContrailReplica.findById(connector, VirtualNetwork.class, "6b9570f2-17b1-4fc3-99ec-1b7f7778a29a", false));
+        assertNotNull(NetworkSubnetIndex.forNetwork(connector, "0f3c4b5e-8a1d-4c2b-9e7f-1a2b3c4d5e6f"));
+        assertEquals(2, server.calls("findById"));
+    }
+
+    /* Test method to check that the plugin is not ready until a preload succeeds */
+    @Test
+    public void testNotReadyOnFailure() {
+        FakeApiServer down = new FakeApiServer();
+        down.failing.set(true);
+        assertFalse(StartupPreloader.run(down.connector(), null));
+        assertFalse(StartupPreloader.isReady());
+        down.failing.set(false);
+        assertTrue(StartupPreloader.run(down.connector(), null));
+        assertTrue(StartupPreloader.isReady());
+    }
+
+    /* Test method to check that a failed preload is retried in the background */
+    @Test
+    public void testRetried() throws InterruptedException {
+        System.setProperty(StartupPreloader.RETRY_INTERVAL_PROPERTY, "10");
+        server.failing.set(true);
+        StartupPreloader preloader = StartupPreloader.start(connector, null);
+        try {
+            assertNotNull(preloader);
+            assertFalse(StartupPreloader.isReady());
+            server.failing.set(false);
+            for (int i = 0; i < 200 && !StartupPreloader.isReady(); i++) {
+                Thread.sleep(10);
+            }
+            assertTrue(StartupPreloader.isReady());
+        } finally {
+            preloader.stop();
+        }
+    }
+
+    /* Test method to check that the preload runs in the background and refuses requests for a bounded time only */
+    @Test
+    public void testStartNotBlocking() throws InterruptedException {
+        System.setProperty(StartupPreloader.MAX_NOT_READY_PROPERTY, "100");
+        server.failing.set(true);
+        StartupPreloader preloader = StartupPreloader.start(connector, null);
+        try {
+            assertNotNull(preloader);
+            assertFalse(StartupPreloader.isReady());
+            Thread.sleep(150);
+            assertTrue(StartupPreloader.isReady());
+        } finally {
+            preloader.stop();
+        }
+    }
+
+    /* Test method to check that with an API server the objects are listed a page at a time instead of read one by one */
+    @Test
+    public void testPagedListing() throws IOException {
+        System.setProperty(StartupPreloader.OBJECTS_PROPERTY, "true");
+        final List<String> requested = Collections.synchronizedList(new ArrayList<String>());
+        HttpServer api = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        api.createContext("/", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                String path = exchange.getRequestURI().toString();
+                requested.add(path);
+                String body = "{}";
+                if (path.startsWith("/virtual-networks?")) {
+                    String uuid = null;
+                    if (!path.contains("page_marker")) {
+                        uuid = "0f3c4b5e-8a1d-4c2b-9e7f-1a2b3c4d5e6f";
+                    } else if (path.endsWith("page_marker=0f3c4b5e-8a1d-4c2b-9e7f-1a2b3c4d5e6f")) {
+                        uuid = "6b9570f2-17b1-4fc3-99ec-1b7f7778a29a";
+                    }
+                    body = "{\"virtual-networks\": ["
+                            + (uuid != null ? "{\"virtual-network\": {\"uuid\": \"" + uuid + "\", \"fq_name\": [\"default-domain\", \"demo\"]}}" : "")
+                            + "]}";
+                }
+                byte[] bytes = body.getBytes("UTF-8");
+                exchange.sendResponseHeaders(200, bytes.length);
+                exchange.getResponseBody().write(bytes);
+                exchange.close();
+            }
+        });
+        api.start();
+        try {
+            ProjectedReads.configure(Arrays.asList("127.0.0.1:" + api.getAddress().getPort()));
+            assertTrue(StartupPreloader.run(connector, null));
+            assertTrue(requested.contains("/virtual-networks?detail=true&page_limit=1"));
+            assertTrue(requested.contains("/virtual-networks?detail=true&page_limit=1&page_marker=0f3c4b5e-8a1d-4c2b-9e7f-1a2b3c4d5e6f"));
+            assertTrue(requested.contains("/virtual-networks?detail=true&page_limit=1&page_marker=6b9570f2-17b1-4fc3-99ec-1b7f7778a29a"));
+            assertTrue(requested.contains("/projects?detail=true&page_limit=1"));
+            assertEquals(StartupPreloader.TYPES.size() + 2, requested.size());
+            assertEquals(0, server.calls("list", "findById"));
+        } finally {
+            api.stop(0);
+        }
+    }
+}
@@ -9,11 +9,13 @@ import static org.mockito.Mockito.when;
 import java.io.IOException;
 import java.net.HttpURLConnection;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
 
 import net.juniper.contrail.api.ApiConnector;
 import net.juniper.contrail.api.ApiPropertyBase;
 import net.juniper.contrail.api.ObjectReference;
+import net.juniper.contrail.api.types.NetworkIpam;
 import net.juniper.contrail.api.types.SubnetType;
 import net.juniper.contrail.api.types.VirtualNetwork;
 import net.juniper.contrail.api.types.VnSubnetsType;
@@ -327,4 +329,29 @@ public class SubnetHandlerTest {
         when(mockedVirtualNetwork.getNetworkIpam()).thenReturn(null);
         assertEquals(HttpURLConnection.HTTP_BAD_REQUEST, subnetHandler.canDeleteSubnet(neutronSubnet));
     }
-}
\ No newline at end of file
+
+    /* Test method to check if a subnet added by another client is seen by the next create and delete */
+    @Test
+    public void testCanCreateSubnetAddedElsewhere() throws IOException {
+        Activator.apiConnector = mockedApiConnector;
+        NeutronSubnet neutronSubnet = defaultSubnetObject();
+        VirtualNetwork virtualNetwork = new VirtualNetwork();
+        virtualNetwork.setUuid(neutronSubnet.getNetworkUUID());
+        when(mockedApiConnector.findById(VirtualNetwork.class, neutronSubnet.getNetworkUUID())).thenReturn(virtualNetwork);
+        assertEquals(HttpURLConnection.HTTP_OK, subnetHandler.canCreateSubnet(neutronSubnet));
+        SubnetType type = new SubnetType();
+        type.setIpPrefix("10.0.0.0");
+        type.setIpPrefixLen(24);
+        VnSubnetsType.IpamSubnetType subnetType = new VnSubnetsType.IpamSubnetType();
+        subnetType.setSubnet(type);
+        subnetType.setSubnetUuid(neutronSubnet.getSubnetUUID());
+        VnSubnetsType vnSubnetsType = new VnSubnetsType();
+        vnSubnetsType.addIpamSubnets(subnetType);
+        virtualNetwork.addNetworkIpam(new NetworkIpam(), vnSubnetsType);
+        ContrailReplica.invalidate(neutronSubnet.getNetworkUUID());
+        assertEquals(HttpURLConnection.HTTP_FORBIDDEN, subnetHandler.canCreateSubnet(neutronSubnet));
+        NetworkSubnetIndex.invalidate(neutronSubnet.getNetworkUUID());
+        NetworkSubnetIndex.restore(mockedApiConnector, neutronSubnet.getNetworkUUID(), new HashMap<String, String>());
+        assertEquals(HttpURLConnection.HTTP_OK, subnetHandler.canDeleteSubnet(neutronSubnet));
+    }
+}
@@ -0,0 +1,82 @@
+/*
+ * Copyright (C) 2014 Juniper Networks, Inc.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ *
+ */
+package org.opendaylight.plugin2oc.neutron;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+/**
+ * Test Class for the subnet prefix trie.
+ */
+public class SubnetPrefixTrieTest {
+
+    /* Test method to check exact prefix lookups for IPv4 and IPv6 */
+    @Test
+    public void testExists() {
+        SubnetPrefixTrie<String> trie = new SubnetPrefixTrie<String>();
+        trie.put("10.0.0.0/24", "subnet-1");
+        trie.put("2001:db8::/64", "subnet-2");
+        assertEquals("subnet-1", trie.get("10.0.0.0/24"));
+        assertEquals("subnet-1", trie.get("10.0.0.17/24"));
+        assertEquals("subnet-2", trie.get("2001:db8:0:0::/64"));
+        assertNull(trie.get("10.0.0.0/16"));
+        assertNull(trie.get("10.0.1.0/24"));
+        assertEquals(2, trie.size());
+    }
+
+    /* Test method to check overlap detection with enclosing and enclosed prefixes */
+    @Test
+    public void testOverlaps() {
+        SubnetPrefixTrie<String> trie = new SubnetPrefixTrie<String>();
+        trie.put("10.0.0.0/24", "subnet-1");
+        assertTrue(trie.overlaps("10.0.0.0/24"));
+        assertTrue(trie.overlaps("10.0.0.0/16"));
+        assertTrue(trie.overlaps("10.0.0.128/25"));
+        assertFalse(trie.overlaps("10.0.1.0/24"));
+        assertFalse(trie.overlaps("2001:db8::/32"));
+    }
+
+    /* Test method to check that the longest containing prefix is matched */
+    @Test
+    public void testMatch() {
+        SubnetPrefixTrie<String> trie = new SubnetPrefixTrie<String>();
+        trie.put("10.0.0.0/16", "subnet-1");
+        trie.put("10.0.5.0/24", "subnet-2");
+        trie.put("2001:db8::/64", "subnet-3");
+        assertEquals("subnet-2", trie.match("10.0.5.9"));
+        assertEquals("subnet-1", trie.match("10.0.6.9"));
+        assertEquals("subnet-3", trie.match("2001:db8::1"));
+        assertNull(trie.match("10.1.0.1"));
+    }
+
+    /* Test method to check that removed prefixes no longer overlap */
+    @Test
+    public void testRemove() {
+        SubnetPrefixTrie<String> trie = new SubnetPrefixTrie<String>();
+        trie.put("10.0.0.0/24", "subnet-1");
+        trie.put("10.0.1.0/24", "subnet-2");
+        assertEquals("subnet-1", trie.remove("10.0.0.0/24"));
+        assertNull(trie.remove("10.0.0.0/24"));
+        assertFalse(trie.overlaps("10.0.0.0/24"));
+        assertTrue(trie.overlaps("10.0.0.0/16"));
+        assertEquals(1, trie.size());
+        trie.remove("10.0.1.0/24");
+        assertFalse(trie.overlaps("0.0.0.0/0"));
+    }
+
+    /* Test method to check that a malformed cidr is rejected */
+    @Test(expected = IllegalArgumentException.class)
+    public void testMalformedCidr() {
+        new SubnetPrefixTrie<String>().put("10.0.0/24", "subnet-1");
+    }
+}
@@ -0,0 +1,200 @@
+/*
+ * Copyright (C) 2014 Juniper Networks, Inc.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ *
+ */
+package org.opendaylight.plugin2oc.neutron;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import javax.management.Attribute;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import net.juniper.contrail.api.ApiConnector;
+import net.juniper.contrail.api.types.VirtualNetwork;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Test Class for the fair scheduling of the Contrail API calls between
+ * tenants.
+ */
+public class TenantSchedulerTest {
+    final List<String> served = new CopyOnWriteArrayList<String>();
+    final List<Thread> threads = new ArrayList<Thread>();
+    final CountDownLatch gate = new CountDownLatch(1);
+    ApiConnector connector;
+
+    @Before
+    public void beforeTest() {
+        connector = new FakeApiServer() {
+            @Override
+            Object answer(Method method, Object[] args) throws Throwable {
+                served.add(TenantScheduler.tenant());
+                gate.await(10, TimeUnit.SECONDS);
+                return super.answer(method, args);
+            }
+        }.connector();
+    }
+
+    @After
+    public void afterTest() throws InterruptedException {
+        gate.countDown();
+        for (Thread thread : threads) {
+            thread.join(10000);
+        }
+        TenantScheduler.enter(null);
+    }
+
+    private void call(final ApiConnector scheduled, final String tenantId) {
+        Thread thread = new Thread() {
+            @Override
+            public void run() {
+                TenantScheduler.enter(tenantId);
+                try {
+                    scheduled.create(new VirtualNetwork());
+                } catch (IOException e) {
+                    fail(e.toString());
+                }
+            }
+        };
+        threads.add(thread);
+        thread.start();
+    }
+
+    private static void awaitQueued(TenantScheduler scheduler, String tenantId, int queued) throws InterruptedException {
+        for (int i = 0; i < 1000 && !Integer.valueOf(queued).equals(scheduler.getQueued().get(tenantId)); i++) {
+            Thread.sleep(10);
+        }
+        assertEquals(queued, (int) scheduler.getQueued().get(tenantId));
+    }
+
+    /* Test method to check that the tag of a callback is restored once it is done */
+    @Test
+    public void testTagScope() {
+        String previous = TenantScheduler.enter("6B9570F2-17B1-4FC3-99EC-1B7F7778A29A");
+        String outer = TenantScheduler.enter("7b9570f2-17b1-4fc3-99ec-1b7f7778a29a");
+        assertEquals("6b9570f217b14fc399ec1b7f7778a29a", outer);
+        assertEquals("7b9570f217b14fc399ec1b7f7778a29a", TenantScheduler.tenant());
+        TenantScheduler.exit(outer);
+        assertEquals("6b9570f217b14fc399ec1b7f7778a29a", TenantScheduler.tenant());
+        TenantScheduler.exit(null);
+        assertNull(TenantScheduler.tenant());
+        TenantScheduler.exit(previous);
+    }
+
+    /* Test method to check that a tenant with one call waits behind a single call of a tenant with many */
+    @Test
+    public void testFairness() throws InterruptedException {
+        TenantScheduler scheduler = new TenantScheduler(connector, 1, 1, 0, 1, 10000);
+        ApiConnector scheduled = scheduler.proxy();
+        call(scheduled, "A");
+        for (int i = 0; i < 200 && served.isEmpty(); i++) {
+            Thread.sleep(10);
+        }
+        for (int i = 0; i < 4; i++) {
+            call(scheduled, "A");
+        }
+        awaitQueued(scheduler, "a", 4);
+        call(scheduled, "B");
+        awaitQueued(scheduler, "b", 1);
+        gate.countDown();
+        for (Thread thread : threads) {
+            thread.join(10000);
+        }
+        assertEquals(Arrays.asList("a", "b", "a", "a", "a", "a"), served);
+        assertEquals(5L, (long) scheduler.getAdmitted().get("a"));
+    }
+
+    /* Test method to check that a tenant at its concurrency cap does not hold back the others */
+    @Test
+    public void testMaxConcurrent() throws InterruptedException {
+        TenantScheduler scheduler = new TenantScheduler(connector, 4, 4, 0, 1, 10000);
+        scheduler.setMaxConcurrent("A", 1);
+        ApiConnector scheduled = scheduler.proxy();
+        call(scheduled, "A");
+        call(scheduled, "A");
+        awaitQueued(scheduler, "a", 1);
+        call(scheduled, "B");
+        for (int i = 0; i < 200 && served.size() < 2; i++) {
+            Thread.sleep(10);
+        }
+        assertEquals(Arrays.asList("a", "b"), served);
+        assertEquals(1, (int) scheduler.getInFlight().get("a"));
+    }
+
+    /* Test method to check that a call queued too long fails */
+    @Test
+    public void testQueueTimeout() throws InterruptedException {
+        TenantScheduler scheduler = new TenantScheduler(connector, 1, 1, 0, 1, 100);
+        ApiConnector scheduled = scheduler.proxy();
+        call(scheduled, null);
+        for (int i = 0; i < 200 && served.isEmpty(); i++) {
+            Thread.sleep(10);
+        }
+        try {
+            scheduled.create(new VirtualNetwork());
+            fail("Call not timed out");
+        } catch (IOException e) {
+            assertTrue(e.getMessage().contains(TenantScheduler.SYSTEM_TENANT));
+        }
+        assertEquals(0, (int) scheduler.getQueued().get(TenantScheduler.SYSTEM_TENANT));
+    }
+
+    /* Test method to check that only the most recent idle tenants are remembered, besides the tenants with changed limits */
+    @Test
+    public void testIdleTenantsBounded() throws IOException {
+        System.setProperty(TenantScheduler.IDLE_TENANTS_PROPERTY, "2");
+        try {
+            TenantScheduler scheduler = new TenantScheduler(new FakeApiServer().connector(), 4, 4, 0, 1, 10000);
+            scheduler.setMaxConcurrent("C", 2);
+            ApiConnector scheduled = scheduler.proxy();
+            for (String tenantId : Arrays.asList("T0", "T1", "T2", "T3", "T4")) {
+                TenantScheduler.enter(tenantId);
+                scheduled.create(new VirtualNetwork());
+            }
+            assertEquals(Arrays.asList("c", "t3", "t4"), new ArrayList<String>(scheduler.getAdmitted().keySet()));
+            assertEquals(1L, (long) scheduler.getAdmitted().get("t4"));
+            TenantScheduler.enter("T3");
+            scheduled.create(new VirtualNetwork());
+            assertEquals(2L, (long) scheduler.getAdmitted().get("t3"));
+        } finally {
+            System.clearProperty(TenantScheduler.IDLE_TENANTS_PROPERTY);
+        }
+    }
+
+    /* Test method to check that the scheduler can be tuned through JMX */
+    @Test
+    public void testMBean() throws Exception {
+        TenantScheduler.schedule(connector);
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName name = new ObjectName(TenantScheduler.OBJECT_NAME);
+        assertEquals(32, server.getAttribute(name, "Slots"));
+        server.setAttribute(name, new Attribute("Slots", 8));
+        assertEquals(8, server.getAttribute(name, "Slots"));
+        server.invoke(name, "setRateLimit", new Object[] { "6b9570f2-17b1-4fc3-99ec-1b7f7778a29a", 5.0, 5 },
+                new String[] { String.class.getName(), double.class.getName(), int.class.getName() });
+        TenantScheduler.unregister();
+        assertFalse(server.isRegistered(name));
+    }
+}
@@ -0,0 +1,82 @@
+/*
+ * Copyright (C) 2014 Juniper Networks, Inc.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ *
+ */
+package org.opendaylight.plugin2oc.neutron;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+
+import org.junit.Test;
+import org.opendaylight.controller.networkconfig.neutron.NeutronLoadBalancerPool;
+import org.opendaylight.controller.networkconfig.neutron.NeutronNetwork;
+
+/**
+ * Test Class for the proxy running the handler callbacks under the tenant
+ * of their request.
+ */
+public class TenantTaggerTest {
+    interface Callback {
+        String handle(NeutronNetwork delta, NeutronNetwork original) throws IOException;
+    }
+
+    static class Handler implements Callback {
+        @Override
+        public String handle(NeutronNetwork delta, NeutronNetwork original) throws IOException {
+            if (original == null && delta == null) {
+                throw new IOException("Connection refused");
+            }
+            return TenantScheduler.tenant();
+        }
+    }
+
+    private static NeutronNetwork network(String tenantId) {
+        NeutronNetwork network = new NeutronNetwork();
+        network.setTenantID(tenantId);
+        return network;
+    }
+
+    /* Test method to check that a callback runs under the tenant of the original object and the tag is cleared after it */
+    @Test
+    public void testTagsCallback() throws IOException {
+        Callback callback = (Callback) TenantTagger.tag(new Handler());
+        assertEquals("7b9570f217b14fc399ec1b7f7778a29a",
+                callback.handle(network("6b9570f2-17b1-4fc3-99ec-1b7f7778a29a"), network("7B9570F2-17B1-4FC3-99EC-1B7F7778A29A")));
+        assertNull(TenantScheduler.tenant());
+        assertEquals("6b9570f217b14fc399ec1b7f7778a29a", callback.handle(network("6b9570f2-17b1-4fc3-99ec-1b7f7778a29a"), null));
+        assertNull(TenantScheduler.tenant());
+    }
+
+    /* Test method to check that the tag the thread had is restored, also when the callback throws */
+    @Test
+    public void testRestoresPreviousTag() {
+        Callback callback = (Callback) TenantTagger.tag(new Handler());
+        String previous = TenantScheduler.enter("6b9570f2-17b1-4fc3-99ec-1b7f7778a29a");
+        try {
+            callback.handle(null, null);
+            fail("IOException expected");
+        } catch (IOException e) {
+            assertEquals("6b9570f217b14fc399ec1b7f7778a29a", TenantScheduler.tenant());
+        } finally {
+            TenantScheduler.exit(previous);
+        }
+        assertNull(TenantScheduler.tenant());
+    }
+
+    /* Test method to check that the tenant is read from the tenant getter of each type of Neutron object */
+    @Test
+    public void testTenantOf() {
+        NeutronLoadBalancerPool pool = new NeutronLoadBalancerPool();
+        pool.setLoadBalancerPoolTenantID("6b9570f2-17b1-4fc3-99ec-1b7f7778a29a");
+        assertEquals("6b9570f2-17b1-4fc3-99ec-1b7f7778a29a", TenantTagger.tenantOf(pool));
+        assertNull(TenantTagger.tenantOf("6b9570f2-17b1-4fc3-99ec-1b7f7778a29a"));
+        assertNull(TenantTagger.tenantOf(null));
+    }
+}
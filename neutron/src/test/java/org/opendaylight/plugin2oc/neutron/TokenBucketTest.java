@@ -0,0 +1,41 @@
+/*
+ * Copyright (C) 2014 Juniper Networks, Inc.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ *
+ */
+package org.opendaylight.plugin2oc.neutron;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+/**
+ * Test Class for the token bucket rate limiter.
+ */
+public class TokenBucketTest {
+
+    /* Test method to check that an idle bucket grants its burst and then refuses */
+    @Test
+    public void testBurst() {
+        TokenBucket bucket = new TokenBucket(0.001, 3);
+        assertTrue(bucket.tryAcquire(1));
+        assertTrue(bucket.tryAcquire(1));
+        assertTrue(bucket.tryAcquire(1));
+        assertFalse(bucket.tryAcquire(1));
+    }
+
+    /* Test method to check that permits are granted again once they are due */
+    @Test
+    public void testRefill() throws InterruptedException {
+        TokenBucket bucket = new TokenBucket(100, 1);
+        assertTrue(bucket.tryAcquire(1));
+        assertFalse(bucket.tryAcquire(1));
+        bucket.acquire(1);
+        Thread.sleep(20);
+        assertTrue(bucket.tryAcquire(1));
+    }
+}